@@ -0,0 +1,123 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.RoomModelLiquidCells;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.MeshType;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link RoomModelLiquidCells#generate},
+ * {@link RoomModelLiquidCells#generateParallel} and
+ * {@link RoomModelLiquidCells#updateBand(int, int)}.
+ *
+ * Rooms are produced by {@link SyntheticRooms#scattered(int, int, double, long)}
+ * and are parameterized by polygon count, the number of distinct vertex Y
+ * values (which determines the number of spans swept), and the jaggedness
+ * of the geometry.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LiquidCellsBenchmark
+{
+  @Benchmark
+  public RoomModelLiquidCells generate(
+    final Room state)
+  {
+    return RoomModelLiquidCells.generate(state.mesh);
+  }
+
+  @Benchmark
+  public RoomModelLiquidCells generateParallel(
+    final Room state)
+  {
+    return RoomModelLiquidCells.generateParallel(
+      state.mesh, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public RoomModelLiquidCells updateVertexMove(
+    final RoomCells state)
+  {
+    final PolygonVertexType v = state.vertex;
+    final Vector2I p = v.position();
+    if (state.moved) {
+      state.mesh.vertexSetPosition(v.id(), Vector2I.of(p.x() - 1, p.y()));
+    } else {
+      state.mesh.vertexSetPosition(v.id(), Vector2I.of(p.x() + 1, p.y()));
+    }
+    state.moved = !state.moved;
+
+    final AreaI bounds = v.polygons().iterator().next().bounds();
+    state.cells.updateBand(bounds.minimumY(), bounds.maximumY());
+    return state.cells;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Room
+  {
+    @Param({"100", "1000", "10000", "100000"})
+    public int polygons;
+
+    @Param({"8", "64", "512"})
+    public int y_values;
+
+    @Param({"0.0", "0.5", "1.0"})
+    public double jaggedness;
+
+    MeshType mesh;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.mesh = SyntheticRooms.scattered(
+        this.polygons, this.y_values, this.jaggedness, 0x6c697175L);
+    }
+  }
+
+  /**
+   * A room, its liquid cells, and a vertex in the middle of the room that is
+   * repeatedly moved back and forth.
+   */
+
+  @State(Scope.Benchmark)
+  public static class RoomCells extends Room
+  {
+    RoomModelLiquidCells cells;
+    PolygonVertexType vertex;
+    boolean moved;
+
+    @Override
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      super.setup();
+      this.cells = RoomModelLiquidCells.generate(this.mesh);
+
+      final List<PolygonVertexType> vertices =
+        this.mesh.verticesSorted();
+      this.vertex = vertices.get(vertices.size() / 2);
+    }
+  }
+}
@@ -0,0 +1,318 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the mutation and query operations of {@link Mesh}.
+ *
+ * Each benchmark operates on a square grid of quads containing the given
+ * number of polygons (see {@link SyntheticRooms#grid(int)}). The benchmarks
+ * that create and delete polygons work on a fixed set of quads spread over
+ * the grid, all of whose vertices are shared with quads outside of the set,
+ * so that creating and deleting them never creates or deletes vertices.
+ * Each invocation creates or deletes the whole set, so that restoring the
+ * grid between invocations is cheap compared to the measured work.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MeshBenchmark
+{
+  private static final int QUERY_COUNT = 1024;
+  private static final int HOLE_COUNT = 128;
+
+  @Benchmark
+  @OperationsPerInvocation(HOLE_COUNT)
+  public PolygonType[] polygonCreate(
+    final GridWithHoles state)
+  {
+    final PolygonVertexType[][] holes = state.holes;
+    for (int index = 0; index < HOLE_COUNT; ++index) {
+      final PolygonVertexType[] hole = holes[index];
+      state.created[index] = state.grid.mesh().polygonCreateVV(
+        hole[0], hole[1], hole[2], hole[3]);
+    }
+    return state.created;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(HOLE_COUNT)
+  public PolygonType[] polygonDelete(
+    final GridFilled state)
+  {
+    final PolygonType[] quads = state.quads;
+    for (int index = 0; index < HOLE_COUNT; ++index) {
+      state.grid.mesh().polygonDelete(quads[index].id());
+    }
+    return quads;
+  }
+
+  @Benchmark
+  public boolean vertexSetPosition(
+    final GridQueries state)
+  {
+    final PolygonVertexType v = state.grid.hole()[0];
+    final Vector2I p = v.position();
+    if (state.moved) {
+      state.grid.mesh().vertexSetPosition(
+        v.id(), Vector2I.of(p.x() - 1, p.y()));
+    } else {
+      state.grid.mesh().vertexSetPosition(
+        v.id(), Vector2I.of(p.x() + 1, p.y()));
+    }
+    state.moved = !state.moved;
+    return state.moved;
+  }
+
+  @Benchmark
+  public Optional<PolygonVertexType> vertexFind(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().vertexFind(state.vertex_positions[index]);
+  }
+
+  @Benchmark
+  public Optional<PolygonType> polygonFind(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().polygonFind(state.polygon_positions[index]);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(QUERY_COUNT)
+  public long[] polygonFindEach(
+    final GridQueries state)
+  {
+    final long[] results = state.batch_results;
+    for (int index = 0; index < QUERY_COUNT; ++index) {
+      final Optional<PolygonType> p =
+        state.grid.mesh().polygonFind(
+          Vector2I.of(state.batch_xs[index], state.batch_ys[index]));
+      results[index] = p.isPresent() ? p.get().id().value() : -1L;
+    }
+    return results;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(QUERY_COUNT)
+  public long[] polygonFindAll(
+    final GridQueries state)
+  {
+    state.grid.mesh().polygonFindAll(
+      state.batch_xs, state.batch_ys, state.batch_results);
+    return state.batch_results;
+  }
+
+  /**
+   * Choose {@link #HOLE_COUNT} quads spread evenly over the given grid, none
+   * of which share vertices with each other or lie on the edge of the grid,
+   * and return the vertices of each quad.
+   */
+
+  private static PolygonVertexType[][] chooseHoles(
+    final SyntheticRooms.Grid grid)
+  {
+    //
+    // Quads at odd coordinates share no vertices with each other. The last
+    // row may be partially filled, so the two rows before it are avoided.
+    //
+
+    final int count_x = (grid.columns() - 2) / 2;
+    final int count_y = (grid.rows() - 3) / 2;
+    final int side = (int) Math.ceil(Math.sqrt((double) HOLE_COUNT));
+    Preconditions.checkPreconditionI(
+      Math.min(count_x, count_y),
+      Math.min(count_x, count_y) >= side,
+      n -> "Grid is too small for the required number of holes");
+
+    final int size = SyntheticRooms.GRID_CELL_SIZE;
+    final PolygonVertexType[][] holes = new PolygonVertexType[HOLE_COUNT][];
+    for (int index = 0; index < HOLE_COUNT; ++index) {
+      final int x = 1 + (2 * (((index % side) * count_x) / side));
+      final int y = 1 + (2 * (((index / side) * count_y) / side));
+      holes[index] = new PolygonVertexType[]{
+        gridVertex(grid, x * size, y * size),
+        gridVertex(grid, x * size, (y + 1) * size),
+        gridVertex(grid, (x + 1) * size, (y + 1) * size),
+        gridVertex(grid, (x + 1) * size, y * size),
+      };
+    }
+    return holes;
+  }
+
+  private static PolygonVertexType gridVertex(
+    final SyntheticRooms.Grid grid,
+    final int x,
+    final int y)
+  {
+    return grid.mesh().vertexFind(Vector2I.of(x, y)).get();
+  }
+
+  /**
+   * A grid of quads with a set of quads missing. The missing quads are
+   * deleted again after each invocation.
+   */
+
+  @State(Scope.Benchmark)
+  public static class GridWithHoles
+  {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int polygons;
+
+    SyntheticRooms.Grid grid;
+    PolygonVertexType[][] holes;
+    PolygonType[] created;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.grid = SyntheticRooms.grid(this.polygons);
+      this.holes = chooseHoles(this.grid);
+      this.created = new PolygonType[HOLE_COUNT];
+
+      final int half = SyntheticRooms.GRID_CELL_SIZE / 2;
+      for (final PolygonVertexType[] hole : this.holes) {
+        final Vector2I corner = hole[0].position();
+        final PolygonType polygon =
+          this.grid.mesh().polygonFind(
+            Vector2I.of(corner.x() + half, corner.y() + half)).get();
+        this.grid.mesh().polygonDelete(polygon.id());
+      }
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDown()
+    {
+      for (final PolygonType polygon : this.created) {
+        this.grid.mesh().polygonDelete(polygon.id());
+      }
+    }
+  }
+
+  /**
+   * A complete grid of quads. The quads deleted by each invocation are
+   * recreated before the next.
+   */
+
+  @State(Scope.Benchmark)
+  public static class GridFilled
+  {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int polygons;
+
+    SyntheticRooms.Grid grid;
+    PolygonVertexType[][] holes;
+    PolygonType[] quads;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.grid = SyntheticRooms.grid(this.polygons);
+      this.holes = chooseHoles(this.grid);
+      this.quads = new PolygonType[HOLE_COUNT];
+
+      final int half = SyntheticRooms.GRID_CELL_SIZE / 2;
+      for (int index = 0; index < HOLE_COUNT; ++index) {
+        final Vector2I corner = this.holes[index][0].position();
+        this.quads[index] =
+          this.grid.mesh().polygonFind(
+            Vector2I.of(corner.x() + half, corner.y() + half)).get();
+      }
+    }
+
+    @Setup(Level.Invocation)
+    public void setupInvocation()
+    {
+      for (int index = 0; index < HOLE_COUNT; ++index) {
+        if (this.quads[index].deleted()) {
+          final PolygonVertexType[] hole = this.holes[index];
+          this.quads[index] = this.grid.mesh().polygonCreateVV(
+            hole[0], hole[1], hole[2], hole[3]);
+        }
+      }
+    }
+  }
+
+  /**
+   * A complete grid of quads, and a set of randomly chosen query positions.
+   */
+
+  @State(Scope.Benchmark)
+  public static class GridQueries
+  {
+    @Param({"100", "1000", "10000", "100000", "1000000"})
+    public int polygons;
+
+    SyntheticRooms.Grid grid;
+    Vector2I[] vertex_positions;
+    Vector2I[] polygon_positions;
+    int[] batch_xs;
+    int[] batch_ys;
+    long[] batch_results;
+    boolean moved;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.grid = SyntheticRooms.grid(this.polygons);
+
+      final int size = SyntheticRooms.GRID_CELL_SIZE;
+      final SplittableRandom random = new SplittableRandom(0x726f6f6dL);
+      this.vertex_positions = new Vector2I[QUERY_COUNT];
+      this.polygon_positions = new Vector2I[QUERY_COUNT];
+      for (int index = 0; index < QUERY_COUNT; ++index) {
+        final int column = random.nextInt(this.grid.columns());
+        final int row = random.nextInt(this.grid.rows() - 1);
+        this.vertex_positions[index] =
+          Vector2I.of(column * size, row * size);
+        this.polygon_positions[index] =
+          Vector2I.of(
+            (column * size) + (size / 2),
+            (row * size) + (size / 2));
+      }
+
+      this.batch_xs = new int[QUERY_COUNT];
+      this.batch_ys = new int[QUERY_COUNT];
+      this.batch_results = new long[QUERY_COUNT];
+      for (int index = 0; index < QUERY_COUNT; ++index) {
+        this.batch_xs[index] = random.nextInt(this.grid.columns() * size);
+        this.batch_ys[index] = random.nextInt(this.grid.rows() * size);
+      }
+    }
+
+    int next()
+    {
+      this.query = (this.query + 1) & (QUERY_COUNT - 1);
+      return this.query;
+    }
+  }
+}
@@ -0,0 +1,212 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshIndexConfiguration;
+import com.io7m.roommodel0.mesh.MeshIndexKind;
+import com.io7m.roommodel0.mesh.MeshSegmentHit;
+import com.io7m.roommodel0.mesh.PolygonID;
+import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing the polygon indexes available to {@link Mesh}, on a
+ * square grid of quads (see {@link SyntheticRooms#grid(int)}). The grid
+ * index is created without an explicit cell size, so the cell size follows
+ * the size of the quads. The track benchmarks follow a point that moves a
+ * short distance on each query, as a moving object would, either searching
+ * the index each time or walking from the previously found polygon. The
+ * segment cast benchmark casts segments up to sixteen quads long in random
+ * directions.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MeshIndexBenchmark
+{
+  private static final int QUERY_COUNT = 1024;
+  private static final int SEGMENT_CELLS = 16;
+
+  @Benchmark
+  public Optional<PolygonType> polygonFind(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().polygonFind(state.polygon_positions[index]);
+  }
+
+  @Benchmark
+  public Optional<PolygonType> polygonFindOnVertex(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().polygonFind(state.vertex_positions[index]);
+  }
+
+  @Benchmark
+  public Optional<PolygonType> polygonFindTrack(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().polygonFind(state.track_positions[index]);
+  }
+
+  @Benchmark
+  public Optional<PolygonType> polygonFindFromTrack(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    final Optional<PolygonType> found =
+      state.grid.mesh().polygonFindFrom(
+        state.track_hint, state.track_positions[index]);
+    if (found.isPresent()) {
+      state.track_hint = found.get().id();
+    }
+    return found;
+  }
+
+  @Benchmark
+  public Optional<PolygonVertexType> vertexFind(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    return state.grid.mesh().vertexFind(state.vertex_positions[index]);
+  }
+
+  @Benchmark
+  public int vertexNearest(
+    final GridQueries state)
+  {
+    final Vector2I p = state.polygon_positions[state.next()];
+    return state.grid.mesh().vertexNearest(
+      p.x(),
+      p.y(),
+      SyntheticRooms.GRID_CELL_SIZE,
+      state.nearest_vertices,
+      state.nearest_distances);
+  }
+
+  @Benchmark
+  public Optional<MeshSegmentHit> segmentCast(
+    final GridQueries state)
+  {
+    final int index = state.next();
+    final Vector2I p0 = state.polygon_positions[index];
+    final Vector2I p1 = state.segment_ends[index];
+    return state.grid.mesh().segmentCast(p0.x(), p0.y(), p1.x(), p1.y());
+  }
+
+  @Benchmark
+  public boolean vertexSetPosition(
+    final GridQueries state)
+  {
+    final PolygonVertexType v = state.grid.hole()[0];
+    final Vector2I p = v.position();
+    if (state.moved) {
+      state.grid.mesh().vertexSetPosition(
+        v.id(), Vector2I.of(p.x() - 1, p.y()));
+    } else {
+      state.grid.mesh().vertexSetPosition(
+        v.id(), Vector2I.of(p.x() + 1, p.y()));
+    }
+    state.moved = !state.moved;
+    return state.moved;
+  }
+
+  /**
+   * A complete grid of quads, and a set of randomly chosen query positions.
+   */
+
+  @State(Scope.Benchmark)
+  public static class GridQueries
+  {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int polygons;
+
+    @Param({"MESH_INDEX_QUADTREE", "MESH_INDEX_GRID"})
+    public MeshIndexKind index;
+
+    SyntheticRooms.Grid grid;
+    Vector2I[] vertex_positions;
+    Vector2I[] polygon_positions;
+    Vector2I[] segment_ends;
+    Vector2I[] track_positions;
+    PolygonID track_hint;
+    PolygonVertexType[] nearest_vertices;
+    double[] nearest_distances;
+    boolean moved;
+    private int query;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.grid = SyntheticRooms.grid(
+        this.polygons, MeshIndexConfiguration.of(this.index));
+
+      final int size = SyntheticRooms.GRID_CELL_SIZE;
+      final SplittableRandom random = new SplittableRandom(0x726f6f6dL);
+      this.vertex_positions = new Vector2I[QUERY_COUNT];
+      this.polygon_positions = new Vector2I[QUERY_COUNT];
+      for (int index = 0; index < QUERY_COUNT; ++index) {
+        final int column = random.nextInt(this.grid.columns());
+        final int row = random.nextInt(this.grid.rows() - 1);
+        this.vertex_positions[index] =
+          Vector2I.of(column * size, row * size);
+        this.polygon_positions[index] =
+          Vector2I.of(
+            (column * size) + (size / 2),
+            (row * size) + (size / 2));
+      }
+
+      this.segment_ends = new Vector2I[QUERY_COUNT];
+      final int reach = SEGMENT_CELLS * size;
+      for (int index = 0; index < QUERY_COUNT; ++index) {
+        final Vector2I p = this.polygon_positions[index];
+        this.segment_ends[index] =
+          Vector2I.of(
+            p.x() + random.nextInt(-reach, reach),
+            p.y() + random.nextInt(-reach, reach));
+      }
+
+      this.track_positions = new Vector2I[QUERY_COUNT];
+      final int width = this.grid.columns() * size;
+      final int height = (this.grid.rows() - 1) * size;
+      int x = width / 2;
+      int y = height / 2;
+      for (int index = 0; index < QUERY_COUNT; ++index) {
+        x = Math.max(0, Math.min(width, x + random.nextInt(-size, size)));
+        y = Math.max(0, Math.min(height, y + random.nextInt(-size, size)));
+        this.track_positions[index] = Vector2I.of(x, y);
+      }
+      this.track_hint = this.grid.center().id();
+      this.nearest_vertices = new PolygonVertexType[1];
+      this.nearest_distances = new double[1];
+    }
+
+    int next()
+    {
+      this.query = (this.query + 1) & (QUERY_COUNT - 1);
+      return this.query;
+    }
+  }
+}
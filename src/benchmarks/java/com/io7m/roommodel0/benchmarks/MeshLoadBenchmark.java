@@ -0,0 +1,90 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshType;
+import com.io7m.roommodel0.mesh.PolygonVertexID;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for loading a complete room into an empty {@link Mesh}, either
+ * one vertex and polygon at a time or with
+ * {@link MeshType#bulkLoad(int[], int[], int[])}.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MeshLoadBenchmark
+{
+  @Benchmark
+  public MeshType loadIncremental(
+    final Room state)
+  {
+    final SyntheticRooms.GridArrays g = state.grid;
+    final MeshType mesh = Mesh.create(g.bounds());
+
+    final PolygonVertexID[] vertices =
+      new PolygonVertexID[g.positions().length / 2];
+    for (int index = 0; index < vertices.length; ++index) {
+      vertices[index] = mesh.vertexCreate(
+        Vector2I.of(g.positions()[index * 2], g.positions()[(index * 2) + 1]))
+        .id();
+    }
+
+    int offset = 0;
+    for (int polygon = 0; polygon < g.polygonSizes().length; ++polygon) {
+      final int size = g.polygonSizes()[polygon];
+      final List<PolygonVertexID> ids = new ArrayList<>(size);
+      for (int index = 0; index < size; ++index) {
+        ids.add(vertices[g.polygonVertices()[offset + index]]);
+      }
+      mesh.polygonCreate(ids);
+      offset += size;
+    }
+    return mesh;
+  }
+
+  @Benchmark
+  public MeshType loadBulk(
+    final Room state)
+  {
+    final SyntheticRooms.GridArrays g = state.grid;
+    final MeshType mesh = Mesh.create(g.bounds());
+    mesh.bulkLoad(g.positions(), g.polygonSizes(), g.polygonVertices());
+    return mesh;
+  }
+
+  @State(Scope.Benchmark)
+  public static class Room
+  {
+    @Param({"10000", "100000", "500000"})
+    public int polygons;
+
+    SyntheticRooms.GridArrays grid;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      this.grid = SyntheticRooms.gridArrays(this.polygons);
+    }
+  }
+}
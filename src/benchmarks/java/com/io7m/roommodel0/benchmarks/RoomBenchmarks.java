@@ -0,0 +1,35 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Benchmark entry point. Accepts the usual JMH command-line options, and
+ * always enables the GC profiler so that allocation rates are reported
+ * alongside throughput.
+ */
+
+public final class RoomBenchmarks
+{
+  private RoomBenchmarks()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  public static void main(
+    final String[] args)
+    throws Exception
+  {
+    final Options options =
+      new OptionsBuilder()
+        .parent(new CommandLineOptions(args))
+        .addProfiler(GCProfiler.class)
+        .build();
+
+    new Runner(options).run();
+  }
+}
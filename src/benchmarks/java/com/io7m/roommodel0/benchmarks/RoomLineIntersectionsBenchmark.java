@@ -0,0 +1,148 @@
+package com.io7m.roommodel0.benchmarks;
+
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
+import com.io7m.roommodel0.RoomLineIntersections;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks comparing intersecting one segment with many segments a pair
+ * at a time against the batch functions of {@link RoomLineIntersections}.
+ * The segments are short and randomly placed, so that roughly one in ten of
+ * them intersects the query segment.
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RoomLineIntersectionsBenchmark
+{
+  private static final int SEGMENT_COUNT = 1024;
+
+  @Benchmark
+  @OperationsPerInvocation(SEGMENT_COUNT)
+  public int intersectionEach(
+    final Segments state)
+  {
+    int hits = 0;
+    for (int index = 0; index < SEGMENT_COUNT; ++index) {
+      final Optional<Vector2D> p =
+        RoomLineIntersections.intersection(
+          0.0,
+          0.0,
+          1000.0,
+          500.0,
+          state.xs0[index],
+          state.ys0[index],
+          state.xs1[index],
+          state.ys1[index]);
+      if (p.isPresent()) {
+        ++hits;
+      }
+    }
+    return hits;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SEGMENT_COUNT)
+  public int intersectsBatch(
+    final Segments state)
+  {
+    return RoomLineIntersections.intersectsBatch(
+      0.0,
+      0.0,
+      1000.0,
+      500.0,
+      state.xs0,
+      state.ys0,
+      state.xs1,
+      state.ys1,
+      SEGMENT_COUNT,
+      state.hits,
+      state.parameters);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SEGMENT_COUNT)
+  public int intersectsBatchInt(
+    final Segments state)
+  {
+    return RoomLineIntersections.intersectsBatch(
+      0,
+      0,
+      1000,
+      500,
+      state.int_xs0,
+      state.int_ys0,
+      state.int_xs1,
+      state.int_ys1,
+      SEGMENT_COUNT,
+      state.hits,
+      state.parameters);
+  }
+
+  /**
+   * A set of randomly placed segments, with both integer and
+   * double-precision coordinates.
+   */
+
+  @State(Scope.Benchmark)
+  public static class Segments
+  {
+    double[] xs0;
+    double[] ys0;
+    double[] xs1;
+    double[] ys1;
+    int[] int_xs0;
+    int[] int_ys0;
+    int[] int_xs1;
+    int[] int_ys1;
+    boolean[] hits;
+    double[] parameters;
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+      final SplittableRandom random = new SplittableRandom(0x726f6f6dL);
+      this.xs0 = new double[SEGMENT_COUNT];
+      this.ys0 = new double[SEGMENT_COUNT];
+      this.xs1 = new double[SEGMENT_COUNT];
+      this.ys1 = new double[SEGMENT_COUNT];
+      this.int_xs0 = new int[SEGMENT_COUNT];
+      this.int_ys0 = new int[SEGMENT_COUNT];
+      this.int_xs1 = new int[SEGMENT_COUNT];
+      this.int_ys1 = new int[SEGMENT_COUNT];
+      this.hits = new boolean[SEGMENT_COUNT];
+      this.parameters = new double[SEGMENT_COUNT];
+
+      for (int index = 0; index < SEGMENT_COUNT; ++index) {
+        final int x = random.nextInt(1000);
+        final int y = random.nextInt(1000);
+        this.int_xs0[index] = x;
+        this.int_ys0[index] = y;
+        this.int_xs1[index] = x + random.nextInt(-50, 50);
+        this.int_ys1[index] = y + random.nextInt(-50, 50);
+        this.xs0[index] = (double) this.int_xs0[index];
+        this.ys0[index] = (double) this.int_ys0[index];
+        this.xs1[index] = (double) this.int_xs1[index];
+        this.ys1[index] = (double) this.int_ys1[index];
+      }
+    }
+  }
+}
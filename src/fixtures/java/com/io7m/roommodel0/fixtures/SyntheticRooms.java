@@ -0,0 +1,409 @@
+package com.io7m.roommodel0.fixtures;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshIndexConfiguration;
+import com.io7m.roommodel0.mesh.MeshIndexKind;
+import com.io7m.roommodel0.mesh.MeshType;
+import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generators for synthetic rooms of arbitrary size, for use in benchmarks
+ * and tests. All generators are deterministic for a given set of
+ * parameters.
+ */
+
+public final class SyntheticRooms
+{
+  /**
+   * The size of each cell in grids produced by {@link #grid(int)}.
+   */
+
+  public static final int GRID_CELL_SIZE = 8;
+
+  /**
+   * The horizontal space reserved for each polygon in rooms produced by
+   * {@link #scattered(int, int, double, long)}.
+   */
+
+  public static final int SCATTERED_CELL_WIDTH = 16;
+
+  /**
+   * The vertical distance between adjacent Y values in rooms produced by
+   * {@link #scattered(int, int, double, long)}.
+   */
+
+  public static final int SCATTERED_CELL_HEIGHT = 16;
+
+  private static final int SCATTERED_MARGIN = 16;
+  private static final int SCATTERED_INSET = 2;
+  private static final int SCATTERED_JITTER_MAX = 5;
+
+  private SyntheticRooms()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a grid containing exactly {@code count} quads of size
+   * {@link #GRID_CELL_SIZE}, with all edges between adjacent quads shared.
+   * The grid is as close to square as possible; only the last row may be
+   * partially filled.
+   *
+   * @param count The number of polygons
+   *
+   * @return A new grid
+   */
+
+  public static Grid grid(
+    final int count)
+  {
+    return grid(
+      count, MeshIndexConfiguration.of(MeshIndexKind.MESH_INDEX_QUADTREE));
+  }
+
+  /**
+   * Create a grid as with {@link #grid(int)}, in a mesh that uses the given
+   * polygon index.
+   *
+   * @param count The number of polygons
+   * @param index The polygon index configuration
+   *
+   * @return A new grid
+   */
+
+  public static Grid grid(
+    final int count,
+    final MeshIndexConfiguration index)
+  {
+    Preconditions.checkPreconditionI(
+      count, count > 0, c -> "Polygon count must be positive");
+
+    final Grid g = new Grid();
+    g.columns = (int) Math.ceil(Math.sqrt((double) count));
+    g.rows = (count + g.columns - 1) / g.columns;
+    g.mesh = Mesh.create(
+      AreaI.of(
+        0,
+        (g.columns + 1) * GRID_CELL_SIZE,
+        0,
+        (g.rows + 1) * GRID_CELL_SIZE),
+      index);
+
+    final int stride = g.columns + 1;
+    final PolygonVertexType[] vertices =
+      new PolygonVertexType[stride * (g.rows + 1)];
+
+    final int center_x = g.columns / 2;
+    final int center_y = g.rows / 2;
+
+    int created = 0;
+    for (int y = 0; y < g.rows && created < count; ++y) {
+      for (int x = 0; x < g.columns && created < count; ++x) {
+        final PolygonVertexType v0 = gridVertex(g.mesh, vertices, stride, x, y);
+        final PolygonVertexType v1 = gridVertex(g.mesh, vertices, stride, x, y + 1);
+        final PolygonVertexType v2 = gridVertex(g.mesh, vertices, stride, x + 1, y + 1);
+        final PolygonVertexType v3 = gridVertex(g.mesh, vertices, stride, x + 1, y);
+        final PolygonType p = g.mesh.polygonCreateVV(v0, v1, v2, v3);
+        if (x == center_x && y == center_y) {
+          g.center = p;
+          g.hole = new PolygonVertexType[]{v0, v1, v2, v3};
+        }
+        ++created;
+      }
+    }
+    return g;
+  }
+
+  private static PolygonVertexType gridVertex(
+    final MeshType mesh,
+    final PolygonVertexType[] vertices,
+    final int stride,
+    final int x,
+    final int y)
+  {
+    final int index = (y * stride) + x;
+    PolygonVertexType v = vertices[index];
+    if (v == null) {
+      v = mesh.vertexCreate(Vector2I.of(x * GRID_CELL_SIZE, y * GRID_CELL_SIZE));
+      vertices[index] = v;
+    }
+    return v;
+  }
+
+  /**
+   * Create a room containing {@code count} disjoint quads, arranged in rows
+   * such that the vertices of the room occupy exactly {@code y_values}
+   * distinct Y values (and therefore produce {@code y_values} spans during
+   * liquid cell generation). If there are fewer polygons than rows, the
+   * number of distinct Y values is {@code count + 1}.
+   *
+   * The {@code jaggedness} parameter, in the range {@code [0, 1]}, controls
+   * how far the vertices of each quad are moved inwards on the X axis. With
+   * a jaggedness of {@code 0}, all quads are axis-aligned rectangles and all
+   * non-horizontal edges are vertical. Larger values produce increasingly
+   * slanted edges.
+   *
+   * @param count      The number of polygons
+   * @param y_values   The number of distinct Y values
+   * @param jaggedness The jaggedness of the geometry
+   * @param seed       The random seed
+   *
+   * @return A new mesh
+   */
+
+  public static MeshType scattered(
+    final int count,
+    final int y_values,
+    final double jaggedness,
+    final long seed)
+  {
+    Preconditions.checkPreconditionI(
+      count, count > 0, c -> "Polygon count must be positive");
+    Preconditions.checkPreconditionI(
+      y_values, y_values >= 2, c -> "At least two Y values are required");
+    Preconditions.checkPreconditionV(
+      jaggedness >= 0.0 && jaggedness <= 1.0,
+      "Jaggedness %f must be in the range [0, 1]",
+      Double.valueOf(jaggedness));
+
+    final int rows = Math.min(y_values - 1, count);
+    final int columns = (count + rows - 1) / rows;
+    final int jitter_max =
+      (int) Math.round(jaggedness * (double) SCATTERED_JITTER_MAX);
+
+    final MeshType mesh = Mesh.create(
+      AreaI.of(
+        0,
+        (columns * SCATTERED_CELL_WIDTH) + (2 * SCATTERED_MARGIN),
+        0,
+        (rows * SCATTERED_CELL_HEIGHT) + (2 * SCATTERED_MARGIN)));
+
+    final SplittableRandom random = new SplittableRandom(seed);
+
+    int created = 0;
+    for (int row = 0; row < rows && created < count; ++row) {
+      final int y0 = SCATTERED_MARGIN + (row * SCATTERED_CELL_HEIGHT);
+      final int y1 = y0 + SCATTERED_CELL_HEIGHT;
+
+      for (int column = 0; column < columns && created < count; ++column) {
+        final int cell_x = SCATTERED_MARGIN + (column * SCATTERED_CELL_WIDTH);
+        final int x0 = cell_x + SCATTERED_INSET;
+        final int x1 = cell_x + SCATTERED_CELL_WIDTH - SCATTERED_INSET;
+
+        final int j0 = random.nextInt(jitter_max + 1);
+        final int j1 = random.nextInt(jitter_max + 1);
+        final int j2 = random.nextInt(jitter_max + 1);
+        final int j3 = random.nextInt(jitter_max + 1);
+
+        mesh.polygonCreateVV(
+          mesh.vertexCreate(Vector2I.of(x0 + j0, y0)),
+          mesh.vertexCreate(Vector2I.of(x0 + j1, y1)),
+          mesh.vertexCreate(Vector2I.of(x1 - j2, y1)),
+          mesh.vertexCreate(Vector2I.of(x1 - j3, y0)));
+        ++created;
+      }
+    }
+
+    return mesh;
+  }
+
+  /**
+   * Describe a grid of exactly {@code count} quads, laid out as by
+   * {@link #grid(int)}, in the form accepted by
+   * {@link MeshType#bulkLoad(int[], int[], int[])}.
+   *
+   * @param count The number of polygons
+   *
+   * @return A new grid description
+   */
+
+  public static GridArrays gridArrays(
+    final int count)
+  {
+    Preconditions.checkPreconditionI(
+      count, count > 0, c -> "Polygon count must be positive");
+
+    final GridArrays g = new GridArrays();
+    g.columns = (int) Math.ceil(Math.sqrt((double) count));
+    g.rows = (count + g.columns - 1) / g.columns;
+    g.bounds = AreaI.of(
+      0,
+      (g.columns + 1) * GRID_CELL_SIZE,
+      0,
+      (g.rows + 1) * GRID_CELL_SIZE);
+
+    final int stride = g.columns + 1;
+    g.positions = new int[stride * (g.rows + 1) * 2];
+    for (int y = 0; y <= g.rows; ++y) {
+      for (int x = 0; x <= g.columns; ++x) {
+        final int index = (y * stride) + x;
+        g.positions[index * 2] = x * GRID_CELL_SIZE;
+        g.positions[(index * 2) + 1] = y * GRID_CELL_SIZE;
+      }
+    }
+
+    g.polygon_sizes = new int[count];
+    g.polygon_vertices = new int[count * 4];
+    int created = 0;
+    for (int y = 0; y < g.rows && created < count; ++y) {
+      for (int x = 0; x < g.columns && created < count; ++x) {
+        final int v0 = (y * stride) + x;
+        final int base = created * 4;
+        g.polygon_sizes[created] = 4;
+        g.polygon_vertices[base] = v0;
+        g.polygon_vertices[base + 1] = v0 + stride;
+        g.polygon_vertices[base + 2] = v0 + stride + 1;
+        g.polygon_vertices[base + 3] = v0 + 1;
+        ++created;
+      }
+    }
+    return g;
+  }
+
+  /**
+   * A description of a grid of quads produced by {@link #gridArrays(int)}.
+   */
+
+  public static final class GridArrays
+  {
+    AreaI bounds;
+    int columns;
+    int rows;
+    int[] positions;
+    int[] polygon_sizes;
+    int[] polygon_vertices;
+
+    private GridArrays()
+    {
+
+    }
+
+    /**
+     * @return The bounds of the mesh that should contain the grid
+     */
+
+    public AreaI bounds()
+    {
+      return this.bounds;
+    }
+
+    /**
+     * @return The number of columns of quads
+     */
+
+    public int columns()
+    {
+      return this.columns;
+    }
+
+    /**
+     * @return The number of rows of quads
+     */
+
+    public int rows()
+    {
+      return this.rows;
+    }
+
+    /**
+     * @return The vertex positions, as {@code (x, y)} pairs. The array is
+     * not copied, and must not be modified.
+     */
+
+    public int[] positions()
+    {
+      return this.positions;
+    }
+
+    /**
+     * @return The number of vertices of each polygon. The array is not
+     * copied, and must not be modified.
+     */
+
+    public int[] polygonSizes()
+    {
+      return this.polygon_sizes;
+    }
+
+    /**
+     * @return The vertex indices of each polygon. The array is not copied,
+     * and must not be modified.
+     */
+
+    public int[] polygonVertices()
+    {
+      return this.polygon_vertices;
+    }
+  }
+
+  /**
+   * A grid of quads produced by {@link #grid(int)}.
+   */
+
+  public static final class Grid
+  {
+    MeshType mesh;
+    int columns;
+    int rows;
+    PolygonType center;
+    PolygonVertexType[] hole;
+
+    private Grid()
+    {
+
+    }
+
+    /**
+     * @return The mesh containing the grid
+     */
+
+    public MeshType mesh()
+    {
+      return this.mesh;
+    }
+
+    /**
+     * @return The number of columns of quads
+     */
+
+    public int columns()
+    {
+      return this.columns;
+    }
+
+    /**
+     * @return The number of rows of quads
+     */
+
+    public int rows()
+    {
+      return this.rows;
+    }
+
+    /**
+     * @return The quad at the center of the grid
+     */
+
+    public PolygonType center()
+    {
+      return this.center;
+    }
+
+    /**
+     * @return The vertices of the quad at the center of the grid. The array
+     * is not copied, and must not be modified.
+     */
+
+    public PolygonVertexType[] hole()
+    {
+      return this.hole;
+    }
+  }
+}
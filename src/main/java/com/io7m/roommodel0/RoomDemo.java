@@ -24,6 +24,7 @@ import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import com.io7m.jtensors.core.unparameterized.vectors.Vectors2D;
 import com.io7m.jtensors.core.unparameterized.vectors.Vectors2I;
 import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshCommandType;
 import com.io7m.roommodel0.mesh.MeshEditing;
 import com.io7m.roommodel0.mesh.MeshEditingPolygonCreatorType;
 import com.io7m.roommodel0.mesh.MeshEditingType;
@@ -34,6 +35,7 @@ import com.io7m.roommodel0.mesh.PolygonEdgeType;
 import com.io7m.roommodel0.mesh.PolygonID;
 import com.io7m.roommodel0.mesh.PolygonType;
 import com.io7m.roommodel0.mesh.PolygonVertexType;
+import com.io7m.roommodel0.undo.UndoCommandType;
 import com.io7m.roommodel0.undo.UndoController;
 import io.reactivex.Observable;
 import io.reactivex.subjects.PublishSubject;
@@ -70,7 +72,6 @@ import java.awt.event.WindowEvent;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import static com.io7m.jnull.NullCheck.notNull;
 import static java.awt.event.InputEvent.CTRL_DOWN_MASK;
@@ -165,8 +166,17 @@ public final class RoomDemo
 
       this.undo_controller.observable().subscribe(
         e -> this.repaint());
-      this.undo_controller.observable().subscribe(
-        e -> this.liquid_cells = RoomModelLiquidCells.generate(this.mesh));
+      this.undo_controller.commands().subscribe(this::onCommand);
+    }
+
+    private void onCommand(
+      final UndoCommandType<MeshType, ?> command)
+    {
+      if (command instanceof MeshCommandType) {
+        this.liquid_cells.update((MeshCommandType<?>) command);
+      } else {
+        this.liquid_cells = RoomModelLiquidCells.generate(this.mesh);
+      }
     }
 
     private static void paintQuadTree(
@@ -266,12 +276,7 @@ public final class RoomDemo
           pos.y() - 8);
       }
 
-      final Vector2D center =
-        RoomPolygons.barycenter(
-          p.vertices()
-            .stream()
-            .map(PolygonVertexType::position)
-            .collect(Collectors.toList()));
+      final Vector2D center = p.barycenter();
 
       g.drawString(
         "P" + Long.toString(p.id().value()),
@@ -391,11 +396,7 @@ public final class RoomDemo
             v1.position().y());
         }
 
-        final Vector2D poly_center =
-          RoomPolygons.barycenter(
-            vs.stream()
-              .map(PolygonVertexType::position)
-              .collect(Collectors.toList()));
+        final Vector2D poly_center = poly.barycenter();
 
         gg.drawString(
           Long.toString(p_id.value()),
@@ -411,11 +412,7 @@ public final class RoomDemo
             0x90));
 
           for (final RoomLiquidCellsType.CellType below : cell.cellsBelow()) {
-            final Vector2D below_center =
-              RoomPolygons.barycenter(
-                below.polygon().vertices().stream()
-                  .map(PolygonVertexType::position)
-                  .collect(Collectors.toList()));
+            final Vector2D below_center = below.polygon().barycenter();
 
             gg.drawLine(
               (int) poly_center.x(),
@@ -551,7 +548,8 @@ public final class RoomDemo
             this.messages.onNext("Cannot move vertex here.");
           }
         } else {
-          this.vertex_move.selectVertex(this.mouse_snap);
+          this.vertex_move.selectVertexNearest(
+            Vector2I.of(e.getX(), e.getY()), GRID_SNAP / 2);
           this.messages.onNext("Move the cursor to the new vertex position.");
         }
       }
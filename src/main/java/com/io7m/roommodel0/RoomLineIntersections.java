@@ -1,9 +1,12 @@
 package com.io7m.roommodel0;
 
+import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import com.io7m.junreachable.UnreachableCodeException;
 
+import java.math.BigInteger;
+import java.math.RoundingMode;
 import java.util.Optional;
 
 import static com.io7m.jnull.NullCheck.notNull;
@@ -94,6 +97,167 @@ public final class RoomLineIntersections
     return u_a >= 0.0 && u_a <= 1.0 && u_b >= 0.0 && u_b <= 1.0;
   }
 
+  /**
+   * Intersect the segment from {@code (x0, y0)} to {@code (x1, y1)} with each
+   * of a batch of segments, where segment {@code i} of the batch runs from
+   * {@code (xs0[i], ys0[i])} to {@code (xs1[i], ys1[i])}. For each
+   * {@code i < count}, {@code hits[i]} is set to {@code true} iff the
+   * segments intersect, exactly as {@code intersects} would report, and
+   * {@code parameters[i]} is set to the position of the intersection
+   * along the first segment, where {@code 0} is {@code (x0, y0)} and
+   * {@code 1} is {@code (x1, y1)}. Where the segments do not intersect, the
+   * parameter is unspecified. The loop contains no data-dependent branches,
+   * so that the JIT compiler can compile it to conditional moves or vector
+   * instructions.
+   *
+   * @return The number of segments that intersect the first segment
+   */
+
+  public static int intersectsBatch(
+    final double x0,
+    final double y0,
+    final double x1,
+    final double y1,
+    final double[] xs0,
+    final double[] ys0,
+    final double[] xs1,
+    final double[] ys1,
+    final int count,
+    final boolean[] hits,
+    final double[] parameters)
+  {
+    checkBatch(
+      count,
+      xs0.length,
+      ys0.length,
+      xs1.length,
+      ys1.length,
+      hits.length,
+      parameters.length);
+
+    final double line0_delta_x = x1 - x0;
+    final double line0_delta_y = y1 - y0;
+
+    //
+    // Parallel segments have a zero denominator, and so produce infinite or
+    // NaN parameters that fail the range checks without a separate test.
+    //
+
+    int hit_count = 0;
+    for (int index = 0; index < count; ++index) {
+      final double line1_x0 = xs0[index];
+      final double line1_y0 = ys0[index];
+      final double line1_delta_x = xs1[index] - line1_x0;
+      final double line1_delta_y = ys1[index] - line1_y0;
+
+      final double denom =
+        (line1_delta_y * line0_delta_x) - (line1_delta_x * line0_delta_y);
+      final double line0_1_y0_delta = y0 - line1_y0;
+      final double line0_1_x0_delta = x0 - line1_x0;
+
+      final double u_a =
+        ((line1_delta_x * line0_1_y0_delta)
+          - (line1_delta_y * line0_1_x0_delta)) / denom;
+      final double u_b =
+        ((line0_delta_x * line0_1_y0_delta)
+          - (line0_delta_y * line0_1_x0_delta)) / denom;
+
+      final boolean hit =
+        u_a >= 0.0 & u_a <= 1.0 & u_b >= 0.0 & u_b <= 1.0;
+      hits[index] = hit;
+      parameters[index] = u_a;
+      hit_count += hit ? 1 : 0;
+    }
+    return hit_count;
+  }
+
+  /**
+   * Intersect the segment from {@code (x0, y0)} to {@code (x1, y1)} with each
+   * of a batch of segments with integer coordinates, as with the
+   * double-precision {@code intersectsBatch}.
+   *
+   * @return The number of segments that intersect the first segment
+   */
+
+  public static int intersectsBatch(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int[] xs0,
+    final int[] ys0,
+    final int[] xs1,
+    final int[] ys1,
+    final int count,
+    final boolean[] hits,
+    final double[] parameters)
+  {
+    checkBatch(
+      count,
+      xs0.length,
+      ys0.length,
+      xs1.length,
+      ys1.length,
+      hits.length,
+      parameters.length);
+
+    final double line0_x0 = (double) x0;
+    final double line0_y0 = (double) y0;
+    final double line0_delta_x = (double) x1 - line0_x0;
+    final double line0_delta_y = (double) y1 - line0_y0;
+
+    int hit_count = 0;
+    for (int index = 0; index < count; ++index) {
+      final double line1_x0 = (double) xs0[index];
+      final double line1_y0 = (double) ys0[index];
+      final double line1_delta_x = (double) xs1[index] - line1_x0;
+      final double line1_delta_y = (double) ys1[index] - line1_y0;
+
+      final double denom =
+        (line1_delta_y * line0_delta_x) - (line1_delta_x * line0_delta_y);
+      final double line0_1_y0_delta = line0_y0 - line1_y0;
+      final double line0_1_x0_delta = line0_x0 - line1_x0;
+
+      final double u_a =
+        ((line1_delta_x * line0_1_y0_delta)
+          - (line1_delta_y * line0_1_x0_delta)) / denom;
+      final double u_b =
+        ((line0_delta_x * line0_1_y0_delta)
+          - (line0_delta_y * line0_1_x0_delta)) / denom;
+
+      final boolean hit =
+        u_a >= 0.0 & u_a <= 1.0 & u_b >= 0.0 & u_b <= 1.0;
+      hits[index] = hit;
+      parameters[index] = u_a;
+      hit_count += hit ? 1 : 0;
+    }
+    return hit_count;
+  }
+
+  private static void checkBatch(
+    final int count,
+    final int xs0_length,
+    final int ys0_length,
+    final int xs1_length,
+    final int ys1_length,
+    final int hits_length,
+    final int parameters_length)
+  {
+    Preconditions.checkPreconditionI(
+      count, count >= 0, c -> "Count must be non-negative");
+    Preconditions.checkPreconditionI(
+      count,
+      count <= xs0_length
+        && count <= ys0_length
+        && count <= xs1_length
+        && count <= ys1_length,
+      c -> "Count must not exceed the number of segments");
+    Preconditions.checkPreconditionI(
+      count,
+      count <= hits_length && count <= parameters_length,
+      c -> "Count must not exceed the size of the output arrays");
+  }
+
   public static Optional<Vector2D> intersection(
     final Vector2D line0_p0,
     final Vector2D line0_p1,
@@ -178,4 +342,98 @@ public final class RoomLineIntersections
 
     return Optional.empty();
   }
+
+  /**
+   * Calculate the floor of the X coordinate at which the line through
+   * {@code (x0, y0)} and {@code (x1, y1)} intersects the horizontal line at
+   * {@code y}. The calculation is exact. The line must not be horizontal, and
+   * {@code y} must lie within {@code [min(y0, y1), max(y0, y1)]}.
+   */
+
+  public static int xAtYFloor(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int y)
+  {
+    return xAtY(x0, y0, x1, y1, y, RoundingMode.FLOOR);
+  }
+
+  /**
+   * Calculate the ceiling of the X coordinate at which the line through
+   * {@code (x0, y0)} and {@code (x1, y1)} intersects the horizontal line at
+   * {@code y}. The calculation is exact. The line must not be horizontal, and
+   * {@code y} must lie within {@code [min(y0, y1), max(y0, y1)]}.
+   */
+
+  public static int xAtYCeiling(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int y)
+  {
+    return xAtY(x0, y0, x1, y1, y, RoundingMode.CEILING);
+  }
+
+  private static int xAtY(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int y,
+    final RoundingMode mode)
+  {
+    Preconditions.checkPrecondition(y0 != y1, "Line must not be horizontal");
+    Preconditions.checkPrecondition(
+      y >= Math.min(y0, y1) && y <= Math.max(y0, y1),
+      "Y must be within the Y range of the line");
+
+    if (y == y0) {
+      return x0;
+    }
+    if (y == y1) {
+      return x1;
+    }
+
+    //
+    // x = x0 + ((y - y0) * (x1 - x0)) / (y1 - y0)
+    //
+    // The differences require 33 bits, and so the product can only overflow
+    // a long if both differences are at least 2^31 in magnitude.
+    //
+
+    final long y_offset = (long) y - (long) y0;
+    final long dx = (long) x1 - (long) x0;
+    final long dy = (long) y1 - (long) y0;
+
+    final long offset;
+    if (Math.abs(y_offset) < 0x8000_0000L || Math.abs(dx) < 0x8000_0000L) {
+      final long numerator = y_offset * dx;
+      if (mode == RoundingMode.FLOOR) {
+        offset = Math.floorDiv(numerator, dy);
+      } else {
+        offset = -Math.floorDiv(-numerator, dy);
+      }
+    } else {
+      final BigInteger numerator =
+        BigInteger.valueOf(y_offset).multiply(BigInteger.valueOf(dx));
+      final BigInteger[] qr =
+        numerator.divideAndRemainder(BigInteger.valueOf(dy));
+      final long quotient = qr[0].longValueExact();
+      if (qr[1].signum() == 0) {
+        offset = quotient;
+      } else {
+        final boolean negative = numerator.signum() != Long.signum(dy);
+        if (mode == RoundingMode.FLOOR) {
+          offset = negative ? quotient - 1L : quotient;
+        } else {
+          offset = negative ? quotient : quotient + 1L;
+        }
+      }
+    }
+
+    return Math.toIntExact((long) x0 + offset);
+  }
 }
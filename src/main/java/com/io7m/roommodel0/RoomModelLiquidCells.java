@@ -1,34 +1,36 @@
 package com.io7m.roommodel0;
 
-import com.io7m.jaffirm.core.Invariants;
 import com.io7m.jaffirm.core.Preconditions;
-import com.io7m.jnull.Nullable;
 import com.io7m.jregions.core.unparameterized.areas.AreaI;
-import com.io7m.jregions.core.unparameterized.areas.AreasI;
-import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
-import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import com.io7m.roommodel0.mesh.Mesh;
-import com.io7m.roommodel0.mesh.MeshPolygons;
+import com.io7m.roommodel0.mesh.MeshCommandType;
 import com.io7m.roommodel0.mesh.MeshReadableType;
 import com.io7m.roommodel0.mesh.MeshType;
 import com.io7m.roommodel0.mesh.PolygonEdgeType;
 import com.io7m.roommodel0.mesh.PolygonID;
 import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexID;
 import com.io7m.roommodel0.mesh.PolygonVertexType;
+import it.unimi.dsi.fastutil.ints.Int2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntRBTreeSet;
+import it.unimi.dsi.fastutil.ints.IntSortedSet;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static com.io7m.jnull.NullCheck.notNull;
 
@@ -40,114 +42,480 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
     LOG = LoggerFactory.getLogger(RoomModelLiquidCells.class);
   }
 
+  private final MeshReadableType source;
   private final MeshType mesh;
   private final Set<Cell> cell_roots;
   private final Set<CellType> cell_roots_view;
   private final Map<PolygonID, CellType> cells_all_view;
   private final Map<PolygonID, Cell> cells_all;
+  private final IntRBTreeSet span_ends;
+  private final Int2ReferenceOpenHashMap<Map<PolygonID, Cell>> spans;
 
   private RoomModelLiquidCells(
-    final MeshType in_mesh,
-    final Map<PolygonID, Cell> in_cells_all,
-    final Set<Cell> in_cell_roots)
+    final MeshReadableType in_source,
+    final MeshType in_mesh)
   {
+    this.source = notNull(in_source, "Source");
     this.mesh = notNull(in_mesh, "Mesh");
-    this.cell_roots = notNull(in_cell_roots, "Cell roots");
+    this.cell_roots = new ReferenceOpenHashSet<>();
     this.cell_roots_view = Collections.unmodifiableSet(this.cell_roots);
-    this.cells_all = notNull(in_cells_all, "Cells");
+    this.cells_all = new HashMap<>();
     this.cells_all_view = Collections.unmodifiableMap(this.cells_all);
+    this.span_ends = new IntRBTreeSet();
+    this.spans = new Int2ReferenceOpenHashMap<>();
   }
 
   public static RoomModelLiquidCells generate(
     final MeshReadableType mesh)
+  {
+    return generateWith(mesh, Optional.empty());
+  }
+
+  /**
+   * Generate cells for the given mesh, processing spans in parallel using
+   * the given pool. The result is identical to that of
+   * {@link #generate(MeshReadableType)}.
+   */
+
+  public static RoomModelLiquidCells generateParallel(
+    final MeshReadableType mesh,
+    final ForkJoinPool pool)
+  {
+    return generateWith(mesh, Optional.of(notNull(pool, "Pool")));
+  }
+
+  private static RoomModelLiquidCells generateWith(
+    final MeshReadableType mesh,
+    final Optional<ForkJoinPool> pool)
   {
     notNull(mesh, "Mesh");
 
-    final MeshType cell_mesh = Mesh.create(mesh.polygonTree().bounds());
-    final QuadTreeReadableIType<PolygonType> tree = mesh.polygonTree();
-    final AreaI bounds = tree.bounds();
-    final IntRBTreeSet y_values = collectVertexYValues(mesh);
-    final Map<PolygonID, Cell> cells_all = new HashMap<>();
-    Map<PolygonID, Cell> cells_current = Collections.emptyMap();
-    Set<Cell> cell_roots = Collections.emptySet();
-    int y_previous = bounds.minimumY();
-    for (final int y_current : y_values) {
-      final AreaI span_bounds =
-        AreaI.of(bounds.minimumX(), bounds.maximumX(), y_previous, y_current);
-      cells_current = processSpan(
-        cell_mesh, cells_all, cells_current, tree, span_bounds);
-
-      if (y_previous == bounds.minimumY()) {
-        cell_roots = new ReferenceOpenHashSet<>(cells_current.values());
+    final AreaI bounds = mesh.bounds();
+    final RoomModelLiquidCells cells =
+      new RoomModelLiquidCells(mesh, Mesh.create(bounds));
+
+    cells.sweep(
+      bounds.minimumY(),
+      collectVertexYValues(mesh),
+      Collections.emptyMap(),
+      mesh.polygons(),
+      pool);
+    cells.updateRoots();
+
+    LOG.debug(
+      "created {} polygons",
+      Integer.valueOf(cells.mesh.polygons().size()));
+    return cells;
+  }
+
+  /**
+   * Update the cells after the given command has been evaluated or undone
+   * on the source mesh.
+   *
+   * @see #updateBand(int, int)
+   */
+
+  public void update(
+    final MeshCommandType<?> command)
+  {
+    notNull(command, "Command");
+
+    final AreaI area = command.modifiedArea();
+    this.updateBand(area.minimumY(), area.maximumY());
+  }
+
+  /**
+   * Update the cells after the given polygons have been created, deleted, or
+   * modified in the source mesh. The polygons must cover all of the modified
+   * geometry, both before and after the modification.
+   *
+   * @see #updateBand(int, int)
+   */
+
+  public void updatePolygons(
+    final Collection<? extends PolygonType> polygons)
+  {
+    notNull(polygons, "Polygons");
+
+    if (polygons.isEmpty()) {
+      return;
+    }
+
+    int y_minimum = Integer.MAX_VALUE;
+    int y_maximum = Integer.MIN_VALUE;
+    for (final PolygonType polygon : polygons) {
+      final AreaI bounds = polygon.bounds();
+      y_minimum = Math.min(y_minimum, bounds.minimumY());
+      y_maximum = Math.max(y_maximum, bounds.maximumY());
+    }
+
+    this.updateBand(y_minimum, y_maximum);
+  }
+
+  /**
+   * Update the cells after the source mesh has been modified. All of the
+   * modified geometry, both before and after the modification, must lie
+   * within the Y range {@code [y_minimum, y_maximum]}. Only the spans that
+   * overlap that range, and the span on either side of it, are swept again;
+   * all other cells are left untouched. The work done is proportional to the
+   * number of polygons that overlap the swept spans.
+   */
+
+  public void updateBand(
+    final int y_minimum,
+    final int y_maximum)
+  {
+    Preconditions.checkPreconditionV(
+      y_minimum <= y_maximum,
+      "Minimum Y %d must be <= maximum Y %d",
+      Integer.valueOf(y_minimum),
+      Integer.valueOf(y_maximum));
+
+    final AreaI bounds = this.source.bounds();
+    final int y_lo =
+      Math.max(bounds.minimumY(), Math.min(bounds.maximumY(), y_minimum));
+    final int y_hi =
+      Math.max(bounds.minimumY(), Math.min(bounds.maximumY(), y_maximum));
+
+    //
+    // The vertices outside of the band are the same before and after the
+    // modification, and so are the span boundaries outside of the band.
+    // Spans outside of the nearest boundaries on either side of the band are
+    // therefore unaffected.
+    //
+
+    final IntSortedSet head = this.span_ends.headSet(y_lo);
+    final int lo = head.isEmpty() ? bounds.minimumY() : head.lastInt();
+
+    final int hi;
+    if (y_hi < bounds.maximumY()) {
+      final IntSortedSet tail = this.span_ends.tailSet(y_hi + 1);
+      hi = tail.isEmpty() ? bounds.maximumY() : tail.firstInt();
+    } else {
+      hi = bounds.maximumY();
+    }
+
+    //
+    // Remove all of the cells in the spans between the two boundaries, and
+    // the links to them from the neighbouring spans.
+    //
+
+    final int[] removed = this.span_ends.subSet(lo + 1, hi + 1).toIntArray();
+    for (final int y : removed) {
+      final Map<PolygonID, Cell> cells = this.spans.remove(y);
+      for (final Cell cell : cells.values()) {
+        this.cells_all.remove(cell.polygon.id());
+        this.mesh.polygonDelete(cell.polygon.id());
       }
+      this.span_ends.remove(y);
+    }
 
-      y_previous = y_current;
+    final Map<PolygonID, Cell> cells_above = this.spanCells(lo);
+    for (final Cell cell : cells_above.values()) {
+      cell.below.clear();
     }
 
+    final IntSortedSet after = this.span_ends.tailSet(hi + 1);
+    final Map<PolygonID, Cell> cells_below;
+    if (!after.isEmpty()) {
+      cells_below = this.spanCells(after.firstInt());
+    } else {
+      cells_below = Collections.emptyMap();
+    }
+    for (final Cell cell : cells_below.values()) {
+      cell.above.clear();
+    }
+
+    //
+    // Sweep the spans between the boundaries again, and link the last new
+    // span to the span that follows it.
+    //
+
+    final ReferenceArrayList<PolygonType> polygons = new ReferenceArrayList<>();
+    this.source.forEachPolygonOverlapping(
+      bounds.minimumX(), bounds.maximumX(), lo, hi, polygons::add);
+
+    final IntRBTreeSet y_values = collectVertexYValues(polygons, lo, hi);
+    y_values.add(hi);
+
+    final Map<PolygonID, Cell> cells_last = this.sweep(
+      lo,
+      y_values,
+      cells_above,
+      polygons,
+      Optional.empty());
+    for (final Cell cell : cells_below.values()) {
+      linkToAbove(cells_last, cell);
+    }
+
+    this.updateRoots();
+
     LOG.debug(
-      "created {} polygons",
-      Integer.valueOf(cell_mesh.polygons().size()));
-    return new RoomModelLiquidCells(cell_mesh, cells_all, cell_roots);
+      "updated spans [{}, {}] ({} spans removed)",
+      Integer.valueOf(lo),
+      Integer.valueOf(hi),
+      Integer.valueOf(removed.length));
   }
 
-  private static Map<PolygonID, Cell> processSpan(
-    final MeshType cell_mesh,
-    final Map<PolygonID, Cell> all_cells,
-    final Map<PolygonID, Cell> previous_cells,
-    final QuadTreeReadableIType<PolygonType> tree,
-    final AreaI span_bounds)
+  /**
+   * Sweep the spans ending at each of the given Y values, starting at
+   * {@code y_start}, and return the cells of the last span. If a pool is
+   * provided, the outlines of the cells in each span are computed in
+   * parallel. Cells are always created and linked sequentially in span order,
+   * so the resulting cells and their IDs do not depend on the pool.
+   */
+
+  private Map<PolygonID, Cell> sweep(
+    final int y_start,
+    final IntSortedSet y_values,
+    final Map<PolygonID, Cell> cells_initial,
+    final Collection<? extends PolygonType> polygons,
+    final Optional<ForkJoinPool> pool)
   {
-    final ReferenceArrayList<EdgeIntersection> intersections =
-      collectEdgeIntersections(tree, span_bounds);
-    final ReferenceArrayList<EdgePair> pairs =
-      collectEdgePairs(intersections);
+    final AreaI bounds = this.source.bounds();
+    final int[] y_ends = y_values.toIntArray();
+    final SweepEdges edges = collectSweepEdges(bounds, polygons);
+
+    final SpanGeometries geometries;
+    if (pool.isPresent()) {
+      final ForkJoinPool p = pool.get();
+      final int spans_per_task = Math.max(
+        SpanGeometryTask.SPANS_PER_TASK_MINIMUM,
+        y_ends.length / (p.getParallelism() * 4));
+      geometries =
+        new SpanGeometries(bounds, y_start, y_ends, spans_per_task);
+      final SweepStart[] starts = collectSweepStarts(edges, geometries);
+      p.invoke(new SpanGeometryTask(
+        edges, geometries, starts, 0, starts.length));
+    } else {
+      geometries =
+        new SpanGeometries(bounds, y_start, y_ends, y_ends.length);
+      sweepGeometries(edges, geometries, SweepStart.INITIAL, 0);
+    }
 
-    final Map<PolygonID, Cell> cells = new HashMap<>();
-    for (int index = 0; index < pairs.size(); ++index) {
-      final EdgePair pair = pairs.get(index);
-
-      final ReferenceArrayList<Vector2I> positions =
-        new ReferenceArrayList<>(4);
-      positions.add(pair.intersection0.maximum);
-      positions.add(pair.intersection0.minimum);
-      positions.add(pair.intersection1.minimum);
-      positions.add(pair.intersection1.maximum);
-
-      final List<Vector2I> distinct_positions =
-        positions.stream().distinct().collect(Collectors.toList());
-
-      final PolygonType polygon;
-      switch (distinct_positions.size()) {
-        case 3: {
-          final Vector2I v0p = distinct_positions.get(0);
-          final Vector2I v1p = distinct_positions.get(1);
-          final Vector2I v2p = distinct_positions.get(2);
-          polygon = cell_mesh.polygonCreateVV(
-            cell_mesh.vertexFind(v0p).orElse(cell_mesh.vertexCreate(v0p)),
-            cell_mesh.vertexFind(v1p).orElse(cell_mesh.vertexCreate(v1p)),
-            cell_mesh.vertexFind(v2p).orElse(cell_mesh.vertexCreate(v2p)));
-          break;
+    final CellVertices vertices = new CellVertices(this.mesh);
+    Map<PolygonID, Cell> cells_current = cells_initial;
+    for (int index = 0; index < y_ends.length; ++index) {
+      vertices.startSpan(geometries.yMinimum(index), y_ends[index]);
+      cells_current = createCells(
+        this.mesh,
+        vertices,
+        this.cells_all,
+        cells_current,
+        geometries.outlines(index),
+        geometries.outlinesStart(index),
+        geometries.outlinesEnd(index));
+
+      this.span_ends.add(y_ends[index]);
+      this.spans.put(y_ends[index], cells_current);
+    }
+    return cells_current;
+  }
+
+  /**
+   * Sweep the spans in the given range of spans, packing the outlines of
+   * the cells of all of the spans into a single list.
+   */
+
+  private static void sweepGeometries(
+    final SweepEdges edges,
+    final SpanGeometries geometries,
+    final SweepStart sweep_start,
+    final int range)
+  {
+    final int start = range * geometries.spans_per_range;
+    final int end =
+      Math.min(geometries.y_ends.length, start + geometries.spans_per_range);
+
+    final EdgeSweep sweep = new EdgeSweep(edges, sweep_start);
+    final IntArrayList outlines = new IntArrayList();
+    for (int index = start; index < end; ++index) {
+      final int y_min = geometries.yMinimum(index);
+      final int y_max = geometries.y_ends[index];
+      sweep.advance(y_min, y_max);
+      collectCellOutlines(
+        sweep, geometries.x_min, geometries.x_max, y_min, y_max, outlines);
+      geometries.outlines_end[index] = outlines.size();
+    }
+    geometries.outlines[range] = outlines;
+  }
+
+  /**
+   * Determine the state of the sweep at the start of each range of spans,
+   * so that each range can be swept independently without first sweeping
+   * all of the spans above it. This is a single pass over the edges that
+   * does not intersect any edges with spans.
+   */
+
+  private static SweepStart[] collectSweepStarts(
+    final SweepEdges edges,
+    final SpanGeometries geometries)
+  {
+    final int count = geometries.outlines.length;
+    final SweepStart[] starts = new SweepStart[count];
+    final IntArrayList active = new IntArrayList();
+
+    int edges_next = 0;
+    for (int index = 0; index < count; ++index) {
+      final int y =
+        geometries.yMinimum(index * geometries.spans_per_range);
+
+      int kept = 0;
+      for (int a = 0; a < active.size(); ++a) {
+        final int e = active.getInt(a);
+        if (edges.y_max[e] > y) {
+          active.set(kept, e);
+          ++kept;
         }
+      }
+      active.size(kept);
+
+      while (edges_next < edges.count && edges.y_min[edges_next] < y) {
+        if (edges.y_max[edges_next] > y) {
+          active.add(edges_next);
+        }
+        ++edges_next;
+      }
+
+      starts[index] = new SweepStart(edges_next, active.toIntArray());
+    }
+    return starts;
+  }
+
+  private Map<PolygonID, Cell> spanCells(
+    final int y_end)
+  {
+    final Map<PolygonID, Cell> cells = this.spans.get(y_end);
+    if (cells != null) {
+      return cells;
+    }
+    return Collections.emptyMap();
+  }
+
+  /**
+   * The root cells are the cells of the first span that starts at the top of
+   * the room.
+   */
+
+  private void updateRoots()
+  {
+    this.cell_roots.clear();
+
+    final int y_min = this.source.bounds().minimumY();
+    final IntSortedSet ends = this.span_ends.tailSet(y_min + 1);
+    if (!ends.isEmpty()) {
+      this.cell_roots.addAll(this.spanCells(ends.firstInt()).values());
+    }
+  }
+
+  /**
+   * Determine the outlines of the cells within the span to which the sweep
+   * has most recently been advanced. The active edges, bracketed by the start
+   * and end of the span, are partitioned into pairs, and each pair bounds a
+   * cell. This depends only on the source mesh and the span bounds, and may
+   * therefore be executed for many spans concurrently, using a separate sweep
+   * for each range of spans.
+   *
+   * Outlines are appended to the given list as a vertex count followed by
+   * the X and Y coordinates of each vertex.
+   */
+
+  private static void collectCellOutlines(
+    final EdgeSweep sweep,
+    final int x_min,
+    final int x_max,
+    final int y_min,
+    final int y_max,
+    final IntArrayList outlines)
+  {
+    final int count = sweep.active_count + 2;
+    Preconditions.checkPreconditionI(
+      count,
+      count % 2 == 0,
+      i -> "Intersection list size must be even");
+
+    final int[] xs = sweep.outline_x;
+    final int[] ys = sweep.outline_y;
+
+    for (int index = 0; index < count; index += 2) {
+      final int x0_min = sweep.intersectionMinimumX(index, x_min, x_max);
+      final int x0_max = sweep.intersectionMaximumX(index, x_min, x_max);
+      final int x1_min = sweep.intersectionMinimumX(index + 1, x_min, x_max);
+      final int x1_max = sweep.intersectionMaximumX(index + 1, x_min, x_max);
+
+      int distinct = 0;
+      distinct = addDistinct(xs, ys, distinct, x0_max, y_max);
+      distinct = addDistinct(xs, ys, distinct, x0_min, y_min);
+      distinct = addDistinct(xs, ys, distinct, x1_min, y_min);
+      distinct = addDistinct(xs, ys, distinct, x1_max, y_max);
+
+      switch (distinct) {
+        case 3:
         case 4: {
-          final Vector2I v0p = distinct_positions.get(0);
-          final Vector2I v1p = distinct_positions.get(1);
-          final Vector2I v2p = distinct_positions.get(2);
-          final Vector2I v3p = distinct_positions.get(3);
-          polygon = cell_mesh.polygonCreateVV(
-            cell_mesh.vertexFind(v0p).orElse(cell_mesh.vertexCreate(v0p)),
-            cell_mesh.vertexFind(v1p).orElse(cell_mesh.vertexCreate(v1p)),
-            cell_mesh.vertexFind(v2p).orElse(cell_mesh.vertexCreate(v2p)),
-            cell_mesh.vertexFind(v3p).orElse(cell_mesh.vertexCreate(v3p)));
+          outlines.add(distinct);
+          for (int v = 0; v < distinct; ++v) {
+            outlines.add(xs[v]);
+            outlines.add(ys[v]);
+          }
           break;
         }
         default: {
           LOG.debug(
             "ignoring polygon with {} vertices",
-            Integer.valueOf(distinct_positions.size()));
-          continue;
+            Integer.valueOf(distinct));
+          break;
         }
       }
+    }
+  }
+
+  private static int addDistinct(
+    final int[] xs,
+    final int[] ys,
+    final int count,
+    final int x,
+    final int y)
+  {
+    for (int index = 0; index < count; ++index) {
+      if (xs[index] == x && ys[index] == y) {
+        return count;
+      }
+    }
+    xs[count] = x;
+    ys[count] = y;
+    return count + 1;
+  }
+
+  /**
+   * Create cells for the outlines in {@code [start, end)} of the given
+   * list, and link them to the cells of the span above.
+   */
+
+  private static Map<PolygonID, Cell> createCells(
+    final MeshType cell_mesh,
+    final CellVertices cell_vertices,
+    final Map<PolygonID, Cell> all_cells,
+    final Map<PolygonID, Cell> previous_cells,
+    final IntArrayList outlines,
+    final int start,
+    final int end)
+  {
+    final Map<PolygonID, Cell> cells = new HashMap<>();
+    final ReferenceArrayList<PolygonVertexID> vertices =
+      cell_vertices.polygon;
+
+    int index = start;
+    while (index < end) {
+      final int count = outlines.getInt(index);
+      vertices.clear();
+      for (int v = 0; v < count; ++v) {
+        final int base = index + 1 + (v * 2);
+        vertices.add(cell_vertices.vertex(
+          outlines.getInt(base), outlines.getInt(base + 1)));
+      }
+      index += 1 + (count * 2);
 
+      final PolygonType polygon = cell_mesh.polygonCreate(vertices);
       final Cell cell = createCell(previous_cells, polygon);
       all_cells.put(polygon.id(), cell);
       cells.put(polygon.id(), cell);
@@ -180,20 +548,27 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
     final Map<PolygonID, Cell> previous_cells,
     final PolygonType curr_polygon)
   {
-    final Optional<PolygonEdgeType> curr_bottom_opt =
-      findBottomEdge(curr_polygon);
-    final Optional<PolygonEdgeType> curr_top_opt =
-      findTopEdge(curr_polygon);
     final Cell cell =
-      new Cell(curr_polygon, curr_bottom_opt);
+      new Cell(
+        curr_polygon,
+        findTopEdge(curr_polygon),
+        findBottomEdge(curr_polygon));
+
+    linkToAbove(previous_cells, cell);
+    return cell;
+  }
 
+  private static void linkToAbove(
+    final Map<PolygonID, Cell> previous_cells,
+    final Cell cell)
+  {
     //
     // If the current cell has a top edge, then check to see if any cells in
     // the span above have bottom edges that overlap it.
     //
 
-    if (curr_top_opt.isPresent()) {
-      final PolygonEdgeType curr_top = curr_top_opt.get();
+    if (cell.top.isPresent()) {
+      final PolygonEdgeType curr_top = cell.top.get();
       final PolygonVertexType curr_top_v0 = curr_top.vertex0();
       final PolygonVertexType curr_top_v1 = curr_top.vertex1();
 
@@ -225,8 +600,6 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
         }
       }
     }
-
-    return cell;
   }
 
   private static Optional<PolygonEdgeType> findBottomEdge(
@@ -260,160 +633,100 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
   }
 
   /**
-   * Partition the list of intersections into pairs.
+   * Determine the set of Y values on which all of the vertices of polygons
+   * in the mesh occur. Vertices that are not part of any polygon do not
+   * affect the geometry of the room, and are ignored.
    */
 
-  private static ReferenceArrayList<EdgePair> collectEdgePairs(
-    final ReferenceArrayList<EdgeIntersection> intersections)
+  private static IntRBTreeSet collectVertexYValues(
+    final MeshReadableType mesh)
   {
-    Preconditions.checkPreconditionI(
-      intersections.size(),
-      intersections.size() % 2 == 0,
-      i -> "Intersection list size must be even");
-
-    final ReferenceArrayList<EdgePair> pairs =
-      new ReferenceArrayList<>(intersections.size() / 2);
-    for (int index = 0; index < intersections.size(); index += 2) {
-      pairs.add(new EdgePair(
-        intersections.get(index),
-        intersections.get(index + 1)));
+    final IntRBTreeSet ys = new IntRBTreeSet();
+    for (final PolygonVertexType v : mesh.vertices()) {
+      if (!v.polygons().isEmpty()) {
+        ys.add(v.position().y());
+      }
     }
-    return pairs;
+    ys.add(mesh.bounds().maximumY());
+    return ys;
   }
 
   /**
-   * Determine the set of Y values on which all of the vertices in the mesh
-   * occur.
+   * Determine the set of Y values in the range {@code (y_minimum,
+   * y_maximum]} on which the vertices of the given polygons occur.
    */
 
   private static IntRBTreeSet collectVertexYValues(
-    final MeshReadableType mesh)
+    final Collection<? extends PolygonType> polygons,
+    final int y_minimum,
+    final int y_maximum)
   {
     final IntRBTreeSet ys = new IntRBTreeSet();
-    for (final PolygonVertexType v : mesh.vertices()) {
-      ys.add(v.position().y());
+    for (final PolygonType polygon : polygons) {
+      final List<PolygonVertexType> vertices = polygon.vertices();
+      for (int index = 0; index < vertices.size(); ++index) {
+        final int y = vertices.get(index).position().y();
+        if (y > y_minimum && y <= y_maximum) {
+          ys.add(y);
+        }
+      }
     }
-    ys.add(mesh.polygonTree().bounds().maximumY());
     return ys;
   }
 
   /**
-   * Collect the edge intersections for the current span.
+   * Collect the external edges of the given polygons that can intersect
+   * spans, ignoring those that point straight up/down.
    */
 
-  private static ReferenceArrayList<EdgeIntersection> collectEdgeIntersections(
-    final QuadTreeReadableIType<PolygonType> tree,
-    final AreaI span_bounds)
+  private static SweepEdges collectSweepEdges(
+    final AreaI bounds,
+    final Collection<? extends PolygonType> polygons)
   {
-    //
-    // Get the set of polygons that are overlapped by the current span.
-    //
-
-    final ReferenceOpenHashSet<PolygonType> overlapped_polygons =
-      new ReferenceOpenHashSet<>();
-    tree.overlappedBy(span_bounds, overlapped_polygons);
+    final IntArrayList coordinates = new IntArrayList();
 
-    //
-    // For each polygon, collect each external edge that overlaps the span,
-    // ignoring those that point straight up/down.
-    //
-
-    final ReferenceArrayList<PolygonEdgeType> edges =
-      new ReferenceArrayList<>();
-
-    for (final PolygonType p : overlapped_polygons) {
+    for (final PolygonType p : polygons) {
       for (final PolygonEdgeType e : p.edges()) {
         if (!e.isExternal()) {
           continue;
         }
 
-        final Vector2D n = e.normal();
-        if (n.x() == 0.0) {
+        final Vector2I p0 = e.vertex0().position();
+        final Vector2I p1 = e.vertex1().position();
+        if (p0.y() == p1.y()) {
           continue;
         }
 
-        final AreaI edge_area = e.bounds();
-        if (AreasI.overlaps(span_bounds, edge_area)) {
-          edges.add(e);
+        if (Math.max(p0.x(), p1.x()) > bounds.minimumX()
+          && Math.min(p0.x(), p1.x()) < bounds.maximumX()) {
+          coordinates.add(p0.x());
+          coordinates.add(p0.y());
+          coordinates.add(p1.x());
+          coordinates.add(p1.y());
         }
       }
     }
 
-    //
-    // For each collected edge, store the points at which each edge intersects
-    // the span bounds. Additionally, fake edge intersections are added for the
-    // start and end of the span.
-    //
-
-    final int y_min = span_bounds.minimumY();
-    final int y_max = span_bounds.maximumY();
-
-    final ReferenceArrayList<EdgeIntersection> intersections =
-      new ReferenceArrayList<>();
-
-    intersections.add(new EdgeIntersection(
-      null,
-      Vector2I.of(span_bounds.minimumX(), y_min),
-      Vector2I.of(span_bounds.minimumX(), y_max)));
-
-    for (int index = 0; index < edges.size(); ++index) {
-      final PolygonEdgeType edge = edges.get(index);
-
-      final Optional<Vector2D> y_min_opt =
-        RoomLineIntersections.intersection(
-          edge.vertex0().position(),
-          edge.vertex1().position(),
-          Vector2I.of(span_bounds.minimumX(), y_min),
-          Vector2I.of(span_bounds.maximumX(), y_min));
-
-      Invariants.checkInvariantV(
-        y_min_opt.isPresent(),
-        "Edge %s must intersect span %s", edge, span_bounds);
-
-      final Vector2D inter_y_min = y_min_opt.get();
-
-      final Optional<Vector2D> y_max_opt1 =
-        RoomLineIntersections.intersection(
-          edge.vertex0().position(),
-          edge.vertex1().position(),
-          Vector2I.of(span_bounds.minimumX(), y_max),
-          Vector2I.of(span_bounds.maximumX(), y_max));
-
-      Invariants.checkInvariantV(
-        y_min_opt.isPresent(),
-        "Edge %s must intersect span %s", edge, span_bounds);
+    return new SweepEdges(coordinates);
+  }
 
-      final Vector2D inter_y_max = y_max_opt1.get();
+  /**
+   * Compare intersections on the X axis.
+   */
 
-      intersections.add(new EdgeIntersection(
-        edge,
-        Vector2I.of((int) inter_y_min.x(), y_min),
-        Vector2I.of((int) inter_y_max.x(), y_max)));
+  private static int compareIntersections(
+    final int x0_min,
+    final int x0_max,
+    final int x1_min,
+    final int x1_max)
+  {
+    final int cmp_x_min =
+      Integer.compare(Math.min(x0_min, x0_max), Math.min(x1_min, x1_max));
+    if (cmp_x_min == 0) {
+      return Integer.compare(
+        Math.max(x0_min, x0_max), Math.max(x1_min, x1_max));
     }
-
-    intersections.add(new EdgeIntersection(
-      null,
-      Vector2I.of(span_bounds.maximumX(), y_min),
-      Vector2I.of(span_bounds.maximumX(), y_max)));
-
-    //
-    // Sort the intersections on the X axis.
-    //
-
-    intersections.sort((intersection0, intersection1) -> {
-      final AreaI bounds0 =
-        MeshPolygons.edgeBounds(intersection0.minimum, intersection0.maximum);
-      final AreaI bounds1 =
-        MeshPolygons.edgeBounds(intersection1.minimum, intersection1.maximum);
-      final int cmp_x_min =
-        Integer.compare(bounds0.minimumX(), bounds1.minimumX());
-      if (cmp_x_min == 0) {
-        return Integer.compare(bounds0.maximumX(), bounds1.maximumX());
-      }
-      return cmp_x_min;
-    });
-
-    return intersections;
+    return cmp_x_min;
   }
 
   @Override
@@ -437,6 +750,7 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
   private static final class Cell implements CellType
   {
     private final PolygonType polygon;
+    private final Optional<PolygonEdgeType> top;
     private final Optional<PolygonEdgeType> bottom;
     private final ReferenceOpenHashSet<Cell> below;
     private final ReferenceOpenHashSet<Cell> above;
@@ -445,9 +759,11 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
 
     Cell(
       final PolygonType in_polygon,
+      final Optional<PolygonEdgeType> in_top,
       final Optional<PolygonEdgeType> in_bottom)
     {
       this.polygon = notNull(in_polygon, "Polygon");
+      this.top = notNull(in_top, "Top");
       this.bottom = notNull(in_bottom, "Bottom");
       this.below = new ReferenceOpenHashSet<>();
       this.below_view = Collections.unmodifiableSet(this.below);
@@ -474,34 +790,534 @@ public final class RoomModelLiquidCells implements RoomLiquidCellsType
     }
   }
 
-  private static final class EdgePair
+  /**
+   * The geometry of a sequence of spans that share the X bounds of the
+   * room. Span {@code n} ends at {@code y_ends[n]}, and starts at the end of
+   * the previous span, or at {@code y_start}. The spans are divided into
+   * ranges of {@code spans_per_range} spans, and the outlines of the cells of
+   * all of the spans in a range are packed into a single list, so that
+   * sweeping a range allocates nothing per span.
+   */
+
+  private static final class SpanGeometries
+  {
+    private final int x_min;
+    private final int x_max;
+    private final int y_start;
+    private final int[] y_ends;
+    private final int spans_per_range;
+    private final IntArrayList[] outlines;
+    private final int[] outlines_end;
+
+    SpanGeometries(
+      final AreaI in_bounds,
+      final int in_y_start,
+      final int[] in_y_ends,
+      final int in_spans_per_range)
+    {
+      notNull(in_bounds, "Bounds");
+      this.x_min = in_bounds.minimumX();
+      this.x_max = in_bounds.maximumX();
+      this.y_start = in_y_start;
+      this.y_ends = notNull(in_y_ends, "Y ends");
+      this.spans_per_range = Math.max(1, in_spans_per_range);
+      this.outlines = new IntArrayList[
+        (this.y_ends.length + this.spans_per_range - 1)
+          / this.spans_per_range];
+      this.outlines_end = new int[this.y_ends.length];
+    }
+
+    int yMinimum(
+      final int span)
+    {
+      return span == 0 ? this.y_start : this.y_ends[span - 1];
+    }
+
+    IntArrayList outlines(
+      final int span)
+    {
+      return this.outlines[span / this.spans_per_range];
+    }
+
+    int outlinesStart(
+      final int span)
+    {
+      if (span % this.spans_per_range == 0) {
+        return 0;
+      }
+      return this.outlines_end[span - 1];
+    }
+
+    int outlinesEnd(
+      final int span)
+    {
+      return this.outlines_end[span];
+    }
+  }
+
+  /**
+   * The vertices of the cell mesh that lie on the top and bottom of the span
+   * for which cells are being created. Cells in adjacent spans share the
+   * vertices on the line between the spans, so most vertices are found here
+   * without constructing a position with which to search the cell mesh.
+   */
+
+  private static final class CellVertices
+  {
+    private final MeshType mesh;
+    private final ReferenceArrayList<PolygonVertexID> polygon;
+    private Int2ReferenceOpenHashMap<PolygonVertexID> top;
+    private Int2ReferenceOpenHashMap<PolygonVertexID> bottom;
+    private int y_bottom;
+
+    CellVertices(
+      final MeshType in_mesh)
+    {
+      this.mesh = notNull(in_mesh, "Mesh");
+      this.polygon = new ReferenceArrayList<>(4);
+      this.top = new Int2ReferenceOpenHashMap<>();
+      this.bottom = new Int2ReferenceOpenHashMap<>();
+      this.y_bottom = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Start a span. Spans must be started in order, and each span must start
+     * where the previous span ended.
+     */
+
+    void startSpan(
+      final int y_min,
+      final int y_max)
+    {
+      final Int2ReferenceOpenHashMap<PolygonVertexID> previous = this.top;
+      this.top = this.bottom;
+      this.bottom = previous;
+      this.bottom.clear();
+
+      if (y_min != this.y_bottom) {
+        this.top.clear();
+      }
+      this.y_bottom = y_max;
+    }
+
+    /**
+     * @return The vertex at {@code (x, y)}, where {@code y} is the top or
+     * bottom of the current span, creating it if necessary
+     */
+
+    PolygonVertexID vertex(
+      final int x,
+      final int y)
+    {
+      final Int2ReferenceOpenHashMap<PolygonVertexID> line =
+        y == this.y_bottom ? this.bottom : this.top;
+
+      final PolygonVertexID existing = line.get(x);
+      if (existing != null) {
+        return existing;
+      }
+
+      final PolygonVertexID created =
+        this.mesh.vertexFindOrCreate(Vector2I.of(x, y)).id();
+      line.put(x, created);
+      return created;
+    }
+  }
+
+  private static final class SpanGeometryTask extends RecursiveAction
+  {
+    private static final int SPANS_PER_TASK_MINIMUM = 8;
+
+    private final SweepEdges edges;
+    private final SpanGeometries geometries;
+    private final SweepStart[] starts;
+    private final int start;
+    private final int end;
+
+    /**
+     * A task that sweeps the ranges of spans {@code [in_start, in_end)},
+     * starting the sweep of range {@code n} from {@code in_starts[n]}.
+     */
+
+    SpanGeometryTask(
+      final SweepEdges in_edges,
+      final SpanGeometries in_geometries,
+      final SweepStart[] in_starts,
+      final int in_start,
+      final int in_end)
+    {
+      this.edges = notNull(in_edges, "Edges");
+      this.geometries = notNull(in_geometries, "Geometries");
+      this.starts = notNull(in_starts, "Starts");
+      this.start = in_start;
+      this.end = in_end;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (this.end - this.start == 1) {
+        sweepGeometries(
+          this.edges, this.geometries, this.starts[this.start], this.start);
+        return;
+      }
+
+      final int middle = (this.start + this.end) >>> 1;
+      invokeAll(
+        new SpanGeometryTask(
+          this.edges, this.geometries, this.starts, this.start, middle),
+        new SpanGeometryTask(
+          this.edges, this.geometries, this.starts, middle, this.end));
+    }
+  }
+
+  /**
+   * The state of a sweep before the first span of a range of spans: the
+   * index of the first edge that starts at or below the top of the span, and
+   * the edges that start above the top of the span and end below it.
+   */
+
+  private static final class SweepStart
+  {
+    private static final SweepStart INITIAL = new SweepStart(0, new int[0]);
+
+    private final int edges_next;
+    private final int[] active;
+
+    SweepStart(
+      final int in_edges_next,
+      final int[] in_active)
+    {
+      this.edges_next = in_edges_next;
+      this.active = notNull(in_active, "Active");
+    }
+  }
+
+  /**
+   * A set of edges, stored as parallel arrays of coordinates ordered by the
+   * minimum Y values of the edges. No edge is horizontal.
+   */
+
+  private static final class SweepEdges
+  {
+    private final int count;
+    private final int[] x0;
+    private final int[] y0;
+    private final int[] x1;
+    private final int[] y1;
+    private final int[] y_min;
+    private final int[] y_max;
+
+    SweepEdges(
+      final IntArrayList coordinates)
+    {
+      this.count = coordinates.size() / 4;
+
+      final long[] keys = new long[this.count];
+      for (int index = 0; index < this.count; ++index) {
+        final int edge_y_min = Math.min(
+          coordinates.getInt((index * 4) + 1),
+          coordinates.getInt((index * 4) + 3));
+        keys[index] = ((long) edge_y_min << 32) | (long) index;
+      }
+      Arrays.sort(keys);
+
+      this.x0 = new int[this.count];
+      this.y0 = new int[this.count];
+      this.x1 = new int[this.count];
+      this.y1 = new int[this.count];
+      this.y_min = new int[this.count];
+      this.y_max = new int[this.count];
+      for (int index = 0; index < this.count; ++index) {
+        final int base = (int) (keys[index] & 0xffffffffL) * 4;
+        this.x0[index] = coordinates.getInt(base);
+        this.y0[index] = coordinates.getInt(base + 1);
+        this.x1[index] = coordinates.getInt(base + 2);
+        this.y1[index] = coordinates.getInt(base + 3);
+        this.y_min[index] = Math.min(this.y0[index], this.y1[index]);
+        this.y_max[index] = Math.max(this.y0[index], this.y1[index]);
+      }
+    }
+
+    /**
+     * @return The X coordinate at which the given edge intersects the
+     * horizontal line at {@code y}, rounded towards negative infinity
+     */
+
+    int xAt(
+      final int edge,
+      final int y)
+    {
+      return RoomLineIntersections.xAtYFloor(
+        this.x0[edge], this.y0[edge], this.x1[edge], this.y1[edge], y);
+    }
+  }
+
+  /**
+   * A list of edge intersections with a span, stored as parallel arrays of
+   * edge indices and the X coordinates at which each edge intersects the top
+   * and bottom of the span.
+   */
+
+  private static final class SpanIntersections
   {
-    private final EdgeIntersection intersection0;
-    private final EdgeIntersection intersection1;
+    private int[] edge;
+    private int[] x_min;
+    private int[] x_max;
+    private int count;
+
+    SpanIntersections()
+    {
+      this.edge = new int[16];
+      this.x_min = new int[16];
+      this.x_max = new int[16];
+      this.count = 0;
+    }
 
-    EdgePair(
-      final EdgeIntersection in_intersection0,
-      final EdgeIntersection in_intersection1)
+    void add(
+      final int in_edge,
+      final int in_x_min,
+      final int in_x_max)
     {
-      this.intersection0 = notNull(in_intersection0, "Intersection 0");
-      this.intersection1 = notNull(in_intersection1, "Intersection 1");
+      if (this.count == this.edge.length) {
+        final int size = this.count * 2;
+        this.edge = Arrays.copyOf(this.edge, size);
+        this.x_min = Arrays.copyOf(this.x_min, size);
+        this.x_max = Arrays.copyOf(this.x_max, size);
+      }
+
+      this.edge[this.count] = in_edge;
+      this.x_min[this.count] = in_x_min;
+      this.x_max[this.count] = in_x_max;
+      ++this.count;
+    }
+
+    int compare(
+      final int index0,
+      final SpanIntersections other,
+      final int index1)
+    {
+      return compareIntersections(
+        this.x_min[index0],
+        this.x_max[index0],
+        other.x_min[index1],
+        other.x_max[index1]);
+    }
+
+    boolean isSorted()
+    {
+      for (int index = 1; index < this.count; ++index) {
+        if (this.compare(index - 1, this, index) > 0) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Sort the intersections on the X axis. The lists sorted here are either
+     * very short or almost sorted, so an insertion sort is sufficient.
+     */
+
+    void sort()
+    {
+      for (int index = 1; index < this.count; ++index) {
+        final int e = this.edge[index];
+        final int xn = this.x_min[index];
+        final int xx = this.x_max[index];
+
+        int target = index - 1;
+        while (target >= 0
+          && compareIntersections(
+          this.x_min[target], this.x_max[target], xn, xx) > 0) {
+          this.edge[target + 1] = this.edge[target];
+          this.x_min[target + 1] = this.x_min[target];
+          this.x_max[target + 1] = this.x_max[target];
+          --target;
+        }
+
+        this.edge[target + 1] = e;
+        this.x_min[target + 1] = xn;
+        this.x_max[target + 1] = xx;
+      }
     }
   }
 
-  private static final class EdgeIntersection
+  /**
+   * A scanline sweep over a set of edges ordered by their minimum Y values.
+   * The sweep maintains the list of edges that overlap the current span,
+   * ordered on the X axis, and must be advanced through spans in increasing
+   * Y order. Edges that start partway through the sweep are merged into the
+   * list as the sweep reaches them, and edges are removed once the sweep has
+   * passed their maximum Y values. All storage is reused between spans.
+   */
+
+  private static final class EdgeSweep
   {
-    private final @Nullable PolygonEdgeType edge;
-    private final Vector2I minimum;
-    private final Vector2I maximum;
+    private final SweepEdges edges;
+    private int edges_next;
+    private SpanIntersections active;
+    private SpanIntersections merged;
+    private final SpanIntersections started;
+    private final int[] outline_x;
+    private final int[] outline_y;
+    private int active_count;
+
+    EdgeSweep(
+      final SweepEdges in_edges,
+      final SweepStart in_start)
+    {
+      this.edges = notNull(in_edges, "Edges");
+      notNull(in_start, "Start");
+
+      this.edges_next = in_start.edges_next;
+      this.active = new SpanIntersections();
+      this.merged = new SpanIntersections();
+      this.started = new SpanIntersections();
+      this.outline_x = new int[4];
+      this.outline_y = new int[4];
+      this.active_count = 0;
+
+      //
+      // The intersections of the initially active edges are computed, and
+      // the edges sorted, when the sweep is advanced to the first span.
+      //
+
+      for (final int e : in_start.active) {
+        this.active.add(e, 0, 0);
+      }
+    }
+
+    /**
+     * Advance the sweep to the span {@code [y_min, y_max]}.
+     */
 
-    EdgeIntersection(
-      final PolygonEdgeType edge,
-      final Vector2I intersection_min,
-      final Vector2I intersection_max)
+    void advance(
+      final int y_min,
+      final int y_max)
     {
-      this.edge = edge;
-      this.minimum = notNull(intersection_min, "Minimum");
-      this.maximum = notNull(intersection_max, "Maximum");
+      //
+      // Remove the edges that end at or above the top of the span, and
+      // intersect the remaining edges with the span. Edges that overlap
+      // each other do not change order between spans, so the resulting
+      // list is already sorted unless the mesh contains crossing edges.
+      //
+
+      final SpanIntersections current = this.active;
+      int kept = 0;
+      for (int index = 0; index < current.count; ++index) {
+        final int e = current.edge[index];
+        if (this.edges.y_max[e] > y_min) {
+          current.edge[kept] = e;
+          current.x_min[kept] = this.edges.xAt(e, y_min);
+          current.x_max[kept] = this.edges.xAt(e, y_max);
+          ++kept;
+        }
+      }
+      current.count = kept;
+
+      if (!current.isSorted()) {
+        current.sort();
+      }
+
+      //
+      // Intersect the edges that start above the bottom of the span.
+      //
+
+      final SpanIntersections start = this.started;
+      start.count = 0;
+      while (this.edges_next < this.edges.count
+        && this.edges.y_min[this.edges_next] < y_max) {
+        final int e = this.edges_next;
+        ++this.edges_next;
+        if (this.edges.y_max[e] > y_min) {
+          start.add(e, this.edges.xAt(e, y_min), this.edges.xAt(e, y_max));
+        }
+      }
+
+      //
+      // Merge the started edges into the active edges.
+      //
+
+      if (start.count > 0) {
+        start.sort();
+
+        final SpanIntersections result = this.merged;
+        result.count = 0;
+
+        int index_current = 0;
+        int index_started = 0;
+        while (index_current < current.count || index_started < start.count) {
+          final boolean take_current;
+          if (index_started == start.count) {
+            take_current = true;
+          } else if (index_current == current.count) {
+            take_current = false;
+          } else {
+            take_current =
+              current.compare(index_current, start, index_started) <= 0;
+          }
+
+          if (take_current) {
+            result.add(
+              current.edge[index_current],
+              current.x_min[index_current],
+              current.x_max[index_current]);
+            ++index_current;
+          } else {
+            result.add(
+              start.edge[index_started],
+              start.x_min[index_started],
+              start.x_max[index_started]);
+            ++index_started;
+          }
+        }
+
+        this.merged = current;
+        this.active = result;
+      }
+
+      this.active_count = this.active.count;
+    }
+
+    /**
+     * @return The X coordinate at which the intersection at {@code index}
+     * meets the top of the span, where the intersections are bracketed by
+     * fake intersections for the start and end of the span
+     */
+
+    int intersectionMinimumX(
+      final int index,
+      final int x_min,
+      final int x_max)
+    {
+      if (index == 0) {
+        return x_min;
+      }
+      if (index > this.active_count) {
+        return x_max;
+      }
+      return this.active.x_min[index - 1];
+    }
+
+    /**
+     * @return The X coordinate at which the intersection at {@code index}
+     * meets the bottom of the span, where the intersections are bracketed by
+     * fake intersections for the start and end of the span
+     */
+
+    int intersectionMaximumX(
+      final int index,
+      final int x_min,
+      final int x_max)
+    {
+      if (index == 0) {
+        return x_min;
+      }
+      if (index > this.active_count) {
+        return x_max;
+      }
+      return this.active.x_max[index - 1];
     }
   }
 }
@@ -2,63 +2,97 @@ package com.io7m.roommodel0.mesh;
 
 import com.io7m.jaffirm.core.Invariants;
 import com.io7m.jaffirm.core.Postconditions;
+import com.io7m.jaffirm.core.Preconditions;
 import com.io7m.jfunctional.Pair;
 import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
 import com.io7m.jregions.core.unparameterized.areas.AreaI;
 import com.io7m.jregions.core.unparameterized.areas.AreasI;
-import com.io7m.jspatial.api.quadtrees.QuadTreeConfigurationI;
-import com.io7m.jspatial.api.quadtrees.QuadTreeIType;
 import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
-import com.io7m.jspatial.implementation.QuadTreeI;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import it.unimi.dsi.fastutil.longs.Long2ReferenceOpenHashMap;
-import it.unimi.dsi.fastutil.longs.Long2ReferenceRBTreeMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import it.unimi.dsi.fastutil.objects.ReferenceCollections;
 import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
-import org.jgrapht.graph.SimpleGraph;
 
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * A mesh that stores its vertices, polygons and edges as individual objects.
+ *
+ * Each corner of a polygon is also the half-edge from its vertex to the
+ * vertex of the next corner. The half-edges that lie on the same edge are
+ * linked into a cycle by the twin references of the corners: an edge shared
+ * by two polygons has two half-edges that are each other's twins, and an
+ * external edge has a single half-edge that is its own twin. Each edge
+ * refers to one of its half-edges.
+ */
 
 public final class Mesh implements MeshType
 {
-  private final SimpleGraph<Vertex, Edge> vertex_connectivity;
-  private final Long2ReferenceRBTreeMap<Vertex> vertices;
+  private static final MeshPolygonIndexType.FilterType<Polygon>
+    POLYGON_OVERLAPS = Mesh::polygonOverlaps;
+  private static final MeshPolygonIndexType.FilterType<Polygon>
+    POLYGON_CONTAINS = Mesh::polygonContains;
+  private static final int POSITIONS_BUFFER_INITIAL = 16;
+
+  private final Long2ReferenceOpenHashMap<Vertex> vertices;
+  private final Long2ReferenceOpenHashMap<Vertex> vertices_by_position;
   private final Collection<PolygonVertexType> vertices_view;
-  private final Long2ReferenceRBTreeMap<Polygon> polygons;
+  private final MeshSortedView<PolygonVertexType> vertices_sorted;
+  private final Long2ReferenceOpenHashMap<Polygon> polygons;
   private final Collection<PolygonType> polygons_view;
-  private final QuadTreeIType<Polygon> polygons_tree;
+  private final MeshSortedView<PolygonType> polygons_sorted;
+  private final MeshPolygonIndexType<Polygon> polygons_index;
   private final AreaI bounds;
+  private final SegmentTopology segment_topology;
+  private final AtomicReference<Proximity> proximity_spare;
+  private int[] positions_buffer;
   private long vertex_ids;
   private long polygon_ids;
 
   private Mesh(
-    final AreaI in_bounds)
+    final AreaI in_bounds,
+    final MeshIndexConfiguration in_index)
   {
     this.bounds = NullCheck.notNull(in_bounds, "Bounds");
 
     this.vertices =
-      new Long2ReferenceRBTreeMap<>();
+      new Long2ReferenceOpenHashMap<>();
     this.vertices_view =
       Collections.unmodifiableCollection(this.vertices.values());
-    this.vertex_connectivity =
-      new SimpleGraph<>(Edge::new);
+    this.vertices_sorted =
+      new MeshSortedView<>(this.vertices_view, v -> v.id().value());
+    this.vertices_by_position =
+      new Long2ReferenceOpenHashMap<>();
 
     this.polygons =
-      new Long2ReferenceRBTreeMap<>();
+      new Long2ReferenceOpenHashMap<>();
     this.polygons_view =
       castCollection(ReferenceCollections.unmodifiable(this.polygons.values()));
-    this.polygons_tree =
-      QuadTreeI.create(
-        QuadTreeConfigurationI.of(
-          this.bounds, 16, 16, true));
+    this.polygons_sorted =
+      new MeshSortedView<>(this.polygons_view, p -> p.id().value());
+    this.polygons_index =
+      MeshPolygonIndexType.create(this.bounds, in_index);
+    this.segment_topology =
+      new SegmentTopology();
+    this.proximity_spare =
+      new AtomicReference<>(new Proximity());
+    this.positions_buffer =
+      new int[POSITIONS_BUFFER_INITIAL];
 
     this.vertex_ids = 0L;
     this.polygon_ids = 0L;
@@ -78,10 +112,92 @@ public final class Mesh implements MeshType
     return (Collection<B>) q;
   }
 
+  /**
+   * Create a mesh that indexes its polygons with a quadtree.
+   *
+   * @param bounds The bounds of the mesh
+   *
+   * @return A new mesh
+   */
+
   public static MeshType create(
     final AreaI bounds)
   {
-    return new Mesh(bounds);
+    return create(
+      bounds, MeshIndexConfiguration.of(MeshIndexKind.MESH_INDEX_QUADTREE));
+  }
+
+  /**
+   * Create a mesh.
+   *
+   * @param bounds The bounds of the mesh
+   * @param index  The configuration of the polygon index
+   *
+   * @return A new mesh
+   */
+
+  public static MeshType create(
+    final AreaI bounds,
+    final MeshIndexConfiguration index)
+  {
+    return new Mesh(bounds, NullCheck.notNull(index, "Index"));
+  }
+
+  private static long positionKey(
+    final Vector2I position)
+  {
+    return ((long) position.x() << 32) | ((long) position.y() & 0xffffffffL);
+  }
+
+  /**
+   * Add a vertex to the position index. Vertices that share a position are
+   * chained in ascending order of ID, with the oldest vertex at the head,
+   * regardless of the order in which they arrived at the position.
+   */
+
+  private void positionIndexAdd(
+    final Vertex v)
+  {
+    final long key = positionKey(v.position);
+    final Vertex head = this.vertices_by_position.get(key);
+    final long id = v.id.value();
+    if (head == null || id < head.id.value()) {
+      v.position_next = head;
+      this.vertices_by_position.put(key, v);
+      return;
+    }
+
+    Vertex previous = head;
+    while (previous.position_next != null
+      && previous.position_next.id.value() < id) {
+      previous = previous.position_next;
+    }
+    v.position_next = previous.position_next;
+    previous.position_next = v;
+  }
+
+  private void positionIndexRemove(
+    final Vertex v)
+  {
+    final long key = positionKey(v.position);
+    final Vertex head = this.vertices_by_position.get(key);
+    Invariants.checkInvariant(head != null, "Vertex must be indexed");
+
+    if (head == v) {
+      if (v.position_next == null) {
+        this.vertices_by_position.remove(key);
+      } else {
+        this.vertices_by_position.put(key, v.position_next);
+      }
+    } else {
+      Vertex previous = head;
+      while (previous.position_next != v) {
+        previous = previous.position_next;
+        Invariants.checkInvariant(previous != null, "Vertex must be indexed");
+      }
+      previous.position_next = v.position_next;
+    }
+    v.position_next = null;
   }
 
   private static List<Pair<Vertex, Vertex>> pairVertices(
@@ -103,18 +219,54 @@ public final class Mesh implements MeshType
     return edges;
   }
 
-  private static void checkVerticesAreConvex(
-    final ReferenceArrayList<Vertex> vs)
+  /**
+   * @return A buffer with room for the coordinates of the given number of
+   * vertices, reused between operations so that checking a polygon does not
+   * allocate
+   */
+
+  private int[] positionsBuffer(
+    final int count)
+  {
+    if (this.positions_buffer.length < count * 2) {
+      this.positions_buffer = new int[count * 2];
+    }
+    return this.positions_buffer;
+  }
+
+  /**
+   * Find the edge between two vertices by scanning the incident edges of
+   * whichever vertex has fewer of them.
+   */
+
+  private static @Nullable Edge edgeBetween(
+    final Vertex v0,
+    final Vertex v1)
   {
-    final ReferenceArrayList<Vector2I> positions =
-      new ReferenceArrayList<>(vs.size());
-    for (int index = 0; index < vs.size(); ++index) {
-      positions.add(vs.get(index).position());
+    final Vertex scan;
+    final Vertex other;
+    if (v0.edges.size() <= v1.edges.size()) {
+      scan = v0;
+      other = v1;
+    } else {
+      scan = v1;
+      other = v0;
     }
 
-    if (!MeshPolygons.isConvex(positions)) {
-      throw new MeshExceptionPolygonNotConvex("Polygon is not convex");
+    final ReferenceArrayList<Edge> edges = scan.edges;
+    for (int index = 0; index < edges.size(); ++index) {
+      final Edge e = edges.get(index);
+      if (e.vertex0 == other || e.vertex1 == other) {
+        return e;
+      }
     }
+    return null;
+  }
+
+  private boolean vertexIsLive(
+    final Vertex v)
+  {
+    return this.vertices.get(v.id.value()) == v;
   }
 
   @Override
@@ -139,11 +291,27 @@ public final class Mesh implements MeshType
     }
 
     final Vertex v = new Vertex(vertex, position);
-    this.vertex_connectivity.addVertex(v);
     this.vertices.put(v.id.value(), v);
+    this.vertices_sorted.invalidate();
+    this.vertex_ids = idNext(this.vertex_ids, vertex.value());
+    this.positionIndexAdd(v);
     return v;
   }
 
+  @Override
+  public PolygonVertexType vertexFindOrCreate(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+
+    final Vertex existing =
+      this.vertices_by_position.get(positionKey(position));
+    if (existing != null) {
+      return existing;
+    }
+    return this.vertexCreate(position);
+  }
+
   @Override
   public void vertexSetPosition(
     final PolygonVertexID vertex_id,
@@ -154,19 +322,17 @@ public final class Mesh implements MeshType
 
     final Vertex v = this.checkVertexExists(vertex_id);
 
-    final Long2ReferenceOpenHashMap<AreaI> bounds_by_polygon =
-      new Long2ReferenceOpenHashMap<>(v.polygons.size());
-
-    for (final Polygon p : v.polygons) {
-      final List<Vector2I> pv =
-        p.vertices.stream().map(vv -> {
-          if (Objects.equals(vv, v)) {
-            return position;
-          }
-          return vv.position;
-        }).collect(Collectors.toList());
-
-      if (!MeshPolygons.isConvex(pv)) {
+    final int x = position.x();
+    final int y = position.y();
+    final boolean inside =
+      x >= this.bounds.minimumX()
+        && x <= this.bounds.maximumX()
+        && y >= this.bounds.minimumY()
+        && y <= this.bounds.maximumY();
+
+    for (int index = 0; index < v.polygons_list.size(); ++index) {
+      final Polygon p = v.polygons_list.get(index);
+      if (!this.polygonConvexAfterMove(p, p.vertices.indexOf(v), x, y)) {
         final StringBuilder sb = new StringBuilder(128);
         sb.append("Setting vertex position would make polygon non-convex.");
         sb.append(System.lineSeparator());
@@ -182,8 +348,12 @@ public final class Mesh implements MeshType
         throw new MeshExceptionPolygonNotConvex(sb.toString());
       }
 
-      final AreaI new_bounds = MeshPolygons.bounds(pv);
-      if (!AreasI.contains(this.bounds, new_bounds)) {
+      //
+      // The other vertices of the polygon are already within the bounds of
+      // the mesh, so the polygon stays within the bounds iff the vertex does.
+      //
+
+      if (!inside) {
         final StringBuilder sb = new StringBuilder(128);
         sb.append("Setting vertex position would make polygon exceed bounds.");
         sb.append(System.lineSeparator());
@@ -198,20 +368,105 @@ public final class Mesh implements MeshType
         sb.append(System.lineSeparator());
         throw new MeshExceptionPolygonNotConvex(sb.toString());
       }
-
-      bounds_by_polygon.put(p.id.value(), new_bounds);
     }
 
+    this.positionIndexRemove(v);
     v.position = position;
-    for (final Polygon p : v.polygons) {
-      this.polygons_tree.remove(p);
-      p.bounds = bounds_by_polygon.get(p.id.value());
-      final boolean inserted = this.polygons_tree.insert(p, p.bounds);
-      Postconditions.checkPostcondition(
-        inserted, "Polygon must have been inserted");
+    this.positionIndexAdd(v);
+    for (int index = 0; index < v.polygons_list.size(); ++index) {
+      final Polygon p = v.polygons_list.get(index);
+      this.polygonUpdateBounds(p);
+      p.winding = MeshPolygons.winding(p);
+      p.invalidateGeometry();
+    }
+    for (int index = 0; index < v.edges.size(); ++index) {
+      v.edges.get(index).invalidateGeometry();
     }
   }
 
+  /**
+   * Determine whether a convex polygon remains convex if the vertex at the
+   * given index is moved to {@code (x, y)}. Only the turns at the vertex and
+   * at its two neighbours change, so those are checked against the winding
+   * of the polygon. The whole polygon is checked if the polygon has no area,
+   * or if the moved vertex turns against the winding, as the move may then
+   * reverse the winding of a polygon that is otherwise degenerate.
+   */
+
+  private boolean polygonConvexAfterMove(
+    final Polygon p,
+    final int index,
+    final int x,
+    final int y)
+  {
+    final ReferenceArrayList<Vertex> vs = p.vertices;
+    final int count = vs.size();
+    final int winding = p.winding;
+
+    if (winding != 0) {
+      final Vector2I v_prev2 = vs.get((index + count - 2) % count).position;
+      final Vector2I v_prev = vs.get((index + count - 1) % count).position;
+      final Vector2I v_next = vs.get((index + 1) % count).position;
+      final Vector2I v_next2 = vs.get((index + 2) % count).position;
+
+      final int turn_prev =
+        MeshPolygons.orient2d(
+          v_prev2.x(), v_prev2.y(), v_prev.x(), v_prev.y(), x, y);
+      final int turn =
+        MeshPolygons.orient2d(
+          v_prev.x(), v_prev.y(), x, y, v_next.x(), v_next.y());
+      final int turn_next =
+        MeshPolygons.orient2d(
+          x, y, v_next.x(), v_next.y(), v_next2.x(), v_next2.y());
+
+      if (turn_prev != -winding && turn != -winding && turn_next != -winding) {
+        return true;
+      }
+    }
+
+    final int[] coordinates = this.positionsBuffer(count);
+    for (int corner = 0; corner < count; ++corner) {
+      final Vector2I vp = vs.get(corner).position;
+      coordinates[corner * 2] = corner == index ? x : vp.x();
+      coordinates[(corner * 2) + 1] = corner == index ? y : vp.y();
+    }
+    return MeshPolygons.isConvex(coordinates, count);
+  }
+
+  /**
+   * Recalculate the bounds of a polygon, and move the polygon within the
+   * index only if the bounds have changed.
+   */
+
+  private void polygonUpdateBounds(
+    final Polygon p)
+  {
+    final ReferenceArrayList<Vertex> vs = p.vertices;
+    int x_min = Integer.MAX_VALUE;
+    int y_min = Integer.MAX_VALUE;
+    int x_max = Integer.MIN_VALUE;
+    int y_max = Integer.MIN_VALUE;
+    for (int index = 0; index < vs.size(); ++index) {
+      final Vector2I vp = vs.get(index).position;
+      x_min = Math.min(vp.x(), x_min);
+      y_min = Math.min(vp.y(), y_min);
+      x_max = Math.max(vp.x(), x_max);
+      y_max = Math.max(vp.y(), y_max);
+    }
+
+    final AreaI bounds_old = p.bounds;
+    if (bounds_old.minimumX() == x_min
+      && bounds_old.maximumX() == x_max
+      && bounds_old.minimumY() == y_min
+      && bounds_old.maximumY() == y_max) {
+      return;
+    }
+
+    this.polygons_index.remove(p, bounds_old);
+    p.bounds = AreaI.of(x_min, x_max, y_min, y_max);
+    this.polygons_index.insert(p, p.bounds);
+  }
+
   @Override
   public PolygonType polygonCreate(
     final List<PolygonVertexID> poly_vertices)
@@ -239,19 +494,25 @@ public final class Mesh implements MeshType
 
     final ReferenceArrayList<Vertex> poly_vertices =
       this.checkVerticesExist(vids);
-    checkVerticesAreConvex(poly_vertices);
 
-    final List<Vector2I> vertex_positions =
-      poly_vertices.stream()
-        .map(PolygonVertexType::position)
-        .collect(Collectors.toList());
+    final int count = poly_vertices.size();
+    final int[] coordinates = this.positionsBuffer(count);
+    for (int index = 0; index < count; ++index) {
+      final Vector2I position = poly_vertices.get(index).position;
+      coordinates[index * 2] = position.x();
+      coordinates[(index * 2) + 1] = position.y();
+    }
+
+    if (!MeshPolygons.isConvex(coordinates, count)) {
+      throw new MeshExceptionPolygonNotConvex("Polygon is not convex");
+    }
 
-    if (MeshPolygons.isClockwiseOrder(vertex_positions)) {
+    if (MeshPolygons.winding(coordinates, count) < 0) {
       Collections.reverse(poly_vertices);
     }
 
     final AreaI poly_bounds =
-      MeshPolygons.bounds(vertex_positions);
+      MeshPolygons.bounds(coordinates, count);
 
     if (!AreasI.contains(this.bounds, poly_bounds)) {
       throw new MeshExceptionPolygonOutsideBounds(
@@ -262,42 +523,187 @@ public final class Mesh implements MeshType
       poly_vertices);
     final ReferenceArrayList<Edge> edges =
       new ReferenceArrayList<>(poly_vertices.size());
-    final ReferenceOpenHashSet<Polygon> connected_polygons = new ReferenceOpenHashSet<>();
     for (int index = 0; index < poly_vertices.size(); ++index) {
       final Vertex v0 = edge_pairs.get(index).getLeft();
       final Vertex v1 = edge_pairs.get(index).getRight();
-      final Edge edge;
-      if (this.vertex_connectivity.containsEdge(v0, v1)) {
-        edge = this.vertex_connectivity.getEdge(v0, v1);
-        connected_polygons.addAll(v0.polygons);
-        connected_polygons.addAll(v1.polygons);
-      } else {
-        edge = new Edge(v0, v1);
-      }
-      edges.add(edge);
+      final Edge existing = edgeBetween(v0, v1);
+      edges.add(existing != null ? existing : new Edge(v0, v1));
     }
 
-    final Polygon poly = new Polygon(id, poly_bounds);
-    final boolean inserted = this.polygons_tree.insert(poly, poly_bounds);
-    Invariants.checkInvariant(inserted, "Polygon must have been inserted");
+    final Polygon poly = new Polygon(id, poly_bounds, count);
+    this.polygons_index.insert(poly, poly_bounds);
 
     for (int index = 0; index < poly_vertices.size(); ++index) {
       poly.vertices.add(poly_vertices.get(index));
     }
+    poly.winding = MeshPolygons.winding(poly);
 
     for (int index = 0; index < edges.size(); ++index) {
       final Edge edge = edges.get(index);
-      this.vertex_connectivity.addEdge(edge.vertex0, edge.vertex1, edge);
-      edge.vertex0.polygons.add(poly);
-      edge.vertex1.polygons.add(poly);
-      edge.polygons.add(poly);
+      if (edge.polygon_count == 0) {
+        edge.vertex0.edges.add(edge);
+        edge.vertex1.edges.add(edge);
+      }
+      edge.vertex0.polygonAdd(poly);
+      edge.vertex1.polygonAdd(poly);
+      edgeLink(edge, poly, index);
       poly.edges.add(edge);
     }
 
     this.polygons.put(poly.id.value(), poly);
+    this.polygons_sorted.invalidate();
+    this.polygon_ids = idNext(this.polygon_ids, id.value());
     return poly;
   }
 
+  @Override
+  public List<PolygonType> bulkLoad(
+    final int[] positions,
+    final int[] polygon_sizes,
+    final int[] polygon_vertices)
+  {
+    final MeshBulkPolygons bulk =
+      MeshBulkPolygons.prepare(
+        this.bounds, positions, polygon_sizes, polygon_vertices);
+
+    final Vertex[] created = new Vertex[bulk.vertexCount()];
+    for (int index = 0; index < created.length; ++index) {
+      if (!bulk.vertexUsed(index)) {
+        continue;
+      }
+      final Vertex v = new Vertex(
+        this.vertexIDFresh(),
+        Vector2I.of(bulk.vertexX(index), bulk.vertexY(index)));
+      this.vertices.put(v.id.value(), v);
+      this.vertex_ids = idNext(this.vertex_ids, v.id.value());
+      this.positionIndexAdd(v);
+      created[index] = v;
+    }
+    this.vertices_sorted.invalidate();
+
+    final Edge[] corner_edges = bulkWeldEdges(bulk, created);
+
+    final ReferenceArrayList<PolygonType> results =
+      new ReferenceArrayList<>(bulk.polygonCount());
+    for (int polygon = 0; polygon < bulk.polygonCount(); ++polygon) {
+      final AreaI poly_bounds = bulk.polygonBounds(polygon);
+      final int start = bulk.polygonStart(polygon);
+      final int count = bulk.polygonSize(polygon);
+      final Polygon poly =
+        new Polygon(this.polygonIDFresh(), poly_bounds, count);
+      this.polygons_index.insert(poly, poly_bounds);
+
+      for (int corner = start; corner < start + count; ++corner) {
+        poly.vertices.add(created[bulk.cornerVertex(corner)]);
+      }
+      poly.winding = MeshPolygons.winding(poly);
+
+      for (int corner = start; corner < start + count; ++corner) {
+        final Edge edge = corner_edges[corner];
+        edge.vertex0.polygonAdd(poly);
+        edge.vertex1.polygonAdd(poly);
+        edgeLink(edge, poly, corner - start);
+        poly.edges.add(edge);
+      }
+
+      this.polygons.put(poly.id.value(), poly);
+      this.polygon_ids = idNext(this.polygon_ids, poly.id.value());
+      results.add(poly);
+    }
+    this.polygons_sorted.invalidate();
+    return Collections.unmodifiableList(results);
+  }
+
+  /**
+   * Create the edges of bulk-loaded polygons. Sorting the corners by edge
+   * brings the corners of shared edges together without an edge lookup per
+   * corner. Each edge takes the orientation given by the first polygon that
+   * uses it, as it would if the polygons had been created one at a time.
+   *
+   * @return The edge that begins at each corner
+   */
+
+  private static Edge[] bulkWeldEdges(
+    final MeshBulkPolygons bulk,
+    final Vertex[] created)
+  {
+    final int[] corners = bulk.cornersByEdge();
+    final Edge[] corner_edges = new Edge[corners.length];
+
+    Edge edge = null;
+    for (int index = 0; index < corners.length; ++index) {
+      final int corner = corners[index];
+      if (index == 0 || !bulk.cornersShareEdge(corners[index - 1], corner)) {
+        edge = new Edge(
+          created[bulk.cornerVertex(corner)],
+          created[bulk.cornerVertexNext(corner)]);
+        edge.vertex0.edges.add(edge);
+        edge.vertex1.edges.add(edge);
+      }
+      corner_edges[corner] = edge;
+    }
+    return corner_edges;
+  }
+
+  /**
+   * Add the half-edge of the given corner of the given polygon to the cycle
+   * of half-edges of the given edge.
+   */
+
+  private static void edgeLink(
+    final Edge edge,
+    final Polygon poly,
+    final int corner)
+  {
+    final Polygon head = edge.head_polygon;
+    if (head == null) {
+      poly.twin_polygons[corner] = poly;
+      poly.twin_corners[corner] = corner;
+      edge.head_polygon = poly;
+      edge.head_corner = corner;
+    } else {
+      final int head_corner = edge.head_corner;
+      poly.twin_polygons[corner] = head.twin_polygons[head_corner];
+      poly.twin_corners[corner] = head.twin_corners[head_corner];
+      head.twin_polygons[head_corner] = poly;
+      head.twin_corners[head_corner] = corner;
+    }
+    ++edge.polygon_count;
+  }
+
+  private static void edgeUnlink(
+    final Edge edge,
+    final Polygon poly,
+    final int corner)
+  {
+    final Polygon twin = poly.twin_polygons[corner];
+    final int twin_corner = poly.twin_corners[corner];
+
+    if (twin == poly && twin_corner == corner) {
+      edge.head_polygon = null;
+      edge.head_corner = -1;
+    } else {
+      Polygon previous = twin;
+      int previous_corner = twin_corner;
+      while (previous.twin_polygons[previous_corner] != poly
+        || previous.twin_corners[previous_corner] != corner) {
+        final Polygon next = previous.twin_polygons[previous_corner];
+        previous_corner = previous.twin_corners[previous_corner];
+        previous = next;
+      }
+      previous.twin_polygons[previous_corner] = twin;
+      previous.twin_corners[previous_corner] = twin_corner;
+      if (edge.head_polygon == poly && edge.head_corner == corner) {
+        edge.head_polygon = twin;
+        edge.head_corner = twin_corner;
+      }
+    }
+
+    poly.twin_polygons[corner] = null;
+    poly.twin_corners[corner] = -1;
+    --edge.polygon_count;
+  }
+
   @Override
   public void polygonDelete(
     final PolygonID pid)
@@ -315,41 +721,51 @@ public final class Mesh implements MeshType
           "Vertex must reference this polygon");
         vertices_delete.add(v);
       }
-      v.polygons.remove(poly);
+      v.polygonRemove(poly);
     }
 
     for (int index = 0; index < poly.edges.size(); ++index) {
       final Edge e = poly.edges.get(index);
-      e.polygons.remove(poly);
+      edgeUnlink(e, poly, index);
+      if (e.polygon_count == 0) {
+        e.vertex0.edges.remove(e);
+        e.vertex1.edges.remove(e);
+      }
     }
 
     for (final Vertex v : vertices_delete) {
-      this.vertex_connectivity.removeVertex(v);
+      Invariants.checkInvariant(
+        v.edges.isEmpty(), "Deleted vertex must have no edges");
       this.vertices.remove(v.id.value());
+      this.vertices_sorted.invalidate();
+      this.positionIndexRemove(v);
       v.deleted = true;
     }
 
-    this.polygons_tree.remove(poly);
+    this.polygons_index.remove(poly, poly.bounds);
     this.polygons.remove(poly.id.value());
+    this.polygons_sorted.invalidate();
     poly.deleted = true;
   }
 
-  private PolygonID polygonIDFresh()
-  {
-    final PolygonID id = PolygonID.of(this.polygon_ids);
+  /**
+   * IDs are allocated from a counter that is kept above every ID that has
+   * been used, so fresh IDs never require searching the existing IDs.
+   */
 
-    final long last_key;
-    if (!this.polygons.isEmpty()) {
-      last_key = this.polygons.lastLongKey();
-    } else {
-      last_key = Long.MIN_VALUE;
+  private static long idNext(
+    final long current,
+    final long used)
+  {
+    if (used < current) {
+      return current;
     }
+    return Math.addExact(used, 1L);
+  }
 
-    this.polygon_ids =
-      Math.max(
-        Math.addExact(last_key, 1L),
-        Math.addExact(this.polygon_ids, 1L));
-
+  private PolygonID polygonIDFresh()
+  {
+    final PolygonID id = PolygonID.of(this.polygon_ids);
     Postconditions.checkPostcondition(
       !this.polygons.containsKey(id.value()),
       "Polygon ID must be fresh");
@@ -359,19 +775,6 @@ public final class Mesh implements MeshType
   private PolygonVertexID vertexIDFresh()
   {
     final PolygonVertexID id = PolygonVertexID.of(this.vertex_ids);
-
-    final long last_key;
-    if (!this.vertices.isEmpty()) {
-      last_key = this.vertices.lastLongKey();
-    } else {
-      last_key = Long.MIN_VALUE;
-    }
-
-    this.vertex_ids =
-      Math.max(
-        Math.addExact(last_key, 1L),
-        Math.addExact(this.vertex_ids, 1L));
-
     Postconditions.checkPostcondition(
       !this.vertices.containsKey(id.value()),
       "Vertex ID must be fresh");
@@ -381,8 +784,9 @@ public final class Mesh implements MeshType
   private Polygon checkPolygonExists(
     final PolygonID pid)
   {
-    if (this.polygons.containsKey(pid.value())) {
-      return this.polygons.get(pid.value());
+    final Polygon poly = this.polygons.get(pid.value());
+    if (poly != null) {
+      return poly;
     }
 
     throw new MeshExceptionPolygonNonexistent(
@@ -403,8 +807,9 @@ public final class Mesh implements MeshType
   private Vertex checkVertexExists(
     final PolygonVertexID v)
   {
-    if (this.vertices.containsKey(v.value())) {
-      return this.vertices.get(v.value());
+    final Vertex vertex = this.vertices.get(v.value());
+    if (vertex != null) {
+      return vertex;
     }
 
     throw new MeshExceptionVertexNonexistent(
@@ -417,34 +822,32 @@ public final class Mesh implements MeshType
     return this.polygons_view;
   }
 
+  @Override
+  public List<PolygonType> polygonsSorted()
+  {
+    return this.polygons_sorted;
+  }
+
+  @Override
+  public AreaI bounds()
+  {
+    return this.bounds;
+  }
+
   @Override
   public QuadTreeReadableIType<PolygonType> polygonTree()
   {
-    return castQuadTree(this.polygons_tree);
+    return castQuadTree(this.polygons_index.tree());
   }
 
   @Override
   public Optional<PolygonVertexType> vertexFind(
     final Vector2I position)
   {
-    final ReferenceOpenHashSet<Polygon> results =
-      new ReferenceOpenHashSet<>();
-    final AreaI area = AreasI.create(
-      position.x() - 1,
-      position.y() - 1,
-      2,
-      2);
-    this.polygons_tree.overlappedBy(area, results);
-
-    for (final Polygon poly : results) {
-      for (final Vertex v : poly.vertices) {
-        if (Objects.equals(v.position, position)) {
-          return Optional.of(v);
-        }
-      }
-    }
+    NullCheck.notNull(position, "Position");
 
-    return Optional.empty();
+    return Optional.ofNullable(
+      this.vertices_by_position.get(positionKey(position)));
   }
 
   @Override
@@ -453,23 +856,300 @@ public final class Mesh implements MeshType
   {
     NullCheck.notNull(position, "position");
 
-    final ReferenceOpenHashSet<Polygon> results =
-      new ReferenceOpenHashSet<>();
-    final AreaI area = AreasI.create(
-      position.x() - 1,
-      position.y() - 1,
-      2,
-      2);
-    this.polygons_tree.overlappedBy(area, results);
+    final int x = position.x();
+    final int y = position.y();
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  @Override
+  public Optional<PolygonType> polygonFindFrom(
+    final PolygonID hint,
+    final Vector2I position)
+  {
+    NullCheck.notNull(hint, "Hint");
+    NullCheck.notNull(position, "Position");
 
-    for (final Polygon poly : results) {
-      final List<Vector2I> points = poly.positions();
-      if (MeshPolygons.containsPoint(points, position)) {
-        return Optional.of(poly);
+    final int x = position.x();
+    final int y = position.y();
+
+    Polygon current = this.polygons.get(hint.value());
+    for (int step = 0;
+         current != null && step < MeshPolygons.WALK_STEPS_MAXIMUM;
+         ++step) {
+      if (current.winding == 0) {
+        break;
       }
+
+      final int exit =
+        MeshPolygons.exitEdge(current, current.winding, x, y);
+      if (exit == -1) {
+        return Optional.of(current);
+      }
+      current = edgeOtherPolygon(current, exit);
+    }
+
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  /**
+   * @return The polygon of the next half-edge in the cycle of the half-edge
+   * of the given corner, skipping any other half-edges of the same polygon,
+   * or {@code null} if the edge is external
+   */
+
+  private static @Nullable Polygon edgeOtherPolygon(
+    final Polygon poly,
+    final int corner)
+  {
+    Polygon other = poly.twin_polygons[corner];
+    int other_corner = poly.twin_corners[corner];
+    while (other == poly) {
+      if (other_corner == corner) {
+        return null;
+      }
+      final Polygon next = other.twin_polygons[other_corner];
+      other_corner = other.twin_corners[other_corner];
+      other = next;
+    }
+    return other;
+  }
+
+  @Override
+  public void polygonFindAll(
+    final int[] xs,
+    final int[] ys,
+    final long[] results)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      POLYGON_CONTAINS,
+      xs,
+      ys,
+      results,
+      Optional.empty());
+  }
+
+  @Override
+  public void polygonFindAllParallel(
+    final int[] xs,
+    final int[] ys,
+    final long[] results,
+    final ForkJoinPool pool)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      POLYGON_CONTAINS,
+      xs,
+      ys,
+      results,
+      Optional.of(NullCheck.notNull(pool, "Pool")));
+  }
+
+  private @Nullable Polygon polygonFindPoint(
+    final int x,
+    final int y)
+  {
+    return this.polygons_index.search(x, x, y, y, POLYGON_CONTAINS, null);
+  }
+
+  @Override
+  public boolean forEachPolygonOverlapping(
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x_minimum,
+      x_maximum,
+      y_minimum,
+      y_maximum,
+      POLYGON_OVERLAPS,
+      receiver) == null;
+  }
+
+  @Override
+  public boolean forEachPolygonContaining(
+    final int x,
+    final int y,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x, x, y, y, POLYGON_CONTAINS, receiver) == null;
+  }
+
+  @Override
+  public boolean forEachVertexWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonVertexType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.verticesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public boolean forEachEdgeWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.edgesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public int vertexNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonVertexType[] vertices,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(vertices, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      query.verticesNearest(x, y, vertices.length, radius);
+      return query.nearest.copy(vertices, distances);
+    } finally {
+      this.proximityGive(query);
     }
+  }
+
+  @Override
+  public int edgeNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonEdgeType[] edges,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(edges, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      query.edgesNearest(x, y, edges.length, radius);
+      return query.nearest.copy(edges, distances);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  /**
+   * Take the spare proximity query state, or create new state if another
+   * query is using it.
+   */
 
-    return Optional.empty();
+  private Proximity proximityTake()
+  {
+    final Proximity query = this.proximity_spare.getAndSet(null);
+    if (query != null) {
+      return query;
+    }
+    return new Proximity();
+  }
+
+  private void proximityGive(
+    final Proximity query)
+  {
+    query.clear();
+    this.proximity_spare.set(query);
+  }
+
+  @Override
+  public boolean forEachSegmentHit(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    return MeshSegmentCast.cast(
+      this.segment_topology, x0, y0, x1, y1, receiver);
+  }
+
+  @Override
+  public Optional<MeshSegmentHit> segmentCast(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1)
+  {
+    return MeshSegmentCast.first(this.segment_topology, x0, y0, x1, y1);
+  }
+
+  private static double edgeDistance(
+    final Edge edge,
+    final int x,
+    final int y)
+  {
+    final Vector2I p0 = edge.vertex0.position;
+    final Vector2I p1 = edge.vertex1.position;
+    return MeshPolygons.distanceToSegment(
+      p0.x(), p0.y(), p1.x(), p1.y(), x, y);
+  }
+
+  private static void checkRadius(
+    final int radius)
+  {
+    Preconditions.checkPreconditionI(
+      radius, radius >= 0, r -> "Radius must be non-negative");
+  }
+
+  private static boolean polygonOverlaps(
+    final Polygon poly,
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum)
+  {
+    final AreaI poly_bounds = poly.bounds;
+    return poly_bounds.minimumX() <= x_maximum
+      && poly_bounds.maximumX() >= x_minimum
+      && poly_bounds.minimumY() <= y_maximum
+      && poly_bounds.maximumY() >= y_minimum;
+  }
+
+  /**
+   * The area of a containment search is a single point.
+   */
+
+  private static boolean polygonContains(
+    final Polygon poly,
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum)
+  {
+    if (!polygonOverlaps(poly, x_minimum, x_maximum, y_minimum, y_maximum)) {
+      return false;
+    }
+    return MeshPolygons.containsPointConvex(
+      poly, poly.winding, x_minimum, y_minimum);
   }
 
   @Override
@@ -478,6 +1158,88 @@ public final class Mesh implements MeshType
     return this.vertices_view;
   }
 
+  @Override
+  public List<PolygonVertexType> verticesSorted()
+  {
+    return this.vertices_sorted;
+  }
+
+  @Override
+  public Optional<PolygonEdgeType> edgeFind(
+    final PolygonVertexID vertex0,
+    final PolygonVertexID vertex1)
+  {
+    NullCheck.notNull(vertex0, "Vertex 0");
+    NullCheck.notNull(vertex1, "Vertex 1");
+
+    return Optional.ofNullable(
+      edgeBetween(
+        this.checkVertexExists(vertex0),
+        this.checkVertexExists(vertex1)));
+  }
+
+  @Override
+  public List<PolygonEdgeType> vertexEdges(
+    final PolygonVertexID vertex)
+  {
+    NullCheck.notNull(vertex, "Vertex");
+    return this.checkVertexExists(vertex).edges_view;
+  }
+
+  @Override
+  public List<PolygonType> polygonNeighbours(
+    final PolygonID polygon)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+
+    final Polygon poly = this.checkPolygonExists(polygon);
+    final ReferenceArrayList<PolygonType> neighbours =
+      new ReferenceArrayList<>(poly.edges.size());
+    forEachNeighbour(poly, q -> {
+      if (!neighbours.contains(q)) {
+        neighbours.add(q);
+      }
+      return true;
+    });
+    return Collections.unmodifiableList(neighbours);
+  }
+
+  @Override
+  public boolean forEachPolygonNeighbour(
+    final PolygonID polygon,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+    NullCheck.notNull(receiver, "Receiver");
+
+    return forEachNeighbour(this.checkPolygonExists(polygon), receiver);
+  }
+
+  /**
+   * Pass the polygon of every other half-edge in the cycle of each corner of
+   * the given polygon to the given function.
+   */
+
+  private static boolean forEachNeighbour(
+    final Polygon poly,
+    final Predicate<? super PolygonType> receiver)
+  {
+    final int count = poly.twin_polygons.length;
+    for (int corner = 0; corner < count; ++corner) {
+      Polygon other = poly.twin_polygons[corner];
+      int other_corner = poly.twin_corners[corner];
+      while (other != poly || other_corner != corner) {
+        if (other != poly && !receiver.test(other)) {
+          return false;
+        }
+        final Polygon next = other.twin_polygons[other_corner];
+        other_corner = other.twin_corners[other_corner];
+        other = next;
+      }
+    }
+    return true;
+  }
+
   @Override
   public List<String> check()
   {
@@ -520,7 +1282,7 @@ public final class Mesh implements MeshType
           }
         }
 
-        if (!this.vertex_connectivity.containsVertex(v)) {
+        if (!this.vertexIsLive(v)) {
           final StringBuilder sb = new StringBuilder(128);
           sb.append("Polygon ");
           sb.append(p);
@@ -555,8 +1317,12 @@ public final class Mesh implements MeshType
         }
       }
 
+      for (int corner = 0; corner < p.edges.size(); ++corner) {
+        checkHalfEdges(errors, p, corner);
+      }
+
       for (final Edge e : p.edges) {
-        if (!this.vertex_connectivity.containsVertex(e.vertex0)) {
+        if (!this.vertexIsLive(e.vertex0)) {
           final StringBuilder sb = new StringBuilder(128);
           sb.append("Polygon ");
           sb.append(p);
@@ -564,7 +1330,7 @@ public final class Mesh implements MeshType
           sb.append(e.vertex0);
           errors.add(sb.toString());
         }
-        if (!this.vertex_connectivity.containsVertex(e.vertex1)) {
+        if (!this.vertexIsLive(e.vertex1)) {
           final StringBuilder sb = new StringBuilder(128);
           sb.append("Polygon ");
           sb.append(p);
@@ -573,8 +1339,8 @@ public final class Mesh implements MeshType
           errors.add(sb.toString());
         }
 
-        for (final Polygon q : e.polygons) {
-          if (!this.polygons.containsKey(q.id.value())) {
+        for (final PolygonType q : e.polygons_view) {
+          if (!this.polygons.containsKey(q.id().value())) {
             final StringBuilder sb = new StringBuilder(128);
             sb.append("Polygon ");
             sb.append(p);
@@ -583,10 +1349,20 @@ public final class Mesh implements MeshType
             errors.add(sb.toString());
           }
         }
+
+        if (!e.vertex0.edges.contains(e) || !e.vertex1.edges.contains(e)) {
+          final StringBuilder sb = new StringBuilder(128);
+          sb.append("Polygon ");
+          sb.append(p);
+          sb.append(": Edge ");
+          sb.append(e);
+          sb.append(" is not incident to its vertices");
+          errors.add(sb.toString());
+        }
       }
     }
 
-    for (final Vertex v : this.vertex_connectivity.vertexSet()) {
+    for (final Vertex v : this.vertices.values()) {
       boolean referenced = false;
       for (final Polygon p : this.polygons.values()) {
         referenced = referenced || p.vertices.contains(v);
@@ -604,26 +1380,305 @@ public final class Mesh implements MeshType
     return errors;
   }
 
-  private static final class Polygon implements PolygonType
+  /**
+   * Check that the cycle of half-edges of the given corner returns to the
+   * corner, and that every half-edge in it lies on the same edge.
+   */
+
+  private static void checkHalfEdges(
+    final List<String> errors,
+    final Polygon p,
+    final int corner)
+  {
+    final Edge edge = p.edges.get(corner);
+    Polygon other = p.twin_polygons[corner];
+    int other_corner = p.twin_corners[corner];
+    for (int step = 0; step <= edge.polygon_count; ++step) {
+      if (other == null || other.edges.get(other_corner) != edge) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Polygon ");
+        sb.append(p);
+        sb.append(": Half-edge ");
+        sb.append(corner);
+        sb.append(" is linked to a half-edge of another edge");
+        errors.add(sb.toString());
+        return;
+      }
+      if (other == p && other_corner == corner) {
+        return;
+      }
+      final Polygon next = other.twin_polygons[other_corner];
+      other_corner = other.twin_corners[other_corner];
+      other = next;
+    }
+
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Polygon ");
+    sb.append(p);
+    sb.append(": Half-edge ");
+    sb.append(corner);
+    sb.append(" is not in a cycle of the half-edges of ");
+    sb.append(edge);
+    errors.add(sb.toString());
+  }
+
+  /**
+   * The state of a proximity query. The functions given to the polygon
+   * index are created once with the state rather than for each query, and
+   * the state is reused by successive queries. Each vertex and edge is
+   * reported only from its owner: the first polygon that a vertex lists, and
+   * the polygon of the half-edge that an edge refers to.
+   */
+
+  private final class Proximity implements MeshNearest.SearchType
+  {
+    private final MeshNearest nearest;
+    private final Predicate<Polygon> vertices_within;
+    private final Predicate<Polygon> edges_within;
+    private final Predicate<Polygon> vertices_nearest;
+    private final Predicate<Polygon> edges_nearest;
+    private @Nullable Predicate<Polygon> visitor;
+    private @Nullable DistanceReceiverType<? super PolygonVertexType>
+      vertex_receiver;
+    private @Nullable DistanceReceiverType<? super PolygonEdgeType>
+      edge_receiver;
+    private int x;
+    private int y;
+    private int radius;
+
+    Proximity()
+    {
+      this.nearest = new MeshNearest();
+      this.vertices_within = this::visitVerticesWithin;
+      this.edges_within = this::visitEdgesWithin;
+      this.vertices_nearest = this::visitVerticesNearest;
+      this.edges_nearest = this::visitEdgesNearest;
+    }
+
+    boolean verticesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonVertexType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.vertex_receiver = receiver;
+      this.visitor = this.vertices_within;
+      return MeshNearest.within(
+        Mesh.this.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    boolean edgesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonEdgeType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.edge_receiver = receiver;
+      this.visitor = this.edges_within;
+      return MeshNearest.within(
+        Mesh.this.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    void verticesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.vertices_nearest;
+      this.nearest.find(Mesh.this.bounds, in_x, in_y, this);
+    }
+
+    void edgesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.edges_nearest;
+      this.nearest.find(Mesh.this.bounds, in_x, in_y, this);
+    }
+
+    void clear()
+    {
+      this.nearest.clear();
+      this.visitor = null;
+      this.vertex_receiver = null;
+      this.edge_receiver = null;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum)
+    {
+      return Mesh.this.polygons_index.search(
+        x_minimum,
+        x_maximum,
+        y_minimum,
+        y_maximum,
+        POLYGON_OVERLAPS,
+        this.visitor) == null;
+    }
+
+    private boolean visitVerticesWithin(
+      final Polygon poly)
+    {
+      final DistanceReceiverType<? super PolygonVertexType> receiver =
+        this.vertex_receiver;
+      for (int index = 0; index < poly.vertices.size(); ++index) {
+        final Vertex v = poly.vertices.get(index);
+        if (v.polygons_list.get(0) == poly) {
+          final double distance = MeshPolygons.distance(
+            v.position.x(), v.position.y(), this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(v, distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesWithin(
+      final Polygon poly)
+    {
+      final DistanceReceiverType<? super PolygonEdgeType> receiver =
+        this.edge_receiver;
+      for (int index = 0; index < poly.edges.size(); ++index) {
+        final Edge e = poly.edges.get(index);
+        if (e.head_polygon == poly) {
+          final double distance = edgeDistance(e, this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(e, distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitVerticesNearest(
+      final Polygon poly)
+    {
+      for (int index = 0; index < poly.vertices.size(); ++index) {
+        final Vertex v = poly.vertices.get(index);
+        if (v.polygons_list.get(0) == poly) {
+          this.nearest.offer(v, MeshPolygons.distance(
+            v.position.x(), v.position.y(), this.x, this.y));
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesNearest(
+      final Polygon poly)
+    {
+      for (int index = 0; index < poly.edges.size(); ++index) {
+        final Edge e = poly.edges.get(index);
+        if (e.head_polygon == poly) {
+          this.nearest.offer(e, edgeDistance(e, this.x, this.y));
+        }
+      }
+      return true;
+    }
+  }
+
+  private final class SegmentTopology
+    implements MeshSegmentCast.TopologyType<Polygon>
+  {
+    SegmentTopology()
+    {
+
+    }
+
+    @Override
+    public int winding(
+      final Polygon polygon)
+    {
+      return polygon.winding;
+    }
+
+    @Override
+    public @Nullable Polygon neighbour(
+      final Polygon polygon,
+      final int edge)
+    {
+      return edgeOtherPolygon(polygon, edge);
+    }
+
+    @Override
+    public PolygonEdgeType edge(
+      final Polygon polygon,
+      final int edge)
+    {
+      return polygon.edges.get(edge);
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      return Mesh.this.bounds;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum,
+      final Predicate<? super Polygon> receiver)
+    {
+      return Mesh.this.polygons_index.search(
+        x_minimum, x_maximum, y_minimum, y_maximum, POLYGON_OVERLAPS, receiver)
+        == null;
+    }
+  }
+
+  private static final class Polygon
+    implements PolygonType, MeshPolygons.PositionsType
   {
     private final ReferenceArrayList<Edge> edges;
     private final List<PolygonEdgeType> edges_view;
     private final ReferenceArrayList<Vertex> vertices;
     private final List<PolygonVertexType> vertices_view;
+    private final Polygon[] twin_polygons;
+    private final int[] twin_corners;
     private final PolygonID id;
     private AreaI bounds;
+    private int winding;
     private boolean deleted;
+    private @Nullable List<Vector2I> positions;
+    private @Nullable Vector2D barycenter;
+    private double area;
 
     Polygon(
       final PolygonID in_id,
-      final AreaI in_bounds)
+      final AreaI in_bounds,
+      final int in_count)
     {
       this.id = in_id;
       this.bounds = NullCheck.notNull(in_bounds, "Bounds");
-      this.vertices = new ReferenceArrayList<>();
+      this.vertices = new ReferenceArrayList<>(in_count);
       this.vertices_view = Collections.unmodifiableList(this.vertices);
-      this.edges = new ReferenceArrayList<>();
+      this.edges = new ReferenceArrayList<>(in_count);
       this.edges_view = Collections.unmodifiableList(this.edges);
+      this.twin_polygons = new Polygon[in_count];
+      this.twin_corners = new int[in_count];
     }
 
     @Override
@@ -664,14 +1719,85 @@ public final class Mesh implements MeshType
     {
       return this.deleted;
     }
+
+    @Override
+    public List<Vector2I> positions()
+    {
+      if (this.positions == null) {
+        final ObjectArrayList<Vector2I> ps =
+          new ObjectArrayList<>(this.vertices.size());
+        for (int index = 0; index < this.vertices.size(); ++index) {
+          ps.add(this.vertices.get(index).position);
+        }
+        this.positions = Collections.unmodifiableList(ps);
+      }
+      return this.positions;
+    }
+
+    @Override
+    public double area()
+    {
+      this.updateGeometry();
+      return this.area;
+    }
+
+    @Override
+    public Vector2D barycenter()
+    {
+      this.updateGeometry();
+      return this.barycenter;
+    }
+
+    /**
+     * Derived geometry is calculated on first use, and discarded when a
+     * vertex of the polygon moves.
+     */
+
+    private void updateGeometry()
+    {
+      if (this.barycenter == null) {
+        this.area = MeshPolygons.areaSigned(this);
+        this.barycenter = MeshPolygons.barycenter(this);
+      }
+    }
+
+    void invalidateGeometry()
+    {
+      this.positions = null;
+      this.barycenter = null;
+    }
+
+    @Override
+    public int positionCount()
+    {
+      return this.vertices.size();
+    }
+
+    @Override
+    public int positionX(
+      final int index)
+    {
+      return this.vertices.get(index).position.x();
+    }
+
+    @Override
+    public int positionY(
+      final int index)
+    {
+      return this.vertices.get(index).position.y();
+    }
   }
 
   private static final class Edge implements PolygonEdgeType
   {
     private final Vertex vertex0;
     private final Vertex vertex1;
-    private final ReferenceOpenHashSet<Polygon> polygons;
     private final Set<PolygonType> polygons_view;
+    private @Nullable Polygon head_polygon;
+    private int head_corner;
+    private int polygon_count;
+    private @Nullable Vector2D normal;
+    private @Nullable AreaI bounds;
 
     Edge(
       final Vertex in_vertex0,
@@ -679,8 +1805,8 @@ public final class Mesh implements MeshType
     {
       this.vertex0 = NullCheck.notNull(in_vertex0, "Vertex 0");
       this.vertex1 = NullCheck.notNull(in_vertex1, "Vertex 1");
-      this.polygons = new ReferenceOpenHashSet<>();
-      this.polygons_view = Collections.unmodifiableSet(this.polygons);
+      this.polygons_view = new EdgePolygons(this);
+      this.head_corner = -1;
     }
 
     @Override
@@ -739,32 +1865,122 @@ public final class Mesh implements MeshType
     @Override
     public boolean isExternal()
     {
-      return this.polygons.size() < 2;
+      return this.polygon_count < 2;
     }
 
     @Override
     public Vector2D normal()
     {
-      return MeshPolygons.normal(
-        this.vertex0.position,
-        this.vertex1.position);
+      if (this.normal == null) {
+        this.normal = MeshPolygons.normal(
+          this.vertex0.position,
+          this.vertex1.position);
+      }
+      return this.normal;
     }
 
     @Override
     public AreaI bounds()
     {
-      return MeshPolygons.edgeBounds(
-        this.vertex0.position,
-        this.vertex1.position);
+      if (this.bounds == null) {
+        this.bounds = MeshPolygons.edgeBounds(
+          this.vertex0.position,
+          this.vertex1.position);
+      }
+      return this.bounds;
+    }
+
+    void invalidateGeometry()
+    {
+      this.normal = null;
+      this.bounds = null;
+    }
+  }
+
+  /**
+   * The polygons that share an edge, read from the cycle of half-edges of
+   * the edge.
+   */
+
+  private static final class EdgePolygons extends AbstractSet<PolygonType>
+  {
+    private final Edge edge;
+
+    EdgePolygons(
+      final Edge in_edge)
+    {
+      this.edge = in_edge;
+    }
+
+    @Override
+    public int size()
+    {
+      return this.edge.polygon_count;
+    }
+
+    @Override
+    public boolean contains(
+      final Object o)
+    {
+      final Polygon head = this.edge.head_polygon;
+      if (head == null) {
+        return false;
+      }
+
+      Polygon poly = head;
+      int corner = this.edge.head_corner;
+      do {
+        if (poly == o) {
+          return true;
+        }
+        final Polygon next = poly.twin_polygons[corner];
+        corner = poly.twin_corners[corner];
+        poly = next;
+      } while (poly != head || corner != this.edge.head_corner);
+      return false;
+    }
+
+    @Override
+    public Iterator<PolygonType> iterator()
+    {
+      return new Iterator<PolygonType>()
+      {
+        private @Nullable Polygon poly = EdgePolygons.this.edge.head_polygon;
+        private int corner = EdgePolygons.this.edge.head_corner;
+        private int remaining = EdgePolygons.this.edge.polygon_count;
+
+        @Override
+        public boolean hasNext()
+        {
+          return this.remaining > 0;
+        }
+
+        @Override
+        public PolygonType next()
+        {
+          final Polygon current = this.poly;
+          if (this.remaining == 0 || current == null) {
+            throw new NoSuchElementException();
+          }
+          this.poly = current.twin_polygons[this.corner];
+          this.corner = current.twin_corners[this.corner];
+          --this.remaining;
+          return current;
+        }
+      };
     }
   }
 
   private static final class Vertex implements PolygonVertexType
   {
     private final ReferenceOpenHashSet<Polygon> polygons;
+    private final ReferenceArrayList<Polygon> polygons_list;
     private final Set<PolygonType> polygons_view;
+    private final ReferenceArrayList<Edge> edges;
+    private final List<PolygonEdgeType> edges_view;
     private final PolygonVertexID id;
     private Vector2I position;
+    private @Nullable Vertex position_next;
     private boolean deleted;
 
     private Vertex(
@@ -774,7 +1990,10 @@ public final class Mesh implements MeshType
       this.id = NullCheck.notNull(in_id, "ID");
       this.position = NullCheck.notNull(in_position, "Position");
       this.polygons = new ReferenceOpenHashSet<>(4);
+      this.polygons_list = new ReferenceArrayList<>(4);
       this.polygons_view = Collections.unmodifiableSet(this.polygons);
+      this.edges = new ReferenceArrayList<>(4);
+      this.edges_view = Collections.unmodifiableList(this.edges);
     }
 
     @Override
@@ -786,6 +2005,27 @@ public final class Mesh implements MeshType
       return sb.toString();
     }
 
+    /**
+     * The polygons are also kept in a list so that moving the vertex can
+     * visit them without allocating an iterator.
+     */
+
+    void polygonAdd(
+      final Polygon poly)
+    {
+      if (this.polygons.add(poly)) {
+        this.polygons_list.add(poly);
+      }
+    }
+
+    void polygonRemove(
+      final Polygon poly)
+    {
+      if (this.polygons.remove(poly)) {
+        this.polygons_list.remove(poly);
+      }
+    }
+
     @Override
     public PolygonVertexID id()
     {
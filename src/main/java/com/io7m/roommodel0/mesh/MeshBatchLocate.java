@@ -0,0 +1,255 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The implementation of
+ * {@link MeshReadableType#polygonFindAll(int[], int[], long[])} shared by
+ * all meshes.
+ *
+ * Points are visited in Morton order, so that consecutive points are
+ * usually close together. The polygon found for each point is tested
+ * against the next point before the mesh's index is searched, and so runs
+ * of points that fall into the same polygon skip the index entirely.
+ */
+
+final class MeshBatchLocate
+{
+  /**
+   * The minimum number of points located by each task of a parallel batch.
+   */
+
+  static final int POINTS_PER_TASK_MINIMUM = 4096;
+
+  private static final int MORTON_BITS = 15;
+  private static final int MORTON_MAXIMUM = (1 << MORTON_BITS) - 1;
+
+  private MeshBatchLocate()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Find the polygon containing each point.
+   *
+   * @param bounds   The bounds of the mesh, used to scale the Morton order
+   * @param find     A function that finds the polygon containing a point
+   * @param contains A filter that accepts polygons containing a point
+   * @param xs       The X coordinates of the points
+   * @param ys       The Y coordinates of the points
+   * @param results  The array that receives the polygon IDs
+   * @param pool     The pool used to locate points in parallel, if any
+   * @param <T>      The type of polygons
+   */
+
+  static <T extends PolygonType> void locate(
+    final AreaI bounds,
+    final FindType<T> find,
+    final MeshPolygonIndexType.FilterType<? super T> contains,
+    final int[] xs,
+    final int[] ys,
+    final long[] results,
+    final Optional<ForkJoinPool> pool)
+  {
+    NullCheck.notNull(bounds, "Bounds");
+    NullCheck.notNull(find, "Find");
+    NullCheck.notNull(contains, "Contains");
+    NullCheck.notNull(xs, "X coordinates");
+    NullCheck.notNull(ys, "Y coordinates");
+    NullCheck.notNull(results, "Results");
+    NullCheck.notNull(pool, "Pool");
+
+    Preconditions.checkPreconditionI(
+      ys.length,
+      ys.length == xs.length,
+      n -> "Y coordinate count must match the X coordinate count");
+    Preconditions.checkPreconditionI(
+      results.length,
+      results.length == xs.length,
+      n -> "Result count must match the X coordinate count");
+
+    final int[] order = mortonOrder(bounds, xs, ys);
+    final Batch<T> batch = new Batch<>(find, contains, xs, ys, results, order);
+
+    if (pool.isPresent()) {
+      final ForkJoinPool p = pool.get();
+      final int points_per_task = Math.max(
+        POINTS_PER_TASK_MINIMUM,
+        order.length / (p.getParallelism() * 4));
+      p.invoke(new LocateTask<>(batch, 0, order.length, points_per_task));
+    } else {
+      batch.locate(0, order.length);
+    }
+  }
+
+  /**
+   * @return The indices of the given points, sorted in Morton order
+   */
+
+  static int[] mortonOrder(
+    final AreaI bounds,
+    final int[] xs,
+    final int[] ys)
+  {
+    final int count = xs.length;
+    final long[] keys = new long[count];
+    for (int index = 0; index < count; ++index) {
+      final long x =
+        mortonScale(bounds.minimumX(), bounds.maximumX(), xs[index]);
+      final long y =
+        mortonScale(bounds.minimumY(), bounds.maximumY(), ys[index]);
+      keys[index] = (morton(x, y) << 32) | (long) index;
+    }
+    Arrays.sort(keys);
+
+    final int[] order = new int[count];
+    for (int index = 0; index < count; ++index) {
+      order[index] = (int) keys[index];
+    }
+    return order;
+  }
+
+  private static long mortonScale(
+    final int minimum,
+    final int maximum,
+    final int value)
+  {
+    final long range = Math.max(1L, (long) maximum - (long) minimum);
+    final long offset = (long) value - (long) minimum;
+    final long clamped = Math.max(0L, Math.min(range, offset));
+    return (clamped * (long) MORTON_MAXIMUM) / range;
+  }
+
+  /**
+   * @return The given coordinates, each of at most {@code MORTON_BITS} bits,
+   * with their bits interleaved
+   */
+
+  static long morton(
+    final long x,
+    final long y)
+  {
+    return spread(x) | (spread(y) << 1);
+  }
+
+  private static long spread(
+    final long value)
+  {
+    long v = value & 0xffffL;
+    v = (v | (v << 8)) & 0x00ff00ffL;
+    v = (v | (v << 4)) & 0x0f0f0f0fL;
+    v = (v | (v << 2)) & 0x33333333L;
+    v = (v | (v << 1)) & 0x55555555L;
+    return v;
+  }
+
+  /**
+   * A function that finds the polygon containing a point.
+   *
+   * @param <T> The type of polygons
+   */
+
+  interface FindType<T>
+  {
+    @Nullable T find(
+      int x,
+      int y);
+  }
+
+  private static final class Batch<T extends PolygonType>
+  {
+    private final FindType<T> find;
+    private final MeshPolygonIndexType.FilterType<? super T> contains;
+    private final int[] xs;
+    private final int[] ys;
+    private final long[] results;
+    private final int[] order;
+
+    Batch(
+      final FindType<T> in_find,
+      final MeshPolygonIndexType.FilterType<? super T> in_contains,
+      final int[] in_xs,
+      final int[] in_ys,
+      final long[] in_results,
+      final int[] in_order)
+    {
+      this.find = in_find;
+      this.contains = in_contains;
+      this.xs = in_xs;
+      this.ys = in_ys;
+      this.results = in_results;
+      this.order = in_order;
+    }
+
+    void locate(
+      final int start,
+      final int end)
+    {
+      T previous = null;
+      for (int position = start; position < end; ++position) {
+        final int index = this.order[position];
+        final int x = this.xs[index];
+        final int y = this.ys[index];
+
+        final T found;
+        if (previous != null
+          && this.contains.accept(previous, x, x, y, y)) {
+          found = previous;
+        } else {
+          found = this.find.find(x, y);
+        }
+
+        if (found != null) {
+          this.results[index] = found.id().value();
+          previous = found;
+        } else {
+          this.results[index] = -1L;
+        }
+      }
+    }
+  }
+
+  private static final class LocateTask<T extends PolygonType>
+    extends RecursiveAction
+  {
+    private final Batch<T> batch;
+    private final int start;
+    private final int end;
+    private final int points_per_task;
+
+    LocateTask(
+      final Batch<T> in_batch,
+      final int in_start,
+      final int in_end,
+      final int in_points_per_task)
+    {
+      this.batch = in_batch;
+      this.start = in_start;
+      this.end = in_end;
+      this.points_per_task = in_points_per_task;
+    }
+
+    @Override
+    protected void compute()
+    {
+      if (this.end - this.start <= this.points_per_task) {
+        this.batch.locate(this.start, this.end);
+        return;
+      }
+
+      final int middle = (this.start + this.end) >>> 1;
+      invokeAll(
+        new LocateTask<>(this.batch, this.start, middle, this.points_per_task),
+        new LocateTask<>(this.batch, middle, this.end, this.points_per_task));
+    }
+  }
+}
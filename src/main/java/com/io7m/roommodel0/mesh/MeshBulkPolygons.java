@@ -0,0 +1,325 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+
+/**
+ * The validated input of {@link MeshType#bulkLoad(int[], int[], int[])}.
+ * Polygons are checked against the same rules as
+ * {@link MeshType#polygonCreate(java.util.List)}, directly on the input
+ * arrays, and the vertices of clockwise polygons are reversed. Nothing is
+ * added to a mesh until every polygon has been checked.
+ */
+
+final class MeshBulkPolygons implements MeshPolygons.PositionsType
+{
+  private final int[] positions;
+  private final boolean[] positions_used;
+  private final int[] corner_vertices;
+  private final int[] corner_polygons;
+  private final int[] polygon_starts;
+  private final AreaI[] polygon_bounds;
+  private int selected_start;
+  private int selected_count;
+
+  private MeshBulkPolygons(
+    final int[] in_positions,
+    final boolean[] in_positions_used,
+    final int[] in_corner_vertices,
+    final int[] in_polygon_starts)
+  {
+    this.positions = in_positions;
+    this.positions_used = in_positions_used;
+    this.corner_vertices = in_corner_vertices;
+    this.corner_polygons = new int[in_corner_vertices.length];
+    this.polygon_starts = in_polygon_starts;
+    for (int polygon = 0; polygon + 1 < in_polygon_starts.length; ++polygon) {
+      for (int corner = in_polygon_starts[polygon];
+           corner < in_polygon_starts[polygon + 1];
+           ++corner) {
+        this.corner_polygons[corner] = polygon;
+      }
+    }
+    this.polygon_bounds = new AreaI[in_polygon_starts.length - 1];
+  }
+
+  static MeshBulkPolygons prepare(
+    final AreaI mesh_bounds,
+    final int[] positions,
+    final int[] polygon_sizes,
+    final int[] polygon_vertices)
+  {
+    NullCheck.notNull(mesh_bounds, "Bounds");
+    NullCheck.notNull(positions, "Positions");
+    NullCheck.notNull(polygon_sizes, "Polygon sizes");
+    NullCheck.notNull(polygon_vertices, "Polygon vertices");
+
+    Preconditions.checkPreconditionI(
+      positions.length,
+      positions.length % 2 == 0,
+      n -> "Positions must be a sequence of (x, y) pairs");
+
+    final int[] starts = new int[polygon_sizes.length + 1];
+    for (int index = 0; index < polygon_sizes.length; ++index) {
+      if (polygon_sizes[index] < 3) {
+        throw new MeshExceptionPolygonTooFewVertices(
+          String.format(
+            "Polygon %d must have at least three vertices",
+            Integer.valueOf(index)));
+      }
+      starts[index + 1] = Math.addExact(starts[index], polygon_sizes[index]);
+    }
+
+    Preconditions.checkPreconditionI(
+      polygon_vertices.length,
+      polygon_vertices.length == starts[polygon_sizes.length],
+      n -> "Polygon vertex count must match the sum of the polygon sizes");
+
+    final boolean[] used = new boolean[positions.length / 2];
+    for (int index = 0; index < polygon_vertices.length; ++index) {
+      final int vertex = polygon_vertices[index];
+      if (vertex < 0 || vertex >= used.length) {
+        throw new MeshExceptionVertexNonexistent(
+          String.format(
+            "Vertex index %d does not exist", Integer.valueOf(vertex)));
+      }
+      used[vertex] = true;
+    }
+
+    final MeshBulkPolygons bulk =
+      new MeshBulkPolygons(
+        positions, used, polygon_vertices.clone(), starts);
+    for (int index = 0; index < polygon_sizes.length; ++index) {
+      bulk.preparePolygon(mesh_bounds, index);
+    }
+    return bulk;
+  }
+
+  private void preparePolygon(
+    final AreaI mesh_bounds,
+    final int polygon)
+  {
+    this.select(polygon);
+
+    if (!MeshPolygons.isConvex(this)) {
+      throw new MeshExceptionPolygonNotConvex(
+        String.format("Polygon %d is not convex", Integer.valueOf(polygon)));
+    }
+
+    final int start = this.selected_start;
+    final int count = this.selected_count;
+    if (MeshPolygons.winding(this) < 0) {
+      for (int index = 0; index < count / 2; ++index) {
+        final int other = start + count - 1 - index;
+        final int vertex = this.corner_vertices[start + index];
+        this.corner_vertices[start + index] = this.corner_vertices[other];
+        this.corner_vertices[other] = vertex;
+      }
+    }
+
+    int x_min = Integer.MAX_VALUE;
+    int y_min = Integer.MAX_VALUE;
+    int x_max = Integer.MIN_VALUE;
+    int y_max = Integer.MIN_VALUE;
+    for (int index = 0; index < count; ++index) {
+      final int x = this.positionX(index);
+      final int y = this.positionY(index);
+      x_min = Math.min(x, x_min);
+      y_min = Math.min(y, y_min);
+      x_max = Math.max(x, x_max);
+      y_max = Math.max(y, y_max);
+    }
+
+    final AreaI bounds = AreaI.of(x_min, x_max, y_min, y_max);
+    if (!AreasI.contains(mesh_bounds, bounds)) {
+      throw new MeshExceptionPolygonOutsideBounds(
+        String.format(
+          "Polygon %d cannot fit into the room", Integer.valueOf(polygon)));
+    }
+    this.polygon_bounds[polygon] = bounds;
+  }
+
+  /**
+   * Select the polygon whose positions are exposed through
+   * {@link MeshPolygons.PositionsType}.
+   */
+
+  void select(
+    final int polygon)
+  {
+    this.selected_start = this.polygon_starts[polygon];
+    this.selected_count =
+      this.polygon_starts[polygon + 1] - this.selected_start;
+  }
+
+  int vertexCount()
+  {
+    return this.positions_used.length;
+  }
+
+  /**
+   * @return {@code true} iff at least one polygon uses the given vertex
+   */
+
+  boolean vertexUsed(
+    final int vertex)
+  {
+    return this.positions_used[vertex];
+  }
+
+  int vertexX(
+    final int vertex)
+  {
+    return this.positions[vertex * 2];
+  }
+
+  int vertexY(
+    final int vertex)
+  {
+    return this.positions[(vertex * 2) + 1];
+  }
+
+  int polygonCount()
+  {
+    return this.polygon_bounds.length;
+  }
+
+  int polygonStart(
+    final int polygon)
+  {
+    return this.polygon_starts[polygon];
+  }
+
+  int polygonSize(
+    final int polygon)
+  {
+    return this.polygon_starts[polygon + 1] - this.polygon_starts[polygon];
+  }
+
+  AreaI polygonBounds(
+    final int polygon)
+  {
+    return this.polygon_bounds[polygon];
+  }
+
+  int cornerCount()
+  {
+    return this.corner_vertices.length;
+  }
+
+  /**
+   * @return The vertex index of the given corner, after any reversal of the
+   * owning polygon
+   */
+
+  int cornerVertex(
+    final int corner)
+  {
+    return this.corner_vertices[corner];
+  }
+
+  /**
+   * @return The vertex index at the end of the edge that begins at the given
+   * corner
+   */
+
+  int cornerVertexNext(
+    final int corner)
+  {
+    final int polygon = this.corner_polygons[corner];
+    final int start = this.polygon_starts[polygon];
+    final int next = corner + 1;
+    if (next == this.polygon_starts[polygon + 1]) {
+      return this.corner_vertices[start];
+    }
+    return this.corner_vertices[next];
+  }
+
+  /**
+   * Sort the corners by the edges that begin at them. Corners whose edges
+   * join the same pair of vertices, in either direction, are adjacent in the
+   * result, and are in ascending order of corner. The vertex indices are
+   * dense, so the sort is a pair of counting sorts: by the larger vertex
+   * index of each edge, and then (stably) by the smaller.
+   *
+   * @return The corners in edge order
+   */
+
+  int[] cornersByEdge()
+  {
+    final int count = this.corner_vertices.length;
+    final int[] low = new int[count];
+    final int[] high = new int[count];
+    final int[] corners = new int[count];
+    for (int corner = 0; corner < count; ++corner) {
+      final int v0 = this.corner_vertices[corner];
+      final int v1 = this.cornerVertexNext(corner);
+      low[corner] = Math.min(v0, v1);
+      high[corner] = Math.max(v0, v1);
+      corners[corner] = corner;
+    }
+
+    final int vertex_count = this.vertexCount();
+    return sortByKey(sortByKey(corners, high, vertex_count), low, vertex_count);
+  }
+
+  /**
+   * @return {@code true} iff the edges that begin at the given corners join
+   * the same pair of vertices
+   */
+
+  boolean cornersShareEdge(
+    final int corner0,
+    final int corner1)
+  {
+    final int a0 = this.corner_vertices[corner0];
+    final int a1 = this.cornerVertexNext(corner0);
+    final int b0 = this.corner_vertices[corner1];
+    final int b1 = this.cornerVertexNext(corner1);
+    return (a0 == b0 && a1 == b1) || (a0 == b1 && a1 == b0);
+  }
+
+  private static int[] sortByKey(
+    final int[] corners,
+    final int[] keys,
+    final int key_count)
+  {
+    final int[] offsets = new int[key_count + 1];
+    for (int index = 0; index < corners.length; ++index) {
+      ++offsets[keys[corners[index]] + 1];
+    }
+    for (int key = 0; key < key_count; ++key) {
+      offsets[key + 1] += offsets[key];
+    }
+
+    final int[] sorted = new int[corners.length];
+    for (int index = 0; index < corners.length; ++index) {
+      final int corner = corners[index];
+      sorted[offsets[keys[corner]]] = corner;
+      ++offsets[keys[corner]];
+    }
+    return sorted;
+  }
+
+  @Override
+  public int positionCount()
+  {
+    return this.selected_count;
+  }
+
+  @Override
+  public int positionX(
+    final int index)
+  {
+    return this.vertexX(this.corner_vertices[this.selected_start + index]);
+  }
+
+  @Override
+  public int positionY(
+    final int index)
+  {
+    return this.vertexY(this.corner_vertices[this.selected_start + index]);
+  }
+}
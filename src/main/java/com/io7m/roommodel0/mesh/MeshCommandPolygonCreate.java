@@ -1,12 +1,13 @@
 package com.io7m.roommodel0.mesh;
 
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
-import java.util.Optional;
 
 public final class MeshCommandPolygonCreate implements MeshCommandType<PolygonType>
 {
@@ -18,6 +19,7 @@ public final class MeshCommandPolygonCreate implements MeshCommandType<PolygonTy
 
   private final ReferenceArrayList<Vector2I> positions;
   private PolygonID polygon;
+  private AreaI area;
 
   MeshCommandPolygonCreate(
     final List<Vector2I> in_positions)
@@ -40,21 +42,24 @@ public final class MeshCommandPolygonCreate implements MeshCommandType<PolygonTy
     final ReferenceArrayList<PolygonVertexID> vertices =
       new ReferenceArrayList<>(this.positions.size());
     for (final Vector2I position : this.positions) {
-      final Optional<PolygonVertexType> exists_opt =
-        mesh.vertexFind(position);
-      if (exists_opt.isPresent()) {
-        vertices.add(exists_opt.get().id());
-      } else {
-        vertices.add(mesh.vertexCreate(position).id());
-      }
+      vertices.add(mesh.vertexFindOrCreate(position).id());
     }
 
     final PolygonType p = mesh.polygonCreate(vertices);
     LOG.debug("created {}", p.id());
     this.polygon = p.id();
+    this.area = p.bounds();
     return p;
   }
 
+  @Override
+  public AreaI modifiedArea()
+  {
+    Preconditions.checkPrecondition(
+      this.area != null, "Command must have been evaluated");
+    return this.area;
+  }
+
   @Override
   public void undo(
     final MeshType mesh)
@@ -1,10 +1,13 @@
 package com.io7m.roommodel0.mesh;
 
 import com.io7m.jfunctional.Unit;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.Optional;
 
 import static com.io7m.jnull.NullCheck.notNull;
@@ -17,12 +20,32 @@ public final class MeshCommandPolygonDelete implements MeshCommandType<Unit>
     LOG = LoggerFactory.getLogger(MeshCommandPolygonDelete.class);
   }
 
-  private PolygonType polygon;
+  private final PolygonID polygon;
+  private final AreaI area;
+  private final ReferenceArrayList<PolygonVertexID> vertices;
+  private final ReferenceArrayList<Vector2I> positions;
 
   public MeshCommandPolygonDelete(
     final PolygonType in_polygon)
   {
-    this.polygon = notNull(in_polygon, "Polygon");
+    notNull(in_polygon, "Polygon");
+
+    //
+    // Capture everything needed to recreate the polygon now, so that undoing
+    // the command does not depend on the state of the deleted polygon.
+    //
+
+    this.polygon = in_polygon.id();
+    this.area = in_polygon.bounds();
+
+    final List<PolygonVertexType> poly_vertices = in_polygon.vertices();
+    this.vertices = new ReferenceArrayList<>(poly_vertices.size());
+    this.positions = new ReferenceArrayList<>(poly_vertices.size());
+    for (int index = 0; index < poly_vertices.size(); ++index) {
+      final PolygonVertexType v = poly_vertices.get(index);
+      this.vertices.add(v.id());
+      this.positions.add(v.position());
+    }
   }
 
   public static MeshCommandPolygonDelete deletePolygon(
@@ -34,7 +57,13 @@ public final class MeshCommandPolygonDelete implements MeshCommandType<Unit>
   @Override
   public String description()
   {
-    return "Delete Polygon " + this.polygon.id().value();
+    return "Delete Polygon " + this.polygon.value();
+  }
+
+  @Override
+  public AreaI modifiedArea()
+  {
+    return this.area;
   }
 
   @Override
@@ -44,7 +73,7 @@ public final class MeshCommandPolygonDelete implements MeshCommandType<Unit>
     notNull(mesh, "Mesh");
 
     LOG.debug("delete {}", this.polygon);
-    mesh.polygonDelete(this.polygon.id());
+    mesh.polygonDelete(this.polygon);
     LOG.debug("deleted {}", this.polygon);
     return Unit.unit();
   }
@@ -57,20 +86,21 @@ public final class MeshCommandPolygonDelete implements MeshCommandType<Unit>
 
     LOG.debug("undo delete {}", this.polygon);
 
-    final ReferenceArrayList<PolygonVertexID> vertices =
-      new ReferenceArrayList<>(this.polygon.vertices().size());
-    for (final PolygonVertexType v : this.polygon.vertices()) {
-      final Optional<PolygonVertexType> exist_opt =
-        mesh.vertexFind(v.position());
+    final ReferenceArrayList<PolygonVertexID> recreate_vertices =
+      new ReferenceArrayList<>(this.vertices.size());
+    for (int index = 0; index < this.vertices.size(); ++index) {
+      final Vector2I position = this.positions.get(index);
+      final Optional<PolygonVertexType> exist_opt = mesh.vertexFind(position);
       if (!exist_opt.isPresent()) {
-        vertices.add(mesh.vertexCreateWithID(v.id(), v.position()).id());
+        recreate_vertices.add(
+          mesh.vertexCreateWithID(this.vertices.get(index), position).id());
       } else {
-        vertices.add(exist_opt.get().id());
+        recreate_vertices.add(exist_opt.get().id());
       }
     }
 
     final PolygonType recreated =
-      mesh.polygonCreateWithID(this.polygon.id(), vertices);
+      mesh.polygonCreateWithID(this.polygon, recreate_vertices);
     LOG.debug("created {}", recreated);
   }
 }
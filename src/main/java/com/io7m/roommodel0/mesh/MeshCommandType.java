@@ -1,9 +1,15 @@
 package com.io7m.roommodel0.mesh;
 
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
 import com.io7m.roommodel0.undo.UndoCommandType;
 
 public interface MeshCommandType<B>
   extends UndoCommandType<MeshType, B>
 {
+  /**
+   * @return The area of the mesh affected by evaluating or undoing this
+   * command, covering the geometry both before and after the modification
+   */
 
+  AreaI modifiedArea();
 }
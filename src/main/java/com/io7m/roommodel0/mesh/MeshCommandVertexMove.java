@@ -2,6 +2,7 @@ package com.io7m.roommodel0.mesh;
 
 import com.io7m.jfunctional.Unit;
 import com.io7m.jnull.NullCheck;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,6 +17,7 @@ public final class MeshCommandVertexMove implements MeshCommandType<Unit>
 
   private final Vector2I position;
   private final PolygonVertexID id;
+  private final AreaI area;
   private Vector2I original;
 
   MeshCommandVertexMove(
@@ -26,6 +28,40 @@ public final class MeshCommandVertexMove implements MeshCommandType<Unit>
     this.position = NullCheck.notNull(in_position, "Position");
     this.original = in_vertex.position();
     this.id = in_vertex.id();
+    this.area = affectedArea(in_vertex, in_position);
+  }
+
+  /**
+   * Moving a vertex can only change the bounds of the polygons that use it,
+   * and the new bounds of each polygon are contained within the union of
+   * its old bounds and the new vertex position.
+   */
+
+  private static AreaI affectedArea(
+    final PolygonVertexType vertex,
+    final Vector2I target)
+  {
+    final Vector2I current = vertex.position();
+    int min_x = Math.min(current.x(), target.x());
+    int max_x = Math.max(current.x(), target.x());
+    int min_y = Math.min(current.y(), target.y());
+    int max_y = Math.max(current.y(), target.y());
+
+    for (final PolygonType polygon : vertex.polygons()) {
+      final AreaI bounds = polygon.bounds();
+      min_x = Math.min(min_x, bounds.minimumX());
+      max_x = Math.max(max_x, bounds.maximumX());
+      min_y = Math.min(min_y, bounds.minimumY());
+      max_y = Math.max(max_y, bounds.maximumY());
+    }
+
+    return AreaI.of(min_x, max_x, min_y, max_y);
+  }
+
+  @Override
+  public AreaI modifiedArea()
+  {
+    return this.area;
   }
 
   @Override
@@ -0,0 +1,2453 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Invariants;
+import com.io7m.jaffirm.core.Postconditions;
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntIterator;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * A mesh that stores its vertices, polygons and edges in primitive arrays
+ * indexed by slot, rather than as individual objects.
+ *
+ * The vertices of each polygon are stored contiguously in a shared array of
+ * corners. Each corner is also the half-edge from its vertex to the vertex of
+ * the next corner of the same polygon. The half-edges that lie on the same
+ * undirected edge are linked into a cycle by their twin indices: an edge
+ * shared by two polygons has two half-edges that are each other's twins.
+ * The corners that refer to each vertex are linked into a list.
+ *
+ * The vertices and edges returned by the mesh are flyweights created on
+ * demand, and are equal when they refer to the same element. Each polygon
+ * has a single handle object, because the handles are the values held in
+ * the polygon index. Deleted vertices and polygons report their IDs and
+ * that they have been deleted, but the rest of their state is gone.
+ */
+
+public final class MeshCompact implements MeshType
+{
+  private static final int NONE = -1;
+  private static final int INITIAL_CAPACITY = 16;
+
+  /**
+   * The corner array is compacted when at least this many corners, and at
+   * least half of all corners, belong to deleted polygons.
+   */
+
+  private static final int CORNER_GARBAGE_MINIMUM = 1024;
+
+  private final AreaI bounds;
+  private final MeshPolygonIndexType<Polygon> polygons_index;
+  private final MeshPolygonIndexType.FilterType<Polygon> polygons_overlap;
+  private final MeshPolygonIndexType.FilterType<Polygon> polygons_contain;
+  private final SegmentTopology segment_topology;
+  private final AtomicReference<Proximity> proximity_spare;
+  private final Collection<PolygonVertexType> vertices_view;
+  private final MeshSortedView<PolygonVertexType> vertices_sorted;
+  private final Collection<PolygonType> polygons_view;
+  private final MeshSortedView<PolygonType> polygons_sorted;
+
+  private final Long2IntOpenHashMap vertex_slots;
+  private final Long2IntOpenHashMap vertices_by_position;
+  private final IntArrayList vertex_free;
+  private long[] vertex_id;
+  private int[] vertex_x;
+  private int[] vertex_y;
+  private int[] vertex_generation;
+  private int[] vertex_position_next;
+  private int[] vertex_corner;
+  private int[] vertex_polygon_count;
+  private int vertex_slot_count;
+
+  private final Long2IntOpenHashMap polygon_slots;
+  private final IntArrayList polygon_free;
+  private Polygon[] polygon_handle;
+  private int[] polygon_corner_start;
+  private int[] polygon_corner_count;
+  private int[] polygon_x_min;
+  private int[] polygon_x_max;
+  private int[] polygon_y_min;
+  private int[] polygon_y_max;
+  private byte[] polygon_winding;
+  private double[] polygon_area;
+  private Vector2D[] polygon_barycenter;
+  private int polygon_slot_count;
+
+  private int[] corner_vertex;
+  private int[] corner_polygon;
+  private int[] corner_edge;
+  private int[] corner_twin;
+  private int[] corner_vertex_next;
+  private int corner_count;
+  private int corner_garbage;
+
+  private final Long2IntOpenHashMap edges_by_vertices;
+  private final IntArrayList edge_free;
+  private int[] edge_vertex0;
+  private int[] edge_vertex1;
+  private int[] edge_corner;
+  private int[] edge_polygon_count;
+  private int[] edge_generation;
+  private int edge_slot_count;
+
+  private int[] positions_buffer;
+  private long vertex_ids;
+  private long polygon_ids;
+
+  private MeshCompact(
+    final AreaI in_bounds,
+    final MeshIndexConfiguration in_index)
+  {
+    this.bounds = NullCheck.notNull(in_bounds, "Bounds");
+
+    this.polygons_index =
+      MeshPolygonIndexType.create(this.bounds, in_index);
+    this.polygons_overlap = this::polygonOverlaps;
+    this.polygons_contain = this::polygonContains;
+    this.segment_topology = new SegmentTopology(this);
+    this.proximity_spare = new AtomicReference<>(new Proximity(this));
+    this.vertices_view = new VerticesView(this);
+    this.vertices_sorted =
+      new MeshSortedView<>(this.vertices_view, v -> v.id().value());
+    this.polygons_view = new PolygonsView(this);
+    this.polygons_sorted =
+      new MeshSortedView<>(this.polygons_view, p -> p.id().value());
+
+    this.vertex_slots = new Long2IntOpenHashMap();
+    this.vertex_slots.defaultReturnValue(NONE);
+    this.vertices_by_position = new Long2IntOpenHashMap();
+    this.vertices_by_position.defaultReturnValue(NONE);
+    this.vertex_free = new IntArrayList();
+    this.vertex_id = new long[INITIAL_CAPACITY];
+    this.vertex_x = new int[INITIAL_CAPACITY];
+    this.vertex_y = new int[INITIAL_CAPACITY];
+    this.vertex_generation = new int[INITIAL_CAPACITY];
+    this.vertex_position_next = new int[INITIAL_CAPACITY];
+    this.vertex_corner = new int[INITIAL_CAPACITY];
+    this.vertex_polygon_count = new int[INITIAL_CAPACITY];
+
+    this.polygon_slots = new Long2IntOpenHashMap();
+    this.polygon_slots.defaultReturnValue(NONE);
+    this.polygon_free = new IntArrayList();
+    this.polygon_handle = new Polygon[INITIAL_CAPACITY];
+    this.polygon_corner_start = new int[INITIAL_CAPACITY];
+    this.polygon_corner_count = new int[INITIAL_CAPACITY];
+    this.polygon_x_min = new int[INITIAL_CAPACITY];
+    this.polygon_x_max = new int[INITIAL_CAPACITY];
+    this.polygon_y_min = new int[INITIAL_CAPACITY];
+    this.polygon_y_max = new int[INITIAL_CAPACITY];
+    this.polygon_winding = new byte[INITIAL_CAPACITY];
+    this.polygon_area = new double[INITIAL_CAPACITY];
+    this.polygon_barycenter = new Vector2D[INITIAL_CAPACITY];
+
+    this.corner_vertex = new int[INITIAL_CAPACITY];
+    this.corner_polygon = new int[INITIAL_CAPACITY];
+    this.corner_edge = new int[INITIAL_CAPACITY];
+    this.corner_twin = new int[INITIAL_CAPACITY];
+    this.corner_vertex_next = new int[INITIAL_CAPACITY];
+
+    this.edges_by_vertices = new Long2IntOpenHashMap();
+    this.edges_by_vertices.defaultReturnValue(NONE);
+    this.edge_free = new IntArrayList();
+    this.edge_vertex0 = new int[INITIAL_CAPACITY];
+    this.edge_vertex1 = new int[INITIAL_CAPACITY];
+    this.edge_corner = new int[INITIAL_CAPACITY];
+    this.edge_polygon_count = new int[INITIAL_CAPACITY];
+    this.edge_generation = new int[INITIAL_CAPACITY];
+
+    this.positions_buffer = new int[INITIAL_CAPACITY];
+
+    this.vertex_ids = 0L;
+    this.polygon_ids = 0L;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A, B> QuadTreeReadableIType<B> castQuadTree(
+    final QuadTreeReadableIType<A> q)
+  {
+    return (QuadTreeReadableIType<B>) q;
+  }
+
+  /**
+   * Create a mesh that indexes its polygons with a quadtree.
+   *
+   * @param bounds The bounds of the mesh
+   *
+   * @return A new mesh
+   */
+
+  public static MeshType create(
+    final AreaI bounds)
+  {
+    return create(
+      bounds, MeshIndexConfiguration.of(MeshIndexKind.MESH_INDEX_QUADTREE));
+  }
+
+  /**
+   * Create a mesh.
+   *
+   * @param bounds The bounds of the mesh
+   * @param index  The configuration of the polygon index
+   *
+   * @return A new mesh
+   */
+
+  public static MeshType create(
+    final AreaI bounds,
+    final MeshIndexConfiguration index)
+  {
+    return new MeshCompact(bounds, NullCheck.notNull(index, "Index"));
+  }
+
+  private static long positionKey(
+    final int x,
+    final int y)
+  {
+    return ((long) x << 32) | ((long) y & 0xffffffffL);
+  }
+
+  private static long edgeKey(
+    final int vertex0,
+    final int vertex1)
+  {
+    return ((long) Math.min(vertex0, vertex1) << 32)
+      | ((long) Math.max(vertex0, vertex1) & 0xffffffffL);
+  }
+
+  private static int capacityFor(
+    final int current,
+    final int required)
+  {
+    return Math.max(required, current * 2);
+  }
+
+  private void vertexSlotsGrow()
+  {
+    final int size =
+      capacityFor(this.vertex_x.length, this.vertex_slot_count + 1);
+    this.vertex_id = Arrays.copyOf(this.vertex_id, size);
+    this.vertex_x = Arrays.copyOf(this.vertex_x, size);
+    this.vertex_y = Arrays.copyOf(this.vertex_y, size);
+    this.vertex_generation = Arrays.copyOf(this.vertex_generation, size);
+    this.vertex_position_next = Arrays.copyOf(this.vertex_position_next, size);
+    this.vertex_corner = Arrays.copyOf(this.vertex_corner, size);
+    this.vertex_polygon_count = Arrays.copyOf(this.vertex_polygon_count, size);
+  }
+
+  private void polygonSlotsGrow()
+  {
+    final int size =
+      capacityFor(this.polygon_handle.length, this.polygon_slot_count + 1);
+    this.polygon_handle = Arrays.copyOf(this.polygon_handle, size);
+    this.polygon_corner_start = Arrays.copyOf(this.polygon_corner_start, size);
+    this.polygon_corner_count = Arrays.copyOf(this.polygon_corner_count, size);
+    this.polygon_x_min = Arrays.copyOf(this.polygon_x_min, size);
+    this.polygon_x_max = Arrays.copyOf(this.polygon_x_max, size);
+    this.polygon_y_min = Arrays.copyOf(this.polygon_y_min, size);
+    this.polygon_y_max = Arrays.copyOf(this.polygon_y_max, size);
+    this.polygon_winding = Arrays.copyOf(this.polygon_winding, size);
+    this.polygon_area = Arrays.copyOf(this.polygon_area, size);
+    this.polygon_barycenter = Arrays.copyOf(this.polygon_barycenter, size);
+  }
+
+  private void cornersGrow(
+    final int required)
+  {
+    final int size = capacityFor(this.corner_vertex.length, required);
+    this.corner_vertex = Arrays.copyOf(this.corner_vertex, size);
+    this.corner_polygon = Arrays.copyOf(this.corner_polygon, size);
+    this.corner_edge = Arrays.copyOf(this.corner_edge, size);
+    this.corner_twin = Arrays.copyOf(this.corner_twin, size);
+    this.corner_vertex_next = Arrays.copyOf(this.corner_vertex_next, size);
+  }
+
+  private void edgeSlotsGrow()
+  {
+    final int size =
+      capacityFor(this.edge_vertex0.length, this.edge_slot_count + 1);
+    this.edge_vertex0 = Arrays.copyOf(this.edge_vertex0, size);
+    this.edge_vertex1 = Arrays.copyOf(this.edge_vertex1, size);
+    this.edge_corner = Arrays.copyOf(this.edge_corner, size);
+    this.edge_polygon_count = Arrays.copyOf(this.edge_polygon_count, size);
+    this.edge_generation = Arrays.copyOf(this.edge_generation, size);
+  }
+
+  private int vertexSlotAllocate()
+  {
+    if (!this.vertex_free.isEmpty()) {
+      return this.vertex_free.removeInt(this.vertex_free.size() - 1);
+    }
+    if (this.vertex_slot_count == this.vertex_x.length) {
+      this.vertexSlotsGrow();
+    }
+    final int slot = this.vertex_slot_count;
+    ++this.vertex_slot_count;
+    return slot;
+  }
+
+  private int polygonSlotAllocate()
+  {
+    if (!this.polygon_free.isEmpty()) {
+      return this.polygon_free.removeInt(this.polygon_free.size() - 1);
+    }
+    if (this.polygon_slot_count == this.polygon_handle.length) {
+      this.polygonSlotsGrow();
+    }
+    final int slot = this.polygon_slot_count;
+    ++this.polygon_slot_count;
+    return slot;
+  }
+
+  private int edgeSlotAllocate()
+  {
+    if (!this.edge_free.isEmpty()) {
+      return this.edge_free.removeInt(this.edge_free.size() - 1);
+    }
+    if (this.edge_slot_count == this.edge_vertex0.length) {
+      this.edgeSlotsGrow();
+    }
+    final int slot = this.edge_slot_count;
+    ++this.edge_slot_count;
+    return slot;
+  }
+
+  private int cornersAllocate(
+    final int count)
+  {
+    final int required = this.corner_count + count;
+    if (required > this.corner_vertex.length) {
+      this.cornersGrow(required);
+    }
+    final int start = this.corner_count;
+    this.corner_count = required;
+    return start;
+  }
+
+  private Vertex vertexView(
+    final int slot)
+  {
+    return new Vertex(
+      this, slot, this.vertex_generation[slot], this.vertex_id[slot]);
+  }
+
+  private Vector2I vertexPosition(
+    final int slot)
+  {
+    return Vector2I.of(this.vertex_x[slot], this.vertex_y[slot]);
+  }
+
+  private boolean vertexIsLive(
+    final int slot)
+  {
+    return this.vertex_slots.get(this.vertex_id[slot]) == slot;
+  }
+
+  /**
+   * Add a vertex to the position index. Vertices that share a position are
+   * chained in ascending order of ID, with the oldest vertex at the head,
+   * regardless of the order in which they arrived at the position.
+   */
+
+  private void positionIndexAdd(
+    final int slot)
+  {
+    final long key = positionKey(this.vertex_x[slot], this.vertex_y[slot]);
+    final int head = this.vertices_by_position.get(key);
+    final long id = this.vertex_id[slot];
+    if (head == NONE || id < this.vertex_id[head]) {
+      this.vertex_position_next[slot] = head;
+      this.vertices_by_position.put(key, slot);
+      return;
+    }
+
+    int previous = head;
+    while (this.vertex_position_next[previous] != NONE
+      && this.vertex_id[this.vertex_position_next[previous]] < id) {
+      previous = this.vertex_position_next[previous];
+    }
+    this.vertex_position_next[slot] = this.vertex_position_next[previous];
+    this.vertex_position_next[previous] = slot;
+  }
+
+  private void positionIndexRemove(
+    final int slot)
+  {
+    final long key = positionKey(this.vertex_x[slot], this.vertex_y[slot]);
+    final int head = this.vertices_by_position.get(key);
+    Invariants.checkInvariant(head != NONE, "Vertex must be indexed");
+
+    final int next = this.vertex_position_next[slot];
+    if (head == slot) {
+      if (next == NONE) {
+        this.vertices_by_position.remove(key);
+      } else {
+        this.vertices_by_position.put(key, next);
+      }
+    } else {
+      int previous = head;
+      while (this.vertex_position_next[previous] != slot) {
+        previous = this.vertex_position_next[previous];
+        Invariants.checkInvariant(previous != NONE, "Vertex must be indexed");
+      }
+      this.vertex_position_next[previous] = next;
+    }
+    this.vertex_position_next[slot] = NONE;
+  }
+
+  @Override
+  public PolygonVertexType vertexCreate(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+    return this.vertexCreateWithID(this.vertexIDFresh(), position);
+  }
+
+  @Override
+  public PolygonVertexType vertexCreateWithID(
+    final PolygonVertexID vertex,
+    final Vector2I position)
+  {
+    NullCheck.notNull(vertex, "Vertex");
+    NullCheck.notNull(position, "Position");
+
+    if (this.vertex_slots.containsKey(vertex.value())) {
+      throw new MeshExceptionVertexDuplicate(
+        "Vertex already exists with the given ID");
+    }
+
+    return this.vertexView(
+      this.vertexCreateSlot(vertex.value(), position.x(), position.y()));
+  }
+
+  private int vertexCreateSlot(
+    final long id,
+    final int x,
+    final int y)
+  {
+    final int slot = this.vertexSlotAllocate();
+    this.vertex_id[slot] = id;
+    this.vertex_x[slot] = x;
+    this.vertex_y[slot] = y;
+    this.vertex_corner[slot] = NONE;
+    this.vertex_polygon_count[slot] = 0;
+    this.vertex_slots.put(id, slot);
+    this.vertices_sorted.invalidate();
+    this.vertex_ids = idNext(this.vertex_ids, id);
+    this.positionIndexAdd(slot);
+    return slot;
+  }
+
+  @Override
+  public PolygonVertexType vertexFindOrCreate(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+
+    final int existing = this.vertices_by_position.get(
+      positionKey(position.x(), position.y()));
+    if (existing != NONE) {
+      return this.vertexView(existing);
+    }
+    return this.vertexCreate(position);
+  }
+
+  @Override
+  public void vertexSetPosition(
+    final PolygonVertexID vertex_id,
+    final Vector2I position)
+  {
+    NullCheck.notNull(vertex_id, "Vertex");
+    NullCheck.notNull(position, "Position");
+
+    final int slot = this.checkVertexExists(vertex_id);
+
+    final int x = position.x();
+    final int y = position.y();
+    final boolean inside =
+      x >= this.bounds.minimumX()
+        && x <= this.bounds.maximumX()
+        && y >= this.bounds.minimumY()
+        && y <= this.bounds.maximumY();
+
+    for (int corner = this.vertex_corner[slot];
+         corner != NONE;
+         corner = this.corner_vertex_next[corner]) {
+      final int p = this.corner_polygon[corner];
+      if (!this.polygonConvexAfterMove(p, corner, x, y)) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Setting vertex position would make polygon non-convex.");
+        sb.append(System.lineSeparator());
+        sb.append("  Vertex:   ");
+        sb.append(vertex_id.value());
+        sb.append(System.lineSeparator());
+        sb.append("  Position: ");
+        sb.append(position);
+        sb.append(System.lineSeparator());
+        sb.append("  Polygon: ");
+        sb.append(this.polygon_handle[p]);
+        sb.append(System.lineSeparator());
+        throw new MeshExceptionPolygonNotConvex(sb.toString());
+      }
+
+      //
+      // The other vertices of the polygon are already within the bounds of
+      // the mesh, so the polygon stays within the bounds iff the vertex does.
+      //
+
+      if (!inside) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Setting vertex position would make polygon exceed bounds.");
+        sb.append(System.lineSeparator());
+        sb.append("  Vertex:   ");
+        sb.append(vertex_id.value());
+        sb.append(System.lineSeparator());
+        sb.append("  Position: ");
+        sb.append(position);
+        sb.append(System.lineSeparator());
+        sb.append("  Polygon: ");
+        sb.append(this.polygon_handle[p]);
+        sb.append(System.lineSeparator());
+        throw new MeshExceptionPolygonNotConvex(sb.toString());
+      }
+    }
+
+    this.positionIndexRemove(slot);
+    this.vertex_x[slot] = x;
+    this.vertex_y[slot] = y;
+    this.positionIndexAdd(slot);
+
+    for (int corner = this.vertex_corner[slot];
+         corner != NONE;
+         corner = this.corner_vertex_next[corner]) {
+      final int p = this.corner_polygon[corner];
+      this.polygonUpdateBounds(p);
+      this.polygon_winding[p] =
+        (byte) MeshPolygons.winding(this.polygon_handle[p]);
+      this.polygon_barycenter[p] = null;
+    }
+  }
+
+  /**
+   * Determine whether a convex polygon remains convex if the vertex at the
+   * given corner is moved to {@code (x, y)}. Only the turns at the vertex
+   * and at its two neighbours change, so those are checked against the
+   * winding of the polygon. The whole polygon is checked if the polygon has
+   * no area, or if the moved vertex turns against the winding, as the move
+   * may then reverse the winding of a polygon that is otherwise degenerate.
+   */
+
+  private boolean polygonConvexAfterMove(
+    final int p,
+    final int corner,
+    final int x,
+    final int y)
+  {
+    final int start = this.polygon_corner_start[p];
+    final int count = this.polygon_corner_count[p];
+    final int index = corner - start;
+    final int winding = this.polygon_winding[p];
+
+    if (winding != 0) {
+      final int v_prev2 =
+        this.corner_vertex[start + ((index + count - 2) % count)];
+      final int v_prev =
+        this.corner_vertex[start + ((index + count - 1) % count)];
+      final int v_next =
+        this.corner_vertex[start + ((index + 1) % count)];
+      final int v_next2 =
+        this.corner_vertex[start + ((index + 2) % count)];
+
+      final int turn_prev =
+        MeshPolygons.orient2d(
+          this.vertex_x[v_prev2],
+          this.vertex_y[v_prev2],
+          this.vertex_x[v_prev],
+          this.vertex_y[v_prev],
+          x,
+          y);
+      final int turn =
+        MeshPolygons.orient2d(
+          this.vertex_x[v_prev],
+          this.vertex_y[v_prev],
+          x,
+          y,
+          this.vertex_x[v_next],
+          this.vertex_y[v_next]);
+      final int turn_next =
+        MeshPolygons.orient2d(
+          x,
+          y,
+          this.vertex_x[v_next],
+          this.vertex_y[v_next],
+          this.vertex_x[v_next2],
+          this.vertex_y[v_next2]);
+
+      if (turn_prev != -winding && turn != -winding && turn_next != -winding) {
+        return true;
+      }
+    }
+
+    final int[] coordinates = this.positionsBuffer(count);
+    for (int other = 0; other < count; ++other) {
+      final int v = this.corner_vertex[start + other];
+      coordinates[other * 2] = other == index ? x : this.vertex_x[v];
+      coordinates[(other * 2) + 1] = other == index ? y : this.vertex_y[v];
+    }
+    return MeshPolygons.isConvex(coordinates, count);
+  }
+
+  /**
+   * Recalculate the bounds of a polygon, and move the polygon within the
+   * index only if the bounds have changed.
+   */
+
+  private void polygonUpdateBounds(
+    final int p)
+  {
+    final int start = this.polygon_corner_start[p];
+    final int count = this.polygon_corner_count[p];
+    int x_min = Integer.MAX_VALUE;
+    int y_min = Integer.MAX_VALUE;
+    int x_max = Integer.MIN_VALUE;
+    int y_max = Integer.MIN_VALUE;
+    for (int index = start; index < start + count; ++index) {
+      final int v = this.corner_vertex[index];
+      x_min = Math.min(this.vertex_x[v], x_min);
+      y_min = Math.min(this.vertex_y[v], y_min);
+      x_max = Math.max(this.vertex_x[v], x_max);
+      y_max = Math.max(this.vertex_y[v], y_max);
+    }
+
+    if (this.polygon_x_min[p] == x_min
+      && this.polygon_x_max[p] == x_max
+      && this.polygon_y_min[p] == y_min
+      && this.polygon_y_max[p] == y_max) {
+      return;
+    }
+
+    final Polygon handle = this.polygon_handle[p];
+    final AreaI new_bounds = AreaI.of(x_min, x_max, y_min, y_max);
+    this.polygons_index.remove(handle, this.polygonBounds(p));
+    this.polygonSetBounds(p, new_bounds);
+    this.polygons_index.insert(handle, new_bounds);
+  }
+
+  /**
+   * @return A buffer with room for the coordinates of the given number of
+   * vertices, reused between operations so that checking a polygon does not
+   * allocate
+   */
+
+  private int[] positionsBuffer(
+    final int count)
+  {
+    if (this.positions_buffer.length < count * 2) {
+      this.positions_buffer = new int[count * 2];
+    }
+    return this.positions_buffer;
+  }
+
+  private void polygonSetBounds(
+    final int slot,
+    final AreaI area)
+  {
+    this.polygon_x_min[slot] = area.minimumX();
+    this.polygon_x_max[slot] = area.maximumX();
+    this.polygon_y_min[slot] = area.minimumY();
+    this.polygon_y_max[slot] = area.maximumY();
+  }
+
+  private AreaI polygonBounds(
+    final int slot)
+  {
+    return AreaI.of(
+      this.polygon_x_min[slot],
+      this.polygon_x_max[slot],
+      this.polygon_y_min[slot],
+      this.polygon_y_max[slot]);
+  }
+
+  @Override
+  public PolygonType polygonCreate(
+    final List<PolygonVertexID> poly_vertices)
+  {
+    return this.polygonCreateWithID(this.polygonIDFresh(), poly_vertices);
+  }
+
+  @Override
+  public PolygonType polygonCreateWithID(
+    final PolygonID id,
+    final List<PolygonVertexID> vids)
+  {
+    NullCheck.notNull(id, "ID");
+    NullCheck.notNull(vids, "Vertices");
+
+    if (this.polygon_slots.containsKey(id.value())) {
+      throw new MeshExceptionPolygonDuplicate(
+        "Polygon already exists with the given ID");
+    }
+
+    if (vids.size() < 3) {
+      throw new MeshExceptionPolygonTooFewVertices(
+        "Polygon must have at least three vertices");
+    }
+
+    final int count = vids.size();
+    final int[] vertices = new int[count];
+    final int[] coordinates = this.positionsBuffer(count);
+    for (int index = 0; index < count; ++index) {
+      final int v = this.checkVertexExists(vids.get(index));
+      vertices[index] = v;
+      coordinates[index * 2] = this.vertex_x[v];
+      coordinates[(index * 2) + 1] = this.vertex_y[v];
+    }
+
+    if (!MeshPolygons.isConvex(coordinates, count)) {
+      throw new MeshExceptionPolygonNotConvex("Polygon is not convex");
+    }
+
+    if (MeshPolygons.winding(coordinates, count) < 0) {
+      for (int index = 0; index < count / 2; ++index) {
+        final int other = count - 1 - index;
+        final int v = vertices[index];
+        vertices[index] = vertices[other];
+        vertices[other] = v;
+      }
+    }
+
+    final AreaI poly_bounds =
+      MeshPolygons.bounds(coordinates, count);
+
+    if (!AreasI.contains(this.bounds, poly_bounds)) {
+      throw new MeshExceptionPolygonOutsideBounds(
+        "Polygon cannot fit into the room");
+    }
+
+    return this.polygonCreateSlot(id, vertices, poly_bounds);
+  }
+
+  /**
+   * Create a polygon from vertices that have already been checked and placed
+   * in counter-clockwise order.
+   */
+
+  private Polygon polygonCreateSlot(
+    final PolygonID id,
+    final int[] vertices,
+    final AreaI poly_bounds)
+  {
+    final int count = vertices.length;
+    final int slot = this.polygonSlotAllocate();
+    final int start = this.cornersAllocate(count);
+    this.polygon_corner_start[slot] = start;
+    this.polygon_corner_count[slot] = count;
+    this.polygonSetBounds(slot, poly_bounds);
+
+    for (int index = 0; index < count; ++index) {
+      final int corner = start + index;
+      final int v = vertices[index];
+      this.corner_vertex[corner] = v;
+      this.corner_polygon[corner] = slot;
+      this.corner_vertex_next[corner] = this.vertex_corner[v];
+      this.vertex_corner[v] = corner;
+      ++this.vertex_polygon_count[v];
+    }
+
+    for (int index = 0; index < count; ++index) {
+      final int v1 = vertices[(index + 1) % count];
+      this.edgeLink(start + index, vertices[index], v1);
+    }
+
+    final Polygon poly = new Polygon(this, slot, id);
+    this.polygon_handle[slot] = poly;
+    this.polygon_winding[slot] = (byte) MeshPolygons.winding(poly);
+    this.polygon_barycenter[slot] = null;
+
+    this.polygons_index.insert(poly, poly_bounds);
+    this.polygon_slots.put(id.value(), slot);
+    this.polygons_sorted.invalidate();
+    this.polygon_ids = idNext(this.polygon_ids, id.value());
+    return poly;
+  }
+
+  @Override
+  public List<PolygonType> bulkLoad(
+    final int[] positions,
+    final int[] polygon_sizes,
+    final int[] polygon_vertices)
+  {
+    final MeshBulkPolygons bulk =
+      MeshBulkPolygons.prepare(
+        this.bounds, positions, polygon_sizes, polygon_vertices);
+
+    final int[] created = new int[bulk.vertexCount()];
+    for (int index = 0; index < created.length; ++index) {
+      if (!bulk.vertexUsed(index)) {
+        continue;
+      }
+      created[index] = this.vertexCreateSlot(
+        this.vertexIDFresh().value(),
+        bulk.vertexX(index),
+        bulk.vertexY(index));
+    }
+
+    final ReferenceArrayList<PolygonType> results =
+      new ReferenceArrayList<>(bulk.polygonCount());
+    for (int polygon = 0; polygon < bulk.polygonCount(); ++polygon) {
+      final int start = bulk.polygonStart(polygon);
+      final int[] vertices = new int[bulk.polygonSize(polygon)];
+      for (int index = 0; index < vertices.length; ++index) {
+        vertices[index] = created[bulk.cornerVertex(start + index)];
+      }
+      results.add(this.polygonCreateSlot(
+        this.polygonIDFresh(), vertices, bulk.polygonBounds(polygon)));
+    }
+    return Collections.unmodifiableList(results);
+  }
+
+  /**
+   * Add the half-edge of the given corner to the cycle of half-edges of the
+   * edge between the given vertices, creating the edge if necessary.
+   */
+
+  private void edgeLink(
+    final int corner,
+    final int vertex0,
+    final int vertex1)
+  {
+    final long key = edgeKey(vertex0, vertex1);
+    int edge = this.edges_by_vertices.get(key);
+    if (edge == NONE) {
+      edge = this.edgeSlotAllocate();
+      this.edge_vertex0[edge] = vertex0;
+      this.edge_vertex1[edge] = vertex1;
+      this.edge_corner[edge] = corner;
+      this.edge_polygon_count[edge] = 1;
+      this.corner_twin[corner] = corner;
+      this.edges_by_vertices.put(key, edge);
+    } else {
+      final int head = this.edge_corner[edge];
+      this.corner_twin[corner] = this.corner_twin[head];
+      this.corner_twin[head] = corner;
+      ++this.edge_polygon_count[edge];
+    }
+    this.corner_edge[corner] = edge;
+  }
+
+  private void edgeUnlink(
+    final int corner)
+  {
+    final int edge = this.corner_edge[corner];
+    final int twin = this.corner_twin[corner];
+
+    if (twin == corner) {
+      this.edges_by_vertices.remove(
+        edgeKey(this.edge_vertex0[edge], this.edge_vertex1[edge]));
+      this.edge_corner[edge] = NONE;
+      this.edge_polygon_count[edge] = 0;
+      ++this.edge_generation[edge];
+      this.edge_free.add(edge);
+    } else {
+      int previous = twin;
+      while (this.corner_twin[previous] != corner) {
+        previous = this.corner_twin[previous];
+      }
+      this.corner_twin[previous] = twin;
+      if (this.edge_corner[edge] == corner) {
+        this.edge_corner[edge] = twin;
+      }
+      --this.edge_polygon_count[edge];
+    }
+
+    this.corner_twin[corner] = NONE;
+    this.corner_edge[corner] = NONE;
+  }
+
+  private void vertexUnlink(
+    final int corner)
+  {
+    final int v = this.corner_vertex[corner];
+    final int next = this.corner_vertex_next[corner];
+    if (this.vertex_corner[v] == corner) {
+      this.vertex_corner[v] = next;
+    } else {
+      int previous = this.vertex_corner[v];
+      while (this.corner_vertex_next[previous] != corner) {
+        previous = this.corner_vertex_next[previous];
+        Invariants.checkInvariant(
+          previous != NONE, "Corner must be linked to its vertex");
+      }
+      this.corner_vertex_next[previous] = next;
+    }
+    this.corner_vertex_next[corner] = NONE;
+    --this.vertex_polygon_count[v];
+  }
+
+  private void vertexDelete(
+    final int slot)
+  {
+    this.vertex_slots.remove(this.vertex_id[slot]);
+    this.vertices_sorted.invalidate();
+    this.positionIndexRemove(slot);
+    this.vertex_corner[slot] = NONE;
+    ++this.vertex_generation[slot];
+    this.vertex_free.add(slot);
+  }
+
+  @Override
+  public void polygonDelete(
+    final PolygonID pid)
+  {
+    NullCheck.notNull(pid, "Polygon ID");
+
+    final int slot = this.checkPolygonExists(pid);
+    final Polygon poly = this.polygon_handle[slot];
+    final int start = this.polygon_corner_start[slot];
+    final int count = this.polygon_corner_count[slot];
+
+    for (int index = 0; index < count; ++index) {
+      this.vertexUnlink(start + index);
+      this.edgeUnlink(start + index);
+    }
+
+    for (int index = 0; index < count; ++index) {
+      final int v = this.corner_vertex[start + index];
+      if (this.vertex_polygon_count[v] == 0 && this.vertexIsLive(v)) {
+        this.vertexDelete(v);
+      }
+    }
+
+    this.polygons_index.remove(poly, this.polygonBounds(slot));
+    this.polygon_slots.remove(pid.value());
+    this.polygons_sorted.invalidate();
+    this.polygon_handle[slot] = null;
+    this.polygon_barycenter[slot] = null;
+    this.polygon_free.add(slot);
+    poly.deleted = true;
+
+    this.corner_garbage += count;
+    if (this.corner_garbage >= CORNER_GARBAGE_MINIMUM
+      && this.corner_garbage * 2 >= this.corner_count) {
+      this.cornersCompact();
+    }
+  }
+
+  /**
+   * Remove the corners of deleted polygons from the corner array, preserving
+   * the order of the remaining corners.
+   */
+
+  private void cornersCompact()
+  {
+    final int live = this.corner_count - this.corner_garbage;
+    final int size = Math.max(INITIAL_CAPACITY, live + (live / 2));
+
+    final int[] remap = new int[this.corner_count];
+    Arrays.fill(remap, NONE);
+
+    final int[] new_vertex = new int[size];
+    final int[] new_polygon = new int[size];
+    final int[] new_edge = new int[size];
+    final int[] new_twin = new int[size];
+    final int[] new_vertex_next = new int[size];
+
+    int next = 0;
+    for (int corner = 0; corner < this.corner_count; ++corner) {
+      final int p = this.corner_polygon[corner];
+      if (this.polygon_handle[p] != null
+        && this.polygon_corner_start[p] <= corner
+        && corner < this.polygon_corner_start[p] + this.polygon_corner_count[p]) {
+        remap[corner] = next;
+        new_vertex[next] = this.corner_vertex[corner];
+        new_polygon[next] = p;
+        new_edge[next] = this.corner_edge[corner];
+        ++next;
+      }
+    }
+
+    Invariants.checkInvariantI(
+      next, next == live, n -> "All live corners must be retained");
+
+    for (int corner = 0; corner < this.corner_count; ++corner) {
+      final int target = remap[corner];
+      if (target != NONE) {
+        new_twin[target] = remap[this.corner_twin[corner]];
+        final int vertex_next = this.corner_vertex_next[corner];
+        new_vertex_next[target] =
+          vertex_next == NONE ? NONE : remap[vertex_next];
+      }
+    }
+
+    for (int p = 0; p < this.polygon_slot_count; ++p) {
+      if (this.polygon_handle[p] != null) {
+        this.polygon_corner_start[p] = remap[this.polygon_corner_start[p]];
+      }
+    }
+    for (int v = 0; v < this.vertex_slot_count; ++v) {
+      final int head = this.vertex_corner[v];
+      if (head != NONE) {
+        this.vertex_corner[v] = remap[head];
+      }
+    }
+    for (int e = 0; e < this.edge_slot_count; ++e) {
+      final int head = this.edge_corner[e];
+      if (head != NONE) {
+        this.edge_corner[e] = remap[head];
+      }
+    }
+
+    this.corner_vertex = new_vertex;
+    this.corner_polygon = new_polygon;
+    this.corner_edge = new_edge;
+    this.corner_twin = new_twin;
+    this.corner_vertex_next = new_vertex_next;
+    this.corner_count = live;
+    this.corner_garbage = 0;
+  }
+
+  private static long idNext(
+    final long current,
+    final long used)
+  {
+    if (used < current) {
+      return current;
+    }
+    return Math.addExact(used, 1L);
+  }
+
+  private PolygonID polygonIDFresh()
+  {
+    final PolygonID id = PolygonID.of(this.polygon_ids);
+    Postconditions.checkPostcondition(
+      !this.polygon_slots.containsKey(id.value()),
+      "Polygon ID must be fresh");
+    return id;
+  }
+
+  private PolygonVertexID vertexIDFresh()
+  {
+    final PolygonVertexID id = PolygonVertexID.of(this.vertex_ids);
+    Postconditions.checkPostcondition(
+      !this.vertex_slots.containsKey(id.value()),
+      "Vertex ID must be fresh");
+    return id;
+  }
+
+  private int checkPolygonExists(
+    final PolygonID pid)
+  {
+    final int slot = this.polygon_slots.get(pid.value());
+    if (slot != NONE) {
+      return slot;
+    }
+
+    throw new MeshExceptionPolygonNonexistent(
+      String.format("Polygon %s does not exist", Long.valueOf(pid.value())));
+  }
+
+  private int checkVertexExists(
+    final PolygonVertexID v)
+  {
+    final int slot = this.vertex_slots.get(v.value());
+    if (slot != NONE) {
+      return slot;
+    }
+
+    throw new MeshExceptionVertexNonexistent(
+      String.format("Vertex %s does not exist", v));
+  }
+
+  @Override
+  public Collection<PolygonType> polygons()
+  {
+    return this.polygons_view;
+  }
+
+  @Override
+  public List<PolygonType> polygonsSorted()
+  {
+    return this.polygons_sorted;
+  }
+
+  @Override
+  public AreaI bounds()
+  {
+    return this.bounds;
+  }
+
+  @Override
+  public QuadTreeReadableIType<PolygonType> polygonTree()
+  {
+    return castQuadTree(this.polygons_index.tree());
+  }
+
+  @Override
+  public Optional<PolygonVertexType> vertexFind(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+
+    final int slot = this.vertices_by_position.get(
+      positionKey(position.x(), position.y()));
+    if (slot == NONE) {
+      return Optional.empty();
+    }
+    return Optional.of(this.vertexView(slot));
+  }
+
+  @Override
+  public Optional<PolygonType> polygonFind(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "position");
+
+    final int x = position.x();
+    final int y = position.y();
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  @Override
+  public Optional<PolygonType> polygonFindFrom(
+    final PolygonID hint,
+    final Vector2I position)
+  {
+    NullCheck.notNull(hint, "Hint");
+    NullCheck.notNull(position, "Position");
+
+    final int x = position.x();
+    final int y = position.y();
+
+    //
+    // Each step leaves the current polygon through the corner whose
+    // half-edge faces the point, and enters the polygon of the next
+    // half-edge in the cycle of that edge. A half-edge that is its own twin
+    // is external.
+    //
+
+    int slot = this.polygon_slots.get(hint.value());
+    for (int step = 0;
+         slot != NONE && step < MeshPolygons.WALK_STEPS_MAXIMUM;
+         ++step) {
+      final int winding = (int) this.polygon_winding[slot];
+      if (winding == 0) {
+        break;
+      }
+
+      final Polygon poly = this.polygon_handle[slot];
+      final int exit = MeshPolygons.exitEdge(poly, winding, x, y);
+      if (exit == -1) {
+        return Optional.of(poly);
+      }
+
+      final int corner = this.polygon_corner_start[slot] + exit;
+      final int twin = this.corner_twin[corner];
+      slot = twin == corner ? NONE : this.corner_polygon[twin];
+    }
+
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  @Override
+  public void polygonFindAll(
+    final int[] xs,
+    final int[] ys,
+    final long[] results)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      this.polygons_contain,
+      xs,
+      ys,
+      results,
+      Optional.empty());
+  }
+
+  @Override
+  public void polygonFindAllParallel(
+    final int[] xs,
+    final int[] ys,
+    final long[] results,
+    final ForkJoinPool pool)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      this.polygons_contain,
+      xs,
+      ys,
+      results,
+      Optional.of(NullCheck.notNull(pool, "Pool")));
+  }
+
+  private @Nullable Polygon polygonFindPoint(
+    final int x,
+    final int y)
+  {
+    return this.polygons_index.search(x, x, y, y, this.polygons_contain, null);
+  }
+
+  @Override
+  public boolean forEachPolygonOverlapping(
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x_minimum,
+      x_maximum,
+      y_minimum,
+      y_maximum,
+      this.polygons_overlap,
+      receiver) == null;
+  }
+
+  @Override
+  public boolean forEachPolygonContaining(
+    final int x,
+    final int y,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x, x, y, y, this.polygons_contain, receiver) == null;
+  }
+
+  @Override
+  public boolean forEachVertexWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonVertexType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.verticesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public boolean forEachEdgeWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.edgesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public int vertexNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonVertexType[] vertices,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(vertices, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      final MeshNearest nearest = query.nearest;
+      final int count = query.verticesNearest(x, y, vertices.length, radius);
+      for (int index = 0; index < count; ++index) {
+        vertices[index] = this.vertexView(nearest.slot(index));
+        distances[index] = nearest.distance(index);
+      }
+      Arrays.fill(vertices, count, vertices.length, null);
+      return count;
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public int edgeNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonEdgeType[] edges,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(edges, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      final MeshNearest nearest = query.nearest;
+      final int count = query.edgesNearest(x, y, edges.length, radius);
+      for (int index = 0; index < count; ++index) {
+        edges[index] = this.edgeView(nearest.slot(index));
+        distances[index] = nearest.distance(index);
+      }
+      Arrays.fill(edges, count, edges.length, null);
+      return count;
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  /**
+   * Take the spare proximity query state, or create new state if another
+   * query is using it.
+   */
+
+  private Proximity proximityTake()
+  {
+    final Proximity query = this.proximity_spare.getAndSet(null);
+    if (query != null) {
+      return query;
+    }
+    return new Proximity(this);
+  }
+
+  private void proximityGive(
+    final Proximity query)
+  {
+    query.clear();
+    this.proximity_spare.set(query);
+  }
+
+  @Override
+  public boolean forEachSegmentHit(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    return MeshSegmentCast.cast(
+      this.segment_topology, x0, y0, x1, y1, receiver);
+  }
+
+  @Override
+  public Optional<MeshSegmentHit> segmentCast(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1)
+  {
+    return MeshSegmentCast.first(this.segment_topology, x0, y0, x1, y1);
+  }
+
+  private Edge edgeView(
+    final int edge)
+  {
+    return new Edge(this, edge, this.edge_generation[edge]);
+  }
+
+  private double edgeDistance(
+    final int edge,
+    final int x,
+    final int y)
+  {
+    final int v0 = this.edge_vertex0[edge];
+    final int v1 = this.edge_vertex1[edge];
+    return MeshPolygons.distanceToSegment(
+      this.vertex_x[v0],
+      this.vertex_y[v0],
+      this.vertex_x[v1],
+      this.vertex_y[v1],
+      x,
+      y);
+  }
+
+  private static void checkRadius(
+    final int radius)
+  {
+    Preconditions.checkPreconditionI(
+      radius, radius >= 0, r -> "Radius must be non-negative");
+  }
+
+  private boolean polygonOverlaps(
+    final Polygon poly,
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum)
+  {
+    final int slot = poly.slot;
+    return this.polygon_x_min[slot] <= x_maximum
+      && this.polygon_x_max[slot] >= x_minimum
+      && this.polygon_y_min[slot] <= y_maximum
+      && this.polygon_y_max[slot] >= y_minimum;
+  }
+
+  /**
+   * The area of a containment search is a single point.
+   */
+
+  private boolean polygonContains(
+    final Polygon poly,
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum)
+  {
+    if (!this.polygonOverlaps(
+      poly, x_minimum, x_maximum, y_minimum, y_maximum)) {
+      return false;
+    }
+    return MeshPolygons.containsPointConvex(
+      poly, (int) this.polygon_winding[poly.slot], x_minimum, y_minimum);
+  }
+
+  @Override
+  public Collection<PolygonVertexType> vertices()
+  {
+    return this.vertices_view;
+  }
+
+  @Override
+  public List<PolygonVertexType> verticesSorted()
+  {
+    return this.vertices_sorted;
+  }
+
+  @Override
+  public Optional<PolygonEdgeType> edgeFind(
+    final PolygonVertexID vertex0,
+    final PolygonVertexID vertex1)
+  {
+    NullCheck.notNull(vertex0, "Vertex 0");
+    NullCheck.notNull(vertex1, "Vertex 1");
+
+    final int edge = this.edges_by_vertices.get(
+      edgeKey(
+        this.checkVertexExists(vertex0),
+        this.checkVertexExists(vertex1)));
+    if (edge == NONE) {
+      return Optional.empty();
+    }
+    return Optional.of(new Edge(this, edge, this.edge_generation[edge]));
+  }
+
+  @Override
+  public List<PolygonEdgeType> vertexEdges(
+    final PolygonVertexID vertex)
+  {
+    NullCheck.notNull(vertex, "Vertex");
+
+    //
+    // Each corner of the vertex is the start of one half-edge leaving the
+    // vertex, and the previous corner of the same polygon is the start of
+    // the half-edge arriving at the vertex.
+    //
+
+    final int slot = this.checkVertexExists(vertex);
+    final IntArrayList edges = new IntArrayList();
+    for (int corner = this.vertex_corner[slot];
+         corner != NONE;
+         corner = this.corner_vertex_next[corner]) {
+      final int p = this.corner_polygon[corner];
+      final int start = this.polygon_corner_start[p];
+      final int count = this.polygon_corner_count[p];
+      final int previous = start + ((corner - start + count - 1) % count);
+
+      final int edge_out = this.corner_edge[corner];
+      if (!edges.contains(edge_out)) {
+        edges.add(edge_out);
+      }
+      final int edge_in = this.corner_edge[previous];
+      if (!edges.contains(edge_in)) {
+        edges.add(edge_in);
+      }
+    }
+
+    final ObjectArrayList<PolygonEdgeType> results =
+      new ObjectArrayList<>(edges.size());
+    for (int index = 0; index < edges.size(); ++index) {
+      final int edge = edges.getInt(index);
+      results.add(new Edge(this, edge, this.edge_generation[edge]));
+    }
+    return Collections.unmodifiableList(results);
+  }
+
+  @Override
+  public List<PolygonType> polygonNeighbours(
+    final PolygonID polygon)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+
+    final int slot = this.checkPolygonExists(polygon);
+    final ReferenceArrayList<PolygonType> neighbours =
+      new ReferenceArrayList<>(this.polygon_corner_count[slot]);
+    this.forEachNeighbour(slot, q -> {
+      if (!neighbours.contains(q)) {
+        neighbours.add(q);
+      }
+      return true;
+    });
+    return Collections.unmodifiableList(neighbours);
+  }
+
+  @Override
+  public boolean forEachPolygonNeighbour(
+    final PolygonID polygon,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.forEachNeighbour(this.checkPolygonExists(polygon), receiver);
+  }
+
+  /**
+   * Pass the polygon of every other half-edge in the cycle of each corner of
+   * the given polygon to the given function.
+   */
+
+  private boolean forEachNeighbour(
+    final int slot,
+    final Predicate<? super PolygonType> receiver)
+  {
+    final int start = this.polygon_corner_start[slot];
+    final int count = this.polygon_corner_count[slot];
+    for (int corner = start; corner < start + count; ++corner) {
+      for (int twin = this.corner_twin[corner];
+           twin != corner;
+           twin = this.corner_twin[twin]) {
+        final int q = this.corner_polygon[twin];
+        if (q != slot && !receiver.test(this.polygon_handle[q])) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public List<String> check()
+  {
+    final ReferenceArrayList<String> errors = new ReferenceArrayList<>();
+
+    final IntIterator polygon_iter = this.polygon_slots.values().iterator();
+    while (polygon_iter.hasNext()) {
+      final int p = polygon_iter.nextInt();
+      final Polygon poly = this.polygon_handle[p];
+      if (poly == null || poly.deleted) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Polygon slot ");
+        sb.append(p);
+        sb.append(": Polygon has been deleted ");
+        errors.add(sb.toString());
+        continue;
+      }
+
+      final int start = this.polygon_corner_start[p];
+      final int count = this.polygon_corner_count[p];
+      for (int corner = start; corner < start + count; ++corner) {
+        this.checkCorner(errors, poly, corner);
+      }
+    }
+
+    for (int v = 0; v < this.vertex_slot_count; ++v) {
+      if (!this.vertexIsLive(v)) {
+        continue;
+      }
+
+      int corners = 0;
+      for (int corner = this.vertex_corner[v];
+           corner != NONE;
+           corner = this.corner_vertex_next[corner]) {
+        ++corners;
+      }
+
+      if (corners != this.vertex_polygon_count[v]) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Vertex ");
+        sb.append(this.vertexView(v));
+        sb.append(": Vertex has ");
+        sb.append(corners);
+        sb.append(" corners but a polygon count of ");
+        sb.append(this.vertex_polygon_count[v]);
+        errors.add(sb.toString());
+      }
+
+      if (corners == 0) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Vertex ");
+        sb.append(this.vertexView(v));
+        sb.append(": Vertex is not referenced by any polygon ");
+        errors.add(sb.toString());
+      }
+    }
+
+    return errors;
+  }
+
+  private void checkCorner(
+    final List<String> errors,
+    final Polygon poly,
+    final int corner)
+  {
+    final int v = this.corner_vertex[corner];
+    if (!this.vertexIsLive(v)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Polygon ");
+      sb.append(poly);
+      sb.append(": Nonexistent vertex slot ");
+      sb.append(v);
+      errors.add(sb.toString());
+      return;
+    }
+
+    final int vx = this.vertex_x[v];
+    final int vy = this.vertex_y[v];
+    if (!AreasI.containsPoint(this.bounds, vx, vy)) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Polygon ");
+      sb.append(poly);
+      sb.append(": Vertex ");
+      sb.append(this.vertexView(v));
+      sb.append(" has out-of-bounds position (");
+      sb.append(vx);
+      sb.append(", ");
+      sb.append(vy);
+      sb.append(")");
+      errors.add(sb.toString());
+    }
+
+    boolean linked = false;
+    for (int other = this.vertex_corner[v];
+         other != NONE;
+         other = this.corner_vertex_next[other]) {
+      linked = linked || other == corner;
+    }
+    if (!linked) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Polygon ");
+      sb.append(poly);
+      sb.append(": Vertex ");
+      sb.append(this.vertexView(v));
+      sb.append(" does not reference the polygon");
+      errors.add(sb.toString());
+    }
+
+    final int edge = this.corner_edge[corner];
+    int cycle = 0;
+    int twin = corner;
+    do {
+      final int q = this.corner_polygon[twin];
+      if (this.corner_edge[twin] != edge || this.polygon_handle[q] == null) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Polygon ");
+        sb.append(poly);
+        sb.append(": Edge ");
+        sb.append(new Edge(this, edge, this.edge_generation[edge]));
+        sb.append(" references nonexistent polygon slot ");
+        sb.append(q);
+        errors.add(sb.toString());
+        return;
+      }
+      twin = this.corner_twin[twin];
+      ++cycle;
+    } while (twin != corner && cycle <= this.corner_count);
+
+    if (cycle != this.edge_polygon_count[edge]) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Polygon ");
+      sb.append(poly);
+      sb.append(": Edge ");
+      sb.append(new Edge(this, edge, this.edge_generation[edge]));
+      sb.append(" has ");
+      sb.append(cycle);
+      sb.append(" half-edges but a polygon count of ");
+      sb.append(this.edge_polygon_count[edge]);
+      errors.add(sb.toString());
+    }
+  }
+
+  /**
+   * The state of a proximity query. The functions given to the polygon
+   * index are created once with the state rather than for each query, and
+   * the state is reused by successive queries. Candidates are compared by
+   * slot, and flyweights are created only for the items that are reported.
+   * Each vertex and edge is reported only from its owner: the polygon of the
+   * first corner in the corner list of a vertex, and the polygon of the
+   * half-edge that an edge refers to.
+   */
+
+  private static final class Proximity implements MeshNearest.SearchType
+  {
+    private final MeshCompact mesh;
+    private final MeshNearest nearest;
+    private final Predicate<Polygon> vertices_within;
+    private final Predicate<Polygon> edges_within;
+    private final Predicate<Polygon> vertices_nearest;
+    private final Predicate<Polygon> edges_nearest;
+    private @Nullable Predicate<Polygon> visitor;
+    private @Nullable DistanceReceiverType<? super PolygonVertexType>
+      vertex_receiver;
+    private @Nullable DistanceReceiverType<? super PolygonEdgeType>
+      edge_receiver;
+    private int x;
+    private int y;
+    private int radius;
+
+    Proximity(
+      final MeshCompact in_mesh)
+    {
+      this.mesh = in_mesh;
+      this.nearest = new MeshNearest();
+      this.vertices_within = this::visitVerticesWithin;
+      this.edges_within = this::visitEdgesWithin;
+      this.vertices_nearest = this::visitVerticesNearest;
+      this.edges_nearest = this::visitEdgesNearest;
+    }
+
+    boolean verticesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonVertexType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.vertex_receiver = receiver;
+      this.visitor = this.vertices_within;
+      return MeshNearest.within(
+        this.mesh.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    boolean edgesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonEdgeType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.edge_receiver = receiver;
+      this.visitor = this.edges_within;
+      return MeshNearest.within(
+        this.mesh.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    int verticesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.vertices_nearest;
+      return this.nearest.find(this.mesh.bounds, in_x, in_y, this);
+    }
+
+    int edgesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.edges_nearest;
+      return this.nearest.find(this.mesh.bounds, in_x, in_y, this);
+    }
+
+    void clear()
+    {
+      this.nearest.clear();
+      this.visitor = null;
+      this.vertex_receiver = null;
+      this.edge_receiver = null;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum)
+    {
+      return this.mesh.polygons_index.search(
+        x_minimum,
+        x_maximum,
+        y_minimum,
+        y_maximum,
+        this.mesh.polygons_overlap,
+        this.visitor) == null;
+    }
+
+    private boolean vertexOwnedBy(
+      final int vertex,
+      final int slot)
+    {
+      final MeshCompact m = this.mesh;
+      return m.corner_polygon[m.vertex_corner[vertex]] == slot;
+    }
+
+    private boolean edgeOwnedBy(
+      final int edge,
+      final int slot)
+    {
+      final MeshCompact m = this.mesh;
+      return m.corner_polygon[m.edge_corner[edge]] == slot;
+    }
+
+    private boolean visitVerticesWithin(
+      final Polygon poly)
+    {
+      final MeshCompact m = this.mesh;
+      final DistanceReceiverType<? super PolygonVertexType> receiver =
+        this.vertex_receiver;
+      final int start = m.polygon_corner_start[poly.slot];
+      final int end = start + m.polygon_corner_count[poly.slot];
+      for (int corner = start; corner < end; ++corner) {
+        final int v = m.corner_vertex[corner];
+        if (this.vertexOwnedBy(v, poly.slot)) {
+          final double distance = MeshPolygons.distance(
+            m.vertex_x[v], m.vertex_y[v], this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(m.vertexView(v), distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesWithin(
+      final Polygon poly)
+    {
+      final MeshCompact m = this.mesh;
+      final DistanceReceiverType<? super PolygonEdgeType> receiver =
+        this.edge_receiver;
+      final int start = m.polygon_corner_start[poly.slot];
+      final int end = start + m.polygon_corner_count[poly.slot];
+      for (int corner = start; corner < end; ++corner) {
+        final int e = m.corner_edge[corner];
+        if (this.edgeOwnedBy(e, poly.slot)) {
+          final double distance = m.edgeDistance(e, this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(m.edgeView(e), distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitVerticesNearest(
+      final Polygon poly)
+    {
+      final MeshCompact m = this.mesh;
+      final int start = m.polygon_corner_start[poly.slot];
+      final int end = start + m.polygon_corner_count[poly.slot];
+      for (int corner = start; corner < end; ++corner) {
+        final int v = m.corner_vertex[corner];
+        if (this.vertexOwnedBy(v, poly.slot)) {
+          this.nearest.offerSlot(v, MeshPolygons.distance(
+            m.vertex_x[v], m.vertex_y[v], this.x, this.y));
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesNearest(
+      final Polygon poly)
+    {
+      final MeshCompact m = this.mesh;
+      final int start = m.polygon_corner_start[poly.slot];
+      final int end = start + m.polygon_corner_count[poly.slot];
+      for (int corner = start; corner < end; ++corner) {
+        final int e = m.corner_edge[corner];
+        if (this.edgeOwnedBy(e, poly.slot)) {
+          this.nearest.offerSlot(e, m.edgeDistance(e, this.x, this.y));
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class SegmentTopology
+    implements MeshSegmentCast.TopologyType<Polygon>
+  {
+    private final MeshCompact mesh;
+
+    SegmentTopology(
+      final MeshCompact in_mesh)
+    {
+      this.mesh = in_mesh;
+    }
+
+    @Override
+    public int winding(
+      final Polygon polygon)
+    {
+      return (int) this.mesh.polygon_winding[polygon.slot];
+    }
+
+    @Override
+    public @Nullable Polygon neighbour(
+      final Polygon polygon,
+      final int edge)
+    {
+      final int corner = this.mesh.polygon_corner_start[polygon.slot] + edge;
+      final int twin = this.mesh.corner_twin[corner];
+      if (twin == corner) {
+        return null;
+      }
+      return this.mesh.polygon_handle[this.mesh.corner_polygon[twin]];
+    }
+
+    @Override
+    public PolygonEdgeType edge(
+      final Polygon polygon,
+      final int edge)
+    {
+      final int corner = this.mesh.polygon_corner_start[polygon.slot] + edge;
+      return this.mesh.edgeView(this.mesh.corner_edge[corner]);
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      return this.mesh.bounds;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum,
+      final Predicate<? super Polygon> receiver)
+    {
+      return this.mesh.polygons_index.search(
+        x_minimum,
+        x_maximum,
+        y_minimum,
+        y_maximum,
+        this.mesh.polygons_overlap,
+        receiver) == null;
+    }
+  }
+
+  private static final class VerticesView
+    extends AbstractCollection<PolygonVertexType>
+  {
+    private final MeshCompact mesh;
+
+    VerticesView(
+      final MeshCompact in_mesh)
+    {
+      this.mesh = in_mesh;
+    }
+
+    @Override
+    public Iterator<PolygonVertexType> iterator()
+    {
+      final IntIterator slots = this.mesh.vertex_slots.values().iterator();
+      return new Iterator<PolygonVertexType>()
+      {
+        @Override
+        public boolean hasNext()
+        {
+          return slots.hasNext();
+        }
+
+        @Override
+        public PolygonVertexType next()
+        {
+          return VerticesView.this.mesh.vertexView(slots.nextInt());
+        }
+      };
+    }
+
+    @Override
+    public boolean contains(
+      final Object o)
+    {
+      if (o instanceof Vertex) {
+        final Vertex v = (Vertex) o;
+        return v.mesh == this.mesh && !v.deleted();
+      }
+      return false;
+    }
+
+    @Override
+    public int size()
+    {
+      return this.mesh.vertex_slots.size();
+    }
+  }
+
+  private static final class PolygonsView
+    extends AbstractCollection<PolygonType>
+  {
+    private final MeshCompact mesh;
+
+    PolygonsView(
+      final MeshCompact in_mesh)
+    {
+      this.mesh = in_mesh;
+    }
+
+    @Override
+    public Iterator<PolygonType> iterator()
+    {
+      final IntIterator slots = this.mesh.polygon_slots.values().iterator();
+      return new Iterator<PolygonType>()
+      {
+        @Override
+        public boolean hasNext()
+        {
+          return slots.hasNext();
+        }
+
+        @Override
+        public PolygonType next()
+        {
+          return PolygonsView.this.mesh.polygon_handle[slots.nextInt()];
+        }
+      };
+    }
+
+    @Override
+    public boolean contains(
+      final Object o)
+    {
+      if (o instanceof Polygon) {
+        final Polygon p = (Polygon) o;
+        return p.mesh == this.mesh && !p.deleted;
+      }
+      return false;
+    }
+
+    @Override
+    public int size()
+    {
+      return this.mesh.polygon_slots.size();
+    }
+  }
+
+  private static final class Polygon
+    implements PolygonType, MeshPolygons.PositionsType
+  {
+    private final MeshCompact mesh;
+    private final int slot;
+    private final PolygonID id;
+    private boolean deleted;
+
+    Polygon(
+      final MeshCompact in_mesh,
+      final int in_slot,
+      final PolygonID in_id)
+    {
+      this.mesh = in_mesh;
+      this.slot = in_slot;
+      this.id = in_id;
+    }
+
+    private void checkLive()
+    {
+      if (this.deleted) {
+        throw new MeshExceptionPolygonNonexistent(
+          String.format("Polygon %s has been deleted", this));
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder("[Polygon ");
+      sb.append(this.id.value());
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public PolygonID id()
+    {
+      return this.id;
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      this.checkLive();
+      return this.mesh.polygonBounds(this.slot);
+    }
+
+    @Override
+    public List<PolygonEdgeType> edges()
+    {
+      this.checkLive();
+      return new AbstractList<PolygonEdgeType>()
+      {
+        @Override
+        public PolygonEdgeType get(
+          final int index)
+        {
+          final MeshCompact m = Polygon.this.mesh;
+          final int e = m.corner_edge[Polygon.this.corner(index)];
+          return new Edge(m, e, m.edge_generation[e]);
+        }
+
+        @Override
+        public int size()
+        {
+          return Polygon.this.positionCount();
+        }
+      };
+    }
+
+    @Override
+    public List<PolygonVertexType> vertices()
+    {
+      this.checkLive();
+      return new AbstractList<PolygonVertexType>()
+      {
+        @Override
+        public PolygonVertexType get(
+          final int index)
+        {
+          final MeshCompact m = Polygon.this.mesh;
+          return m.vertexView(m.corner_vertex[Polygon.this.corner(index)]);
+        }
+
+        @Override
+        public int size()
+        {
+          return Polygon.this.positionCount();
+        }
+      };
+    }
+
+    @Override
+    public boolean deleted()
+    {
+      return this.deleted;
+    }
+
+    /**
+     * Derived geometry is calculated on first use and kept in the polygon's
+     * slot. It is discarded when a vertex of the polygon moves, or when the
+     * slot is reused.
+     */
+
+    @Override
+    public double area()
+    {
+      this.checkLive();
+      this.updateGeometry();
+      return this.mesh.polygon_area[this.slot];
+    }
+
+    @Override
+    public Vector2D barycenter()
+    {
+      this.checkLive();
+      this.updateGeometry();
+      return this.mesh.polygon_barycenter[this.slot];
+    }
+
+    private void updateGeometry()
+    {
+      final MeshCompact m = this.mesh;
+      if (m.polygon_barycenter[this.slot] == null) {
+        m.polygon_area[this.slot] = MeshPolygons.areaSigned(this);
+        m.polygon_barycenter[this.slot] = MeshPolygons.barycenter(this);
+      }
+    }
+
+    private int corner(
+      final int index)
+    {
+      this.checkLive();
+      if (index < 0 || index >= this.positionCount()) {
+        throw new IndexOutOfBoundsException(
+          String.format("Index %d out of range", Integer.valueOf(index)));
+      }
+      return this.mesh.polygon_corner_start[this.slot] + index;
+    }
+
+    @Override
+    public int positionCount()
+    {
+      return this.mesh.polygon_corner_count[this.slot];
+    }
+
+    @Override
+    public int positionX(
+      final int index)
+    {
+      final MeshCompact m = this.mesh;
+      return m.vertex_x[m.corner_vertex[m.polygon_corner_start[this.slot] + index]];
+    }
+
+    @Override
+    public int positionY(
+      final int index)
+    {
+      final MeshCompact m = this.mesh;
+      return m.vertex_y[m.corner_vertex[m.polygon_corner_start[this.slot] + index]];
+    }
+  }
+
+  private static final class Edge implements PolygonEdgeType
+  {
+    private final MeshCompact mesh;
+    private final int slot;
+    private final int generation;
+
+    Edge(
+      final MeshCompact in_mesh,
+      final int in_slot,
+      final int in_generation)
+    {
+      this.mesh = in_mesh;
+      this.slot = in_slot;
+      this.generation = in_generation;
+    }
+
+    private void checkLive()
+    {
+      if (this.mesh.edge_generation[this.slot] != this.generation) {
+        throw new MeshExceptionPolygonNonexistent(
+          "Edge no longer belongs to any polygon");
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      final MeshCompact m = this.mesh;
+      final StringBuilder sb = new StringBuilder("[Edge ");
+      sb.append(m.vertex_id[m.edge_vertex0[this.slot]]);
+      sb.append(" <-> ");
+      sb.append(m.vertex_id[m.edge_vertex1[this.slot]]);
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public boolean equals(
+      final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+
+      final Edge edge = (Edge) o;
+      return this.mesh == edge.mesh
+        && this.slot == edge.slot
+        && this.generation == edge.generation;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      int result = System.identityHashCode(this.mesh);
+      result = 31 * result + this.slot;
+      result = 31 * result + this.generation;
+      return result;
+    }
+
+    @Override
+    public Set<PolygonType> polygons()
+    {
+      this.checkLive();
+
+      final MeshCompact m = this.mesh;
+      final ReferenceOpenHashSet<PolygonType> polygons =
+        new ReferenceOpenHashSet<>(m.edge_polygon_count[this.slot]);
+      final int head = m.edge_corner[this.slot];
+      int corner = head;
+      do {
+        polygons.add(m.polygon_handle[m.corner_polygon[corner]]);
+        corner = m.corner_twin[corner];
+      } while (corner != head);
+      return Collections.unmodifiableSet(polygons);
+    }
+
+    @Override
+    public PolygonVertexType vertex0()
+    {
+      this.checkLive();
+      return this.mesh.vertexView(this.mesh.edge_vertex0[this.slot]);
+    }
+
+    @Override
+    public PolygonVertexType vertex1()
+    {
+      this.checkLive();
+      return this.mesh.vertexView(this.mesh.edge_vertex1[this.slot]);
+    }
+
+    @Override
+    public boolean isExternal()
+    {
+      this.checkLive();
+      return this.mesh.edge_polygon_count[this.slot] < 2;
+    }
+
+    @Override
+    public Vector2D normal()
+    {
+      this.checkLive();
+      return MeshPolygons.normal(
+        this.mesh.vertexPosition(this.mesh.edge_vertex0[this.slot]),
+        this.mesh.vertexPosition(this.mesh.edge_vertex1[this.slot]));
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      this.checkLive();
+      return MeshPolygons.edgeBounds(
+        this.mesh.vertexPosition(this.mesh.edge_vertex0[this.slot]),
+        this.mesh.vertexPosition(this.mesh.edge_vertex1[this.slot]));
+    }
+  }
+
+  private static final class Vertex implements PolygonVertexType
+  {
+    private final MeshCompact mesh;
+    private final int slot;
+    private final int generation;
+    private final long id;
+
+    Vertex(
+      final MeshCompact in_mesh,
+      final int in_slot,
+      final int in_generation,
+      final long in_id)
+    {
+      this.mesh = in_mesh;
+      this.slot = in_slot;
+      this.generation = in_generation;
+      this.id = in_id;
+    }
+
+    private void checkLive()
+    {
+      if (this.deleted()) {
+        throw new MeshExceptionVertexNonexistent(
+          String.format("Vertex %s has been deleted", this));
+      }
+    }
+
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder("[Vertex ");
+      sb.append(this.id);
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public boolean equals(
+      final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+
+      final Vertex vertex = (Vertex) o;
+      return this.mesh == vertex.mesh
+        && this.slot == vertex.slot
+        && this.generation == vertex.generation;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      int result = System.identityHashCode(this.mesh);
+      result = 31 * result + this.slot;
+      result = 31 * result + this.generation;
+      return result;
+    }
+
+    @Override
+    public PolygonVertexID id()
+    {
+      return PolygonVertexID.of(this.id);
+    }
+
+    @Override
+    public boolean deleted()
+    {
+      return this.mesh.vertex_generation[this.slot] != this.generation;
+    }
+
+    @Override
+    public Set<PolygonType> polygons()
+    {
+      this.checkLive();
+
+      final MeshCompact m = this.mesh;
+      final ReferenceOpenHashSet<PolygonType> polygons =
+        new ReferenceOpenHashSet<>(m.vertex_polygon_count[this.slot]);
+      for (int corner = m.vertex_corner[this.slot];
+           corner != NONE;
+           corner = m.corner_vertex_next[corner]) {
+        polygons.add(m.polygon_handle[m.corner_polygon[corner]]);
+      }
+      return Collections.unmodifiableSet(polygons);
+    }
+
+    @Override
+    public Vector2I position()
+    {
+      this.checkLive();
+      return this.mesh.vertexPosition(this.slot);
+    }
+  }
+}
@@ -208,19 +208,43 @@ public final class MeshEditing implements MeshEditingType
         this.exec.state().vertexFind(position);
 
       if (vertex_opt.isPresent()) {
-        final PolygonVertexType room_vertex = vertex_opt.get();
+        this.select(vertex_opt.get());
+        return true;
+      }
+
+      return false;
+    }
+
+    @Override
+    public boolean selectVertexNearest(
+      final Vector2I position,
+      final int radius)
+    {
+      notNull(position, "Position");
 
-        this.moving_vertex = new LaxVertex();
-        this.moving_vertex.original = room_vertex;
-        this.moving_vertex.position = room_vertex.position();
+      final PolygonVertexType[] nearest = new PolygonVertexType[1];
+      final int found =
+        this.exec.state().vertexNearest(
+          position.x(), position.y(), radius, nearest, new double[1]);
 
-        this.updatePolygonsAndPosition();
+      if (found > 0) {
+        this.select(nearest[0]);
         return true;
       }
 
       return false;
     }
 
+    private void select(
+      final PolygonVertexType room_vertex)
+    {
+      this.moving_vertex = new LaxVertex();
+      this.moving_vertex.original = room_vertex;
+      this.moving_vertex.position = room_vertex.position();
+
+      this.updatePolygonsAndPosition();
+    }
+
     private void updatePolygonsAndPosition()
     {
       this.polygons.clear();
@@ -16,6 +16,8 @@ public interface MeshEditingVertexMoverType
 
   boolean selectVertex(Vector2I position);
 
+  boolean selectVertexNearest(Vector2I position, int radius);
+
   List<TemporaryPolygonType> temporaryPolygons();
 
   interface TemporaryVertexType
@@ -0,0 +1,1156 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeConfigurationI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeIType;
+import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
+import com.io7m.jspatial.implementation.QuadTreeI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import it.unimi.dsi.fastutil.longs.Long2ReferenceOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArraySet;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * An immutable snapshot of a mesh, for rooms that are queried far more often
+ * than they are edited. Polygons are indexed by a packed, static R-tree
+ * rather than a quadtree, so that spatial queries walk flat arrays.
+ *
+ * @see #freeze(MeshReadableType)
+ */
+
+public final class MeshFrozen implements MeshReadableType
+{
+  private static final MeshPolygonIndexType.FilterType<Polygon>
+    POLYGON_ANY = (poly, x_min, x_max, y_min, y_max) -> true;
+  private static final MeshPolygonIndexType.FilterType<Polygon>
+    POLYGON_CONTAINS = MeshFrozen::polygonContains;
+
+  private final AreaI bounds;
+  private final List<PolygonType> polygons;
+  private final List<PolygonVertexType> vertices;
+  private final Long2ReferenceOpenHashMap<Polygon> polygons_by_id;
+  private final Long2ReferenceOpenHashMap<Vertex> vertices_by_id;
+  private final Long2ReferenceOpenHashMap<Vertex> vertices_by_position;
+  private final MeshPackedRTree<Polygon> polygons_index;
+  private final SegmentTopology segment_topology;
+  private final AtomicReference<Proximity> proximity_spare;
+  private @Nullable QuadTreeIType<PolygonType> polygons_tree;
+
+  private MeshFrozen(
+    final AreaI in_bounds,
+    final Polygon[] in_polygons,
+    final Vertex[] in_vertices)
+  {
+    this.bounds = NullCheck.notNull(in_bounds, "Bounds");
+    this.polygons = Collections.unmodifiableList(Arrays.asList(in_polygons));
+    this.vertices = Collections.unmodifiableList(Arrays.asList(in_vertices));
+
+    this.polygons_by_id = new Long2ReferenceOpenHashMap<>(in_polygons.length);
+    for (final Polygon p : in_polygons) {
+      this.polygons_by_id.put(p.id.value(), p);
+    }
+
+    this.vertices_by_id = new Long2ReferenceOpenHashMap<>(in_vertices.length);
+    for (final Vertex v : in_vertices) {
+      this.vertices_by_id.put(v.id.value(), v);
+    }
+    this.vertices_by_position = new Long2ReferenceOpenHashMap<>();
+
+    this.polygons_index =
+      MeshPackedRTree.create(
+        this.bounds, Arrays.asList(in_polygons), poly -> poly.bounds);
+    this.segment_topology =
+      new SegmentTopology(this.bounds, this.polygons_index);
+    this.proximity_spare =
+      new AtomicReference<>(new Proximity(this.bounds, this.polygons_index));
+  }
+
+  /**
+   * The area of a containment search is a single point, and the tree only
+   * passes polygons whose bounds contain it.
+   */
+
+  private static boolean polygonContains(
+    final Polygon poly,
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum)
+  {
+    return MeshPolygons.containsPointConvex(
+      poly, poly.winding, x_minimum, y_minimum);
+  }
+
+  /**
+   * Take an immutable snapshot of the given mesh. Later changes to the
+   * given mesh are not reflected in the snapshot.
+   *
+   * @param mesh The mesh
+   *
+   * @return A frozen copy of the mesh
+   */
+
+  public static MeshFrozen freeze(
+    final MeshReadableType mesh)
+  {
+    NullCheck.notNull(mesh, "Mesh");
+
+    final List<PolygonVertexType> source_vertices = mesh.verticesSorted();
+    final Vertex[] vertices = new Vertex[source_vertices.size()];
+    final HashMap<PolygonVertexID, Vertex> vertices_by_source =
+      new HashMap<>(source_vertices.size());
+    for (int index = 0; index < vertices.length; ++index) {
+      final PolygonVertexType v = source_vertices.get(index);
+      vertices[index] = new Vertex(v.id(), v.position());
+      vertices_by_source.put(v.id(), vertices[index]);
+    }
+
+    final List<PolygonType> source_polygons = mesh.polygonsSorted();
+    final Polygon[] polygons = new Polygon[source_polygons.size()];
+    final HashMap<PolygonEdgeType, Edge> edges_by_source = new HashMap<>();
+    final ReferenceArrayList<Edge> edges = new ReferenceArrayList<>();
+    for (int index = 0; index < polygons.length; ++index) {
+      final PolygonType p = source_polygons.get(index);
+      final List<PolygonVertexType> p_vertices = p.vertices();
+      final List<PolygonEdgeType> p_edges = p.edges();
+      final Polygon poly = new Polygon(p.id(), p.bounds(), p_vertices.size());
+
+      for (int v_index = 0; v_index < p_vertices.size(); ++v_index) {
+        final Vertex v = vertices_by_source.get(p_vertices.get(v_index).id());
+        poly.vertices[v_index] = v;
+        poly.xs[v_index] = v.position.x();
+        poly.ys[v_index] = v.position.y();
+      }
+      poly.winding = MeshPolygons.winding(poly);
+      poly.area = MeshPolygons.areaSigned(poly);
+      poly.barycenter = MeshPolygons.barycenter(poly);
+
+      for (int e_index = 0; e_index < p_edges.size(); ++e_index) {
+        final PolygonEdgeType source = p_edges.get(e_index);
+        Edge edge = edges_by_source.get(source);
+        if (edge == null) {
+          edge = new Edge(
+            vertices_by_source.get(source.vertex0().id()),
+            vertices_by_source.get(source.vertex1().id()));
+          edges_by_source.put(source, edge);
+          edges.add(edge);
+        }
+        poly.edges[e_index] = edge;
+      }
+      polygons[index] = poly;
+    }
+
+    //
+    // Fill in the incidence sets now that every element exists. Edges
+    // incident to each vertex are listed in the order given by the source
+    // mesh.
+    //
+
+    for (final Polygon poly : polygons) {
+      for (final Vertex v : poly.vertices) {
+        if (v.owner == null) {
+          v.owner = poly;
+        }
+        v.polygons_building.add(poly);
+      }
+      for (final Edge e : poly.edges) {
+        e.polygons_building.add(poly);
+      }
+    }
+    for (final Vertex v : vertices) {
+      v.polygons_view = freezeSet(v.polygons_building.toArray(
+        new PolygonType[v.polygons_building.size()]));
+      v.polygons_building = null;
+
+      final List<PolygonEdgeType> source_edges = mesh.vertexEdges(v.id);
+      final ReferenceArrayList<PolygonEdgeType> v_edges =
+        new ReferenceArrayList<>(source_edges.size());
+      for (int index = 0; index < source_edges.size(); ++index) {
+        final Edge edge = edges_by_source.get(source_edges.get(index));
+        if (edge != null) {
+          v_edges.add(edge);
+        }
+      }
+      v.edges = Collections.unmodifiableList(v_edges);
+    }
+
+    //
+    // Record the polygon across each edge of each polygon, so that walks
+    // through the mesh need not consult the incidence sets.
+    //
+
+    for (final Polygon poly : polygons) {
+      for (int e_index = 0; e_index < poly.edges.length; ++e_index) {
+        final ObjectArrayList<PolygonType> e_polygons =
+          poly.edges[e_index].polygons_building;
+        for (int index = 0; index < e_polygons.size(); ++index) {
+          final PolygonType other = e_polygons.get(index);
+          if (other != poly) {
+            poly.neighbours[e_index] = (Polygon) other;
+            break;
+          }
+        }
+      }
+    }
+
+    for (final Edge e : edges) {
+      e.polygons = e.polygons_building.toArray(
+        new PolygonType[e.polygons_building.size()]);
+      e.polygons_view = freezeSet(e.polygons);
+      e.polygons_building = null;
+    }
+
+    final MeshFrozen frozen =
+      new MeshFrozen(mesh.bounds(), polygons, vertices);
+
+    //
+    // Where several vertices share a position, the source mesh decides which
+    // of them is found.
+    //
+
+    for (final Vertex v : vertices) {
+      final long key = positionKey(v.position.x(), v.position.y());
+      if (!frozen.vertices_by_position.containsKey(key)) {
+        final Optional<PolygonVertexType> found = mesh.vertexFind(v.position);
+        if (found.isPresent()) {
+          frozen.vertices_by_position.put(
+            key, vertices_by_source.get(found.get().id()));
+        }
+      }
+    }
+    return frozen;
+  }
+
+  private static Set<PolygonType> freezeSet(
+    final PolygonType[] items)
+  {
+    return Collections.unmodifiableSet(new ReferenceArraySet<>(items));
+  }
+
+  private static long positionKey(
+    final int x,
+    final int y)
+  {
+    return ((long) x << 32) | ((long) y & 0xffffffffL);
+  }
+
+  @Override
+  public boolean forEachPolygonOverlapping(
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x_minimum,
+      x_maximum,
+      y_minimum,
+      y_maximum,
+      POLYGON_ANY,
+      receiver) == null;
+  }
+
+  @Override
+  public boolean forEachPolygonContaining(
+    final int x,
+    final int y,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+
+    return this.polygons_index.search(
+      x, x, y, y, POLYGON_CONTAINS, receiver) == null;
+  }
+
+  @Override
+  public boolean forEachVertexWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonVertexType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.verticesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public boolean forEachEdgeWithin(
+    final int x,
+    final int y,
+    final int radius,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    NullCheck.notNull(receiver, "Receiver");
+    checkRadius(radius);
+
+    final Proximity query = this.proximityTake();
+    try {
+      return query.edgesWithin(x, y, radius, receiver);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public int vertexNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonVertexType[] vertices,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(vertices, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      query.verticesNearest(x, y, vertices.length, radius);
+      return query.nearest.copy(vertices, distances);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  @Override
+  public int edgeNearest(
+    final int x,
+    final int y,
+    final int radius,
+    final PolygonEdgeType[] edges,
+    final double[] distances)
+  {
+    MeshNearest.checkArrays(edges, distances);
+
+    final Proximity query = this.proximityTake();
+    try {
+      query.edgesNearest(x, y, edges.length, radius);
+      return query.nearest.copy(edges, distances);
+    } finally {
+      this.proximityGive(query);
+    }
+  }
+
+  /**
+   * Take the spare proximity query state, or create new state if another
+   * query is using it.
+   */
+
+  private Proximity proximityTake()
+  {
+    final Proximity query = this.proximity_spare.getAndSet(null);
+    if (query != null) {
+      return query;
+    }
+    return new Proximity(this.bounds, this.polygons_index);
+  }
+
+  private void proximityGive(
+    final Proximity query)
+  {
+    query.clear();
+    this.proximity_spare.set(query);
+  }
+
+  @Override
+  public boolean forEachSegmentHit(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final DistanceReceiverType<? super PolygonEdgeType> receiver)
+  {
+    return MeshSegmentCast.cast(
+      this.segment_topology, x0, y0, x1, y1, receiver);
+  }
+
+  @Override
+  public Optional<MeshSegmentHit> segmentCast(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1)
+  {
+    return MeshSegmentCast.first(this.segment_topology, x0, y0, x1, y1);
+  }
+
+  /**
+   * Edge {@code index} of a polygon joins vertex {@code index} to the next
+   * vertex.
+   */
+
+  private static double edgeDistance(
+    final Polygon poly,
+    final int index,
+    final int x,
+    final int y)
+  {
+    final int next = index + 1 == poly.xs.length ? 0 : index + 1;
+    return MeshPolygons.distanceToSegment(
+      poly.xs[index], poly.ys[index], poly.xs[next], poly.ys[next], x, y);
+  }
+
+  private static void checkRadius(
+    final int radius)
+  {
+    Preconditions.checkPreconditionI(
+      radius, radius >= 0, r -> "Radius must be non-negative");
+  }
+
+  @Override
+  public Collection<PolygonType> polygons()
+  {
+    return this.polygons;
+  }
+
+  @Override
+  public List<PolygonType> polygonsSorted()
+  {
+    return this.polygons;
+  }
+
+  @Override
+  public AreaI bounds()
+  {
+    return this.bounds;
+  }
+
+  /**
+   * The frozen mesh does not use a quadtree for its own queries. A quadtree
+   * is built on the first call to this method, for compatibility with code
+   * that expects one.
+   */
+
+  @Override
+  public synchronized QuadTreeReadableIType<PolygonType> polygonTree()
+  {
+    if (this.polygons_tree == null) {
+      final QuadTreeIType<PolygonType> tree =
+        QuadTreeI.create(
+          QuadTreeConfigurationI.of(
+            this.bounds, 16, 16, true));
+      for (final PolygonType p : this.polygons) {
+        tree.insert(p, p.bounds());
+      }
+      this.polygons_tree = tree;
+    }
+    return this.polygons_tree;
+  }
+
+  @Override
+  public Optional<PolygonVertexType> vertexFind(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+    return Optional.ofNullable(
+      this.vertices_by_position.get(
+        positionKey(position.x(), position.y())));
+  }
+
+  @Override
+  public Optional<PolygonType> polygonFind(
+    final Vector2I position)
+  {
+    NullCheck.notNull(position, "Position");
+
+    final int x = position.x();
+    final int y = position.y();
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  @Override
+  public Optional<PolygonType> polygonFindFrom(
+    final PolygonID hint,
+    final Vector2I position)
+  {
+    NullCheck.notNull(hint, "Hint");
+    NullCheck.notNull(position, "Position");
+
+    final int x = position.x();
+    final int y = position.y();
+
+    Polygon current = this.polygons_by_id.get(hint.value());
+    for (int step = 0;
+         current != null && step < MeshPolygons.WALK_STEPS_MAXIMUM;
+         ++step) {
+      if (current.winding == 0) {
+        break;
+      }
+
+      final int exit =
+        MeshPolygons.exitEdge(current, current.winding, x, y);
+      if (exit == -1) {
+        return Optional.of(current);
+      }
+      current = current.neighbours[exit];
+    }
+
+    return Optional.ofNullable(this.polygonFindPoint(x, y));
+  }
+
+  @Override
+  public void polygonFindAll(
+    final int[] xs,
+    final int[] ys,
+    final long[] results)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      POLYGON_CONTAINS,
+      xs,
+      ys,
+      results,
+      Optional.empty());
+  }
+
+  @Override
+  public void polygonFindAllParallel(
+    final int[] xs,
+    final int[] ys,
+    final long[] results,
+    final ForkJoinPool pool)
+  {
+    MeshBatchLocate.locate(
+      this.bounds,
+      this::polygonFindPoint,
+      POLYGON_CONTAINS,
+      xs,
+      ys,
+      results,
+      Optional.of(NullCheck.notNull(pool, "Pool")));
+  }
+
+  private @Nullable Polygon polygonFindPoint(
+    final int x,
+    final int y)
+  {
+    return this.polygons_index.search(x, x, y, y, POLYGON_CONTAINS, null);
+  }
+
+  @Override
+  public Collection<PolygonVertexType> vertices()
+  {
+    return this.vertices;
+  }
+
+  @Override
+  public List<PolygonVertexType> verticesSorted()
+  {
+    return this.vertices;
+  }
+
+  @Override
+  public Optional<PolygonEdgeType> edgeFind(
+    final PolygonVertexID vertex0,
+    final PolygonVertexID vertex1)
+  {
+    NullCheck.notNull(vertex0, "Vertex 0");
+    NullCheck.notNull(vertex1, "Vertex 1");
+
+    final Vertex v0 = this.checkVertexExists(vertex0);
+    final Vertex v1 = this.checkVertexExists(vertex1);
+    final List<PolygonEdgeType> edges =
+      v0.edges.size() <= v1.edges.size() ? v0.edges : v1.edges;
+    for (int index = 0; index < edges.size(); ++index) {
+      final PolygonEdgeType e = edges.get(index);
+      if ((e.vertex0() == v0 && e.vertex1() == v1)
+        || (e.vertex0() == v1 && e.vertex1() == v0)) {
+        return Optional.of(e);
+      }
+    }
+    return Optional.empty();
+  }
+
+  @Override
+  public List<PolygonEdgeType> vertexEdges(
+    final PolygonVertexID vertex)
+  {
+    NullCheck.notNull(vertex, "Vertex");
+    return this.checkVertexExists(vertex).edges;
+  }
+
+  @Override
+  public List<PolygonType> polygonNeighbours(
+    final PolygonID polygon)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+
+    final Polygon poly = this.checkPolygonExists(polygon);
+    final ReferenceArrayList<PolygonType> neighbours =
+      new ReferenceArrayList<>(poly.edges.length);
+    forEachNeighbour(poly, q -> {
+      if (!neighbours.contains(q)) {
+        neighbours.add(q);
+      }
+      return true;
+    });
+    return Collections.unmodifiableList(neighbours);
+  }
+
+  @Override
+  public boolean forEachPolygonNeighbour(
+    final PolygonID polygon,
+    final Predicate<? super PolygonType> receiver)
+  {
+    NullCheck.notNull(polygon, "Polygon");
+    NullCheck.notNull(receiver, "Receiver");
+
+    return forEachNeighbour(this.checkPolygonExists(polygon), receiver);
+  }
+
+  private static boolean forEachNeighbour(
+    final Polygon poly,
+    final Predicate<? super PolygonType> receiver)
+  {
+    for (final Edge e : poly.edges) {
+      final PolygonType[] e_polygons = e.polygons;
+      for (int index = 0; index < e_polygons.length; ++index) {
+        final PolygonType q = e_polygons[index];
+        if (q != poly && !receiver.test(q)) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  private Polygon checkPolygonExists(
+    final PolygonID polygon)
+  {
+    final Polygon poly = this.polygons_by_id.get(polygon.value());
+    if (poly == null) {
+      throw new MeshExceptionPolygonNonexistent(
+        String.format(
+          "Polygon %s does not exist", Long.valueOf(polygon.value())));
+    }
+    return poly;
+  }
+
+  private Vertex checkVertexExists(
+    final PolygonVertexID v)
+  {
+    final Vertex vertex = this.vertices_by_id.get(v.value());
+    if (vertex != null) {
+      return vertex;
+    }
+
+    throw new MeshExceptionVertexNonexistent(
+      String.format("Vertex %s does not exist", v));
+  }
+
+  /**
+   * The state of a proximity query. The functions given to the polygon
+   * index are created once with the state rather than for each query, and
+   * the state is reused by successive queries. Each vertex and edge is
+   * reported only from its owner: the first polygon that has the vertex,
+   * and the first polygon that has the edge.
+   */
+
+  private static final class Proximity implements MeshNearest.SearchType
+  {
+    private final AreaI bounds;
+    private final MeshPackedRTree<Polygon> index;
+    private final MeshNearest nearest;
+    private final Predicate<Polygon> vertices_within;
+    private final Predicate<Polygon> edges_within;
+    private final Predicate<Polygon> vertices_nearest;
+    private final Predicate<Polygon> edges_nearest;
+    private @Nullable Predicate<Polygon> visitor;
+    private @Nullable DistanceReceiverType<? super PolygonVertexType>
+      vertex_receiver;
+    private @Nullable DistanceReceiverType<? super PolygonEdgeType>
+      edge_receiver;
+    private int x;
+    private int y;
+    private int radius;
+
+    Proximity(
+      final AreaI in_bounds,
+      final MeshPackedRTree<Polygon> in_index)
+    {
+      this.bounds = in_bounds;
+      this.index = in_index;
+      this.nearest = new MeshNearest();
+      this.vertices_within = this::visitVerticesWithin;
+      this.edges_within = this::visitEdgesWithin;
+      this.vertices_nearest = this::visitVerticesNearest;
+      this.edges_nearest = this::visitEdgesNearest;
+    }
+
+    boolean verticesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonVertexType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.vertex_receiver = receiver;
+      this.visitor = this.vertices_within;
+      return MeshNearest.within(
+        this.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    boolean edgesWithin(
+      final int in_x,
+      final int in_y,
+      final int in_radius,
+      final DistanceReceiverType<? super PolygonEdgeType> receiver)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.radius = in_radius;
+      this.edge_receiver = receiver;
+      this.visitor = this.edges_within;
+      return MeshNearest.within(
+        this.bounds, in_x, in_y, (long) in_radius, this);
+    }
+
+    void verticesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.vertices_nearest;
+      this.nearest.find(this.bounds, in_x, in_y, this);
+    }
+
+    void edgesNearest(
+      final int in_x,
+      final int in_y,
+      final int limit,
+      final int in_radius)
+    {
+      this.x = in_x;
+      this.y = in_y;
+      this.nearest.begin(limit, in_radius);
+      this.visitor = this.edges_nearest;
+      this.nearest.find(this.bounds, in_x, in_y, this);
+    }
+
+    void clear()
+    {
+      this.nearest.clear();
+      this.visitor = null;
+      this.vertex_receiver = null;
+      this.edge_receiver = null;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum)
+    {
+      return this.index.search(
+        x_minimum, x_maximum, y_minimum, y_maximum, POLYGON_ANY, this.visitor)
+        == null;
+    }
+
+    private boolean visitVerticesWithin(
+      final Polygon poly)
+    {
+      final DistanceReceiverType<? super PolygonVertexType> receiver =
+        this.vertex_receiver;
+      for (int index = 0; index < poly.vertices.length; ++index) {
+        final Vertex v = poly.vertices[index];
+        if (v.owner == poly) {
+          final double distance = MeshPolygons.distance(
+            poly.xs[index], poly.ys[index], this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(v, distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesWithin(
+      final Polygon poly)
+    {
+      final DistanceReceiverType<? super PolygonEdgeType> receiver =
+        this.edge_receiver;
+      for (int index = 0; index < poly.edges.length; ++index) {
+        final Edge e = poly.edges[index];
+        if (e.polygons[0] == poly) {
+          final double distance = edgeDistance(poly, index, this.x, this.y);
+          if (distance <= (double) this.radius
+            && !receiver.receive(e, distance)) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    private boolean visitVerticesNearest(
+      final Polygon poly)
+    {
+      for (int index = 0; index < poly.vertices.length; ++index) {
+        final Vertex v = poly.vertices[index];
+        if (v.owner == poly) {
+          this.nearest.offer(v, MeshPolygons.distance(
+            poly.xs[index], poly.ys[index], this.x, this.y));
+        }
+      }
+      return true;
+    }
+
+    private boolean visitEdgesNearest(
+      final Polygon poly)
+    {
+      for (int index = 0; index < poly.edges.length; ++index) {
+        final Edge e = poly.edges[index];
+        if (e.polygons[0] == poly) {
+          this.nearest.offer(e, edgeDistance(poly, index, this.x, this.y));
+        }
+      }
+      return true;
+    }
+  }
+
+  private static final class SegmentTopology
+    implements MeshSegmentCast.TopologyType<Polygon>
+  {
+    private final AreaI bounds;
+    private final MeshPackedRTree<Polygon> index;
+
+    SegmentTopology(
+      final AreaI in_bounds,
+      final MeshPackedRTree<Polygon> in_index)
+    {
+      this.bounds = in_bounds;
+      this.index = in_index;
+    }
+
+    @Override
+    public int winding(
+      final Polygon polygon)
+    {
+      return polygon.winding;
+    }
+
+    @Override
+    public @Nullable Polygon neighbour(
+      final Polygon polygon,
+      final int edge)
+    {
+      return polygon.neighbours[edge];
+    }
+
+    @Override
+    public PolygonEdgeType edge(
+      final Polygon polygon,
+      final int edge)
+    {
+      return polygon.edges[edge];
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      return this.bounds;
+    }
+
+    @Override
+    public boolean search(
+      final int x_minimum,
+      final int x_maximum,
+      final int y_minimum,
+      final int y_maximum,
+      final Predicate<? super Polygon> receiver)
+    {
+      return this.index.search(
+        x_minimum, x_maximum, y_minimum, y_maximum, POLYGON_ANY, receiver)
+        == null;
+    }
+  }
+
+  private static final class Polygon
+    implements PolygonType, MeshPolygons.PositionsType
+  {
+    private final PolygonID id;
+    private final AreaI bounds;
+    private final Vertex[] vertices;
+    private final Edge[] edges;
+    private final Polygon[] neighbours;
+    private final int[] xs;
+    private final int[] ys;
+    private final List<PolygonVertexType> vertices_view;
+    private final List<PolygonEdgeType> edges_view;
+    private final List<Vector2I> positions_view;
+    private int winding;
+    private double area;
+    private Vector2D barycenter;
+
+    Polygon(
+      final PolygonID in_id,
+      final AreaI in_bounds,
+      final int count)
+    {
+      this.id = NullCheck.notNull(in_id, "ID");
+      this.bounds = NullCheck.notNull(in_bounds, "Bounds");
+      this.vertices = new Vertex[count];
+      this.edges = new Edge[count];
+      this.neighbours = new Polygon[count];
+      this.xs = new int[count];
+      this.ys = new int[count];
+      this.vertices_view =
+        Collections.unmodifiableList(Arrays.asList(this.vertices));
+      this.edges_view =
+        Collections.unmodifiableList(Arrays.asList(this.edges));
+      this.positions_view = new AbstractList<Vector2I>()
+      {
+        @Override
+        public Vector2I get(
+          final int index)
+        {
+          return Polygon.this.vertices[index].position;
+        }
+
+        @Override
+        public int size()
+        {
+          return Polygon.this.vertices.length;
+        }
+      };
+    }
+
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder("[Polygon ");
+      sb.append(this.id.value());
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public PolygonID id()
+    {
+      return this.id;
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      return this.bounds;
+    }
+
+    @Override
+    public boolean deleted()
+    {
+      return false;
+    }
+
+    @Override
+    public List<PolygonEdgeType> edges()
+    {
+      return this.edges_view;
+    }
+
+    @Override
+    public List<PolygonVertexType> vertices()
+    {
+      return this.vertices_view;
+    }
+
+    @Override
+    public List<Vector2I> positions()
+    {
+      return this.positions_view;
+    }
+
+    @Override
+    public double area()
+    {
+      return this.area;
+    }
+
+    @Override
+    public Vector2D barycenter()
+    {
+      return this.barycenter;
+    }
+
+    @Override
+    public int positionCount()
+    {
+      return this.xs.length;
+    }
+
+    @Override
+    public int positionX(
+      final int index)
+    {
+      return this.xs[index];
+    }
+
+    @Override
+    public int positionY(
+      final int index)
+    {
+      return this.ys[index];
+    }
+  }
+
+  private static final class Edge implements PolygonEdgeType
+  {
+    private final Vertex vertex0;
+    private final Vertex vertex1;
+    private final Vector2D normal;
+    private final AreaI bounds;
+    private @Nullable ObjectArrayList<PolygonType> polygons_building;
+    private PolygonType[] polygons;
+    private Set<PolygonType> polygons_view;
+
+    Edge(
+      final Vertex in_vertex0,
+      final Vertex in_vertex1)
+    {
+      this.vertex0 = NullCheck.notNull(in_vertex0, "Vertex 0");
+      this.vertex1 = NullCheck.notNull(in_vertex1, "Vertex 1");
+      this.normal =
+        MeshPolygons.normal(this.vertex0.position, this.vertex1.position);
+      this.bounds =
+        MeshPolygons.edgeBounds(this.vertex0.position, this.vertex1.position);
+      this.polygons_building = new ObjectArrayList<>(2);
+      this.polygons = new PolygonType[0];
+      this.polygons_view = Collections.emptySet();
+    }
+
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder("[Edge ");
+      sb.append(this.vertex0.id.value());
+      sb.append(" ");
+      sb.append(this.vertex1.id.value());
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public Set<PolygonType> polygons()
+    {
+      return this.polygons_view;
+    }
+
+    @Override
+    public PolygonVertexType vertex0()
+    {
+      return this.vertex0;
+    }
+
+    @Override
+    public PolygonVertexType vertex1()
+    {
+      return this.vertex1;
+    }
+
+    @Override
+    public boolean isExternal()
+    {
+      return this.polygons_view.size() < 2;
+    }
+
+    @Override
+    public Vector2D normal()
+    {
+      return this.normal;
+    }
+
+    @Override
+    public AreaI bounds()
+    {
+      return this.bounds;
+    }
+  }
+
+  private static final class Vertex implements PolygonVertexType
+  {
+    private final PolygonVertexID id;
+    private final Vector2I position;
+    private @Nullable ObjectArrayList<PolygonType> polygons_building;
+    private @Nullable Polygon owner;
+    private Set<PolygonType> polygons_view;
+    private List<PolygonEdgeType> edges;
+
+    Vertex(
+      final PolygonVertexID in_id,
+      final Vector2I in_position)
+    {
+      this.id = NullCheck.notNull(in_id, "ID");
+      this.position = NullCheck.notNull(in_position, "Position");
+      this.polygons_building = new ObjectArrayList<>(4);
+      this.polygons_view = Collections.emptySet();
+      this.edges = Collections.emptyList();
+    }
+
+    @Override
+    public String toString()
+    {
+      final StringBuilder sb = new StringBuilder("[Vertex ");
+      sb.append(this.id.value());
+      sb.append("]");
+      return sb.toString();
+    }
+
+    @Override
+    public PolygonVertexID id()
+    {
+      return this.id;
+    }
+
+    @Override
+    public boolean deleted()
+    {
+      return false;
+    }
+
+    @Override
+    public Set<PolygonType> polygons()
+    {
+      return this.polygons_view;
+    }
+
+    @Override
+    public Vector2I position()
+    {
+      return this.position;
+    }
+  }
+}
@@ -0,0 +1,40 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.roommodel0.RoomImmutableStyleType;
+import org.immutables.value.Value;
+
+import java.util.OptionalInt;
+
+/**
+ * The configuration of the spatial index of a mesh.
+ */
+
+@RoomImmutableStyleType
+@Value.Immutable
+public interface MeshIndexConfigurationType
+{
+  /**
+   * @return The kind of index
+   */
+
+  @Value.Parameter
+  MeshIndexKind kind();
+
+  /**
+   * @return The side length of each grid cell, for
+   * {@link MeshIndexKind#MESH_INDEX_GRID}. If no size is given, the size
+   * follows the mean size of the polygons in the mesh, and the grid is
+   * rebuilt as polygons are added.
+   */
+
+  OptionalInt gridCellSize();
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    this.gridCellSize().ifPresent(
+      size -> Preconditions.checkPreconditionI(
+        size, size > 0, n -> "Grid cell size must be positive"));
+  }
+}
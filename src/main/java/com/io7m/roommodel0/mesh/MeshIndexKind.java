@@ -0,0 +1,22 @@
+package com.io7m.roommodel0.mesh;
+
+/**
+ * The kinds of spatial index that a mesh can use for its polygons.
+ */
+
+public enum MeshIndexKind
+{
+  /**
+   * A quadtree. Suitable for any distribution of polygon sizes.
+   */
+
+  MESH_INDEX_QUADTREE,
+
+  /**
+   * A uniform grid of buckets. Point and small area queries visit a single
+   * bucket, and so are fast when polygons are of roughly similar sizes, as
+   * in rooms built on a snapping grid.
+   */
+
+  MESH_INDEX_GRID
+}
@@ -0,0 +1,341 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+
+import java.util.Arrays;
+
+/**
+ * The nearest items to a point found so far, in order of increasing
+ * distance. This is the shared part of the proximity queries of all meshes.
+ *
+ * Meshes find items near a point by searching their polygon index with a
+ * square centered on the point. A vertex or edge within a given distance of
+ * the point lies, at least in part, inside the square of that half-width
+ * around the point, and so every polygon that has the item overlaps the
+ * square. Meshes therefore report each item only from one polygon that has
+ * it, its owner, rather than remembering the items already reported. An
+ * item can be missed only when it lies further from the point than the
+ * half-width of the square.
+ *
+ * Nearest item queries search with a small square, and double its size
+ * until the items found are known to be the nearest. An accumulator is
+ * reused across queries: it keeps items either as objects or as the slots
+ * of meshes that store their elements in arrays, so that such meshes only
+ * create objects for the items that are returned.
+ */
+
+final class MeshNearest
+{
+  /**
+   * The half-width of the first square searched by a nearest item query.
+   */
+
+  static final int SEARCH_RADIUS_INITIAL = 8;
+
+  private Object[] items;
+  private int[] slots;
+  private double[] distances;
+  private int limit;
+  private int radius;
+  private int count;
+
+  /**
+   * Create an empty accumulator.
+   */
+
+  MeshNearest()
+  {
+    this.items = new Object[0];
+    this.slots = new int[0];
+    this.distances = new double[0];
+  }
+
+  /**
+   * Start a query that keeps at most {@code limit} items within the given
+   * distance.
+   *
+   * @param in_limit  The maximum number of items
+   * @param in_radius The maximum distance
+   */
+
+  void begin(
+    final int in_limit,
+    final int in_radius)
+  {
+    Preconditions.checkPreconditionI(
+      in_radius,
+      in_radius >= 0,
+      r -> "Radius must be non-negative");
+
+    if (this.distances.length < in_limit) {
+      this.items = new Object[in_limit];
+      this.slots = new int[in_limit];
+      this.distances = new double[in_limit];
+    }
+    this.limit = in_limit;
+    this.radius = in_radius;
+    this.count = 0;
+  }
+
+  /**
+   * Forget the items of the current query, so that the accumulator does not
+   * keep them reachable.
+   */
+
+  void clear()
+  {
+    Arrays.fill(this.items, 0, this.limit, null);
+    this.count = 0;
+  }
+
+  /**
+   * @param distance The distance of a candidate
+   *
+   * @return {@code true} iff a candidate at the given distance would be kept
+   */
+
+  boolean accepts(
+    final double distance)
+  {
+    if (distance > (double) this.radius) {
+      return false;
+    }
+    return this.count < this.limit
+      || distance < this.distances[this.limit - 1];
+  }
+
+  /**
+   * Keep the given item if it is nearer than the items kept so far. Each
+   * item must be offered at most once for each square searched.
+   *
+   * @param item     The item
+   * @param distance The distance of the item
+   */
+
+  void offer(
+    final Object item,
+    final double distance)
+  {
+    final int index = this.place(distance);
+    if (index >= 0) {
+      this.items[index] = item;
+    }
+  }
+
+  /**
+   * Keep the item in the given slot if it is nearer than the items kept so
+   * far. Each item must be offered at most once for each square searched.
+   *
+   * @param slot     The slot of the item
+   * @param distance The distance of the item
+   */
+
+  void offerSlot(
+    final int slot,
+    final double distance)
+  {
+    final int index = this.place(distance);
+    if (index >= 0) {
+      this.slots[index] = slot;
+    }
+  }
+
+  private int place(
+    final double distance)
+  {
+    if (!this.accepts(distance)) {
+      return -1;
+    }
+
+    int index = Math.min(this.count, this.limit - 1);
+    while (index > 0 && this.distances[index - 1] > distance) {
+      this.items[index] = this.items[index - 1];
+      this.slots[index] = this.slots[index - 1];
+      this.distances[index] = this.distances[index - 1];
+      --index;
+    }
+    this.distances[index] = distance;
+    this.count = Math.min(this.count + 1, this.limit);
+    return index;
+  }
+
+  /**
+   * @param index The index of a kept item
+   *
+   * @return The slot of the kept item
+   */
+
+  int slot(
+    final int index)
+  {
+    return this.slots[index];
+  }
+
+  /**
+   * @param index The index of a kept item
+   *
+   * @return The distance of the kept item
+   */
+
+  double distance(
+    final int index)
+  {
+    return this.distances[index];
+  }
+
+  /**
+   * Copy the items kept as objects to the given arrays, and set the rest of
+   * the given item array to {@code null}.
+   *
+   * @param out_items     The array that receives the items
+   * @param out_distances The array that receives the distances
+   * @param <T>           The type of items
+   *
+   * @return The number of items kept
+   */
+
+  @SuppressWarnings("unchecked")
+  <T> int copy(
+    final T[] out_items,
+    final double[] out_distances)
+  {
+    for (int index = 0; index < this.count; ++index) {
+      out_items[index] = (T) this.items[index];
+      out_distances[index] = this.distances[index];
+    }
+    Arrays.fill(out_items, this.count, out_items.length, null);
+    return this.count;
+  }
+
+  /**
+   * Check the arrays given to a nearest item query.
+   *
+   * @param out_items     The array that receives the items
+   * @param out_distances The array that receives the distances
+   */
+
+  static void checkArrays(
+    final Object[] out_items,
+    final double[] out_distances)
+  {
+    NullCheck.notNull(out_items, "Items");
+    NullCheck.notNull(out_distances, "Distances");
+
+    Preconditions.checkPreconditionI(
+      out_distances.length,
+      out_distances.length == out_items.length,
+      n -> "Distance count must match the item count");
+  }
+
+  /**
+   * Find the nearest items to the given point, searching with successively
+   * larger squares until the nearest items are known.
+   *
+   * @param bounds The bounds of the mesh
+   * @param x      The X coordinate of the point
+   * @param y      The Y coordinate of the point
+   * @param search A function that offers every item within a square to this
+   *               accumulator, from the item's owner
+   *
+   * @return The number of items found
+   */
+
+  int find(
+    final AreaI bounds,
+    final int x,
+    final int y,
+    final SearchType search)
+  {
+    NullCheck.notNull(bounds, "Bounds");
+    NullCheck.notNull(search, "Search");
+
+    final int limit = this.limit;
+    if (limit == 0) {
+      return 0;
+    }
+
+    long half = (long) Math.min(SEARCH_RADIUS_INITIAL, this.radius);
+    while (true) {
+      this.count = 0;
+      within(bounds, x, y, half, search);
+
+      //
+      // Every item within the half-width of the square has been seen, so the
+      // search is complete if the furthest item kept is no further away than
+      // that. Otherwise, the search is complete only if the square could not
+      // have grown to find anything else.
+      //
+
+      if (this.count == limit && this.distances[limit - 1] <= (double) half) {
+        break;
+      }
+      if (half >= (long) this.radius || covers(bounds, x, y, half)) {
+        break;
+      }
+      half = Math.min((long) this.radius, half * 2L);
+    }
+    return this.count;
+  }
+
+  /**
+   * Search the part of the mesh covered by the square with the given
+   * half-width around the given point.
+   *
+   * @param bounds The bounds of the mesh
+   * @param x      The X coordinate of the point
+   * @param y      The Y coordinate of the point
+   * @param half   The half-width of the square
+   * @param search The search function
+   *
+   * @return {@code false} iff the search function terminated the search
+   */
+
+  static boolean within(
+    final AreaI bounds,
+    final int x,
+    final int y,
+    final long half,
+    final SearchType search)
+  {
+    final long x_minimum = Math.max((long) bounds.minimumX(), (long) x - half);
+    final long x_maximum = Math.min((long) bounds.maximumX(), (long) x + half);
+    final long y_minimum = Math.max((long) bounds.minimumY(), (long) y - half);
+    final long y_maximum = Math.min((long) bounds.maximumY(), (long) y + half);
+    if (x_minimum > x_maximum || y_minimum > y_maximum) {
+      return true;
+    }
+    return search.search(
+      (int) x_minimum, (int) x_maximum, (int) y_minimum, (int) y_maximum);
+  }
+
+  private static boolean covers(
+    final AreaI bounds,
+    final int x,
+    final int y,
+    final long half)
+  {
+    return (long) x - half <= (long) bounds.minimumX()
+      && (long) x + half >= (long) bounds.maximumX()
+      && (long) y - half <= (long) bounds.minimumY()
+      && (long) y + half >= (long) bounds.maximumY();
+  }
+
+  /**
+   * A function that searches the polygons overlapping a closed area.
+   */
+
+  interface SearchType
+  {
+    /**
+     * @return {@code false} iff the search was terminated
+     */
+
+    boolean search(
+      int x_minimum,
+      int x_maximum,
+      int y_minimum,
+      int y_maximum);
+  }
+}
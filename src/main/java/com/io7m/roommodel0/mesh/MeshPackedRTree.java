@@ -0,0 +1,328 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A static R-tree, packed into flat arrays. Items are sorted along a Hilbert
+ * curve by the centers of their bounds and grouped into nodes of
+ * {@link #NODE_SIZE} entries, level by level, up to a single root. The tree
+ * cannot be modified after construction.
+ *
+ * Bounds are closed: an item overlaps an area if they share at least one
+ * point, including points on their boundaries.
+ *
+ * @param <T> The type of items
+ */
+
+final class MeshPackedRTree<T>
+{
+  /**
+   * The maximum number of children of each node.
+   */
+
+  static final int NODE_SIZE = 16;
+
+  private static final int HILBERT_BITS = 15;
+  private static final int HILBERT_MAXIMUM = (1 << HILBERT_BITS) - 1;
+
+  private final Object[] items;
+  private final int[] level_starts;
+  private final int[] x_min;
+  private final int[] x_max;
+  private final int[] y_min;
+  private final int[] y_max;
+
+  private MeshPackedRTree(
+    final Object[] in_items,
+    final int[] in_level_starts)
+  {
+    this.items = in_items;
+    this.level_starts = in_level_starts;
+
+    final int entries = in_level_starts[in_level_starts.length - 1];
+    this.x_min = new int[entries];
+    this.x_max = new int[entries];
+    this.y_min = new int[entries];
+    this.y_max = new int[entries];
+  }
+
+  /**
+   * Build a tree over the given items.
+   *
+   * @param extent The area containing all items, used to scale the Hilbert
+   *               curve
+   * @param items  The items
+   * @param bounds A function that returns the bounds of each item
+   * @param <T>    The type of items
+   *
+   * @return A new tree
+   */
+
+  static <T> MeshPackedRTree<T> create(
+    final AreaI extent,
+    final List<? extends T> items,
+    final Function<? super T, AreaI> bounds)
+  {
+    NullCheck.notNull(extent, "Extent");
+    NullCheck.notNull(items, "Items");
+    NullCheck.notNull(bounds, "Bounds");
+
+    final int count = items.size();
+    final AreaI[] areas = new AreaI[count];
+    final long[] keys = new long[count];
+    for (int index = 0; index < count; ++index) {
+      final AreaI area = bounds.apply(items.get(index));
+      areas[index] = area;
+      final long x = hilbertScale(
+        extent.minimumX(),
+        extent.maximumX(),
+        (long) area.minimumX() + (long) area.maximumX());
+      final long y = hilbertScale(
+        extent.minimumY(),
+        extent.maximumY(),
+        (long) area.minimumY() + (long) area.maximumY());
+      keys[index] = (hilbert((int) x, (int) y) << 32) | (long) index;
+    }
+    Arrays.sort(keys);
+
+    final Object[] sorted = new Object[count];
+    final MeshPackedRTree<T> tree =
+      new MeshPackedRTree<>(sorted, levelStarts(count));
+
+    for (int index = 0; index < count; ++index) {
+      final int item = (int) keys[index];
+      final AreaI area = areas[item];
+      sorted[index] = items.get(item);
+      tree.x_min[index] = area.minimumX();
+      tree.x_max[index] = area.maximumX();
+      tree.y_min[index] = area.minimumY();
+      tree.y_max[index] = area.maximumY();
+    }
+
+    for (int level = 1; level + 1 < tree.level_starts.length; ++level) {
+      final int child_start = tree.level_starts[level - 1];
+      final int child_end = tree.level_starts[level];
+      final int start = tree.level_starts[level];
+      final int end = tree.level_starts[level + 1];
+      for (int node = start; node < end; ++node) {
+        final int first = child_start + ((node - start) * NODE_SIZE);
+        final int last = Math.min(first + NODE_SIZE, child_end);
+        int node_x_min = Integer.MAX_VALUE;
+        int node_x_max = Integer.MIN_VALUE;
+        int node_y_min = Integer.MAX_VALUE;
+        int node_y_max = Integer.MIN_VALUE;
+        for (int child = first; child < last; ++child) {
+          node_x_min = Math.min(node_x_min, tree.x_min[child]);
+          node_x_max = Math.max(node_x_max, tree.x_max[child]);
+          node_y_min = Math.min(node_y_min, tree.y_min[child]);
+          node_y_max = Math.max(node_y_max, tree.y_max[child]);
+        }
+        tree.x_min[node] = node_x_min;
+        tree.x_max[node] = node_x_max;
+        tree.y_min[node] = node_y_min;
+        tree.y_max[node] = node_y_max;
+      }
+    }
+    return tree;
+  }
+
+  /**
+   * @return The offset of the first entry of each level, followed by the
+   * total number of entries. Level 0 holds the items themselves, and the last
+   * level holds the root.
+   */
+
+  private static int[] levelStarts(
+    final int count)
+  {
+    int levels = 1;
+    for (int size = count; size > 1; size = divideUp(size)) {
+      ++levels;
+    }
+
+    final int[] starts = new int[levels + 1];
+    int size = count;
+    for (int level = 0; level < levels; ++level) {
+      starts[level + 1] = starts[level] + size;
+      size = divideUp(size);
+    }
+    return starts;
+  }
+
+  private static int divideUp(
+    final int size)
+  {
+    return (size + NODE_SIZE - 1) / NODE_SIZE;
+  }
+
+  /**
+   * Scale a doubled coordinate (the sum of a minimum and a maximum) within the
+   * given range to the range of the Hilbert curve.
+   */
+
+  private static long hilbertScale(
+    final int minimum,
+    final int maximum,
+    final long doubled)
+  {
+    final long range = Math.max(1L, 2L * ((long) maximum - (long) minimum));
+    final long offset = doubled - (2L * (long) minimum);
+    final long clamped = Math.max(0L, Math.min(range, offset));
+    return (clamped * (long) HILBERT_MAXIMUM) / range;
+  }
+
+  /**
+   * @return The distance of the given point along a Hilbert curve that fills
+   * a square of side {@code 2^HILBERT_BITS}
+   */
+
+  static long hilbert(
+    final int in_x,
+    final int in_y)
+  {
+    int x = in_x;
+    int y = in_y;
+    long d = 0L;
+    for (int s = 1 << (HILBERT_BITS - 1); s > 0; s >>>= 1) {
+      final int rx = (x & s) != 0 ? 1 : 0;
+      final int ry = (y & s) != 0 ? 1 : 0;
+      d += (long) s * (long) s * (long) ((3 * rx) ^ ry);
+      if (ry == 0) {
+        if (rx == 1) {
+          x = HILBERT_MAXIMUM - x;
+          y = HILBERT_MAXIMUM - y;
+        }
+        final int t = x;
+        x = y;
+        y = t;
+      }
+    }
+    return d;
+  }
+
+  /**
+   * @return The number of items in the tree
+   */
+
+  int size()
+  {
+    return this.items.length;
+  }
+
+  /**
+   * @param position A position in the tree's item order
+   *
+   * @return The item at the given position
+   */
+
+  @SuppressWarnings("unchecked")
+  T item(
+    final int position)
+  {
+    return (T) this.items[position];
+  }
+
+  /**
+   * Search the tree, in tree order, with the contract of
+   * {@link MeshPolygonIndexType#search(int, int, int, int,
+   * MeshPolygonIndexType.FilterType, Predicate)}. Only items whose bounds
+   * overlap the area are passed to the filter.
+   *
+   * @return The item for which the search stopped, or {@code null} if the
+   * search visited every candidate
+   */
+
+  @Nullable T search(
+    final int area_x_min,
+    final int area_x_max,
+    final int area_y_min,
+    final int area_y_max,
+    final MeshPolygonIndexType.FilterType<? super T> filter,
+    final @Nullable Predicate<? super T> receiver)
+  {
+    NullCheck.notNull(filter, "Filter");
+
+    if (this.items.length == 0) {
+      return null;
+    }
+
+    final int root_level = this.level_starts.length - 2;
+    final int root = this.level_starts[root_level];
+    if (!this.overlaps(root, area_x_min, area_x_max, area_y_min, area_y_max)) {
+      return null;
+    }
+    return this.searchChildren(
+      root_level,
+      0,
+      area_x_min,
+      area_x_max,
+      area_y_min,
+      area_y_max,
+      filter,
+      receiver);
+  }
+
+  private @Nullable T searchChildren(
+    final int level,
+    final int node,
+    final int area_x_min,
+    final int area_x_max,
+    final int area_y_min,
+    final int area_y_max,
+    final MeshPolygonIndexType.FilterType<? super T> filter,
+    final @Nullable Predicate<? super T> receiver)
+  {
+    if (level == 0) {
+      final T item = this.item(node);
+      if (filter.accept(item, area_x_min, area_x_max, area_y_min, area_y_max)) {
+        if (receiver == null || !receiver.test(item)) {
+          return item;
+        }
+      }
+      return null;
+    }
+
+    final int child_level = level - 1;
+    final int child_start = this.level_starts[child_level];
+    final int child_end = this.level_starts[level];
+    final int first = child_start + (node * NODE_SIZE);
+    final int last = Math.min(first + NODE_SIZE, child_end);
+    for (int child = first; child < last; ++child) {
+      if (this.overlaps(child, area_x_min, area_x_max, area_y_min, area_y_max)) {
+        final T found = this.searchChildren(
+          child_level,
+          child - child_start,
+          area_x_min,
+          area_x_max,
+          area_y_min,
+          area_y_max,
+          filter,
+          receiver);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  private boolean overlaps(
+    final int entry,
+    final int area_x_min,
+    final int area_x_max,
+    final int area_y_min,
+    final int area_y_max)
+  {
+    return this.x_min[entry] <= area_x_max
+      && this.x_max[entry] >= area_x_min
+      && this.y_min[entry] <= area_y_max
+      && this.y_max[entry] >= area_y_min;
+  }
+}
@@ -0,0 +1,407 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeConfigurationI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeIType;
+import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
+import com.io7m.jspatial.implementation.QuadTreeI;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+
+import java.util.Arrays;
+import java.util.OptionalInt;
+import java.util.function.Predicate;
+
+/**
+ * A polygon index backed by a uniform grid of buckets. An item is stored in
+ * every cell that its bounds touch, along with a copy of its bounds, so that
+ * queries can reject items without touching them. An item that spans
+ * several cells of a query is reported only from the first of them.
+ *
+ * If no cell size is configured, the cell size follows the mean of the
+ * larger dimension of the bounds of the items, and the grid is rebuilt
+ * whenever the number of items doubles and the ideal size has drifted by
+ * more than a factor of two.
+ *
+ * @param <T> The type of items
+ */
+
+final class MeshPolygonIndexGrid<T> implements MeshPolygonIndexType<T>
+{
+  /**
+   * The maximum number of cells in the grid. Cells are made larger than
+   * requested, if necessary, to stay within this limit.
+   */
+
+  static final int MAXIMUM_CELLS = 1 << 20;
+
+  private static final int INITIAL_DIVISIONS = 64;
+  private static final int ADAPT_MINIMUM = 64;
+
+  private final AreaI bounds;
+  private final boolean adaptive;
+  private int cell_size;
+  private int columns;
+  private int rows;
+  private Cell[] cells;
+  private int count;
+  private long extent_sum;
+  private int adapt_at;
+  private @Nullable QuadTreeIType<T> tree;
+
+  MeshPolygonIndexGrid(
+    final AreaI in_bounds,
+    final OptionalInt in_cell_size)
+  {
+    this.bounds = NullCheck.notNull(in_bounds, "Bounds");
+    NullCheck.notNull(in_cell_size, "Cell size");
+
+    this.adaptive = !in_cell_size.isPresent();
+    this.adapt_at = ADAPT_MINIMUM;
+    this.count = 0;
+    this.extent_sum = 0L;
+
+    final int width = in_bounds.maximumX() - in_bounds.minimumX();
+    final int height = in_bounds.maximumY() - in_bounds.minimumY();
+    this.resize(
+      in_cell_size.orElse(Math.max(width, height) / INITIAL_DIVISIONS));
+  }
+
+  /**
+   * @return The current side length of each cell
+   */
+
+  int cellSize()
+  {
+    return this.cell_size;
+  }
+
+  private void resize(
+    final int requested)
+  {
+    final long width =
+      (long) this.bounds.maximumX() - (long) this.bounds.minimumX();
+    final long height =
+      (long) this.bounds.maximumY() - (long) this.bounds.minimumY();
+
+    long size = Math.max(1L, (long) requested);
+    while (((width / size) + 1L) * ((height / size) + 1L) > MAXIMUM_CELLS) {
+      size *= 2L;
+    }
+
+    this.cell_size = (int) size;
+    this.columns = (int) ((width / size) + 1L);
+    this.rows = (int) ((height / size) + 1L);
+    this.cells = new Cell[this.columns * this.rows];
+  }
+
+  private int cellX(
+    final int x)
+  {
+    final long offset = (long) x - (long) this.bounds.minimumX();
+    final long cell = offset / (long) this.cell_size;
+    return (int) Math.max(0L, Math.min((long) (this.columns - 1), cell));
+  }
+
+  private int cellY(
+    final int y)
+  {
+    final long offset = (long) y - (long) this.bounds.minimumY();
+    final long cell = offset / (long) this.cell_size;
+    return (int) Math.max(0L, Math.min((long) (this.rows - 1), cell));
+  }
+
+  private static long extentOf(
+    final AreaI area)
+  {
+    return (long) Math.max(
+      area.maximumX() - area.minimumX(),
+      area.maximumY() - area.minimumY());
+  }
+
+  @Override
+  public void insert(
+    final T item,
+    final AreaI item_bounds)
+  {
+    NullCheck.notNull(item, "Item");
+    NullCheck.notNull(item_bounds, "Bounds");
+
+    this.tree = null;
+    this.cellsInsert(
+      item,
+      item_bounds.minimumX(),
+      item_bounds.maximumX(),
+      item_bounds.minimumY(),
+      item_bounds.maximumY());
+
+    ++this.count;
+    this.extent_sum += extentOf(item_bounds);
+
+    if (this.adaptive && this.count >= this.adapt_at) {
+      this.adapt_at = Math.multiplyExact(this.adapt_at, 2);
+      this.adapt();
+    }
+  }
+
+  private void cellsInsert(
+    final T item,
+    final int x_min,
+    final int x_max,
+    final int y_min,
+    final int y_max)
+  {
+    final int cx0 = this.cellX(x_min);
+    final int cx1 = this.cellX(x_max);
+    final int cy0 = this.cellY(y_min);
+    final int cy1 = this.cellY(y_max);
+    for (int cy = cy0; cy <= cy1; ++cy) {
+      for (int cx = cx0; cx <= cx1; ++cx) {
+        final int index = (cy * this.columns) + cx;
+        Cell cell = this.cells[index];
+        if (cell == null) {
+          cell = new Cell();
+          this.cells[index] = cell;
+        }
+        cell.add(item, x_min, x_max, y_min, y_max);
+      }
+    }
+  }
+
+  @Override
+  public void remove(
+    final T item,
+    final AreaI item_bounds)
+  {
+    NullCheck.notNull(item, "Item");
+    NullCheck.notNull(item_bounds, "Bounds");
+
+    this.tree = null;
+
+    boolean removed = false;
+    final int cx0 = this.cellX(item_bounds.minimumX());
+    final int cx1 = this.cellX(item_bounds.maximumX());
+    final int cy0 = this.cellY(item_bounds.minimumY());
+    final int cy1 = this.cellY(item_bounds.maximumY());
+    for (int cy = cy0; cy <= cy1; ++cy) {
+      for (int cx = cx0; cx <= cx1; ++cx) {
+        final Cell cell = this.cells[(cy * this.columns) + cx];
+        if (cell != null) {
+          removed |= cell.remove(item);
+        }
+      }
+    }
+
+    if (removed) {
+      --this.count;
+      this.extent_sum -= extentOf(item_bounds);
+    }
+  }
+
+  /**
+   * Rebuild the grid if the mean item size has drifted too far from the
+   * cell size.
+   */
+
+  private void adapt()
+  {
+    final long ideal = Math.max(1L, this.extent_sum / (long) this.count);
+    final long current = (long) this.cell_size;
+    if (ideal * 2L >= current && ideal <= current * 2L) {
+      return;
+    }
+
+    final ReferenceArrayList<T> items = new ReferenceArrayList<>(this.count);
+    final IntArrayList item_bounds = new IntArrayList(this.count * 4);
+    this.collect(items, item_bounds);
+
+    this.resize((int) Math.min((long) Integer.MAX_VALUE, ideal));
+    for (int index = 0; index < items.size(); ++index) {
+      final int base = index * 4;
+      this.cellsInsert(
+        items.get(index),
+        item_bounds.getInt(base),
+        item_bounds.getInt(base + 1),
+        item_bounds.getInt(base + 2),
+        item_bounds.getInt(base + 3));
+    }
+  }
+
+  /**
+   * Collect each item, and its bounds, exactly once.
+   */
+
+  @SuppressWarnings("unchecked")
+  private void collect(
+    final ReferenceArrayList<T> items,
+    final IntArrayList item_bounds)
+  {
+    for (int cy = 0; cy < this.rows; ++cy) {
+      for (int cx = 0; cx < this.columns; ++cx) {
+        final Cell cell = this.cells[(cy * this.columns) + cx];
+        if (cell == null) {
+          continue;
+        }
+        for (int index = 0; index < cell.size; ++index) {
+          final int base = index * 4;
+          final int x_min = cell.bounds[base];
+          final int y_min = cell.bounds[base + 2];
+          if (this.cellX(x_min) == cx && this.cellY(y_min) == cy) {
+            items.add((T) cell.items[index]);
+            item_bounds.add(x_min);
+            item_bounds.add(cell.bounds[base + 1]);
+            item_bounds.add(y_min);
+            item_bounds.add(cell.bounds[base + 3]);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public @Nullable T search(
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum,
+    final FilterType<? super T> filter,
+    final @Nullable Predicate<? super T> receiver)
+  {
+    NullCheck.notNull(filter, "Filter");
+
+    final int cx0 = this.cellX(x_minimum);
+    final int cx1 = this.cellX(x_maximum);
+    final int cy0 = this.cellY(y_minimum);
+    final int cy1 = this.cellY(y_maximum);
+    for (int cy = cy0; cy <= cy1; ++cy) {
+      for (int cx = cx0; cx <= cx1; ++cx) {
+        final Cell cell = this.cells[(cy * this.columns) + cx];
+        if (cell == null) {
+          continue;
+        }
+
+        final int[] cell_bounds = cell.bounds;
+        for (int index = 0; index < cell.size; ++index) {
+          final int base = index * 4;
+          final int x_min = cell_bounds[base];
+          final int y_min = cell_bounds[base + 2];
+          if (x_min > x_maximum
+            || cell_bounds[base + 1] < x_minimum
+            || y_min > y_maximum
+            || cell_bounds[base + 3] < y_minimum) {
+            continue;
+          }
+
+          //
+          // Report an item only from the first cell that both it and the
+          // query area touch.
+          //
+
+          if (Math.max(this.cellX(x_min), cx0) != cx
+            || Math.max(this.cellY(y_min), cy0) != cy) {
+            continue;
+          }
+
+          final T item = (T) cell.items[index];
+          if (filter.accept(item, x_minimum, x_maximum, y_minimum, y_maximum)) {
+            if (receiver == null || !receiver.test(item)) {
+              return item;
+            }
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * The grid does not use a quadtree for its own queries. A quadtree is built
+   * on demand, and kept until the index is next modified.
+   */
+
+  @Override
+  public QuadTreeReadableIType<T> tree()
+  {
+    if (this.tree == null) {
+      final ReferenceArrayList<T> items = new ReferenceArrayList<>(this.count);
+      final IntArrayList item_bounds = new IntArrayList(this.count * 4);
+      this.collect(items, item_bounds);
+
+      final QuadTreeIType<T> new_tree =
+        QuadTreeI.create(
+          QuadTreeConfigurationI.of(
+            this.bounds, 16, 16, true));
+      for (int index = 0; index < items.size(); ++index) {
+        final int base = index * 4;
+        new_tree.insert(
+          items.get(index),
+          AreaI.of(
+            item_bounds.getInt(base),
+            item_bounds.getInt(base + 1),
+            item_bounds.getInt(base + 2),
+            item_bounds.getInt(base + 3)));
+      }
+      this.tree = new_tree;
+    }
+    return this.tree;
+  }
+
+  /**
+   * The items in a cell, and their bounds as (x_min, x_max, y_min, y_max)
+   * quadruples.
+   */
+
+  private static final class Cell
+  {
+    private Object[] items;
+    private int[] bounds;
+    private int size;
+
+    Cell()
+    {
+      this.items = new Object[4];
+      this.bounds = new int[16];
+      this.size = 0;
+    }
+
+    void add(
+      final Object item,
+      final int x_min,
+      final int x_max,
+      final int y_min,
+      final int y_max)
+    {
+      if (this.size == this.items.length) {
+        this.items = Arrays.copyOf(this.items, this.size * 2);
+        this.bounds = Arrays.copyOf(this.bounds, this.size * 8);
+      }
+
+      final int base = this.size * 4;
+      this.items[this.size] = item;
+      this.bounds[base] = x_min;
+      this.bounds[base + 1] = x_max;
+      this.bounds[base + 2] = y_min;
+      this.bounds[base + 3] = y_max;
+      ++this.size;
+    }
+
+    boolean remove(
+      final Object item)
+    {
+      for (int index = 0; index < this.size; ++index) {
+        if (this.items[index] == item) {
+          final int last = this.size - 1;
+          this.items[index] = this.items[last];
+          this.items[last] = null;
+          System.arraycopy(this.bounds, last * 4, this.bounds, index * 4, 4);
+          this.size = last;
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Postconditions;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeConfigurationI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeIType;
+import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
+import com.io7m.jspatial.implementation.QuadTreeI;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+/**
+ * A polygon index backed by a quadtree.
+ *
+ * The quadtree reports overlapping items into a set. A spare set is kept and
+ * reused by successive searches; a search that runs while another holds the
+ * spare, such as a nested or concurrent search, uses a set of its own.
+ *
+ * @param <T> The type of items
+ */
+
+final class MeshPolygonIndexQuadTree<T> implements MeshPolygonIndexType<T>
+{
+  /**
+   * Sets that have grown beyond this size are not kept as the spare, so
+   * that one large search does not make later clearing expensive.
+   */
+
+  private static final int SPARE_SIZE_MAXIMUM = 1024;
+
+  private final QuadTreeIType<T> tree;
+  private final AreaI bounds;
+  private final AtomicReference<ReferenceOpenHashSet<T>> spare;
+
+  MeshPolygonIndexQuadTree(
+    final AreaI bounds)
+  {
+    this.bounds = NullCheck.notNull(bounds, "Bounds");
+    this.tree =
+      QuadTreeI.create(
+        QuadTreeConfigurationI.of(
+          bounds, 16, 16, true));
+    this.spare = new AtomicReference<>(new ReferenceOpenHashSet<>());
+  }
+
+  @Override
+  public void insert(
+    final T item,
+    final AreaI bounds)
+  {
+    final boolean inserted = this.tree.insert(item, bounds);
+    Postconditions.checkPostcondition(
+      inserted, "Polygon must have been inserted");
+  }
+
+  @Override
+  public void remove(
+    final T item,
+    final AreaI bounds)
+  {
+    this.tree.remove(item);
+  }
+
+  @Override
+  public @Nullable T search(
+    final int x_minimum,
+    final int x_maximum,
+    final int y_minimum,
+    final int y_maximum,
+    final FilterType<? super T> filter,
+    final @Nullable Predicate<? super T> receiver)
+  {
+    NullCheck.notNull(filter, "Filter");
+
+    //
+    // Every item lies within the bounds of the tree, so the area is clamped
+    // to the bounds, which also keeps the size of the area from overflowing
+    // for very large queries. Quadtree overlap tests are strict, so the area
+    // is then widened by one unit on each side so that items that merely
+    // touch it are included.
+    //
+
+    final int x_min = Math.max(x_minimum, this.bounds.minimumX());
+    final int x_max = Math.min(x_maximum, this.bounds.maximumX());
+    final int y_min = Math.max(y_minimum, this.bounds.minimumY());
+    final int y_max = Math.min(y_maximum, this.bounds.maximumY());
+    if (x_min > x_max || y_min > y_max) {
+      return null;
+    }
+
+    ReferenceOpenHashSet<T> results = this.spare.getAndSet(null);
+    if (results == null) {
+      results = new ReferenceOpenHashSet<>();
+    }
+
+    try {
+      this.tree.overlappedBy(
+        AreasI.create(
+          x_min - 1,
+          y_min - 1,
+          (x_max - x_min) + 2,
+          (y_max - y_min) + 2),
+        results);
+
+      for (final T item : results) {
+        if (filter.accept(item, x_minimum, x_maximum, y_minimum, y_maximum)) {
+          if (receiver == null || !receiver.test(item)) {
+            return item;
+          }
+        }
+      }
+      return null;
+    } finally {
+      if (results.size() <= SPARE_SIZE_MAXIMUM) {
+        results.clear();
+        this.spare.set(results);
+      }
+    }
+  }
+
+  @Override
+  public QuadTreeReadableIType<T> tree()
+  {
+    return this.tree;
+  }
+}
@@ -0,0 +1,98 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
+
+import java.util.function.Predicate;
+
+/**
+ * The spatial index that a mesh uses for its polygons. Each item is stored
+ * with its bounds, and the bounds given on removal must be those given on
+ * insertion.
+ *
+ * @param <T> The type of items
+ */
+
+interface MeshPolygonIndexType<T>
+{
+  /**
+   * Create an index.
+   *
+   * @param bounds        The bounds of the mesh
+   * @param configuration The index configuration
+   * @param <T>           The type of items
+   *
+   * @return A new index
+   */
+
+  static <T> MeshPolygonIndexType<T> create(
+    final AreaI bounds,
+    final MeshIndexConfiguration configuration)
+  {
+    NullCheck.notNull(bounds, "Bounds");
+    NullCheck.notNull(configuration, "Configuration");
+
+    switch (configuration.kind()) {
+      case MESH_INDEX_QUADTREE:
+        return new MeshPolygonIndexQuadTree<>(bounds);
+      case MESH_INDEX_GRID:
+        return new MeshPolygonIndexGrid<>(
+          bounds, configuration.gridCellSize());
+    }
+    throw new IllegalArgumentException(
+      "Unrecognized index kind: " + configuration.kind());
+  }
+
+  void insert(
+    T item,
+    AreaI bounds);
+
+  void remove(
+    T item,
+    AreaI bounds);
+
+  /**
+   * Pass each item whose bounds overlap the given closed area, and that the
+   * given filter accepts, to the given function. If no function is given,
+   * the search stops at the first such item. The filter is applied to every
+   * candidate; an index may skip items whose bounds do not overlap the area,
+   * but is not required to. Neither function may modify the index.
+   *
+   * @return The item for which the search stopped, or {@code null} if the
+   * search visited every candidate
+   */
+
+  @Nullable T search(
+    int x_minimum,
+    int x_maximum,
+    int y_minimum,
+    int y_maximum,
+    FilterType<? super T> filter,
+    @Nullable Predicate<? super T> receiver);
+
+  /**
+   * @return A quadtree containing the items in the index
+   */
+
+  QuadTreeReadableIType<T> tree();
+
+  /**
+   * A filter applied to the candidates of a search. Filters are given the
+   * area of the search, so that meshes can use a single stateless filter
+   * for all searches of a given kind.
+   *
+   * @param <T> The type of items
+   */
+
+  interface FilterType<T>
+  {
+    boolean accept(
+      T item,
+      int x_minimum,
+      int x_maximum,
+      int y_minimum,
+      int y_maximum);
+  }
+}
@@ -22,6 +22,7 @@ import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import com.io7m.jtensors.core.unparameterized.vectors.Vectors2D;
 import com.io7m.junreachable.UnreachableCodeException;
 
+import java.math.BigInteger;
 import java.util.List;
 
 public final class MeshPolygons
@@ -31,49 +32,176 @@ public final class MeshPolygons
     throw new UnreachableCodeException();
   }
 
-  private static double crossProductLength(
-    final double Ax,
-    final double Ay,
-    final double Bx,
-    final double By,
-    final double Cx,
-    final double Cy)
+  /**
+   * Differences of {@code int} coordinates in this range have products
+   * whose differences cannot overflow a {@code long}.
+   */
+
+  private static final long ORIENT_EXACT_BIAS = 0x8000_0000L;
+
+  private static final BigInteger BIG_TWO = BigInteger.valueOf(2L);
+
+  /**
+   * Determine the side of the line through {@code a} and {@code b} on which
+   * the point {@code c} lies. The result is exact for all {@code int}
+   * coordinates: differences that would overflow a {@code long} product
+   * are compared as 128-bit products instead.
+   *
+   * @return {@code 1} if {@code (a, b, c)} turn counter-clockwise, {@code -1}
+   * if they turn clockwise, and {@code 0} if they are collinear
+   */
+
+  public static int orient2d(
+    final int ax,
+    final int ay,
+    final int bx,
+    final int by,
+    final int cx,
+    final int cy)
   {
-    final double BAx = Ax - Bx;
-    final double BAy = Ay - By;
-    final double BCx = Cx - Bx;
-    final double BCy = Cy - By;
+    final long abx = (long) bx - (long) ax;
+    final long aby = (long) by - (long) ay;
+    final long acx = (long) cx - (long) ax;
+    final long acy = (long) cy - (long) ay;
+
+    //
+    // Each difference needs 33 bits. If all four fit into 32 bits, the
+    // products need at most 63 bits and their difference cannot overflow.
+    //
+
+    final long wide =
+      ((abx + ORIENT_EXACT_BIAS)
+        | (aby + ORIENT_EXACT_BIAS)
+        | (acx + ORIENT_EXACT_BIAS)
+        | (acy + ORIENT_EXACT_BIAS)) >>> 32;
 
-    return (BAx * BCy - BAy * BCx);
+    if (wide == 0L) {
+      return Long.signum((abx * acy) - (aby * acx));
+    }
+    return compareProducts(abx, acy, aby, acx);
+  }
+
+  /**
+   * @return The sign of {@code (a * b) - (c * d)}, computed with 128-bit
+   * products
+   */
+
+  private static int compareProducts(
+    final long a,
+    final long b,
+    final long c,
+    final long d)
+  {
+    final long high0 = multiplyHigh(a, b);
+    final long high1 = multiplyHigh(c, d);
+    if (high0 != high1) {
+      return Long.compare(high0, high1);
+    }
+    return Integer.signum(Long.compareUnsigned(a * b, c * d));
+  }
+
+  /**
+   * @return The upper 64 bits of the 128-bit product of {@code x} and
+   * {@code y}
+   */
+
+  private static long multiplyHigh(
+    final long x,
+    final long y)
+  {
+    final long x_high = x >> 32;
+    final long x_low = x & 0xFFFF_FFFFL;
+    final long y_high = y >> 32;
+    final long y_low = y & 0xFFFF_FFFFL;
+
+    final long low = x_low * y_low;
+    final long t = (x_high * y_low) + (low >>> 32);
+    final long middle = (t & 0xFFFF_FFFFL) + (x_low * y_high);
+    return (x_high * y_high) + (t >> 32) + (middle >> 32);
   }
 
   static boolean isConvex(
     final List<Vector2I> vertices)
+  {
+    return isConvex(positions(vertices));
+  }
+
+  /**
+   * Determine whether a polygon is convex, which is to say that every
+   * consecutive triple of vertices turns in the same direction or is
+   * collinear. The test is exact.
+   *
+   * @param positions The vertex positions of a polygon
+   *
+   * @return {@code true} iff the polygon is convex
+   */
+
+  static boolean isConvex(
+    final PositionsType positions)
   {
     boolean got_negative = false;
     boolean got_positive = false;
-    final int num_points = vertices.size();
-
-    for (int point_a = 0; point_a < num_points; point_a++) {
-      final int point_b = (point_a + 1) % num_points;
-      final int point_c = (point_b + 1) % num_points;
-
-      final double cross_product =
-        crossProductLength(
-          (double) vertices.get(point_a).x(),
-          (double) vertices.get(point_a).y(),
-          (double) vertices.get(point_b).x(),
-          (double) vertices.get(point_b).y(),
-          (double) vertices.get(point_c).x(),
-          (double) vertices.get(point_c).y());
-      if (cross_product < 0.0) {
-        got_negative = true;
-      } else if (cross_product > 0.0) {
-        got_positive = true;
+    final int count = positions.positionCount();
+
+    int index_a = count - 2;
+    int index_b = count - 1;
+    for (int index_c = 0; index_c < count; ++index_c) {
+      final int turn =
+        orient2d(
+          positions.positionX(index_a),
+          positions.positionY(index_a),
+          positions.positionX(index_b),
+          positions.positionY(index_b),
+          positions.positionX(index_c),
+          positions.positionY(index_c));
+      got_negative |= turn < 0;
+      got_positive |= turn > 0;
+      if (got_negative && got_positive) {
+        return false;
       }
+      index_a = index_b;
+      index_b = index_c;
+    }
+
+    return true;
+  }
+
+  /**
+   * Determine whether a polygon is convex, as with
+   * {@link #isConvex(PositionsType)}.
+   *
+   * @param coordinates The vertex positions of a polygon, as {@code (x, y)}
+   *                    pairs
+   * @param count       The number of vertices
+   *
+   * @return {@code true} iff the polygon is convex
+   */
+
+  public static boolean isConvex(
+    final int[] coordinates,
+    final int count)
+  {
+    boolean got_negative = false;
+    boolean got_positive = false;
+
+    int index_a = (count - 2) * 2;
+    int index_b = (count - 1) * 2;
+    for (int index_c = 0; index_c < count * 2; index_c += 2) {
+      final int turn =
+        orient2d(
+          coordinates[index_a],
+          coordinates[index_a + 1],
+          coordinates[index_b],
+          coordinates[index_b + 1],
+          coordinates[index_c],
+          coordinates[index_c + 1]);
+      got_negative |= turn < 0;
+      got_positive |= turn > 0;
       if (got_negative && got_positive) {
         return false;
       }
+      index_a = index_b;
+      index_b = index_c;
     }
 
     return true;
@@ -115,6 +243,31 @@ public final class MeshPolygons
     return Vector2D.of(x / (double) size, y / (double) size);
   }
 
+  /**
+   * @param coordinates The vertex positions of a polygon, as {@code (x, y)}
+   *                    pairs
+   * @param count       The number of vertices
+   *
+   * @return The bounds of the polygon
+   */
+
+  static AreaI bounds(
+    final int[] coordinates,
+    final int count)
+  {
+    int x_min = Integer.MAX_VALUE;
+    int y_min = Integer.MAX_VALUE;
+    int x_max = Integer.MIN_VALUE;
+    int y_max = Integer.MIN_VALUE;
+    for (int index = 0; index < count * 2; index += 2) {
+      x_min = Math.min(coordinates[index], x_min);
+      y_min = Math.min(coordinates[index + 1], y_min);
+      x_max = Math.max(coordinates[index], x_max);
+      y_max = Math.max(coordinates[index + 1], y_max);
+    }
+    return AreaI.of(x_min, x_max, y_min, y_max);
+  }
+
   static AreaI bounds(
     final List<Vector2I> vertices)
   {
@@ -144,10 +297,16 @@ public final class MeshPolygons
       final Vector2I p0 = points.get(i);
       final Vector2I p1 = points.get(j);
       if (((p0.y() > point.y()) != (p1.y() > point.y()))) {
-        final int p1x_p0x_delta = p1.x() - p0.x();
-        final int p1y_p0y_delta = p1.y() - p0.y();
-        final int py_p0y_delta = point.y() - p0.y();
-        if ((point.x() < (((p1x_p0x_delta * py_p0y_delta) / p1y_p0y_delta) + p0.x()))) {
+
+        //
+        // The point lies to the left of the edge's crossing of the
+        // horizontal line through the point iff it lies on the side of the
+        // edge given by the edge's vertical direction.
+        //
+
+        final int side =
+          orient2d(p0.x(), p0.y(), p1.x(), p1.y(), point.x(), point.y());
+        if (side == Integer.signum(p1.y() - p0.y())) {
           result = !result;
         }
       }
@@ -155,10 +314,308 @@ public final class MeshPolygons
     return result;
   }
 
-  static boolean isClockwiseOrder(
-    final List<Vector2I> vertices)
+  /**
+   * Convex polygons with at most this many vertices are tested against each
+   * edge in turn by {@link #containsPointConvex(PositionsType, int, int, int)};
+   * larger polygons are tested with a binary search.
+   */
+
+  static final int CONVEX_LINEAR_MAXIMUM = 8;
+
+  /**
+   * @return The twice signed area of the triangle formed by the given edge
+   * and the point {@code (x, y)}, rounded to the nearest {@code double}; the
+   * sign of the result may be wrong when the area is very small relative to
+   * the coordinates, and so {@link #side(PositionsType, int, int, int, int)}
+   * must be used to decide on which side of the edge the point lies
+   */
+
+  static double orientation(
+    final PositionsType positions,
+    final int index_a,
+    final int index_b,
+    final int x,
+    final int y)
+  {
+    final long ax = (long) positions.positionX(index_a);
+    final long ay = (long) positions.positionY(index_a);
+    final double abx = (double) ((long) positions.positionX(index_b) - ax);
+    final double aby = (double) ((long) positions.positionY(index_b) - ay);
+    final double apx = (double) ((long) x - ax);
+    final double apy = (double) ((long) y - ay);
+    return (abx * apy) - (aby * apx);
+  }
+
+  /**
+   * @return The side of the given edge on which the point {@code (x, y)}
+   * lies, as with {@link #orient2d(int, int, int, int, int, int)}
+   */
+
+  static int side(
+    final PositionsType positions,
+    final int index_a,
+    final int index_b,
+    final int x,
+    final int y)
+  {
+    return orient2d(
+      positions.positionX(index_a),
+      positions.positionY(index_a),
+      positions.positionX(index_b),
+      positions.positionY(index_b),
+      x,
+      y);
+  }
+
+  /**
+   * Determine the winding of a convex polygon. Every triangle of the fan
+   * around the first vertex of a convex polygon has the winding of the
+   * polygon or is degenerate, so the winding is that of the first triangle
+   * with any area, and no sum that could overflow is needed.
+   *
+   * @param positions The vertex positions of a convex polygon
+   *
+   * @return The sign of the (doubled) signed area of the polygon, such that
+   * points inside a convex polygon lie to the side of each edge indicated by
+   * the sign
+   */
+
+  static int winding(
+    final PositionsType positions)
+  {
+    final int count = positions.positionCount();
+    final int x0 = positions.positionX(0);
+    final int y0 = positions.positionY(0);
+    for (int index = 2; index < count; ++index) {
+      final int turn =
+        orient2d(
+          x0,
+          y0,
+          positions.positionX(index - 1),
+          positions.positionY(index - 1),
+          positions.positionX(index),
+          positions.positionY(index));
+      if (turn != 0) {
+        return turn;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Determine the winding of a convex polygon, as with
+   * {@link #winding(PositionsType)}.
+   *
+   * @param coordinates The vertex positions of a convex polygon, as
+   *                    {@code (x, y)} pairs
+   * @param count       The number of vertices
+   *
+   * @return The winding of the polygon
+   */
+
+  public static int winding(
+    final int[] coordinates,
+    final int count)
   {
-    return area(vertices) > 0L;
+    final int x0 = coordinates[0];
+    final int y0 = coordinates[1];
+    for (int index = 4; index < count * 2; index += 2) {
+      final int turn =
+        orient2d(
+          x0,
+          y0,
+          coordinates[index - 2],
+          coordinates[index - 1],
+          coordinates[index],
+          coordinates[index + 1]);
+      if (turn != 0) {
+        return turn;
+      }
+    }
+    return 0;
+  }
+
+  /**
+   * Determine whether a convex polygon contains a point. Points on the
+   * boundary of the polygon are contained. Polygons with a winding of zero
+   * have no area and contain nothing.
+   *
+   * @param positions The vertex positions of a convex polygon
+   * @param winding   The winding of the polygon, as returned by
+   *                  {@link #winding(PositionsType)}
+   * @param x         The X coordinate of the point
+   * @param y         The Y coordinate of the point
+   *
+   * @return {@code true} iff the polygon contains the point
+   */
+
+  static boolean containsPointConvex(
+    final PositionsType positions,
+    final int winding,
+    final int x,
+    final int y)
+  {
+    if (winding == 0) {
+      return false;
+    }
+
+    final int count = positions.positionCount();
+    if (count <= CONVEX_LINEAR_MAXIMUM) {
+      return containsPointConvexLinear(positions, winding, x, y);
+    }
+
+    //
+    // Treat the polygon as a fan of triangles around the first vertex. Reject
+    // points outside of the wedge formed by the first and last edges, then
+    // binary search for the triangle whose wedge contains the point and test
+    // the point against the outer edge of that triangle.
+    //
+    // Vertices that are collinear with the first vertex produce degenerate
+    // triangles at either end of the fan, so points that lie exactly on the
+    // lines bounding the wedge are tested against every edge instead.
+    //
+
+    final int side_first =
+      side(positions, 0, 1, x, y);
+    final int side_last =
+      side(positions, 0, count - 1, x, y);
+
+    if (side_first == -winding || side_last == winding) {
+      return false;
+    }
+    if (side_first == 0 || side_last == 0) {
+      return containsPointConvexLinear(positions, winding, x, y);
+    }
+
+    int low = 1;
+    int high = count - 1;
+    while (high - low > 1) {
+      final int middle = (low + high) >>> 1;
+      if (side(positions, 0, middle, x, y) == -winding) {
+        high = middle;
+      } else {
+        low = middle;
+      }
+    }
+
+    return side(positions, low, low + 1, x, y) != -winding;
+  }
+
+  private static boolean containsPointConvexLinear(
+    final PositionsType positions,
+    final int winding,
+    final int x,
+    final int y)
+  {
+    final int count = positions.positionCount();
+    int index0 = count - 1;
+    for (int index1 = 0; index1 < count; ++index1) {
+      if (side(positions, index0, index1, x, y) == -winding) {
+        return false;
+      }
+      index0 = index1;
+    }
+    return true;
+  }
+
+  /**
+   * @return The distance between the points {@code (x0, y0)} and
+   * {@code (x, y)}
+   */
+
+  static double distance(
+    final int x0,
+    final int y0,
+    final int x,
+    final int y)
+  {
+    final double dx = (double) x - (double) x0;
+    final double dy = (double) y - (double) y0;
+    return Math.sqrt((dx * dx) + (dy * dy));
+  }
+
+  /**
+   * @return The distance between the point {@code (x, y)} and the nearest
+   * point on the segment from {@code (x0, y0)} to {@code (x1, y1)}
+   */
+
+  static double distanceToSegment(
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final int x,
+    final int y)
+  {
+    final double dx = (double) x1 - (double) x0;
+    final double dy = (double) y1 - (double) y0;
+    final double px = (double) x - (double) x0;
+    final double py = (double) y - (double) y0;
+    final double length_squared = (dx * dx) + (dy * dy);
+
+    double t = 0.0;
+    if (length_squared > 0.0) {
+      final double projection = ((px * dx) + (py * dy)) / length_squared;
+      t = Math.max(0.0, Math.min(1.0, projection));
+    }
+
+    final double ex = px - (t * dx);
+    final double ey = py - (t * dy);
+    return Math.sqrt((ex * ex) + (ey * ey));
+  }
+
+  /**
+   * The maximum number of polygons visited by a walk from a hint polygon
+   * before the walk gives up and the mesh's index is searched instead.
+   */
+
+  static final int WALK_STEPS_MAXIMUM = 64;
+
+  /**
+   * Find the edge through which a walk towards a point should leave a convex
+   * polygon. Edge {@code i} joins vertex {@code i} to vertex {@code i + 1}.
+   * Of the edges that have the point on their outer side, the edge furthest
+   * from the point is chosen, as it is the edge that most directly faces
+   * the point.
+   *
+   * @param positions The vertex positions of a convex polygon
+   * @param winding   The winding of the polygon, which must not be zero
+   * @param x         The X coordinate of the point
+   * @param y         The Y coordinate of the point
+   *
+   * @return The index of the edge, or {@code -1} if the polygon contains the
+   * point
+   */
+
+  static int exitEdge(
+    final PositionsType positions,
+    final int winding,
+    final int x,
+    final int y)
+  {
+    final int count = positions.positionCount();
+    int exit = -1;
+    double exit_distance = 0.0;
+    for (int index0 = 0; index0 < count; ++index0) {
+      final int index1 = index0 + 1 == count ? 0 : index0 + 1;
+      if (side(positions, index0, index1, x, y) != -winding) {
+        continue;
+      }
+
+      final double dx = (double) positions.positionX(index1)
+        - (double) positions.positionX(index0);
+      final double dy = (double) positions.positionY(index1)
+        - (double) positions.positionY(index0);
+      final double px = (double) x - (double) positions.positionX(index0);
+      final double py = (double) y - (double) positions.positionY(index0);
+      final double distance =
+        Math.abs((dx * py) - (dy * px)) / Math.sqrt((dx * dx) + (dy * dy));
+      if (exit == -1 || distance > exit_distance) {
+        exit = index0;
+        exit_distance = distance;
+      }
+    }
+    return exit;
   }
 
   public static AreaI edgeBounds(
@@ -174,17 +631,178 @@ public final class MeshPolygons
 
   public static long area(
     final List<Vector2I> vertices)
+  {
+    return area(positions(vertices));
+  }
+
+  /**
+   * Calculate the area of a polygon, which is negative for polygons whose
+   * vertices are in counter-clockwise order. Areas that do not fit into a
+   * {@code long} are clamped to {@link Long#MIN_VALUE} or
+   * {@link Long#MAX_VALUE}.
+   */
+
+  static long area(
+    final PositionsType positions)
   {
     long area = 0L;
-    final int count = vertices.size();
+    final int count = positions.positionCount();
     for (int index0 = 0; index0 < count; ++index0) {
       final int index1 = (index0 + 1) % count;
-      final Vector2I v0 = vertices.get(index0);
-      final Vector2I v1 = vertices.get(index1);
-      final long y_sum = Math.addExact((long) v0.y(), (long) v1.y());
-      final long x_sub = Math.subtractExact((long) v1.x(), (long) v0.x());
-      area = Math.addExact(area, Math.multiplyExact(y_sum, x_sub) / 2L);
+      final long y_sum =
+        (long) positions.positionY(index0) + (long) positions.positionY(index1);
+      final long x_sub =
+        (long) positions.positionX(index1) - (long) positions.positionX(index0);
+
+      //
+      // Each factor needs 33 bits, and so the product is only calculated
+      // directly if both fit into 32 bits. The sum overflows iff its sign
+      // differs from those of both of its operands.
+      //
+
+      final long wide =
+        ((y_sum + ORIENT_EXACT_BIAS) | (x_sub + ORIENT_EXACT_BIAS)) >>> 32;
+      if (wide != 0L) {
+        return areaWide(positions);
+      }
+
+      final long term = (y_sum * x_sub) / 2L;
+      final long next = area + term;
+      if (((area ^ next) & (term ^ next)) < 0L) {
+        return areaWide(positions);
+      }
+      area = next;
     }
     return area;
   }
+
+  private static long areaWide(
+    final PositionsType positions)
+  {
+    BigInteger area = BigInteger.ZERO;
+    final int count = positions.positionCount();
+    for (int index0 = 0; index0 < count; ++index0) {
+      final int index1 = (index0 + 1) % count;
+      final long y_sum =
+        (long) positions.positionY(index0) + (long) positions.positionY(index1);
+      final long x_sub =
+        (long) positions.positionX(index1) - (long) positions.positionX(index0);
+      area = area.add(
+        BigInteger.valueOf(y_sum)
+          .multiply(BigInteger.valueOf(x_sub))
+          .divide(BIG_TWO));
+    }
+
+    if (area.bitLength() < 64) {
+      return area.longValue();
+    }
+    return area.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+  }
+
+  /**
+   * Calculate the signed area of a polygon. The area is positive for
+   * polygons whose vertices are in counter-clockwise order, which is the
+   * order in which meshes store them, and so has the opposite sign to that
+   * returned by {@link #area(PositionsType)}. The area is not rounded.
+   */
+
+  static double areaSigned(
+    final PositionsType positions)
+  {
+    double area = 0.0;
+    final int count = positions.positionCount();
+    for (int index0 = 0; index0 < count; ++index0) {
+      final int index1 = index0 + 1 == count ? 0 : index0 + 1;
+      final double y_sum = (double) positions.positionY(index0)
+        + (double) positions.positionY(index1);
+      final double x_sub = (double) positions.positionX(index1)
+        - (double) positions.positionX(index0);
+      area -= y_sum * x_sub;
+    }
+    return area / 2.0;
+  }
+
+  /**
+   * Calculate the centroid of the area of a polygon. Positions are taken
+   * relative to the first vertex, so that the products summed stay small
+   * for polygons far from the origin. A polygon with no area has no
+   * centroid, and so the mean of its vertex positions is returned instead.
+   */
+
+  static Vector2D barycenter(
+    final PositionsType positions)
+  {
+    final int count = positions.positionCount();
+    final double x_origin = (double) positions.positionX(0);
+    final double y_origin = (double) positions.positionY(0);
+
+    double area2 = 0.0;
+    double x_sum = 0.0;
+    double y_sum = 0.0;
+    double x_mean = 0.0;
+    double y_mean = 0.0;
+    for (int index0 = 0; index0 < count; ++index0) {
+      final int index1 = index0 + 1 == count ? 0 : index0 + 1;
+      final double x0 = (double) positions.positionX(index0) - x_origin;
+      final double y0 = (double) positions.positionY(index0) - y_origin;
+      final double x1 = (double) positions.positionX(index1) - x_origin;
+      final double y1 = (double) positions.positionY(index1) - y_origin;
+      final double cross = (x0 * y1) - (x1 * y0);
+      area2 += cross;
+      x_sum += (x0 + x1) * cross;
+      y_sum += (y0 + y1) * cross;
+      x_mean += x0;
+      y_mean += y0;
+    }
+
+    if (area2 == 0.0) {
+      return Vector2D.of(
+        x_origin + (x_mean / (double) count),
+        y_origin + (y_mean / (double) count));
+    }
+    return Vector2D.of(
+      x_origin + (x_sum / (3.0 * area2)),
+      y_origin + (y_sum / (3.0 * area2)));
+  }
+
+  static PositionsType positions(
+    final List<Vector2I> vertices)
+  {
+    return new PositionsType()
+    {
+      @Override
+      public int positionCount()
+      {
+        return vertices.size();
+      }
+
+      @Override
+      public int positionX(
+        final int index)
+      {
+        return vertices.get(index).x();
+      }
+
+      @Override
+      public int positionY(
+        final int index)
+      {
+        return vertices.get(index).y();
+      }
+    };
+  }
+
+  /**
+   * Read access to the vertex positions of a polygon, in order, without
+   * requiring a {@link Vector2I} per vertex.
+   */
+
+  interface PositionsType
+  {
+    int positionCount();
+
+    int positionX(int index);
+
+    int positionY(int index);
+  }
 }
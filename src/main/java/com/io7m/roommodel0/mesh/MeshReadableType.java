@@ -1,22 +1,372 @@
 package com.io7m.roommodel0.mesh;
 
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
 import com.io7m.jspatial.api.quadtrees.QuadTreeReadableIType;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
 
 public interface MeshReadableType
 {
+  /**
+   * @return The polygons in the mesh, in no particular order
+   */
+
   Collection<PolygonType> polygons();
 
+  /**
+   * @return The polygons in the mesh, in ascending order of ID
+   */
+
+  List<PolygonType> polygonsSorted();
+
+  /**
+   * @return The area that contains every polygon in the mesh
+   */
+
+  AreaI bounds();
+
+  /**
+   * @return A quadtree containing the polygons in the mesh. Meshes that index
+   * their polygons some other way build the quadtree on demand, so code that
+   * only needs the bounds of the mesh should use {@link #bounds()}.
+   */
+
   QuadTreeReadableIType<PolygonType> polygonTree();
 
   Optional<PolygonVertexType> vertexFind(
     Vector2I position);
 
+  /**
+   * Find the polygon containing the given point. The boundary of a polygon
+   * is part of the polygon, so a point on an edge or vertex shared by
+   * several polygons is contained by all of them, and may be assigned to any
+   * one of them. Which one depends on the polygon index and the order in
+   * which the polygons were created, so callers that need a particular
+   * polygon in that case must choose among the polygons of the edge or
+   * vertex themselves.
+   *
+   * @param position The point
+   *
+   * @return The polygon containing the point, if any
+   */
+
   Optional<PolygonType> polygonFind(
     Vector2I position);
 
+  /**
+   * Find the polygon containing the given point, starting from a polygon
+   * that is expected to be near it, such as the polygon found for the same
+   * moving object on a previous call. The search walks from the given
+   * polygon across shared edges towards the point, and so takes time
+   * proportional to the distance travelled rather than to the size of the
+   * mesh. If the given polygon does not exist, or the walk reaches an
+   * external edge or takes too many steps, the polygon is found as with
+   * {@link #polygonFind(Vector2I)}. A point on an edge shared by two
+   * polygons may be assigned to either of them.
+   *
+   * @param hint     The polygon from which to start
+   * @param position The point
+   *
+   * @return The polygon containing the point, if any
+   */
+
+  Optional<PolygonType> polygonFindFrom(
+    PolygonID hint,
+    Vector2I position);
+
+  /**
+   * Find the polygon containing each of a batch of points. For each index
+   * {@code i}, {@code results[i]} is set to the ID of a polygon containing
+   * the point {@code (xs[i], ys[i])}, or to {@code -1} if there is no such
+   * polygon. A point on an edge shared by two polygons may be assigned to
+   * either of them. This is considerably faster than calling
+   * {@link #polygonFind(Vector2I)} for each point.
+   *
+   * @param xs      The X coordinates of the points
+   * @param ys      The Y coordinates of the points
+   * @param results The array that receives the polygon IDs
+   */
+
+  void polygonFindAll(
+    int[] xs,
+    int[] ys,
+    long[] results);
+
+  /**
+   * Find the polygon containing each of a batch of points, as with
+   * {@link #polygonFindAll(int[], int[], long[])}, locating points in
+   * parallel using the given pool. The mesh must not be modified until the
+   * method returns.
+   *
+   * @param xs      The X coordinates of the points
+   * @param ys      The Y coordinates of the points
+   * @param results The array that receives the polygon IDs
+   * @param pool    The pool
+   */
+
+  void polygonFindAllParallel(
+    int[] xs,
+    int[] ys,
+    long[] results,
+    ForkJoinPool pool);
+
+  /**
+   * Pass each polygon whose bounds overlap the given area to the given
+   * function, until the function returns {@code false}. Bounds are closed,
+   * so polygons that merely touch the area are included. Polygons are passed
+   * in no particular order, and the function must not modify the mesh.
+   *
+   * @param x_minimum The minimum X coordinate of the area
+   * @param x_maximum The maximum X coordinate of the area
+   * @param y_minimum The minimum Y coordinate of the area
+   * @param y_maximum The maximum Y coordinate of the area
+   * @param receiver  The function that receives polygons
+   *
+   * @return {@code false} iff the function terminated the query
+   */
+
+  boolean forEachPolygonOverlapping(
+    int x_minimum,
+    int x_maximum,
+    int y_minimum,
+    int y_maximum,
+    Predicate<? super PolygonType> receiver);
+
+  /**
+   * Pass each polygon that contains the given point, including polygons
+   * that have the point on one of their edges, to the given function, until
+   * the function returns {@code false}. The function must not modify the
+   * mesh.
+   *
+   * @param x        The X coordinate of the point
+   * @param y        The Y coordinate of the point
+   * @param receiver The function that receives polygons
+   *
+   * @return {@code false} iff the function terminated the query
+   */
+
+  boolean forEachPolygonContaining(
+    int x,
+    int y,
+    Predicate<? super PolygonType> receiver);
+
+  /**
+   * Pass each vertex within the given distance of the given point, along
+   * with its distance from the point, to the given function, until the
+   * function returns {@code false}. Vertices are passed in no particular
+   * order, and only vertices of polygons are considered. The function must
+   * not modify the mesh.
+   *
+   * @param x        The X coordinate of the point
+   * @param y        The Y coordinate of the point
+   * @param radius   The maximum distance
+   * @param receiver The function that receives vertices
+   *
+   * @return {@code false} iff the function terminated the query
+   */
+
+  boolean forEachVertexWithin(
+    int x,
+    int y,
+    int radius,
+    DistanceReceiverType<? super PolygonVertexType> receiver);
+
+  /**
+   * Pass each edge with any point within the given distance of the given
+   * point, along with the distance of its nearest point, to the given
+   * function, until the function returns {@code false}. Edges are passed in
+   * no particular order. The function must not modify the mesh.
+   *
+   * @param x        The X coordinate of the point
+   * @param y        The Y coordinate of the point
+   * @param radius   The maximum distance
+   * @param receiver The function that receives edges
+   *
+   * @return {@code false} iff the function terminated the query
+   */
+
+  boolean forEachEdgeWithin(
+    int x,
+    int y,
+    int radius,
+    DistanceReceiverType<? super PolygonEdgeType> receiver);
+
+  /**
+   * Find the vertices nearest to the given point, up to one per element of
+   * {@code vertices}, and no further away than {@code radius}. On return,
+   * the first {@code n} elements of {@code vertices} hold the vertices
+   * found in order of increasing distance, where {@code n} is the returned
+   * count, and the same elements of {@code distances} hold their distances.
+   * The remaining elements of {@code vertices} are set to {@code null}. Of
+   * vertices at equal distances, any may be chosen. Only vertices of
+   * polygons are considered.
+   *
+   * @param x         The X coordinate of the point
+   * @param y         The Y coordinate of the point
+   * @param radius    The maximum distance
+   * @param vertices  The array that receives the vertices
+   * @param distances The array that receives the distances
+   *
+   * @return The number of vertices found
+   */
+
+  int vertexNearest(
+    int x,
+    int y,
+    int radius,
+    PolygonVertexType[] vertices,
+    double[] distances);
+
+  /**
+   * Find the edges nearest to the given point, as with
+   * {@link #vertexNearest(int, int, int, PolygonVertexType[], double[])}.
+   * The distance of an edge is the distance of its nearest point.
+   *
+   * @param x         The X coordinate of the point
+   * @param y         The Y coordinate of the point
+   * @param radius    The maximum distance
+   * @param edges     The array that receives the edges
+   * @param distances The array that receives the distances
+   *
+   * @return The number of edges found
+   */
+
+  int edgeNearest(
+    int x,
+    int y,
+    int radius,
+    PolygonEdgeType[] edges,
+    double[] distances);
+
+  /**
+   * Pass each external edge through which the segment from {@code (x0, y0)}
+   * to {@code (x1, y1)} leaves or enters the mesh, or that it touches from
+   * outside of the mesh, along with the position along the segment at which
+   * it does so, to the given function, until the function returns
+   * {@code false}. A position of {@code 0.0} is the start of the segment and
+   * {@code 1.0} is the end. Edges are passed in order of increasing
+   * position, and edges at equal positions (such as those that meet at a
+   * vertex) are passed in no particular order. A segment that starts on an
+   * edge and heads into the mesh does not hit that edge, and a segment of
+   * zero length hits nothing. To cast a ray, pass an end point that lies
+   * beyond the bounds of the mesh. The function must not modify the mesh.
+   *
+   * @param x0       The X coordinate of the start of the segment
+   * @param y0       The Y coordinate of the start of the segment
+   * @param x1       The X coordinate of the end of the segment
+   * @param y1       The Y coordinate of the end of the segment
+   * @param receiver The function that receives edges
+   *
+   * @return {@code false} iff the function terminated the query
+   */
+
+  boolean forEachSegmentHit(
+    int x0,
+    int y0,
+    int x1,
+    int y1,
+    DistanceReceiverType<? super PolygonEdgeType> receiver);
+
+  /**
+   * Find the first external edge that the segment from {@code (x0, y0)} to
+   * {@code (x1, y1)} crosses or touches, as with
+   * {@link #forEachSegmentHit(int, int, int, int, DistanceReceiverType)}.
+   *
+   * @param x0 The X coordinate of the start of the segment
+   * @param y0 The Y coordinate of the start of the segment
+   * @param x1 The X coordinate of the end of the segment
+   * @param y1 The Y coordinate of the end of the segment
+   *
+   * @return The first edge hit, if any
+   */
+
+  Optional<MeshSegmentHit> segmentCast(
+    int x0,
+    int y0,
+    int x1,
+    int y1);
+
+  /**
+   * @return The vertices in the mesh, in no particular order
+   */
+
   Collection<PolygonVertexType> vertices();
+
+  /**
+   * @return The vertices in the mesh, in ascending order of ID
+   */
+
+  List<PolygonVertexType> verticesSorted();
+
+  /**
+   * @return The edge between the given vertices, in either direction, if one
+   * exists
+   *
+   * @throws MeshExceptionVertexNonexistent If either vertex does not exist
+   */
+
+  Optional<PolygonEdgeType> edgeFind(
+    PolygonVertexID vertex0,
+    PolygonVertexID vertex1);
+
+  /**
+   * @return The edges that are incident to the given vertex
+   *
+   * @throws MeshExceptionVertexNonexistent If the vertex does not exist
+   */
+
+  List<PolygonEdgeType> vertexEdges(
+    PolygonVertexID vertex);
+
+  /**
+   * @return The distinct polygons that share at least one edge with the given
+   * polygon, in the order of the edges of the given polygon
+   *
+   * @throws MeshExceptionPolygonNonexistent If the polygon does not exist
+   */
+
+  List<PolygonType> polygonNeighbours(
+    PolygonID polygon);
+
+  /**
+   * Pass each polygon that shares an edge with the given polygon to the given
+   * function, once for each shared edge, without allocating. The function
+   * may return {@code false} to stop the query.
+   *
+   * @param polygon  The polygon
+   * @param receiver The function that receives the neighbouring polygons
+   *
+   * @return {@code false} iff the function stopped the query
+   *
+   * @throws MeshExceptionPolygonNonexistent If the polygon does not exist
+   */
+
+  boolean forEachPolygonNeighbour(
+    PolygonID polygon,
+    Predicate<? super PolygonType> receiver);
+
+  /**
+   * A function that receives the results of a proximity query.
+   *
+   * @param <T> The type of results
+   */
+
+  interface DistanceReceiverType<T>
+  {
+    /**
+     * @param item     The result
+     * @param distance The distance of the result from the query point
+     *
+     * @return {@code false} iff the query should terminate
+     */
+
+    boolean receive(
+      T item,
+      double distance);
+  }
 }
@@ -0,0 +1,653 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * The implementation of segment casts shared by all meshes.
+ *
+ * While the segment is inside the mesh, the cast walks from polygon to
+ * polygon across shared edges. The part of the segment inside each convex
+ * polygon is found by clipping the segment against each edge of the polygon
+ * in turn, and the segment leaves the polygon through the edge that clips
+ * it shortest. Leaving the mesh through an external edge is a hit. While the
+ * segment is outside of the mesh, the polygon index is searched along the
+ * segment, a step at a time, for the next external edge that it crosses.
+ * Only the part of the segment within the bounds of the mesh is searched,
+ * so the cost of a cast does not depend on how far beyond the mesh the
+ * segment extends.
+ *
+ * The side of an edge on which each end of the segment lies is computed
+ * exactly, and the position at which the segment crosses an edge is computed
+ * from those two values alone, so that the polygons on either side of an
+ * edge always agree on where the segment crosses it.
+ *
+ * @param <P> The type of polygons
+ */
+
+final class MeshSegmentCast<P extends MeshPolygons.PositionsType>
+{
+  /**
+   * The length of each step along the parts of a segment that lie outside
+   * of the mesh.
+   */
+
+  static final int STEP_LENGTH = 64;
+
+  private final TopologyType<P> topology;
+  private final int x0;
+  private final int y0;
+  private final int x1;
+  private final int y1;
+  private final MeshReadableType.DistanceReceiverType<? super PolygonEdgeType>
+    receiver;
+  private final ReferenceArrayList<P> hit_polygons;
+  private final IntArrayList hit_edges;
+  private final Predicate<P> march_receiver;
+  private double march_from;
+  private boolean march_inclusive;
+  private double march_start;
+  private double march_end;
+  private IntArrayList exits;
+  private IntArrayList exits_next;
+  private @Nullable P current;
+  private double current_high;
+  private double hit;
+
+  private MeshSegmentCast(
+    final TopologyType<P> in_topology,
+    final int in_x0,
+    final int in_y0,
+    final int in_x1,
+    final int in_y1,
+    final MeshReadableType.DistanceReceiverType<? super PolygonEdgeType>
+      in_receiver)
+  {
+    this.topology = in_topology;
+    this.x0 = in_x0;
+    this.y0 = in_y0;
+    this.x1 = in_x1;
+    this.y1 = in_y1;
+    this.receiver = in_receiver;
+    this.exits = new IntArrayList(4);
+    this.exits_next = new IntArrayList(4);
+    this.hit_polygons = new ReferenceArrayList<>(4);
+    this.hit_edges = new IntArrayList(4);
+    this.march_receiver = poly -> {
+      this.crossings(
+        poly,
+        this.march_from,
+        this.march_inclusive,
+        this.march_start,
+        this.march_end);
+      return true;
+    };
+  }
+
+  /**
+   * Pass each external edge crossed by the segment from {@code (x0, y0)} to
+   * {@code (x1, y1)}, in order along the segment, to the given function.
+   *
+   * @param topology The mesh
+   * @param x0       The X coordinate of the start of the segment
+   * @param y0       The Y coordinate of the start of the segment
+   * @param x1       The X coordinate of the end of the segment
+   * @param y1       The Y coordinate of the end of the segment
+   * @param receiver The function that receives hits
+   * @param <P>      The type of polygons
+   *
+   * @return {@code false} iff the function terminated the cast
+   */
+
+  static <P extends MeshPolygons.PositionsType> boolean cast(
+    final TopologyType<P> topology,
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1,
+    final MeshReadableType.DistanceReceiverType<? super PolygonEdgeType>
+      receiver)
+  {
+    NullCheck.notNull(topology, "Topology");
+    NullCheck.notNull(receiver, "Receiver");
+
+    if (x0 == x1 && y0 == y1) {
+      return true;
+    }
+    return new MeshSegmentCast<>(topology, x0, y0, x1, y1, receiver).run();
+  }
+
+  /**
+   * Find the first external edge crossed by the segment from
+   * {@code (x0, y0)} to {@code (x1, y1)}.
+   *
+   * @param topology The mesh
+   * @param x0       The X coordinate of the start of the segment
+   * @param y0       The Y coordinate of the start of the segment
+   * @param x1       The X coordinate of the end of the segment
+   * @param y1       The Y coordinate of the end of the segment
+   * @param <P>      The type of polygons
+   *
+   * @return The first hit, if any
+   */
+
+  static <P extends MeshPolygons.PositionsType> Optional<MeshSegmentHit> first(
+    final TopologyType<P> topology,
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1)
+  {
+    final MeshSegmentHit[] result = new MeshSegmentHit[1];
+    cast(topology, x0, y0, x1, y1, (edge, parameter) -> {
+      result[0] = MeshSegmentHit.of(edge, parameter);
+      return false;
+    });
+    return Optional.ofNullable(result[0]);
+  }
+
+  /**
+   * @return The position along the segment at which it crosses the given
+   * edge, given the sides of the edge on which the ends of the segment lie,
+   * which must differ
+   */
+
+  private double crossing(
+    final P poly,
+    final int index,
+    final int side0,
+    final int side1)
+  {
+    //
+    // The sides are exact, but the areas from which the position is computed
+    // are not, and so the position is kept consistent with the sides.
+    //
+
+    if (side0 == 0) {
+      return 0.0;
+    }
+    if (side1 == 0) {
+      return 1.0;
+    }
+
+    final int next = next(poly, index);
+    final double area0 =
+      MeshPolygons.orientation(poly, index, next, this.x0, this.y0);
+    final double area1 =
+      MeshPolygons.orientation(poly, index, next, this.x1, this.y1);
+    final double t = area0 / (area0 - area1);
+    return t > 0.0 ? Math.min(1.0, t) : 0.0;
+  }
+
+  private static int next(
+    final MeshPolygons.PositionsType poly,
+    final int index)
+  {
+    return index + 1 == poly.positionCount() ? 0 : index + 1;
+  }
+
+  private static int clampToInt(
+    final double value)
+  {
+    return (int) Math.max(
+      (double) Integer.MIN_VALUE, Math.min((double) Integer.MAX_VALUE, value));
+  }
+
+  private boolean run()
+  {
+    double t = 0.0;
+    boolean inclusive = true;
+    boolean inside = this.locate(0.0);
+
+    while (true) {
+      if (inside) {
+        final P current = this.current;
+        final double high = this.current_high;
+        if (high > 1.0) {
+          return true;
+        }
+
+        //
+        // Prefer to continue through a shared edge. If the segment leaves
+        // through a vertex, it may enter a polygon that shares no edge with
+        // this one, and so the polygons at that point are searched.
+        //
+
+        boolean entered = false;
+        for (int index = 0; index < this.exits.size(); ++index) {
+          final P neighbour =
+            this.topology.neighbour(current, this.exits.getInt(index));
+          if (neighbour != null && this.enter(neighbour, high)) {
+            entered = true;
+            break;
+          }
+        }
+        if (entered || this.locate(high)) {
+          continue;
+        }
+
+        for (int index = 0; index < this.exits.size(); ++index) {
+          final int edge = this.exits.getInt(index);
+          if (this.topology.neighbour(current, edge) == null) {
+            if (!this.receiver.receive(
+              this.topology.edge(current, edge), high)) {
+              return false;
+            }
+          }
+        }
+        if (high >= 1.0) {
+          return true;
+        }
+        inside = false;
+        t = high;
+        inclusive = false;
+      } else {
+        if (!this.march(t, inclusive)) {
+          return true;
+        }
+
+        final double at = this.hit;
+        for (int index = 0; index < this.hit_polygons.size(); ++index) {
+          if (!this.receiver.receive(
+            this.topology.edge(
+              this.hit_polygons.get(index), this.hit_edges.getInt(index)),
+            at)) {
+            return false;
+          }
+        }
+
+        for (int index = 0; index < this.hit_polygons.size(); ++index) {
+          if (this.enter(this.hit_polygons.get(index), at)) {
+            inside = true;
+            break;
+          }
+        }
+        if (!inside) {
+          inside = this.locate(at);
+        }
+        t = at;
+        inclusive = false;
+      }
+    }
+  }
+
+  /**
+   * Make the given polygon the current polygon, if the segment passes
+   * through it immediately after the given position.
+   *
+   * @return {@code true} iff the polygon is now the current polygon
+   */
+
+  private boolean enter(
+    final P poly,
+    final double from)
+  {
+    final double high = this.clip(poly, from, this.exits_next);
+    if (Double.isNaN(high)) {
+      return false;
+    }
+
+    final IntArrayList exits_previous = this.exits;
+    this.exits = this.exits_next;
+    this.exits_next = exits_previous;
+    this.current = poly;
+    this.current_high = high;
+    return true;
+  }
+
+  private int side(
+    final P poly,
+    final int winding,
+    final int index,
+    final int x,
+    final int y)
+  {
+    return MeshPolygons.side(poly, index, next(poly, index), x, y) * winding;
+  }
+
+  /**
+   * Clip the segment against the given polygon.
+   *
+   * @param poly  The polygon
+   * @param from  The position along the segment from which to clip
+   * @param exits The list that receives the edges through which the segment
+   *              leaves the polygon
+   *
+   * @return The position along the segment at which it leaves the polygon,
+   * or {@code NaN} if the segment does not pass through the polygon
+   * immediately after {@code from}
+   */
+
+  private double clip(
+    final P poly,
+    final double from,
+    final IntArrayList exits)
+  {
+    final int winding = this.topology.winding(poly);
+    if (winding == 0) {
+      return Double.NaN;
+    }
+    exits.clear();
+
+    double high = Double.POSITIVE_INFINITY;
+    final int count = poly.positionCount();
+    for (int index = 0; index < count; ++index) {
+      final int side0 = this.side(poly, winding, index, this.x0, this.y0);
+      final int side1 = this.side(poly, winding, index, this.x1, this.y1);
+      if (side0 == side1) {
+        if (side0 < 0) {
+          return Double.NaN;
+        }
+        continue;
+      }
+
+      final double t = this.crossing(poly, index, side0, side1);
+      if (side1 < side0) {
+        if (t < high) {
+          high = t;
+          exits.clear();
+          exits.add(index);
+        } else if (t == high) {
+          exits.add(index);
+        }
+      } else if (t > from) {
+        return Double.NaN;
+      }
+    }
+
+    if (high <= from) {
+      return Double.NaN;
+    }
+    return high;
+  }
+
+  private double pointX(
+    final double t)
+  {
+    return (double) this.x0 + (t * ((double) this.x1 - (double) this.x0));
+  }
+
+  private double pointY(
+    final double t)
+  {
+    return (double) this.y0 + (t * ((double) this.y1 - (double) this.y0));
+  }
+
+  /**
+   * Make a polygon through which the segment passes immediately after the
+   * given position the current polygon, if there is one.
+   *
+   * @return {@code true} iff a polygon is now the current polygon
+   */
+
+  private boolean locate(
+    final double t)
+  {
+    final double x = this.pointX(t);
+    final double y = this.pointY(t);
+
+    return !this.topology.search(
+      clampToInt(Math.floor(x) - 1.0),
+      clampToInt(Math.ceil(x) + 1.0),
+      clampToInt(Math.floor(y) - 1.0),
+      clampToInt(Math.ceil(y) + 1.0),
+      poly -> !this.enter(poly, t));
+  }
+
+  /**
+   * Find the nearest external edges that the segment crosses after the
+   * given position, searching the index one step of the segment at a time.
+   * Every edge lies within the bounds of the mesh, so only the part of the
+   * segment within the bounds, widened by one unit on each side to allow for
+   * rounding, is searched.
+   *
+   * @return {@code true} iff any edges were found
+   */
+
+  private boolean march(
+    final double from,
+    final boolean inclusive)
+  {
+    final double dx = (double) this.x1 - (double) this.x0;
+    final double dy = (double) this.y1 - (double) this.y0;
+    final double step = (double) STEP_LENGTH / Math.sqrt((dx * dx) + (dy * dy));
+
+    final AreaI bounds = this.topology.bounds();
+    final double[] range = {from, 1.0};
+    if (!clipRange(
+      range,
+      (double) this.x0,
+      dx,
+      (double) bounds.minimumX() - 1.0,
+      (double) bounds.maximumX() + 1.0)) {
+      return false;
+    }
+    if (!clipRange(
+      range,
+      (double) this.y0,
+      dy,
+      (double) bounds.minimumY() - 1.0,
+      (double) bounds.maximumY() + 1.0)) {
+      return false;
+    }
+
+    this.march_from = from;
+    this.march_inclusive = inclusive;
+
+    final double limit = range[1];
+    double start = range[0];
+    while (true) {
+      final double end = Math.min(limit, start + step);
+      final double start_x = this.pointX(start);
+      final double start_y = this.pointY(start);
+      final double end_x = this.pointX(end);
+      final double end_y = this.pointY(end);
+
+      this.hit = Double.POSITIVE_INFINITY;
+      this.hit_polygons.clear();
+      this.hit_edges.clear();
+
+      this.march_start = start;
+      this.march_end = end;
+      this.topology.search(
+        clampToInt(Math.floor(Math.min(start_x, end_x)) - 1.0),
+        clampToInt(Math.ceil(Math.max(start_x, end_x)) + 1.0),
+        clampToInt(Math.floor(Math.min(start_y, end_y)) - 1.0),
+        clampToInt(Math.ceil(Math.max(start_y, end_y)) + 1.0),
+        this.march_receiver);
+
+      if (this.hit != Double.POSITIVE_INFINITY) {
+        return true;
+      }
+      if (end >= limit) {
+        return false;
+      }
+      start = end;
+    }
+  }
+
+  /**
+   * Narrow the range {@code [range[0], range[1]]} of positions along the
+   * segment to those at which the coordinate {@code origin + t * delta} lies
+   * within {@code [minimum, maximum]}.
+   *
+   * @return {@code false} iff the resulting range is empty
+   */
+
+  private static boolean clipRange(
+    final double[] range,
+    final double origin,
+    final double delta,
+    final double minimum,
+    final double maximum)
+  {
+    if (delta == 0.0) {
+      return origin >= minimum && origin <= maximum;
+    }
+
+    final double t0 = (minimum - origin) / delta;
+    final double t1 = (maximum - origin) / delta;
+    range[0] = Math.max(range[0], Math.min(t0, t1));
+    range[1] = Math.min(range[1], Math.max(t0, t1));
+    return range[0] <= range[1];
+  }
+
+  /**
+   * Record the external edges of the given polygon that the segment crosses
+   * within the given range, if they are no further along the segment than
+   * those recorded so far.
+   */
+
+  private void crossings(
+    final P poly,
+    final double from,
+    final boolean inclusive,
+    final double start,
+    final double end)
+  {
+    final int winding = this.topology.winding(poly);
+    if (winding == 0) {
+      return;
+    }
+
+    final int count = poly.positionCount();
+    for (int index = 0; index < count; ++index) {
+      if (this.topology.neighbour(poly, index) != null) {
+        continue;
+      }
+
+      final double t = this.edgeCrossing(poly, winding, index);
+      if (Double.isNaN(t) || t < start || t > end) {
+        continue;
+      }
+      if (t < from || (t == from && !inclusive)) {
+        continue;
+      }
+
+      if (t < this.hit) {
+        this.hit = t;
+        this.hit_polygons.clear();
+        this.hit_edges.clear();
+      }
+      if (t == this.hit) {
+        this.hit_polygons.add(poly);
+        this.hit_edges.add(index);
+      }
+    }
+  }
+
+  /**
+   * @return The position along the segment at which it first touches the
+   * given edge, or {@code NaN} if it does not
+   */
+
+  private double edgeCrossing(
+    final P poly,
+    final int winding,
+    final int index)
+  {
+    final int side0 = this.side(poly, winding, index, this.x0, this.y0);
+    final int side1 = this.side(poly, winding, index, this.x1, this.y1);
+    if (side0 * side1 > 0) {
+      return Double.NaN;
+    }
+
+    final int next = next(poly, index);
+    final int ax = poly.positionX(index);
+    final int ay = poly.positionY(index);
+    final int bx = poly.positionX(next);
+    final int by = poly.positionY(next);
+    final int side_a =
+      MeshPolygons.orient2d(this.x0, this.y0, this.x1, this.y1, ax, ay);
+    final int side_b =
+      MeshPolygons.orient2d(this.x0, this.y0, this.x1, this.y1, bx, by);
+    if (side_a * side_b > 0) {
+      return Double.NaN;
+    }
+
+    if (side0 != side1) {
+      return this.crossing(poly, index, side0, side1);
+    }
+
+    //
+    // The segment and the edge are collinear. The segment first touches the
+    // edge at the start of the overlap of the two.
+    //
+
+    final double dx = (double) this.x1 - (double) this.x0;
+    final double dy = (double) this.y1 - (double) this.y0;
+    final double length_squared = (dx * dx) + (dy * dy);
+    final double ta =
+      ((((double) ax - (double) this.x0) * dx)
+        + (((double) ay - (double) this.y0) * dy)) / length_squared;
+    final double tb =
+      ((((double) bx - (double) this.x0) * dx)
+        + (((double) by - (double) this.y0) * dy)) / length_squared;
+    final double low = Math.max(0.0, Math.min(ta, tb));
+    final double high = Math.min(1.0, Math.max(ta, tb));
+    if (low > high) {
+      return Double.NaN;
+    }
+    return low;
+  }
+
+  /**
+   * The parts of a mesh used by a cast.
+   *
+   * @param <P> The type of polygons
+   */
+
+  interface TopologyType<P>
+  {
+    /**
+     * @return The bounds of the mesh, which contain every polygon
+     */
+
+    AreaI bounds();
+
+    /**
+     * @return The winding of the polygon
+     *
+     * @see MeshPolygons#winding(MeshPolygons.PositionsType)
+     */
+
+    int winding(P polygon);
+
+    /**
+     * @return The polygon that shares edge {@code edge} of the given polygon,
+     * or {@code null} if the edge is external
+     */
+
+    @Nullable P neighbour(
+      P polygon,
+      int edge);
+
+    /**
+     * @return Edge {@code edge} of the given polygon
+     */
+
+    PolygonEdgeType edge(
+      P polygon,
+      int edge);
+
+    /**
+     * Pass each polygon whose bounds overlap the given area to the given
+     * function, until the function returns {@code false}.
+     *
+     * @return {@code false} iff the function terminated the search
+     */
+
+    boolean search(
+      int x_minimum,
+      int x_maximum,
+      int y_minimum,
+      int y_maximum,
+      Predicate<? super P> receiver);
+  }
+}
@@ -0,0 +1,38 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jaffirm.core.Preconditions;
+import com.io7m.roommodel0.RoomImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * A point at which a segment cast through a mesh crosses an external edge.
+ */
+
+@RoomImmutableStyleType
+@Value.Immutable
+public interface MeshSegmentHitType
+{
+  /**
+   * @return The edge that was hit
+   */
+
+  @Value.Parameter
+  PolygonEdgeType edge();
+
+  /**
+   * @return The position of the hit along the segment, in the range
+   * {@code [0, 1]}, where {@code 0} is the start of the segment
+   */
+
+  @Value.Parameter
+  double parameter();
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    Preconditions.checkPreconditionD(
+      this.parameter(),
+      this.parameter() >= 0.0 && this.parameter() <= 1.0,
+      t -> "Parameter must be in the range [0, 1]");
+  }
+}
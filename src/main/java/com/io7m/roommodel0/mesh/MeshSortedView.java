@@ -0,0 +1,64 @@
+package com.io7m.roommodel0.mesh;
+
+import com.io7m.jnull.NullCheck;
+import it.unimi.dsi.fastutil.objects.ReferenceArrayList;
+
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.function.ToLongFunction;
+
+/**
+ * A read-only list of the elements of a collection, in ascending order of
+ * ID. The list is sorted lazily: {@link #invalidate()} marks the list as
+ * stale, and the list is rebuilt on the next access.
+ *
+ * @param <T> The type of elements
+ */
+
+final class MeshSortedView<T> extends AbstractList<T>
+{
+  private final Collection<? extends T> source;
+  private final Comparator<T> order;
+  private final ReferenceArrayList<T> sorted;
+  private boolean stale;
+
+  MeshSortedView(
+    final Collection<? extends T> in_source,
+    final ToLongFunction<T> in_id)
+  {
+    this.source = NullCheck.notNull(in_source, "Source");
+    this.order = Comparator.comparingLong(NullCheck.notNull(in_id, "ID"));
+    this.sorted = new ReferenceArrayList<>();
+    this.stale = true;
+  }
+
+  void invalidate()
+  {
+    this.stale = true;
+  }
+
+  private ReferenceArrayList<T> current()
+  {
+    if (this.stale) {
+      this.sorted.clear();
+      this.sorted.addAll(this.source);
+      this.sorted.sort(this.order);
+      this.stale = false;
+    }
+    return this.sorted;
+  }
+
+  @Override
+  public T get(
+    final int index)
+  {
+    return this.current().get(index);
+  }
+
+  @Override
+  public int size()
+  {
+    return this.source.size();
+  }
+}
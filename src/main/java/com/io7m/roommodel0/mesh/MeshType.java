@@ -16,6 +16,16 @@ public interface MeshType
     PolygonVertexID vertex,
     Vector2I position);
 
+  /**
+   * @return The vertex at the given position, or a new vertex at the given
+   * position if none exists. If more than one vertex exists at the position,
+   * the oldest (the vertex with the lowest ID) is returned, even if it was
+   * moved to the position after the others.
+   */
+
+  PolygonVertexType vertexFindOrCreate(
+    Vector2I position);
+
   void vertexSetPosition(
     PolygonVertexID vertex,
     Vector2I position);
@@ -30,6 +40,30 @@ public interface MeshType
   void polygonDelete(
     PolygonID polygon);
 
+  /**
+   * Create many vertices and polygons at once. Polygon {@code i} consists of
+   * the next {@code polygon_sizes[i]} elements of {@code polygon_vertices},
+   * each of which is the index of an {@code (x, y)} pair in
+   * {@code positions}. A new vertex is created for each pair that is used by
+   * at least one polygon, and polygons that use the same pair of vertex
+   * indices share an edge.
+   *
+   * All polygons are checked as they would be by
+   * {@link #polygonCreate(List)} before anything is created, so the mesh is
+   * unchanged if any polygon is rejected.
+   *
+   * @param positions        The vertex positions
+   * @param polygon_sizes    The number of vertices in each polygon
+   * @param polygon_vertices The vertex indices of each polygon, in order
+   *
+   * @return The new polygons, in order
+   */
+
+  List<PolygonType> bulkLoad(
+    int[] positions,
+    int[] polygon_sizes,
+    int[] polygon_vertices);
+
   default PolygonType polygonCreateV(
     final PolygonVertexID... vertices)
   {
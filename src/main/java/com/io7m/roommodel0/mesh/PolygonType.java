@@ -1,6 +1,7 @@
 package com.io7m.roommodel0.mesh;
 
 import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 
 import java.util.List;
@@ -18,6 +19,21 @@ public interface PolygonType
 
   List<PolygonVertexType> vertices();
 
+  /**
+   * @return The signed area of the polygon, which is positive if the
+   * vertices of the polygon are in counter-clockwise order, as meshes store
+   * them
+   */
+
+  double area();
+
+  /**
+   * @return The centroid of the area of the polygon, or the mean of the
+   * positions of its vertices if the polygon has no area
+   */
+
+  Vector2D barycenter();
+
   default List<Vector2I> positions()
   {
     return this.vertices()
@@ -14,6 +14,7 @@ public final class UndoController<A> implements UndoControllerType<A>
   private final int stack_max;
   private final A state;
   private final PublishSubject<UndoAvailability> observable;
+  private final PublishSubject<UndoCommandType<A, ?>> commands;
   private List<UndoCommandType<A, ?>> undo_stack;
 
   public UndoController(
@@ -27,6 +28,7 @@ public final class UndoController<A> implements UndoControllerType<A>
     this.state = NullCheck.notNull(in_state, "State");
     this.undo_stack = new ReferenceArrayList<>(in_stack_max);
     this.observable = PublishSubject.create();
+    this.commands = PublishSubject.create();
     this.stack_max = in_stack_max;
   }
 
@@ -62,6 +64,7 @@ public final class UndoController<A> implements UndoControllerType<A>
     }
 
     this.undo_stack.add(op);
+    this.commands.onNext(op);
     this.observable.onNext(this.availability());
     return result;
   }
@@ -78,6 +81,12 @@ public final class UndoController<A> implements UndoControllerType<A>
     return this.observable;
   }
 
+  @Override
+  public Observable<UndoCommandType<A, ?>> commands()
+  {
+    return this.commands;
+  }
+
   @Override
   public int undoStackSize()
   {
@@ -98,6 +107,7 @@ public final class UndoController<A> implements UndoControllerType<A>
       final UndoCommandType<A, ?> op = this.undo_stack.get(last);
       op.undo(this.state);
       this.undo_stack.remove(last);
+      this.commands.onNext(op);
       this.observable.onNext(this.availability());
     }
   }
@@ -11,6 +11,13 @@ public interface UndoControllerType<A>
 
   Observable<UndoAvailability> observable();
 
+  /**
+   * @return An observable that publishes each command after it has been
+   * evaluated or undone
+   */
+
+  Observable<UndoCommandType<A, ?>> commands();
+
   int undoStackSize();
 
   boolean undoAvailable();
@@ -0,0 +1,159 @@
+package com.io7m.roommodel0.tests;
+
+import com.io7m.jaffirm.core.PreconditionViolationException;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2D;
+import com.io7m.roommodel0.RoomLineIntersections;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+public final class RoomLineIntersectionsTest
+{
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  @Test
+  public void testXAtYEndpoints()
+  {
+    Assert.assertEquals(3, RoomLineIntersections.xAtYFloor(3, 0, 10, 7, 0));
+    Assert.assertEquals(10, RoomLineIntersections.xAtYFloor(3, 0, 10, 7, 7));
+    Assert.assertEquals(3, RoomLineIntersections.xAtYCeiling(3, 0, 10, 7, 0));
+    Assert.assertEquals(10, RoomLineIntersections.xAtYCeiling(3, 0, 10, 7, 7));
+  }
+
+  @Test
+  public void testXAtYExact()
+  {
+    Assert.assertEquals(5, RoomLineIntersections.xAtYFloor(0, 0, 10, 10, 5));
+    Assert.assertEquals(5, RoomLineIntersections.xAtYCeiling(0, 0, 10, 10, 5));
+    Assert.assertEquals(5, RoomLineIntersections.xAtYFloor(10, 10, 0, 0, 5));
+    Assert.assertEquals(-5, RoomLineIntersections.xAtYFloor(0, 0, -10, 10, 5));
+  }
+
+  @Test
+  public void testXAtYRounding()
+  {
+    Assert.assertEquals(0, RoomLineIntersections.xAtYFloor(0, 0, 1, 3, 1));
+    Assert.assertEquals(1, RoomLineIntersections.xAtYCeiling(0, 0, 1, 3, 1));
+    Assert.assertEquals(-1, RoomLineIntersections.xAtYFloor(0, 0, -1, 3, 1));
+    Assert.assertEquals(0, RoomLineIntersections.xAtYCeiling(0, 0, -1, 3, 1));
+    Assert.assertEquals(0, RoomLineIntersections.xAtYFloor(0, 3, 1, 0, 2));
+    Assert.assertEquals(1, RoomLineIntersections.xAtYCeiling(0, 3, 1, 0, 2));
+  }
+
+  @Test
+  public void testXAtYExtremes()
+  {
+    final int min = Integer.MIN_VALUE;
+    final int max = Integer.MAX_VALUE;
+
+    Assert.assertEquals(
+      -1, RoomLineIntersections.xAtYFloor(min, min, max, max, -1));
+    Assert.assertEquals(
+      -1, RoomLineIntersections.xAtYCeiling(min, min, max, max, -1));
+    Assert.assertEquals(
+      0, RoomLineIntersections.xAtYFloor(min, min, max, max, 0));
+    Assert.assertEquals(
+      -1, RoomLineIntersections.xAtYFloor(max, min, min, max, 0));
+    Assert.assertEquals(
+      2147483633, RoomLineIntersections.xAtYFloor(min, min, max, 0, -7));
+    Assert.assertEquals(
+      2147483634, RoomLineIntersections.xAtYCeiling(min, min, max, 0, -7));
+    Assert.assertEquals(
+      -2147483635, RoomLineIntersections.xAtYFloor(max, min, min, 0, -7));
+    Assert.assertEquals(
+      -2147483634, RoomLineIntersections.xAtYCeiling(max, min, min, 0, -7));
+    Assert.assertEquals(
+      0, RoomLineIntersections.xAtYFloor(min, min, max, max - 1, 0));
+    Assert.assertEquals(
+      1, RoomLineIntersections.xAtYCeiling(min, min, max, max - 1, 0));
+    Assert.assertEquals(
+      -2, RoomLineIntersections.xAtYFloor(max, min, min, max - 1, 0));
+    Assert.assertEquals(
+      -1, RoomLineIntersections.xAtYCeiling(max, min, min, max - 1, 0));
+  }
+
+  @Test
+  public void testXAtYHorizontal()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    RoomLineIntersections.xAtYFloor(0, 0, 10, 0, 0);
+  }
+
+  @Test
+  public void testIntersectsBatch()
+  {
+    final int[] xs0 = {5, 0, 12, 0, 2};
+    final int[] ys0 = {-5, 1, -1, -3, 0};
+    final int[] xs1 = {5, 10, 12, 0, 4};
+    final int[] ys1 = {5, 1, 1, 3, 0};
+    final boolean[] hits = new boolean[5];
+    final double[] parameters = new double[5];
+
+    Assert.assertEquals(
+      2L,
+      (long) RoomLineIntersections.intersectsBatch(
+        0, 0, 10, 0, xs0, ys0, xs1, ys1, 5, hits, parameters));
+    Assert.assertTrue(hits[0]);
+    Assert.assertEquals(0.5, parameters[0], 0.000001);
+    Assert.assertFalse(hits[1]);
+    Assert.assertFalse(hits[2]);
+    Assert.assertTrue(hits[3]);
+    Assert.assertEquals(0.0, parameters[3], 0.000001);
+    Assert.assertFalse(hits[4]);
+  }
+
+  @Test
+  public void testIntersectsBatchAgreesWithScalar()
+  {
+    final SplittableRandom random = new SplittableRandom(0x6c696e65L);
+    final int count = 1000;
+    final double[] xs0 = new double[count];
+    final double[] ys0 = new double[count];
+    final double[] xs1 = new double[count];
+    final double[] ys1 = new double[count];
+    for (int index = 0; index < count; ++index) {
+      xs0[index] = (double) random.nextInt(-20, 20);
+      ys0[index] = (double) random.nextInt(-20, 20);
+      xs1[index] = (double) random.nextInt(-20, 20);
+      ys1[index] = (double) random.nextInt(-20, 20);
+    }
+
+    final boolean[] hits = new boolean[count];
+    final double[] parameters = new double[count];
+    final int hit_count = RoomLineIntersections.intersectsBatch(
+      -15.0, -10.0, 15.0, 5.0, xs0, ys0, xs1, ys1, count, hits, parameters);
+
+    int expected_count = 0;
+    for (int index = 0; index < count; ++index) {
+      final Optional<Vector2D> expected =
+        RoomLineIntersections.intersection(
+          -15.0, -10.0, 15.0, 5.0,
+          xs0[index], ys0[index], xs1[index], ys1[index]);
+      Assert.assertEquals(expected.isPresent(), hits[index]);
+      if (expected.isPresent()) {
+        ++expected_count;
+        Assert.assertEquals(
+          expected.get().x(), -15.0 + (parameters[index] * 30.0), 0.000001);
+        Assert.assertEquals(
+          expected.get().y(), -10.0 + (parameters[index] * 15.0), 0.000001);
+      }
+    }
+    Assert.assertEquals((long) expected_count, (long) hit_count);
+  }
+
+  @Test
+  public void testIntersectsBatchCountTooLarge()
+  {
+    this.expected.expect(PreconditionViolationException.class);
+    RoomLineIntersections.intersectsBatch(
+      0, 0, 10, 0,
+      new int[1], new int[1], new int[1], new int[1],
+      2,
+      new boolean[2],
+      new double[2]);
+  }
+}
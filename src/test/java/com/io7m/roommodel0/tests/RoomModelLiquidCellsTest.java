@@ -0,0 +1,465 @@
+package com.io7m.roommodel0.tests;
+
+import com.io7m.jregions.core.unparameterized.areas.AreaI;
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.RoomLineIntersections;
+import com.io7m.roommodel0.RoomLiquidCellsType;
+import com.io7m.roommodel0.RoomModelLiquidCells;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshCommandPolygonDelete;
+import com.io7m.roommodel0.mesh.MeshExceptionPolygonNotConvex;
+import com.io7m.roommodel0.mesh.MeshType;
+import com.io7m.roommodel0.mesh.PolygonEdgeType;
+import com.io7m.roommodel0.mesh.PolygonID;
+import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+public final class RoomModelLiquidCellsTest
+{
+  private static final Comparator<Vector2I> POSITION_ORDER =
+    Comparator.comparingInt(Vector2I::x).thenComparingInt(Vector2I::y);
+
+  /**
+   * A room with polygons at a variety of heights, including one that
+   * touches the top of the room.
+   */
+
+  private static MeshType room()
+  {
+    final MeshType mesh = Mesh.create(AreasI.create(0, 0, 128, 128));
+    polygon(mesh, 100, 0, 96, 10, 120, 10);
+    polygon(mesh, 8, 8, 8, 32, 40, 32, 40, 8);
+    polygon(mesh, 48, 16, 44, 48, 80, 48, 72, 16);
+    polygon(mesh, 16, 40, 12, 72, 36, 72);
+    polygon(mesh, 8, 80, 8, 120, 120, 120, 120, 80);
+    return mesh;
+  }
+
+  /**
+   * A room with tall polygons of staggered heights, so that edges remain
+   * active across many spans.
+   */
+
+  private static MeshType staggered()
+  {
+    final MeshType mesh = Mesh.create(AreasI.create(0, 0, 1024, 512));
+    for (int index = 0; index < 100; ++index) {
+      final int x = 4 + (index * 10);
+      final int y0 = 4 + (index * 3);
+      final int y1 = y0 + 150 + ((index * 7) % 50);
+      polygon(mesh, x + 2, y0, x, y1, x + 8, y1, x + 6, y0);
+    }
+    return mesh;
+  }
+
+  private static PolygonType polygon(
+    final MeshType mesh,
+    final int... coordinates)
+  {
+    final List<PolygonVertexType> vertices = new ArrayList<>();
+    for (int index = 0; index < coordinates.length; index += 2) {
+      vertices.add(mesh.vertexFindOrCreate(
+        Vector2I.of(coordinates[index], coordinates[index + 1])));
+    }
+    return mesh.polygonCreateVV(
+      vertices.toArray(new PolygonVertexType[vertices.size()]));
+  }
+
+  private static String outline(
+    final RoomLiquidCellsType.CellType cell)
+  {
+    final List<Vector2I> positions = new ArrayList<>();
+    for (final PolygonVertexType v : cell.polygon().vertices()) {
+      positions.add(v.position());
+    }
+    positions.sort(POSITION_ORDER);
+    return positions.toString();
+  }
+
+  private static Set<String> outlines(
+    final Set<RoomLiquidCellsType.CellType> cells)
+  {
+    final TreeSet<String> results = new TreeSet<>();
+    for (final RoomLiquidCellsType.CellType cell : cells) {
+      results.add(outline(cell));
+    }
+    return results;
+  }
+
+  /**
+   * Describe the cells by their outlines and the outlines of the cells
+   * linked to them, which, unlike cell IDs, do not depend on the order in
+   * which cells were created.
+   */
+
+  private static Map<String, String> describe(
+    final RoomLiquidCellsType cells)
+  {
+    final Map<String, String> results = new HashMap<>();
+    for (final RoomLiquidCellsType.CellType cell : cells.cellsAll().values()) {
+      final String previous = results.put(
+        outline(cell),
+        "above " + outlines(cell.cellsAbove())
+          + " below " + outlines(cell.cellsBelow()));
+      Assert.assertNull("Outlines must be unique", previous);
+    }
+    results.put("roots", outlines(cells.cellRoots()).toString());
+    return results;
+  }
+
+  private static Set<Long> identifiers(
+    final Set<RoomLiquidCellsType.CellType> cells)
+  {
+    final TreeSet<Long> results = new TreeSet<>();
+    for (final RoomLiquidCellsType.CellType cell : cells) {
+      results.add(Long.valueOf(cell.polygon().id().value()));
+    }
+    return results;
+  }
+
+  /**
+   * Describe the cells by their IDs, outlines, and the IDs of the cells
+   * linked to them.
+   */
+
+  private static Map<Long, String> describeExactly(
+    final RoomLiquidCellsType cells)
+  {
+    final Map<Long, String> results = new TreeMap<>();
+    for (final Map.Entry<PolygonID, RoomLiquidCellsType.CellType> entry :
+      cells.cellsAll().entrySet()) {
+      final RoomLiquidCellsType.CellType cell = entry.getValue();
+      Assert.assertEquals(entry.getKey(), cell.polygon().id());
+      results.put(
+        Long.valueOf(entry.getKey().value()),
+        outline(cell)
+          + " above " + identifiers(cell.cellsAbove())
+          + " below " + identifiers(cell.cellsBelow()));
+    }
+    results.put(
+      Long.valueOf(-1L), "roots " + identifiers(cells.cellRoots()));
+    return results;
+  }
+
+  private static void checkParallelSameAsSerial(
+    final MeshType mesh)
+  {
+    final Map<Long, String> serial =
+      describeExactly(RoomModelLiquidCells.generate(mesh));
+    Assert.assertTrue(serial.size() > 1);
+
+    //
+    // The number of spans swept by each task depends on the parallelism.
+    //
+
+    for (final int parallelism : new int[]{1, 2, 3, 4}) {
+      final ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        Assert.assertEquals(
+          serial,
+          describeExactly(RoomModelLiquidCells.generateParallel(mesh, pool)));
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Compute the outlines of the cells of the given mesh by intersecting each
+   * span separately with every edge in the mesh.
+   */
+
+  private static List<String> outlinesBruteForce(
+    final MeshType mesh)
+  {
+    final AreaI bounds = mesh.bounds();
+    final TreeSet<Integer> ys = new TreeSet<>();
+    for (final PolygonType polygon : mesh.polygons()) {
+      for (final PolygonVertexType v : polygon.vertices()) {
+        ys.add(Integer.valueOf(v.position().y()));
+      }
+    }
+    ys.add(Integer.valueOf(bounds.maximumY()));
+
+    final List<String> results = new ArrayList<>();
+    int y0 = bounds.minimumY();
+    for (final Integer y_value : ys) {
+      final int y1 = y_value.intValue();
+
+      final List<int[]> intersections = new ArrayList<>();
+      intersections.add(new int[]{bounds.minimumX(), bounds.minimumX()});
+      for (final PolygonType polygon : mesh.polygons()) {
+        for (final PolygonEdgeType e : polygon.edges()) {
+          final Vector2I p0 = e.vertex0().position();
+          final Vector2I p1 = e.vertex1().position();
+          if (!e.isExternal()
+            || p0.y() == p1.y()
+            || Math.max(p0.y(), p1.y()) <= y0
+            || Math.min(p0.y(), p1.y()) >= y1
+            || Math.max(p0.x(), p1.x()) <= bounds.minimumX()
+            || Math.min(p0.x(), p1.x()) >= bounds.maximumX()) {
+            continue;
+          }
+          intersections.add(new int[]{
+            RoomLineIntersections.xAtYFloor(
+              p0.x(), p0.y(), p1.x(), p1.y(), y0),
+            RoomLineIntersections.xAtYFloor(
+              p0.x(), p0.y(), p1.x(), p1.y(), y1),
+          });
+        }
+      }
+      intersections.sort(
+        Comparator.<int[]>comparingInt(i -> Math.min(i[0], i[1]))
+          .thenComparingInt(i -> Math.max(i[0], i[1])));
+      intersections.add(new int[]{bounds.maximumX(), bounds.maximumX()});
+
+      Assert.assertEquals(0L, (long) (intersections.size() % 2));
+      for (int index = 0; index < intersections.size(); index += 2) {
+        final int[] i0 = intersections.get(index);
+        final int[] i1 = intersections.get(index + 1);
+        final TreeSet<Vector2I> positions = new TreeSet<>(POSITION_ORDER);
+        positions.add(Vector2I.of(i0[1], y1));
+        positions.add(Vector2I.of(i0[0], y0));
+        positions.add(Vector2I.of(i1[0], y0));
+        positions.add(Vector2I.of(i1[1], y1));
+        if (positions.size() >= 3) {
+          results.add(new ArrayList<>(positions).toString());
+        }
+      }
+      y0 = y1;
+    }
+
+    Collections.sort(results);
+    return results;
+  }
+
+  private static void checkSameAsBruteForce(
+    final MeshType mesh)
+  {
+    final List<String> results = new ArrayList<>();
+    for (final RoomLiquidCellsType.CellType cell :
+      RoomModelLiquidCells.generate(mesh).cellsAll().values()) {
+      results.add(outline(cell));
+    }
+    Collections.sort(results);
+    Assert.assertEquals(outlinesBruteForce(mesh), results);
+  }
+
+  /**
+   * Check that the cells share vertices wherever they touch, and that no
+   * vertex of the cell mesh is unused.
+   */
+
+  private static void checkVerticesShared(
+    final RoomLiquidCellsType cells)
+  {
+    final Set<Vector2I> positions = new TreeSet<>(POSITION_ORDER);
+    int count = 0;
+    for (final PolygonVertexType v : cells.mesh().vertices()) {
+      Assert.assertFalse(v.polygons().isEmpty());
+      positions.add(v.position());
+      ++count;
+    }
+    Assert.assertEquals((long) positions.size(), (long) count);
+  }
+
+  private static void checkSameAsGenerated(
+    final MeshType mesh,
+    final RoomModelLiquidCells cells)
+  {
+    Assert.assertEquals(
+      describe(RoomModelLiquidCells.generate(mesh)), describe(cells));
+  }
+
+  @Test
+  public void testGenerateRoomBruteForce()
+  {
+    checkSameAsBruteForce(room());
+  }
+
+  @Test
+  public void testGenerateStaggeredBruteForce()
+  {
+    checkSameAsBruteForce(staggered());
+  }
+
+  @Test
+  public void testGenerateScatteredBruteForce()
+  {
+    for (final double jaggedness : new double[]{0.0, 0.5, 1.0}) {
+      checkSameAsBruteForce(
+        SyntheticRooms.scattered(300, 60, jaggedness, 0x6c697175L));
+    }
+  }
+
+  @Test
+  public void testGenerateVerticesShared()
+  {
+    checkVerticesShared(RoomModelLiquidCells.generate(room()));
+    checkVerticesShared(RoomModelLiquidCells.generate(staggered()));
+    checkVerticesShared(RoomModelLiquidCells.generate(
+      SyntheticRooms.scattered(300, 60, 0.5, 0x6c697175L)));
+
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      checkVerticesShared(
+        RoomModelLiquidCells.generateParallel(staggered(), pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testUpdateBandVerticesShared()
+  {
+    final MeshType mesh = staggered();
+    final RoomModelLiquidCells cells = RoomModelLiquidCells.generate(mesh);
+
+    final PolygonVertexType v = mesh.vertexFind(Vector2I.of(506, 154)).get();
+    mesh.vertexSetPosition(v.id(), Vector2I.of(506, 160));
+    cells.updateBand(150, 400);
+    checkVerticesShared(cells);
+    checkSameAsGenerated(mesh, cells);
+  }
+
+  @Test
+  public void testGenerateParallelRoom()
+  {
+    checkParallelSameAsSerial(room());
+  }
+
+  @Test
+  public void testGenerateParallelStaggered()
+  {
+    checkParallelSameAsSerial(staggered());
+  }
+
+  @Test
+  public void testGenerateParallelScattered()
+  {
+    for (final double jaggedness : new double[]{0.0, 0.5, 1.0}) {
+      checkParallelSameAsSerial(
+        SyntheticRooms.scattered(500, 100, jaggedness, 0x6c697175L));
+      checkParallelSameAsSerial(
+        SyntheticRooms.scattered(2000, 1000, jaggedness, 0x6c697175L));
+    }
+  }
+
+  @Test
+  public void testUpdateBandVertexMove()
+  {
+    final MeshType mesh = room();
+    final RoomModelLiquidCells cells = RoomModelLiquidCells.generate(mesh);
+
+    final PolygonVertexType v = mesh.vertexFind(Vector2I.of(72, 16)).get();
+    mesh.vertexSetPosition(v.id(), Vector2I.of(76, 24));
+    cells.updateBand(16, 48);
+    checkSameAsGenerated(mesh, cells);
+  }
+
+  @Test
+  public void testUpdatePolygonsCreate()
+  {
+    final MeshType mesh = room();
+    final RoomModelLiquidCells cells = RoomModelLiquidCells.generate(mesh);
+
+    final PolygonType created = polygon(mesh, 64, 60, 60, 70, 100, 70);
+    cells.updatePolygons(Collections.singletonList(created));
+    checkSameAsGenerated(mesh, cells);
+  }
+
+  @Test
+  public void testUpdateCommandDeleteUndo()
+  {
+    final MeshType mesh = room();
+    final RoomModelLiquidCells cells = RoomModelLiquidCells.generate(mesh);
+
+    for (final Vector2I position : new Vector2I[]{
+      Vector2I.of(104, 5),
+      Vector2I.of(24, 20),
+      Vector2I.of(64, 120),
+    }) {
+      final MeshCommandPolygonDelete command =
+        MeshCommandPolygonDelete.deletePolygon(
+          mesh.polygonFind(position).get());
+
+      command.evaluate(mesh);
+      cells.update(command);
+      checkSameAsGenerated(mesh, cells);
+
+      command.undo(mesh);
+      cells.update(command);
+      checkSameAsGenerated(mesh, cells);
+    }
+  }
+
+  @Test
+  public void testUpdateBandRandomMoves()
+  {
+    final MeshType mesh = room();
+    final RoomModelLiquidCells cells = RoomModelLiquidCells.generate(mesh);
+    final List<PolygonVertexType> vertices =
+      new ArrayList<>(mesh.verticesSorted());
+    final SplittableRandom random = new SplittableRandom(0x726f6f6dL);
+
+    int moved = 0;
+    for (int attempt = 0; attempt < 200; ++attempt) {
+      final PolygonVertexType v =
+        vertices.get(random.nextInt(vertices.size()));
+      final Vector2I position = v.position();
+      final Vector2I target =
+        Vector2I.of(
+          position.x() + random.nextInt(-6, 7),
+          position.y() + random.nextInt(-6, 7));
+
+      int y_minimum = Math.min(position.y(), target.y());
+      int y_maximum = Math.max(position.y(), target.y());
+      for (final PolygonType polygon : v.polygons()) {
+        final AreaI bounds = polygon.bounds();
+        y_minimum = Math.min(y_minimum, bounds.minimumY());
+        y_maximum = Math.max(y_maximum, bounds.maximumY());
+      }
+
+      try {
+        mesh.vertexSetPosition(v.id(), target);
+      } catch (final MeshExceptionPolygonNotConvex e) {
+        continue;
+      }
+
+      //
+      // Moves that make polygons overlap produce crossing edges, for which
+      // no cells can be generated at all.
+      //
+
+      final RoomModelLiquidCells generated;
+      try {
+        generated = RoomModelLiquidCells.generate(mesh);
+      } catch (final MeshExceptionPolygonNotConvex e) {
+        mesh.vertexSetPosition(v.id(), position);
+        continue;
+      }
+
+      cells.updateBand(y_minimum, y_maximum);
+      Assert.assertEquals(describe(generated), describe(cells));
+      ++moved;
+    }
+
+    Assert.assertTrue(moved > 50);
+  }
+}
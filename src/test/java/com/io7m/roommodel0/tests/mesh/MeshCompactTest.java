@@ -0,0 +1,29 @@
+package com.io7m.roommodel0.tests.mesh;
+
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+import com.io7m.roommodel0.mesh.MeshCompact;
+import com.io7m.roommodel0.mesh.MeshType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public final class MeshCompactTest extends MeshContract
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(MeshCompactTest.class);
+  }
+
+  @Override
+  protected Logger log()
+  {
+    return LOG;
+  }
+
+  @Override
+  protected MeshType emptyMesh()
+  {
+    return MeshCompact.create(
+      AreasI.create(-2048, -2048, 4096, 4096));
+  }
+}
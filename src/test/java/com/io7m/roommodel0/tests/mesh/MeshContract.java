@@ -1,13 +1,16 @@
 package com.io7m.roommodel0.tests.mesh;
 
+import com.io7m.jaffirm.core.PreconditionViolationException;
 import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
 import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
 import com.io7m.roommodel0.mesh.MeshExceptionPolygonDuplicate;
 import com.io7m.roommodel0.mesh.MeshExceptionPolygonNonexistent;
 import com.io7m.roommodel0.mesh.MeshExceptionPolygonNotConvex;
 import com.io7m.roommodel0.mesh.MeshExceptionPolygonOutsideBounds;
 import com.io7m.roommodel0.mesh.MeshExceptionPolygonTooFewVertices;
 import com.io7m.roommodel0.mesh.MeshExceptionVertexNonexistent;
+import com.io7m.roommodel0.mesh.MeshSegmentHit;
 import com.io7m.roommodel0.mesh.MeshType;
 import com.io7m.roommodel0.mesh.PolygonEdgeType;
 import com.io7m.roommodel0.mesh.PolygonID;
@@ -21,8 +24,19 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.slf4j.Logger;
 
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 public abstract class MeshContract
 {
@@ -32,6 +46,249 @@ public abstract class MeshContract
 
   protected abstract MeshType emptyMesh();
 
+  /**
+   * Load three triangles into the given mesh: two that share the diagonal
+   * from {@code (0, 0)} to {@code (4, 4)} of a square, and one to the right
+   * of the square that shares the edge from {@code (4, 0)} to {@code (4, 4)}.
+   */
+
+  private static List<PolygonType> loadTriangles(
+    final MeshType model)
+  {
+    return model.bulkLoad(
+      new int[]{0, 0, 0, 4, 4, 4, 4, 0, 8, 4},
+      new int[]{3, 3, 3},
+      new int[]{0, 1, 2, 2, 3, 0, 3, 2, 4});
+  }
+
+  /**
+   * Load a grid of 64 by 64 quads, each {@link SyntheticRooms#GRID_CELL_SIZE}
+   * units wide, into the given mesh, and delete a scattering of the quads so
+   * that the mesh has holes. The grid is large enough that walks across it
+   * exceed the walk step limit, and that searches for nearby items must grow
+   * their search areas several times.
+   *
+   * @return The remaining quads
+   */
+
+  private static List<PolygonType> loadGrid(
+    final MeshType model)
+  {
+    final SyntheticRooms.GridArrays g = SyntheticRooms.gridArrays(64 * 64);
+    final List<PolygonType> loaded =
+      model.bulkLoad(g.positions(), g.polygonSizes(), g.polygonVertices());
+
+    final List<PolygonType> kept = new ArrayList<>(loaded.size());
+    for (int index = 0; index < loaded.size(); ++index) {
+      final PolygonType polygon = loaded.get(index);
+      if (index % 97 == 13) {
+        model.polygonDelete(polygon.id());
+      } else {
+        kept.add(polygon);
+      }
+    }
+    return kept;
+  }
+
+  /**
+   * @return {@code true} iff the given convex polygon contains the given
+   * point, including points on its boundary
+   */
+
+  private static boolean containsBruteForce(
+    final PolygonType polygon,
+    final int x,
+    final int y)
+  {
+    final List<Vector2I> positions = polygon.positions();
+    boolean negative = false;
+    boolean positive = false;
+    for (int index = 0; index < positions.size(); ++index) {
+      final Vector2I p0 = positions.get(index);
+      final Vector2I p1 = positions.get((index + 1) % positions.size());
+      final long cross =
+        ((long) (p1.x() - p0.x()) * (long) (y - p0.y()))
+          - ((long) (p1.y() - p0.y()) * (long) (x - p0.x()));
+      negative |= cross < 0L;
+      positive |= cross > 0L;
+    }
+    return !(negative && positive);
+  }
+
+  private static String edgeKey(
+    final PolygonEdgeType edge)
+  {
+    final Vector2I p0 = edge.vertex0().position();
+    final Vector2I p1 = edge.vertex1().position();
+    if (p0.x() < p1.x() || (p0.x() == p1.x() && p0.y() < p1.y())) {
+      return p0 + " " + p1;
+    }
+    return p1 + " " + p0;
+  }
+
+  private static double distanceToSegmentBruteForce(
+    final Vector2I p0,
+    final Vector2I p1,
+    final int x,
+    final int y)
+  {
+    final double dx = (double) (p1.x() - p0.x());
+    final double dy = (double) (p1.y() - p0.y());
+    final double t = Math.max(0.0, Math.min(1.0,
+      (((double) (x - p0.x()) * dx) + ((double) (y - p0.y()) * dy))
+        / ((dx * dx) + (dy * dy))));
+    return Math.hypot(
+      (double) p0.x() + (t * dx) - (double) x,
+      (double) p0.y() + (t * dy) - (double) y);
+  }
+
+  /**
+   * @return The distances of every vertex of the given polygons from the
+   * given point, keyed by position
+   */
+
+  private static Map<Vector2I, Double> vertexDistancesBruteForce(
+    final List<PolygonType> polygons,
+    final int x,
+    final int y)
+  {
+    final Map<Vector2I, Double> results = new HashMap<>();
+    for (final PolygonType polygon : polygons) {
+      for (final Vector2I p : polygon.positions()) {
+        results.put(p, Double.valueOf(Math.hypot(
+          (double) (p.x() - x), (double) (p.y() - y))));
+      }
+    }
+    return results;
+  }
+
+  /**
+   * @return The distances of every edge of the given polygons from the
+   * given point, keyed by {@link #edgeKey(PolygonEdgeType)}
+   */
+
+  private static Map<String, Double> edgeDistancesBruteForce(
+    final List<PolygonType> polygons,
+    final int x,
+    final int y)
+  {
+    final Map<String, Double> results = new HashMap<>();
+    for (final PolygonType polygon : polygons) {
+      for (final PolygonEdgeType edge : polygon.edges()) {
+        results.put(edgeKey(edge), Double.valueOf(distanceToSegmentBruteForce(
+          edge.vertex0().position(), edge.vertex1().position(), x, y)));
+      }
+    }
+    return results;
+  }
+
+  private static List<Double> sortedWithin(
+    final Collection<Double> distances,
+    final int radius)
+  {
+    final List<Double> results = new ArrayList<>();
+    for (final Double distance : distances) {
+      if (distance.doubleValue() <= (double) radius) {
+        results.add(distance);
+      }
+    }
+    Collections.sort(results);
+    return results;
+  }
+
+  private static long orientationBruteForce(
+    final long ax,
+    final long ay,
+    final long bx,
+    final long by,
+    final long px,
+    final long py)
+  {
+    return Long.signum(((bx - ax) * (py - ay)) - ((by - ay) * (px - ax)));
+  }
+
+  /**
+   * @return The external edges of the given polygons crossed by the segment
+   * from {@code (x0, y0)} to {@code (x1, y1)}, keyed by
+   * {@link #edgeKey(PolygonEdgeType)} and sorted by the position along the
+   * segment at which they are crossed, or {@code null} if the segment passes
+   * through a vertex, runs along an edge, or starts or ends on an edge
+   */
+
+  private static List<Map.Entry<String, Double>> segmentHitsBruteForce(
+    final List<PolygonType> polygons,
+    final int x0,
+    final int y0,
+    final int x1,
+    final int y1)
+  {
+    final Map<String, PolygonEdgeType> external = new HashMap<>();
+    for (final PolygonType polygon : polygons) {
+      for (final PolygonEdgeType edge : polygon.edges()) {
+        if (edge.isExternal()) {
+          external.put(edgeKey(edge), edge);
+        }
+      }
+    }
+
+    final List<Map.Entry<String, Double>> results = new ArrayList<>();
+    for (final Map.Entry<String, PolygonEdgeType> entry : external.entrySet()) {
+      final Vector2I e0 = entry.getValue().vertex0().position();
+      final Vector2I e1 = entry.getValue().vertex1().position();
+
+      final long side_e0 =
+        orientationBruteForce(x0, y0, x1, y1, e0.x(), e0.y());
+      final long side_e1 =
+        orientationBruteForce(x0, y0, x1, y1, e1.x(), e1.y());
+      final long side_s0 =
+        orientationBruteForce(e0.x(), e0.y(), e1.x(), e1.y(), x0, y0);
+      final long side_s1 =
+        orientationBruteForce(e0.x(), e0.y(), e1.x(), e1.y(), x1, y1);
+
+      if (side_e0 * side_e1 < 0L && side_s0 * side_s1 < 0L) {
+        final double sdx = (double) x1 - (double) x0;
+        final double sdy = (double) y1 - (double) y0;
+        final double edx = (double) (e1.x() - e0.x());
+        final double edy = (double) (e1.y() - e0.y());
+        final double t =
+          ((((double) e0.x() - (double) x0) * edy)
+            - (((double) e0.y() - (double) y0) * edx))
+            / ((sdx * edy) - (sdy * edx));
+        results.add(new AbstractMap.SimpleImmutableEntry<>(
+          entry.getKey(), Double.valueOf(t)));
+        continue;
+      }
+
+      final boolean boxes_overlap =
+        Math.max(x0, x1) >= Math.min(e0.x(), e1.x())
+          && Math.min(x0, x1) <= Math.max(e0.x(), e1.x())
+          && Math.max(y0, y1) >= Math.min(e0.y(), e1.y())
+          && Math.min(y0, y1) <= Math.max(e0.y(), e1.y());
+      final boolean degenerate =
+        side_e0 == 0L || side_e1 == 0L || side_s0 == 0L || side_s1 == 0L;
+      if (boxes_overlap && degenerate) {
+        return null;
+      }
+    }
+
+    results.sort(Map.Entry.comparingByValue());
+    return results;
+  }
+
+  private static Set<PolygonType> containingBruteForce(
+    final List<PolygonType> polygons,
+    final int x,
+    final int y)
+  {
+    final Set<PolygonType> results = new HashSet<>();
+    for (final PolygonType polygon : polygons) {
+      if (containsBruteForce(polygon, x, y)) {
+        results.add(polygon);
+      }
+    }
+    return results;
+  }
+
   @Test
   public final void testCreatePolygon()
   {
@@ -104,6 +361,36 @@ public abstract class MeshContract
     Assert.assertNotEquals(poly2.id(), poly0.id());
   }
 
+  @Test
+  public final void testPolygonsSorted()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 1));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(1, 0));
+
+    final PolygonType poly0 =
+      model.polygonCreateWithIDVV(PolygonID.of(7L), v0, v1, v2);
+    final PolygonType poly1 =
+      model.polygonCreateWithIDVV(PolygonID.of(3L), v0, v1, v2);
+    final PolygonType poly2 =
+      model.polygonCreateVV(v0, v1, v2);
+
+    Assert.assertEquals(8L, poly2.id().value());
+
+    final List<PolygonType> sorted = model.polygonsSorted();
+    Assert.assertEquals(3L, (long) sorted.size());
+    Assert.assertEquals(poly1, sorted.get(0));
+    Assert.assertEquals(poly0, sorted.get(1));
+    Assert.assertEquals(poly2, sorted.get(2));
+
+    model.polygonDelete(poly0.id());
+    Assert.assertEquals(2L, (long) sorted.size());
+    Assert.assertEquals(poly1, sorted.get(0));
+    Assert.assertEquals(poly2, sorted.get(1));
+  }
+
   @Test
   public final void testCreatePolygonWithIDExists()
   {
@@ -211,6 +498,856 @@ public abstract class MeshContract
     this.checkModel(model);
   }
 
+  @Test
+  public final void testPolygonsOverlapping()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final List<PolygonType> all = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonOverlapping(0, 8, 0, 4, all::add));
+    Assert.assertEquals(3L, (long) all.size());
+
+    final List<PolygonType> touching = new ArrayList<>();
+    Assert.assertTrue(
+      model.forEachPolygonOverlapping(8, 9, 4, 5, touching::add));
+    Assert.assertEquals(
+      Collections.singletonList(polygons.get(2)), touching);
+
+    final List<PolygonType> none = new ArrayList<>();
+    Assert.assertTrue(
+      model.forEachPolygonOverlapping(9, 10, 0, 4, none::add));
+    Assert.assertTrue(none.isEmpty());
+
+    final List<PolygonType> first = new ArrayList<>();
+    Assert.assertFalse(
+      model.forEachPolygonOverlapping(0, 8, 0, 4, p -> {
+        first.add(p);
+        return false;
+      }));
+    Assert.assertEquals(1L, (long) first.size());
+  }
+
+  @Test
+  public final void testPolygonsOverlappingExtreme()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+    final PolygonType corner =
+      model.polygonCreateVV(
+        model.vertexCreate(Vector2I.of(2040, 2040)),
+        model.vertexCreate(Vector2I.of(2040, 2048)),
+        model.vertexCreate(Vector2I.of(2048, 2048)));
+
+    final List<PolygonType> all = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonOverlapping(
+      Integer.MIN_VALUE,
+      Integer.MAX_VALUE,
+      Integer.MIN_VALUE,
+      Integer.MAX_VALUE,
+      all::add));
+    Assert.assertEquals(4L, (long) all.size());
+
+    final List<PolygonType> origin = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonOverlapping(
+      Integer.MIN_VALUE, 0, Integer.MIN_VALUE, 0, origin::add));
+    Assert.assertEquals(2L, (long) origin.size());
+    Assert.assertTrue(origin.contains(polygons.get(0)));
+    Assert.assertTrue(origin.contains(polygons.get(1)));
+
+    final List<PolygonType> touching = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonOverlapping(
+      2048, Integer.MAX_VALUE, 2048, Integer.MAX_VALUE, touching::add));
+    Assert.assertEquals(Collections.singletonList(corner), touching);
+
+    final List<PolygonType> none = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonOverlapping(
+      2049, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MAX_VALUE,
+      none::add));
+    Assert.assertTrue(none.isEmpty());
+  }
+
+  @Test
+  public final void testPolygonsContaining()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final List<PolygonType> inside = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonContaining(3, 1, inside::add));
+    Assert.assertEquals(
+      Collections.singletonList(polygons.get(1)), inside);
+
+    final Set<PolygonType> on_edge = new HashSet<>();
+    Assert.assertTrue(model.forEachPolygonContaining(4, 2, on_edge::add));
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(polygons.get(1), polygons.get(2))),
+      on_edge);
+
+    final List<PolygonType> outside = new ArrayList<>();
+    Assert.assertTrue(model.forEachPolygonContaining(7, 1, outside::add));
+    Assert.assertTrue(outside.isEmpty());
+  }
+
+  @Test
+  public final void testPolygonFindAll()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final int[] xs = {3, 7, 1, 6, 100};
+    final int[] ys = {1, 1, 3, 3, 100};
+    final long[] expected = {
+      polygons.get(1).id().value(),
+      -1L,
+      polygons.get(0).id().value(),
+      polygons.get(2).id().value(),
+      -1L,
+    };
+
+    final long[] results = new long[xs.length];
+    model.polygonFindAll(xs, ys, results);
+    Assert.assertArrayEquals(expected, results);
+
+    final long[] results_parallel = new long[xs.length];
+    final ForkJoinPool pool = new ForkJoinPool(2);
+    try {
+      model.polygonFindAllParallel(xs, ys, results_parallel, pool);
+    } finally {
+      pool.shutdown();
+    }
+    Assert.assertArrayEquals(expected, results_parallel);
+  }
+
+  @Test
+  public final void testPolygonFindAllMismatched()
+  {
+    final MeshType model = this.emptyMesh();
+
+    this.expected.expect(PreconditionViolationException.class);
+    model.polygonFindAll(new int[2], new int[3], new long[2]);
+  }
+
+  @Test
+  public final void testPolygonFindShared()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final PolygonType poly0 = polygons.get(0);
+    final PolygonType poly1 = polygons.get(1);
+    final PolygonType poly2 = polygons.get(2);
+
+    final PolygonType on_edge = model.polygonFind(Vector2I.of(2, 2)).get();
+    Assert.assertTrue(on_edge.equals(poly0) || on_edge.equals(poly1));
+
+    final PolygonType on_vertex = model.polygonFind(Vector2I.of(4, 4)).get();
+    Assert.assertTrue(
+      on_vertex.equals(poly0)
+        || on_vertex.equals(poly1)
+        || on_vertex.equals(poly2));
+  }
+
+  @Test
+  public final void testPolygonFindFrom()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final PolygonType poly0 = polygons.get(0);
+    final PolygonType poly1 = polygons.get(1);
+    final PolygonType poly2 = polygons.get(2);
+
+    Assert.assertEquals(
+      Optional.of(poly0), model.polygonFindFrom(poly0.id(), Vector2I.of(1, 3)));
+    Assert.assertEquals(
+      Optional.of(poly1), model.polygonFindFrom(poly0.id(), Vector2I.of(3, 1)));
+    Assert.assertEquals(
+      Optional.of(poly2), model.polygonFindFrom(poly0.id(), Vector2I.of(6, 3)));
+    Assert.assertEquals(
+      Optional.of(poly0), model.polygonFindFrom(poly2.id(), Vector2I.of(1, 3)));
+    Assert.assertEquals(
+      Optional.empty(), model.polygonFindFrom(poly0.id(), Vector2I.of(7, 1)));
+    Assert.assertEquals(
+      Optional.empty(),
+      model.polygonFindFrom(poly2.id(), Vector2I.of(100, 100)));
+  }
+
+  @Test
+  public final void testPolygonFindFromBruteForce()
+  {
+    final MeshType model = this.emptyMesh();
+    final List<PolygonType> polygons = loadGrid(model);
+    final SplittableRandom random = new SplittableRandom(0x77616c6bL);
+
+    //
+    // Walks between opposite corners of the grid take more steps than the
+    // walk step limit allows.
+    //
+
+    final PolygonType corner =
+      model.polygonFind(Vector2I.of(4, 4)).get();
+    Assert.assertEquals(
+      model.polygonFind(Vector2I.of(508, 508)),
+      model.polygonFindFrom(corner.id(), Vector2I.of(508, 508)));
+
+    for (int index = 0; index < 1000; ++index) {
+      final PolygonType hint = polygons.get(random.nextInt(polygons.size()));
+      final int x = random.nextInt(-8, 528);
+      final int y = random.nextInt(-8, 528);
+      final Set<PolygonType> containing =
+        containingBruteForce(polygons, x, y);
+
+      final Optional<PolygonType> found =
+        model.polygonFindFrom(hint.id(), Vector2I.of(x, y));
+      Assert.assertEquals(!containing.isEmpty(), found.isPresent());
+      found.ifPresent(p -> Assert.assertTrue(containing.contains(p)));
+
+      final Optional<PolygonType> found_index =
+        model.polygonFind(Vector2I.of(x, y));
+      Assert.assertEquals(!containing.isEmpty(), found_index.isPresent());
+      found_index.ifPresent(p -> Assert.assertTrue(containing.contains(p)));
+    }
+  }
+
+  @Test
+  public final void testVerticesWithin()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final List<Vector2I> near = new ArrayList<>();
+    Assert.assertTrue(model.forEachVertexWithin(3, 3, 2, (v, d) -> {
+      Assert.assertEquals(Math.sqrt(2.0), d, 0.000001);
+      near.add(v.position());
+      return true;
+    }));
+    Assert.assertEquals(Collections.singletonList(Vector2I.of(4, 4)), near);
+
+    final Set<Vector2I> far = new HashSet<>();
+    Assert.assertTrue(model.forEachVertexWithin(3, 3, 4, (v, d) -> {
+      Assert.assertTrue(far.add(v.position()));
+      return true;
+    }));
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(
+        Vector2I.of(4, 4), Vector2I.of(0, 4), Vector2I.of(4, 0))),
+      far);
+
+    Assert.assertFalse(model.forEachVertexWithin(3, 3, 4, (v, d) -> false));
+  }
+
+  @Test
+  public final void testEdgesWithin()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final List<PolygonEdgeType> on = new ArrayList<>();
+    Assert.assertTrue(model.forEachEdgeWithin(2, 2, 0, (e, d) -> {
+      Assert.assertEquals(0.0, d, 0.0);
+      on.add(e);
+      return true;
+    }));
+    Assert.assertEquals(1L, (long) on.size());
+    Assert.assertEquals(2L, (long) on.get(0).polygons().size());
+
+    final List<PolygonEdgeType> near = new ArrayList<>();
+    Assert.assertTrue(model.forEachEdgeWithin(6, 1, 2, (e, d) -> {
+      near.add(e);
+      return true;
+    }));
+    Assert.assertEquals(2L, (long) near.size());
+  }
+
+  @Test
+  public final void testVertexNearest()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final PolygonVertexType[] vertices = new PolygonVertexType[2];
+    final double[] distances = new double[2];
+    Assert.assertEquals(
+      2L, (long) model.vertexNearest(7, 3, 100, vertices, distances));
+    Assert.assertEquals(Vector2I.of(8, 4), vertices[0].position());
+    Assert.assertEquals(Vector2I.of(4, 4), vertices[1].position());
+    Assert.assertEquals(Math.sqrt(2.0), distances[0], 0.000001);
+    Assert.assertEquals(Math.sqrt(10.0), distances[1], 0.000001);
+
+    Assert.assertEquals(
+      1L, (long) model.vertexNearest(7, 3, 2, vertices, distances));
+    Assert.assertEquals(Vector2I.of(8, 4), vertices[0].position());
+    Assert.assertNull(vertices[1]);
+
+    Assert.assertEquals(
+      0L, (long) model.vertexNearest(100, 100, 10, vertices, distances));
+
+    final PolygonVertexType[] all = new PolygonVertexType[10];
+    Assert.assertEquals(
+      5L,
+      (long) model.vertexNearest(
+        -1000, -1000, Integer.MAX_VALUE, all, new double[10]));
+    Assert.assertEquals(Vector2I.of(0, 0), all[0].position());
+  }
+
+  @Test
+  public final void testEdgeNearest()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final PolygonEdgeType[] edges = new PolygonEdgeType[2];
+    final double[] distances = new double[2];
+    Assert.assertEquals(
+      2L, (long) model.edgeNearest(6, 1, 100, edges, distances));
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(8, 4), Vector2I.of(4, 0))),
+      new HashSet<>(Arrays.asList(
+        edges[0].vertex0().position(), edges[0].vertex1().position())));
+    Assert.assertEquals(Math.sqrt(0.5), distances[0], 0.000001);
+    Assert.assertEquals(2.0, distances[1], 0.000001);
+  }
+
+  @Test
+  public final void testWithinBruteForce()
+  {
+    final MeshType model = this.emptyMesh();
+    final List<PolygonType> polygons = loadGrid(model);
+    final SplittableRandom random = new SplittableRandom(0x6e656172L);
+
+    for (int index = 0; index < 200; ++index) {
+      final int x = random.nextInt(-64, 584);
+      final int y = random.nextInt(-64, 584);
+      final int radius = random.nextInt(0, 40);
+
+      final Map<Vector2I, Double> vertex_expected = new HashMap<>();
+      for (final Map.Entry<Vector2I, Double> entry :
+        vertexDistancesBruteForce(polygons, x, y).entrySet()) {
+        if (entry.getValue().doubleValue() <= (double) radius) {
+          vertex_expected.put(entry.getKey(), entry.getValue());
+        }
+      }
+
+      final Map<Vector2I, Double> vertex_received = new HashMap<>();
+      Assert.assertTrue(model.forEachVertexWithin(x, y, radius, (v, d) -> {
+        Assert.assertNull(
+          vertex_received.put(v.position(), Double.valueOf(d)));
+        return true;
+      }));
+      Assert.assertEquals(vertex_expected.keySet(), vertex_received.keySet());
+      for (final Map.Entry<Vector2I, Double> entry :
+        vertex_received.entrySet()) {
+        Assert.assertEquals(
+          vertex_expected.get(entry.getKey()).doubleValue(),
+          entry.getValue().doubleValue(),
+          0.000001);
+      }
+
+      //
+      // Edges whose distances lie very close to the radius may be rounded
+      // either way, and so are not required to be present or absent.
+      //
+
+      final Map<String, Double> edge_all =
+        edgeDistancesBruteForce(polygons, x, y);
+      final Map<String, Double> edge_received = new HashMap<>();
+      Assert.assertTrue(model.forEachEdgeWithin(x, y, radius, (e, d) -> {
+        Assert.assertNull(edge_received.put(edgeKey(e), Double.valueOf(d)));
+        return true;
+      }));
+      for (final Map.Entry<String, Double> entry : edge_all.entrySet()) {
+        final double distance = entry.getValue().doubleValue();
+        final Double received = edge_received.get(entry.getKey());
+        if (distance < (double) radius - 0.000001) {
+          Assert.assertNotNull(entry.getKey(), received);
+        }
+        if (distance > (double) radius + 0.000001) {
+          Assert.assertNull(entry.getKey(), received);
+        }
+        if (received != null) {
+          Assert.assertEquals(distance, received.doubleValue(), 0.000001);
+        }
+      }
+      Assert.assertTrue(edge_all.keySet().containsAll(edge_received.keySet()));
+    }
+  }
+
+  @Test
+  public final void testNearestBruteForce()
+  {
+    final MeshType model = this.emptyMesh();
+    final List<PolygonType> polygons = loadGrid(model);
+    final SplittableRandom random = new SplittableRandom(0x6b6e6eL);
+
+    //
+    // Points far outside the grid require the search square to be doubled
+    // many times before anything is found.
+    //
+
+    for (int index = 0; index < 200; ++index) {
+      final int x;
+      final int y;
+      if (index % 4 == 0) {
+        x = random.nextInt(-1500, -1000);
+        y = random.nextInt(-1500, 1500);
+      } else {
+        x = random.nextInt(-64, 584);
+        y = random.nextInt(-64, 584);
+      }
+
+      final int radius =
+        index % 2 == 0 ? Integer.MAX_VALUE : random.nextInt(0, 100);
+      final int count = random.nextInt(1, 8);
+
+      final List<Double> vertex_expected = sortedWithin(
+        vertexDistancesBruteForce(polygons, x, y).values(), radius);
+      final PolygonVertexType[] vertices = new PolygonVertexType[count];
+      final double[] vertex_distances = new double[count];
+      final int vertex_count =
+        model.vertexNearest(x, y, radius, vertices, vertex_distances);
+      Assert.assertEquals(
+        (long) Math.min(count, vertex_expected.size()), (long) vertex_count);
+      for (int r = 0; r < vertex_count; ++r) {
+        Assert.assertEquals(
+          vertex_expected.get(r).doubleValue(), vertex_distances[r], 0.000001);
+        Assert.assertEquals(
+          Math.hypot(
+            (double) (vertices[r].position().x() - x),
+            (double) (vertices[r].position().y() - y)),
+          vertex_distances[r],
+          0.000001);
+      }
+
+      final List<Double> edge_expected = sortedWithin(
+        edgeDistancesBruteForce(polygons, x, y).values(), radius);
+      final PolygonEdgeType[] edges = new PolygonEdgeType[count];
+      final double[] edge_distances = new double[count];
+      final int edge_count =
+        model.edgeNearest(x, y, radius, edges, edge_distances);
+      Assert.assertEquals(
+        (long) Math.min(count, edge_expected.size()), (long) edge_count);
+      for (int r = 0; r < edge_count; ++r) {
+        Assert.assertEquals(
+          edge_expected.get(r).doubleValue(), edge_distances[r], 0.000001);
+        Assert.assertEquals(
+          distanceToSegmentBruteForce(
+            edges[r].vertex0().position(), edges[r].vertex1().position(), x, y),
+          edge_distances[r],
+          0.000001);
+      }
+    }
+  }
+
+  @Test
+  public final void testProximityNested()
+  {
+    final MeshType model = this.emptyMesh();
+    loadGrid(model);
+
+    //
+    // Queries made from within the receiver of another query must not
+    // disturb the outer query.
+    //
+
+    final List<PolygonVertexID> outer = new ArrayList<>();
+    Assert.assertTrue(model.forEachVertexWithin(100, 100, 20, (v, d) -> {
+      outer.add(v.id());
+
+      final PolygonVertexType[] vertices = new PolygonVertexType[3];
+      final double[] distances = new double[3];
+      Assert.assertEquals(
+        3L, (long) model.vertexNearest(
+          v.position().x(), v.position().y(), 100, vertices, distances));
+      Assert.assertEquals(v, vertices[0]);
+
+      final List<PolygonEdgeType> inner = new ArrayList<>();
+      Assert.assertTrue(model.forEachEdgeWithin(
+        v.position().x(), v.position().y(), 0, (e, ed) -> inner.add(e)));
+      Assert.assertEquals(
+        (long) model.vertexEdges(v.id()).size(), (long) inner.size());
+      return true;
+    }));
+
+    final List<PolygonVertexID> expected = new ArrayList<>();
+    Assert.assertTrue(model.forEachVertexWithin(100, 100, 20, (v, d) -> {
+      expected.add(v.id());
+      return true;
+    }));
+    Assert.assertFalse(expected.isEmpty());
+    Assert.assertEquals((long) expected.size(), (long) outer.size());
+    Assert.assertEquals(new HashSet<>(expected), new HashSet<>(outer));
+  }
+
+  @Test
+  public final void testNearestRadiusNegative()
+  {
+    final MeshType model = this.emptyMesh();
+
+    this.expected.expect(PreconditionViolationException.class);
+    model.vertexNearest(0, 0, -1, new PolygonVertexType[1], new double[1]);
+  }
+
+  @Test
+  public final void testSegmentCast()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final MeshSegmentHit hit = model.segmentCast(1, 3, 20, 3).get();
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(8, 4), Vector2I.of(4, 0))),
+      new HashSet<>(Arrays.asList(
+        hit.edge().vertex0().position(), hit.edge().vertex1().position())));
+    Assert.assertEquals(6.0 / 19.0, hit.parameter(), 0.000001);
+
+    Assert.assertEquals(Optional.empty(), model.segmentCast(1, 3, 2, 1));
+    Assert.assertEquals(Optional.empty(), model.segmentCast(9, 9, 20, 20));
+    Assert.assertEquals(Optional.empty(), model.segmentCast(0, 0, 0, 0));
+  }
+
+  @Test
+  public final void testSegmentCastFar()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    //
+    // The end points lie far beyond the bounds of the mesh, and so the
+    // positions of the hits shrink in proportion to the segment lengths.
+    //
+
+    final int scale = 100_000_000;
+    final MeshSegmentHit hit =
+      model.segmentCast(1, 3, 1 + (19 * scale), 3).get();
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(8, 4), Vector2I.of(4, 0))),
+      new HashSet<>(Arrays.asList(
+        hit.edge().vertex0().position(), hit.edge().vertex1().position())));
+    Assert.assertEquals(
+      6.0 / (19.0 * (double) scale), hit.parameter(), 0.000000000001);
+
+    final MeshSegmentHit hit_up =
+      model.segmentCast(1, 3, 1, -Integer.MAX_VALUE).get();
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(0, 0), Vector2I.of(4, 0))),
+      new HashSet<>(Arrays.asList(
+        hit_up.edge().vertex0().position(),
+        hit_up.edge().vertex1().position())));
+    Assert.assertEquals(
+      3.0 / (3.0 + (double) Integer.MAX_VALUE),
+      hit_up.parameter(),
+      0.000000000001);
+
+    Assert.assertEquals(
+      Optional.empty(),
+      model.segmentCast(
+        Integer.MIN_VALUE, Integer.MIN_VALUE,
+        Integer.MAX_VALUE, Integer.MIN_VALUE));
+    Assert.assertEquals(
+      Optional.empty(),
+      model.segmentCast(9, 9, Integer.MAX_VALUE, Integer.MAX_VALUE));
+  }
+
+  @Test
+  public final void testSegmentHitsWide()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    //
+    // The segment follows the line y = x + 1 across nearly the whole range
+    // of integers, and so the areas used to decide on which side of it the
+    // vertices lie overflow 64 bits.
+    //
+
+    final int k = Integer.MAX_VALUE - 3;
+    final List<Set<Vector2I>> edges = new ArrayList<>();
+    final List<Double> parameters = new ArrayList<>();
+    Assert.assertTrue(model.forEachSegmentHit(1 - k, 2 - k, 1 + k, 2 + k,
+      (e, t) -> {
+        edges.add(new HashSet<>(Arrays.asList(
+          e.vertex0().position(), e.vertex1().position())));
+        parameters.add(Double.valueOf(t));
+        return true;
+      }));
+
+    Assert.assertEquals(2L, (long) edges.size());
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(0, 0), Vector2I.of(0, 4))),
+      edges.get(0));
+    Assert.assertEquals(
+      ((double) k - 1.0) / (2.0 * (double) k),
+      parameters.get(0).doubleValue(),
+      0.000000000001);
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(0, 4), Vector2I.of(4, 4))),
+      edges.get(1));
+    Assert.assertEquals(
+      ((double) k + 2.0) / (2.0 * (double) k),
+      parameters.get(1).doubleValue(),
+      0.000000000001);
+  }
+
+  @Test
+  public final void testSegmentHitsBruteForce()
+  {
+    final MeshType model = this.emptyMesh();
+    final List<PolygonType> polygons = loadGrid(model);
+    final SplittableRandom random = new SplittableRandom(0x63617374L);
+
+    //
+    // Segments that cross the whole grid, and those with end points far
+    // outside of it, take many steps, crossing holes and running outside of
+    // the mesh between hits.
+    //
+
+    int checked = 0;
+    for (int index = 0; index < 300; ++index) {
+      final int x0 = random.nextInt(-64, 576);
+      final int y0 = random.nextInt(-64, 576);
+      final int x1;
+      final int y1;
+      if (index % 3 == 0) {
+        x1 = random.nextInt(-1_000_000, 1_000_000);
+        y1 = random.nextInt(-1_000_000, 1_000_000);
+      } else {
+        x1 = random.nextInt(-64, 576);
+        y1 = random.nextInt(-64, 576);
+      }
+
+      final List<Map.Entry<String, Double>> expected =
+        segmentHitsBruteForce(polygons, x0, y0, x1, y1);
+      if (expected == null) {
+        continue;
+      }
+      ++checked;
+
+      final List<String> edges = new ArrayList<>();
+      final List<Double> parameters = new ArrayList<>();
+      Assert.assertTrue(model.forEachSegmentHit(x0, y0, x1, y1, (e, t) -> {
+        edges.add(edgeKey(e));
+        parameters.add(Double.valueOf(t));
+        return true;
+      }));
+
+      Assert.assertEquals((long) expected.size(), (long) edges.size());
+      for (int hit = 0; hit < expected.size(); ++hit) {
+        Assert.assertEquals(expected.get(hit).getKey(), edges.get(hit));
+        Assert.assertEquals(
+          expected.get(hit).getValue().doubleValue(),
+          parameters.get(hit).doubleValue(),
+          0.000000001);
+      }
+
+      final Optional<MeshSegmentHit> cast =
+        model.segmentCast(x0, y0, x1, y1);
+      Assert.assertEquals(!expected.isEmpty(), cast.isPresent());
+      cast.ifPresent(h -> Assert.assertEquals(
+        expected.get(0).getKey(), edgeKey(h.edge())));
+    }
+
+    Assert.assertTrue(checked > 200);
+  }
+
+  @Test
+  public final void testSegmentHits()
+  {
+    final MeshType model = this.emptyMesh();
+    loadTriangles(model);
+
+    final List<Set<Vector2I>> edges = new ArrayList<>();
+    final List<Double> parameters = new ArrayList<>();
+    Assert.assertTrue(model.forEachSegmentHit(-4, 2, 20, 2, (e, t) -> {
+      edges.add(new HashSet<>(Arrays.asList(
+        e.vertex0().position(), e.vertex1().position())));
+      parameters.add(Double.valueOf(t));
+      return true;
+    }));
+
+    Assert.assertEquals(2L, (long) edges.size());
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(0, 0), Vector2I.of(0, 4))),
+      edges.get(0));
+    Assert.assertEquals(4.0 / 24.0, parameters.get(0).doubleValue(), 0.000001);
+    Assert.assertEquals(
+      new HashSet<>(Arrays.asList(Vector2I.of(8, 4), Vector2I.of(4, 0))),
+      edges.get(1));
+    Assert.assertEquals(
+      10.0 / 24.0, parameters.get(1).doubleValue(), 0.000001);
+
+    parameters.clear();
+    Assert.assertFalse(model.forEachSegmentHit(-4, 2, 20, 2, (e, t) -> {
+      parameters.add(Double.valueOf(t));
+      return false;
+    }));
+    Assert.assertEquals(1L, (long) parameters.size());
+  }
+
+  @Test
+  public final void testPolygonGeometry()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final PolygonType poly0 = polygons.get(0);
+    final PolygonType poly1 = polygons.get(1);
+    final PolygonVertexType v0 = model.vertexFind(Vector2I.of(0, 4)).get();
+    final PolygonVertexType v1 = model.vertexFind(Vector2I.of(4, 4)).get();
+    final PolygonEdgeType e = model.edgeFind(v0.id(), v1.id()).get();
+
+    Assert.assertEquals(8.0, poly0.area(), 0.000001);
+    Assert.assertEquals(4.0 / 3.0, poly0.barycenter().x(), 0.000001);
+    Assert.assertEquals(8.0 / 3.0, poly0.barycenter().y(), 0.000001);
+    Assert.assertEquals(0L, (long) e.bounds().sizeY());
+    Assert.assertEquals(0.0, e.normal().x(), 0.000001);
+
+    model.vertexSetPosition(v0.id(), Vector2I.of(0, 3));
+
+    Assert.assertEquals(6.0, poly0.area(), 0.000001);
+    Assert.assertEquals(4.0 / 3.0, poly0.barycenter().x(), 0.000001);
+    Assert.assertEquals(7.0 / 3.0, poly0.barycenter().y(), 0.000001);
+    Assert.assertTrue(poly0.positions().contains(Vector2I.of(0, 3)));
+    Assert.assertFalse(poly0.positions().contains(Vector2I.of(0, 4)));
+    Assert.assertEquals(1L, (long) e.bounds().sizeY());
+    Assert.assertEquals(
+      0.0, (e.normal().x() * 4.0) + (e.normal().y() * 1.0), 0.000001);
+    Assert.assertEquals(8.0, poly1.area(), 0.000001);
+  }
+
+  @Test
+  public final void testPolygonCentroid()
+  {
+    final MeshType model = this.emptyMesh();
+
+    //
+    // The centroid of a trapezoid lies towards its longer side, unlike the
+    // mean of its vertex positions, which is (3, 2).
+    //
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 4));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(8, 0));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(4, 4));
+    final PolygonType poly = model.polygonCreateVV(v0, v1, v2, v3);
+
+    Assert.assertEquals(24.0, Math.abs(poly.area()), 0.000001);
+    Assert.assertEquals(28.0 / 9.0, poly.barycenter().x(), 0.000001);
+    Assert.assertEquals(16.0 / 9.0, poly.barycenter().y(), 0.000001);
+
+    model.vertexSetPosition(v2.id(), Vector2I.of(4, 0));
+
+    Assert.assertEquals(16.0, Math.abs(poly.area()), 0.000001);
+    Assert.assertEquals(2.0, poly.barycenter().x(), 0.000001);
+    Assert.assertEquals(2.0, poly.barycenter().y(), 0.000001);
+  }
+
+  @Test
+  public final void testPolygonFindFromDeleted()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    final PolygonType poly0 = polygons.get(0);
+    final PolygonType poly2 = polygons.get(2);
+    model.polygonDelete(poly0.id());
+
+    Assert.assertEquals(
+      Optional.of(poly2), model.polygonFindFrom(poly0.id(), Vector2I.of(6, 3)));
+    Assert.assertEquals(
+      Optional.empty(),
+      model.polygonFindFrom(PolygonID.of(1000L), Vector2I.of(1, 3)));
+  }
+
+  @Test
+  public final void testBulkLoad()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final List<PolygonType> polygons = loadTriangles(model);
+
+    Assert.assertEquals(3L, (long) polygons.size());
+    Assert.assertEquals(3L, (long) model.polygons().size());
+    Assert.assertEquals(5L, (long) model.vertices().size());
+
+    final PolygonType poly0 = polygons.get(0);
+    final PolygonType poly1 = polygons.get(1);
+    final PolygonType poly2 = polygons.get(2);
+    Assert.assertEquals(
+      Collections.singletonList(poly1), model.polygonNeighbours(poly0.id()));
+    Assert.assertEquals(
+      Collections.singletonList(poly1), model.polygonNeighbours(poly2.id()));
+    Assert.assertEquals(2L, (long) model.polygonNeighbours(poly1.id()).size());
+
+    final PolygonVertexType v2 = poly0.vertices().stream()
+      .filter(v -> v.position().equals(Vector2I.of(4, 4)))
+      .findFirst()
+      .get();
+    final PolygonVertexType v3 = poly2.vertices().stream()
+      .filter(v -> v.position().equals(Vector2I.of(4, 0)))
+      .findFirst()
+      .get();
+    Assert.assertEquals(4L, (long) model.vertexEdges(v2.id()).size());
+    Assert.assertEquals(3L, (long) model.vertexEdges(v3.id()).size());
+    Assert.assertEquals(
+      Optional.of(poly1), model.polygonFind(Vector2I.of(3, 1)));
+    this.checkModel(model);
+
+    model.polygonDelete(poly1.id());
+    Assert.assertEquals(4L, (long) model.vertexEdges(v2.id()).size());
+    Assert.assertEquals(2L, (long) model.vertexEdges(v3.id()).size());
+    this.checkModel(model);
+  }
+
+  @Test
+  public final void testBulkLoadNotConvex()
+  {
+    final MeshType model = this.emptyMesh();
+
+    try {
+      model.bulkLoad(
+        new int[]{0, 0, 0, 4, 4, 4, 1, 1, 4, 0},
+        new int[]{3, 4},
+        new int[]{0, 1, 2, 0, 1, 3, 4});
+      Assert.fail();
+    } catch (final MeshExceptionPolygonNotConvex e) {
+      Assert.assertTrue(model.polygons().isEmpty());
+      Assert.assertTrue(model.vertices().isEmpty());
+    }
+  }
+
+  @Test
+  public final void testBulkLoadVertexNonexistent()
+  {
+    final MeshType model = this.emptyMesh();
+
+    this.expected.expect(MeshExceptionVertexNonexistent.class);
+    model.bulkLoad(
+      new int[]{0, 0, 0, 1, 1, 1},
+      new int[]{3},
+      new int[]{0, 1, 3});
+  }
+
+  @Test
+  public final void testBulkLoadTooFewVertices()
+  {
+    final MeshType model = this.emptyMesh();
+
+    this.expected.expect(MeshExceptionPolygonTooFewVertices.class);
+    model.bulkLoad(
+      new int[]{0, 0, 0, 1, 1, 1},
+      new int[]{2},
+      new int[]{0, 1});
+  }
+
   private void checkModel(
     final MeshType model)
   {
@@ -369,4 +1506,256 @@ public abstract class MeshContract
     Assert.assertFalse(model.polygons().contains(poly1));
     this.checkModel(model);
   }
+
+  @Test
+  public final void testVertexFindOrCreate()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 1));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(1, 0));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(1, 0));
+
+    Assert.assertEquals(v0, model.vertexFindOrCreate(Vector2I.of(0, 1)));
+    Assert.assertEquals(v1, model.vertexFindOrCreate(Vector2I.of(0, 0)));
+    Assert.assertEquals(v2, model.vertexFindOrCreate(Vector2I.of(1, 0)));
+
+    final PolygonVertexType v4 = model.vertexFindOrCreate(Vector2I.of(2, 2));
+    Assert.assertEquals(Vector2I.of(2, 2), v4.position());
+    Assert.assertEquals(5L, (long) model.vertices().size());
+    Assert.assertEquals(v4, model.vertexFindOrCreate(Vector2I.of(2, 2)));
+    Assert.assertEquals(5L, (long) model.vertices().size());
+
+    final PolygonType poly = model.polygonCreateVV(v0, v1, v2);
+    model.vertexSetPosition(v0.id(), Vector2I.of(0, 2));
+    Assert.assertEquals(v0, model.vertexFindOrCreate(Vector2I.of(0, 2)));
+
+    final PolygonVertexType v5 = model.vertexFindOrCreate(Vector2I.of(0, 1));
+    Assert.assertNotEquals(v0, v5);
+
+    model.polygonDelete(poly.id());
+    Assert.assertTrue(v2.deleted());
+    Assert.assertEquals(v3, model.vertexFindOrCreate(Vector2I.of(1, 0)));
+
+    final PolygonVertexType v6 = model.vertexFindOrCreate(Vector2I.of(0, 2));
+    Assert.assertNotEquals(v0, v6);
+    Assert.assertFalse(v6.deleted());
+  }
+
+  @Test
+  public final void testVertexFindOrCreateOldestAfterMove()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(4, 4));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(4, 4));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(8, 8));
+
+    model.vertexSetPosition(v3.id(), Vector2I.of(4, 4));
+    Assert.assertEquals(v1, model.vertexFindOrCreate(Vector2I.of(4, 4)));
+
+    model.vertexSetPosition(v0.id(), Vector2I.of(4, 4));
+    Assert.assertEquals(v0, model.vertexFindOrCreate(Vector2I.of(4, 4)));
+
+    model.vertexSetPosition(v0.id(), Vector2I.of(0, 0));
+    model.vertexSetPosition(v1.id(), Vector2I.of(0, 0));
+    Assert.assertEquals(v0, model.vertexFindOrCreate(Vector2I.of(0, 0)));
+    Assert.assertEquals(v2, model.vertexFindOrCreate(Vector2I.of(4, 4)));
+
+    model.vertexSetPosition(v2.id(), Vector2I.of(8, 8));
+    Assert.assertEquals(v3, model.vertexFindOrCreate(Vector2I.of(4, 4)));
+    Assert.assertEquals(v2, model.vertexFindOrCreate(Vector2I.of(8, 8)));
+    Assert.assertEquals(4L, (long) model.vertices().size());
+  }
+
+  @Test
+  public final void testVertexFind()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 1));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(1, 0));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(0, 0));
+
+    Assert.assertEquals(v0, model.vertexFind(Vector2I.of(0, 1)).get());
+    Assert.assertEquals(v1, model.vertexFind(Vector2I.of(0, 0)).get());
+    Assert.assertEquals(v2, model.vertexFind(Vector2I.of(1, 0)).get());
+    Assert.assertFalse(model.vertexFind(Vector2I.of(1, 1)).isPresent());
+
+    final PolygonType poly = model.polygonCreateVV(v0, v1, v2);
+    model.vertexSetPosition(v2.id(), Vector2I.of(1, 1));
+    Assert.assertFalse(model.vertexFind(Vector2I.of(1, 0)).isPresent());
+    Assert.assertEquals(v2, model.vertexFind(Vector2I.of(1, 1)).get());
+
+    model.polygonDelete(poly.id());
+    Assert.assertFalse(model.vertexFind(Vector2I.of(0, 1)).isPresent());
+    Assert.assertFalse(model.vertexFind(Vector2I.of(1, 1)).isPresent());
+    Assert.assertEquals(v3, model.vertexFind(Vector2I.of(0, 0)).get());
+  }
+
+  @Test
+  public final void testPolygonFindTriangle()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 100));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(100, 0));
+    final PolygonType poly = model.polygonCreateVV(v0, v1, v2);
+
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(10, 10)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(0, 0)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(50, 50)).get());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(51, 50)).isPresent());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(-1, 10)).isPresent());
+
+    model.vertexSetPosition(v0.id(), Vector2I.of(100, 100));
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(90, 90)).get());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(10, 10)).isPresent());
+  }
+
+  @Test
+  public final void testVertexSetPositionConvexity()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(8, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(8, 8));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(4, 12));
+    final PolygonVertexType v4 = model.vertexCreate(Vector2I.of(0, 8));
+    final PolygonType poly = model.polygonCreateVV(v0, v1, v2, v3, v4);
+
+    try {
+      model.vertexSetPosition(v3.id(), Vector2I.of(4, 4));
+      Assert.fail();
+    } catch (final MeshExceptionPolygonNotConvex e) {
+      Assert.assertEquals(Vector2I.of(4, 12), v3.position());
+      Assert.assertEquals(v3, model.vertexFind(Vector2I.of(4, 12)).get());
+    }
+
+    try {
+      model.vertexSetPosition(v3.id(), Vector2I.of(4, 4096));
+      Assert.fail();
+    } catch (final MeshExceptionPolygonNotConvex e) {
+      Assert.assertEquals(Vector2I.of(4, 12), v3.position());
+    }
+
+    model.vertexSetPosition(v3.id(), Vector2I.of(6, 12));
+    Assert.assertEquals(12L, (long) poly.bounds().maximumY());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(6, 11)).get());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(2, 11)).isPresent());
+
+    model.vertexSetPosition(v3.id(), Vector2I.of(4, 16));
+    Assert.assertEquals(16L, (long) poly.bounds().maximumY());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(4, 15)).get());
+  }
+
+  @Test
+  public final void testPolygonFindLarge()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final int count = 32;
+    final PolygonVertexType[] vertices = new PolygonVertexType[count];
+    for (int index = 0; index < count; ++index) {
+      final double angle = (Math.PI * 2.0 * (double) index) / (double) count;
+      vertices[index] = model.vertexCreate(
+        Vector2I.of(
+          (int) Math.round(Math.cos(angle) * 1000.0),
+          (int) Math.round(Math.sin(angle) * 1000.0)));
+    }
+
+    final PolygonType poly = model.polygonCreateVV(vertices);
+
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(0, 0)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(1000, 0)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(0, -1000)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(-690, 690)).get());
+    Assert.assertEquals(poly, model.polygonFind(Vector2I.of(970, 0)).get());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(1001, 0)).isPresent());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(710, 710)).isPresent());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(-710, -710)).isPresent());
+    Assert.assertFalse(model.polygonFind(Vector2I.of(0, 1001)).isPresent());
+  }
+
+  @Test
+  public final void testAdjacency()
+  {
+    final MeshType model = this.emptyMesh();
+
+    final PolygonVertexType v0 = model.vertexCreate(Vector2I.of(0, 1));
+    final PolygonVertexType v1 = model.vertexCreate(Vector2I.of(0, 0));
+    final PolygonVertexType v2 = model.vertexCreate(Vector2I.of(1, 0));
+    final PolygonVertexType v3 = model.vertexCreate(Vector2I.of(1, 1));
+    final PolygonVertexType v4 = model.vertexCreate(Vector2I.of(2, 1));
+
+    final PolygonType poly0 = model.polygonCreateVV(v0, v1, v2);
+    final PolygonType poly1 = model.polygonCreateVV(v0, v2, v3);
+    final PolygonType poly2 = model.polygonCreateVV(v3, v2, v4);
+
+    {
+      final PolygonEdgeType e = model.edgeFind(v0.id(), v2.id()).get();
+      Assert.assertEquals(e, model.edgeFind(v2.id(), v0.id()).get());
+      Assert.assertEquals(2L, (long) e.polygons().size());
+      Assert.assertTrue(e.polygons().contains(poly0));
+      Assert.assertTrue(e.polygons().contains(poly1));
+      Assert.assertFalse(model.edgeFind(v1.id(), v3.id()).isPresent());
+    }
+
+    {
+      final List<PolygonEdgeType> es = model.vertexEdges(v2.id());
+      Assert.assertEquals(4L, (long) es.size());
+      Assert.assertTrue(es.contains(model.edgeFind(v2.id(), v0.id()).get()));
+      Assert.assertTrue(es.contains(model.edgeFind(v2.id(), v1.id()).get()));
+      Assert.assertTrue(es.contains(model.edgeFind(v2.id(), v3.id()).get()));
+      Assert.assertTrue(es.contains(model.edgeFind(v2.id(), v4.id()).get()));
+      Assert.assertEquals(2L, (long) model.vertexEdges(v1.id()).size());
+    }
+
+    {
+      final List<PolygonType> ns = model.polygonNeighbours(poly1.id());
+      Assert.assertEquals(2L, (long) ns.size());
+      Assert.assertTrue(ns.contains(poly0));
+      Assert.assertTrue(ns.contains(poly2));
+      Assert.assertEquals(1L, (long) model.polygonNeighbours(poly0.id()).size());
+    }
+
+    {
+      final List<PolygonType> visited = new ArrayList<>();
+      Assert.assertTrue(model.forEachPolygonNeighbour(poly1.id(), q -> {
+        visited.add(q);
+        return true;
+      }));
+      Assert.assertEquals(2L, (long) visited.size());
+      Assert.assertTrue(visited.contains(poly0));
+      Assert.assertTrue(visited.contains(poly2));
+
+      visited.clear();
+      Assert.assertFalse(model.forEachPolygonNeighbour(poly1.id(), q -> {
+        visited.add(q);
+        return false;
+      }));
+      Assert.assertEquals(1L, (long) visited.size());
+    }
+
+    model.polygonDelete(poly1.id());
+    Assert.assertFalse(model.edgeFind(v0.id(), v3.id()).isPresent());
+    Assert.assertTrue(model.polygonNeighbours(poly0.id()).isEmpty());
+    Assert.assertTrue(
+      model.forEachPolygonNeighbour(poly0.id(), q -> false));
+    Assert.assertEquals(4L, (long) model.vertexEdges(v2.id()).size());
+    Assert.assertEquals(2L, (long) model.vertexEdges(v3.id()).size());
+    this.checkModel(model);
+
+    final PolygonType poly3 = model.polygonCreateVV(v0, v2, v3);
+    Assert.assertEquals(
+      Arrays.asList(poly0, poly2), model.polygonNeighbours(poly3.id()));
+    Assert.assertTrue(
+      model.edgeFind(v0.id(), v2.id()).get().polygons().contains(poly3));
+    this.checkModel(model);
+  }
 }
@@ -0,0 +1,321 @@
+package com.io7m.roommodel0.tests.mesh;
+
+import com.io7m.jregions.core.unparameterized.areas.AreasI;
+import com.io7m.jtensors.core.unparameterized.vectors.Vector2I;
+import com.io7m.roommodel0.fixtures.SyntheticRooms;
+import com.io7m.roommodel0.mesh.Mesh;
+import com.io7m.roommodel0.mesh.MeshCompact;
+import com.io7m.roommodel0.mesh.MeshExceptionPolygonNonexistent;
+import com.io7m.roommodel0.mesh.MeshExceptionVertexNonexistent;
+import com.io7m.roommodel0.mesh.MeshFrozen;
+import com.io7m.roommodel0.mesh.MeshReadableType;
+import com.io7m.roommodel0.mesh.MeshType;
+import com.io7m.roommodel0.mesh.PolygonEdgeType;
+import com.io7m.roommodel0.mesh.PolygonID;
+import com.io7m.roommodel0.mesh.PolygonType;
+import com.io7m.roommodel0.mesh.PolygonVertexID;
+import com.io7m.roommodel0.mesh.PolygonVertexType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+public final class MeshFrozenTest
+{
+  @Rule public final ExpectedException expected = ExpectedException.none();
+
+  private static MeshType source()
+  {
+    final MeshType model =
+      Mesh.create(AreasI.create(-2048, -2048, 4096, 4096));
+    model.bulkLoad(
+      new int[]{0, 0, 0, 4, 4, 4, 4, 0, 8, 4},
+      new int[]{3, 3, 3},
+      new int[]{0, 1, 2, 2, 3, 0, 3, 2, 4});
+    return model;
+  }
+
+  private static List<PolygonID> ids(
+    final List<PolygonType> polygons)
+  {
+    return polygons.stream().map(PolygonType::id).collect(Collectors.toList());
+  }
+
+  private static Set<Long> polygonIDs(
+    final Iterable<PolygonType> polygons)
+  {
+    final Set<Long> results = new TreeSet<>();
+    for (final PolygonType polygon : polygons) {
+      results.add(Long.valueOf(polygon.id().value()));
+    }
+    return results;
+  }
+
+  /**
+   * Describe every polygon, edge, and vertex of the given mesh in terms of
+   * IDs and positions, in an order that does not depend on the mesh
+   * implementation.
+   */
+
+  private static List<String> describe(
+    final MeshReadableType mesh)
+  {
+    final List<String> results = new ArrayList<>();
+    for (final PolygonType polygon : mesh.polygonsSorted()) {
+      final StringBuilder text = new StringBuilder(128);
+      text.append("polygon ");
+      text.append(polygon.id().value());
+      text.append(' ');
+      text.append(polygon.positions());
+      text.append(" area ");
+      text.append(polygon.area());
+      text.append(" barycenter ");
+      text.append(polygon.barycenter());
+      text.append(" bounds ");
+      text.append(polygon.bounds());
+      text.append(" neighbours ");
+      text.append(polygonIDs(mesh.polygonNeighbours(polygon.id())));
+      for (final PolygonEdgeType edge : polygon.edges()) {
+        text.append(" edge ");
+        text.append(edge.vertex0().id().value());
+        text.append('-');
+        text.append(edge.vertex1().id().value());
+        text.append(edge.isExternal() ? " external " : " internal ");
+        text.append(polygonIDs(edge.polygons()));
+      }
+      results.add(text.toString());
+    }
+
+    for (final PolygonVertexType vertex : mesh.verticesSorted()) {
+      results.add(
+        "vertex " + vertex.id().value()
+          + " " + vertex.position()
+          + " polygons " + polygonIDs(vertex.polygons())
+          + " edges " + mesh.vertexEdges(vertex.id()).size());
+    }
+    return results;
+  }
+
+  /**
+   * Load the same grid into the given mesh, and apply the same sequence of
+   * edits to it, so that meshes of different implementations are equivalent.
+   */
+
+  private static MeshType edited(
+    final MeshType mesh,
+    final SyntheticRooms.GridArrays g)
+  {
+    mesh.bulkLoad(g.positions(), g.polygonSizes(), g.polygonVertices());
+
+    final int cell = SyntheticRooms.GRID_CELL_SIZE;
+    for (final int index : new int[]{3, 7, 12}) {
+      mesh.polygonDelete(
+        mesh.polygonFind(
+          Vector2I.of((index * cell) + 4, (index * cell) + 4)).get().id());
+    }
+
+    final PolygonVertexType moved =
+      mesh.vertexFind(Vector2I.of(cell * 5, cell * 5)).get();
+    mesh.vertexSetPosition(
+      moved.id(), Vector2I.of((cell * 5) + 1, (cell * 5) - 1));
+
+    mesh.polygonCreateVV(
+      mesh.vertexFindOrCreate(Vector2I.of(cell * 7, cell * 7)),
+      mesh.vertexFindOrCreate(Vector2I.of(cell * 7, cell * 8)),
+      mesh.vertexFindOrCreate(Vector2I.of(cell * 8, cell * 8)));
+    return mesh;
+  }
+
+  @Test
+  public void testFreezeCompact()
+  {
+    final SyntheticRooms.GridArrays g = SyntheticRooms.gridArrays(256);
+    final MeshType mesh = edited(Mesh.create(g.bounds()), g);
+    final MeshType compact = edited(MeshCompact.create(g.bounds()), g);
+    final MeshFrozen frozen_mesh = MeshFrozen.freeze(mesh);
+    final MeshFrozen frozen_compact = MeshFrozen.freeze(compact);
+
+    Assert.assertEquals(describe(mesh), describe(frozen_compact));
+    Assert.assertEquals(describe(frozen_mesh), describe(frozen_compact));
+
+    final int limit = (g.columns() + 1) * SyntheticRooms.GRID_CELL_SIZE;
+    for (int y = -1; y <= limit; y += 3) {
+      for (int x = -1; x <= limit; x += 3) {
+        final List<PolygonType> in_mesh = new ArrayList<>();
+        frozen_mesh.forEachPolygonContaining(x, y, in_mesh::add);
+        final List<PolygonType> in_compact = new ArrayList<>();
+        frozen_compact.forEachPolygonContaining(x, y, in_compact::add);
+        Assert.assertEquals(polygonIDs(in_mesh), polygonIDs(in_compact));
+
+        final Vector2I point = Vector2I.of(x, y);
+        Assert.assertEquals(
+          frozen_mesh.vertexFind(point).map(PolygonVertexType::id),
+          frozen_compact.vertexFind(point).map(PolygonVertexType::id));
+        frozen_compact.polygonFind(point).ifPresent(
+          p -> Assert.assertTrue(in_compact.contains(p)));
+      }
+    }
+  }
+
+  @Test
+  public void testFreeze()
+  {
+    final MeshType model = source();
+    final MeshFrozen frozen = MeshFrozen.freeze(model);
+
+    Assert.assertEquals(
+      ids(model.polygonsSorted()), ids(frozen.polygonsSorted()));
+    Assert.assertEquals(
+      model.verticesSorted().stream()
+        .map(PolygonVertexType::position)
+        .collect(Collectors.toList()),
+      frozen.verticesSorted().stream()
+        .map(PolygonVertexType::position)
+        .collect(Collectors.toList()));
+
+    final List<PolygonType> model_polygons = model.polygonsSorted();
+    final List<PolygonType> frozen_polygons = frozen.polygonsSorted();
+    for (int index = 0; index < model_polygons.size(); ++index) {
+      final PolygonType polygon = model_polygons.get(index);
+      final PolygonType frozen_polygon = frozen_polygons.get(index);
+      Assert.assertEquals(
+        model.polygonNeighbours(polygon.id()).size(),
+        frozen.polygonNeighbours(polygon.id()).size());
+      Assert.assertEquals(polygon.positions(), frozen_polygon.positions());
+      Assert.assertEquals(polygon.area(), frozen_polygon.area(), 0.000001);
+      Assert.assertEquals(polygon.barycenter(), frozen_polygon.barycenter());
+    }
+    for (final PolygonVertexType vertex : model.vertices()) {
+      Assert.assertEquals(
+        model.vertexEdges(vertex.id()).size(),
+        frozen.vertexEdges(vertex.id()).size());
+    }
+  }
+
+  @Test
+  public void testFreezeUnaffectedByChanges()
+  {
+    final MeshType model = source();
+    final MeshFrozen frozen = MeshFrozen.freeze(model);
+    final PolygonType poly1 = model.polygonsSorted().get(1);
+
+    model.polygonDelete(poly1.id());
+    Assert.assertEquals(3L, (long) frozen.polygons().size());
+    Assert.assertEquals(
+      Optional.of(poly1.id()),
+      frozen.polygonFind(Vector2I.of(3, 1)).map(PolygonType::id));
+  }
+
+  @Test
+  public void testPolygonFind()
+  {
+    final MeshType model = source();
+    final MeshFrozen frozen = MeshFrozen.freeze(model);
+
+    for (int y = -1; y <= 5; ++y) {
+      for (int x = -1; x <= 9; ++x) {
+        final Vector2I point = Vector2I.of(x, y);
+        Assert.assertEquals(
+          model.polygonFind(point).isPresent(),
+          frozen.polygonFind(point).isPresent());
+      }
+    }
+
+    Assert.assertEquals(
+      Optional.of(model.polygonsSorted().get(2).id()),
+      frozen.polygonFind(Vector2I.of(7, 3)).map(PolygonType::id));
+  }
+
+  @Test
+  public void testPolygonFindFrom()
+  {
+    final MeshType model = source();
+    final MeshFrozen frozen = MeshFrozen.freeze(model);
+    final List<PolygonType> polygons = frozen.polygonsSorted();
+
+    for (final PolygonType hint : polygons) {
+      for (int y = -1; y <= 5; ++y) {
+        for (int x = -1; x <= 9; ++x) {
+          final Vector2I point = Vector2I.of(x, y);
+          final List<PolygonType> containing = new ArrayList<>();
+          frozen.forEachPolygonContaining(x, y, containing::add);
+
+          final Optional<PolygonType> found =
+            frozen.polygonFindFrom(hint.id(), point);
+          Assert.assertEquals(!containing.isEmpty(), found.isPresent());
+          found.ifPresent(p -> Assert.assertTrue(containing.contains(p)));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testVertexFind()
+  {
+    final MeshType model = source();
+    final MeshFrozen frozen = MeshFrozen.freeze(model);
+
+    Assert.assertEquals(
+      model.vertexFind(Vector2I.of(4, 4)).map(PolygonVertexType::id),
+      frozen.vertexFind(Vector2I.of(4, 4)).map(PolygonVertexType::id));
+    Assert.assertEquals(
+      Optional.empty(), frozen.vertexFind(Vector2I.of(2, 2)));
+  }
+
+  @Test
+  public void testPolygonsOverlapping()
+  {
+    final MeshFrozen frozen = MeshFrozen.freeze(source());
+
+    final List<PolygonType> all = new ArrayList<>();
+    Assert.assertTrue(frozen.forEachPolygonOverlapping(0, 8, 0, 4, all::add));
+    Assert.assertEquals(3L, (long) all.size());
+
+    final List<PolygonType> right = new ArrayList<>();
+    Assert.assertTrue(frozen.forEachPolygonOverlapping(6, 7, 3, 4, right::add));
+    Assert.assertEquals(1L, (long) right.size());
+
+    final List<PolygonType> none = new ArrayList<>();
+    Assert.assertTrue(frozen.forEachPolygonOverlapping(9, 10, 9, 10, none::add));
+    Assert.assertTrue(none.isEmpty());
+  }
+
+  @Test
+  public void testPolygonsOverlappingTerminated()
+  {
+    final MeshFrozen frozen = MeshFrozen.freeze(source());
+
+    final List<PolygonType> first = new ArrayList<>();
+    Assert.assertFalse(frozen.forEachPolygonOverlapping(
+      0, 8, 0, 4, polygon -> {
+        first.add(polygon);
+        return false;
+      }));
+    Assert.assertEquals(1L, (long) first.size());
+  }
+
+  @Test
+  public void testPolygonNonexistent()
+  {
+    final MeshFrozen frozen = MeshFrozen.freeze(source());
+
+    this.expected.expect(MeshExceptionPolygonNonexistent.class);
+    frozen.polygonNeighbours(PolygonID.of(1000L));
+  }
+
+  @Test
+  public void testVertexNonexistent()
+  {
+    final MeshFrozen frozen = MeshFrozen.freeze(source());
+
+    this.expected.expect(MeshExceptionVertexNonexistent.class);
+    frozen.vertexEdges(PolygonVertexID.of(1000L));
+  }
+}
@@ -28,4 +28,100 @@ public final class MeshPolygonsTest
     final long area0 = MeshPolygons.area(vs0);
     Assert.assertEquals(-18L, area0);
   }
+
+  @Test
+  public void testAreaOfExtremes()
+  {
+    final int min = Integer.MIN_VALUE;
+    final int max = Integer.MAX_VALUE;
+
+    final ArrayList<Vector2I> square = new ArrayList<>(4);
+    square.add(Vector2I.of(min, max));
+    square.add(Vector2I.of(min, min));
+    square.add(Vector2I.of(max, min));
+    square.add(Vector2I.of(max, max));
+    Assert.assertEquals(Long.MIN_VALUE, MeshPolygons.area(square));
+    Collections.reverse(square);
+    Assert.assertEquals(Long.MAX_VALUE, MeshPolygons.area(square));
+
+    //
+    // The products for each edge overflow, but the area itself does not.
+    //
+
+    final ArrayList<Vector2I> sliver = new ArrayList<>(3);
+    sliver.add(Vector2I.of(min, min));
+    sliver.add(Vector2I.of(max, max));
+    sliver.add(Vector2I.of(max - 2, max));
+    Assert.assertEquals(-0xffff_ffffL, MeshPolygons.area(sliver));
+
+    final ArrayList<Vector2I> far = new ArrayList<>(4);
+    far.add(Vector2I.of(max - 4, max));
+    far.add(Vector2I.of(max - 4, max - 4));
+    far.add(Vector2I.of(max, max - 4));
+    far.add(Vector2I.of(max, max));
+    Assert.assertEquals(-16L, MeshPolygons.area(far));
+  }
+
+  @Test
+  public void testOrient2dExtremes()
+  {
+    final int min = Integer.MIN_VALUE;
+    final int max = Integer.MAX_VALUE;
+
+    Assert.assertEquals(1L, (long) MeshPolygons.orient2d(
+      min, min, max, max, min, max));
+    Assert.assertEquals(-1L, (long) MeshPolygons.orient2d(
+      min, min, max, max, max, min));
+    Assert.assertEquals(0L, (long) MeshPolygons.orient2d(
+      min, min, max, max, 0, 0));
+    Assert.assertEquals(1L, (long) MeshPolygons.orient2d(
+      min, min, max, max, 0, 1));
+    Assert.assertEquals(-1L, (long) MeshPolygons.orient2d(
+      min, min, max, max, 1, 0));
+    Assert.assertEquals(0L, (long) MeshPolygons.orient2d(
+      min, max, max, min, max, min));
+  }
+
+  @Test
+  public void testOrient2dSmall()
+  {
+    Assert.assertEquals(1L, (long) MeshPolygons.orient2d(
+      0, 0, 4, 0, 0, 4));
+    Assert.assertEquals(-1L, (long) MeshPolygons.orient2d(
+      0, 0, 0, 4, 4, 0));
+    Assert.assertEquals(0L, (long) MeshPolygons.orient2d(
+      0, 0, 2, 2, 4, 4));
+  }
+
+  @Test
+  public void testIsConvexExtremes()
+  {
+    final int min = Integer.MIN_VALUE;
+    final int max = Integer.MAX_VALUE;
+
+    final int[] reflex = {min, min, 0, 1, max, max, min, max};
+    Assert.assertFalse(MeshPolygons.isConvex(reflex, 4));
+
+    final int[] bulge = {min, min, 1, 0, max, max, min, max};
+    Assert.assertTrue(MeshPolygons.isConvex(bulge, 4));
+
+    final int[] flat = {min, min, 0, 0, max, max, min, max};
+    Assert.assertTrue(MeshPolygons.isConvex(flat, 4));
+  }
+
+  @Test
+  public void testWindingExtremes()
+  {
+    final int min = Integer.MIN_VALUE;
+    final int max = Integer.MAX_VALUE;
+
+    final int[] ccw = {min, min, 0, 0, max, max, min, max};
+    Assert.assertEquals(1L, (long) MeshPolygons.winding(ccw, 4));
+
+    final int[] cw = {min, max, max, max, 0, 0, min, min};
+    Assert.assertEquals(-1L, (long) MeshPolygons.winding(cw, 4));
+
+    final int[] line = {min, min, 0, 0, max, max};
+    Assert.assertEquals(0L, (long) MeshPolygons.winding(line, 3));
+  }
 }